@@ -1,22 +1,88 @@
 package com.angrysurfer.atomic.admin.logging.service;
 
 import com.angrysurfer.atomic.admin.logging.AdminLogEntry;
-import com.angrysurfer.atomic.admin.logging.repository.AdminLogRepository;
 import com.angrysurfer.atomic.broker.api.ServiceRequest;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Write-behind audit log for broker requests.
+ *
+ * Neither {@link #logRequest} nor {@link #updateLogEntry} touches Mongo.
+ * A logged entry is held in memory until its outcome arrives, so the row is
+ * written once, complete, instead of being inserted, read back and saved
+ * again. Finished entries go into a bounded lock-free ring buffer that a
+ * background writer drains into unordered bulk writes. Entries whose outcome
+ * does not arrive within the hold time are written without it; an outcome
+ * that arrives after that is applied as an update in a later bulk write.
+ *
+ * When the buffer is full the overflow policy decides what gives:
+ * - drop-newest: the new entry is discarded (default; auditing never slows requests)
+ * - drop-oldest: the oldest buffered entry is discarded to make room
+ * - caller-runs: the caller writes the entry itself (no loss, but adds latency)
+ *
+ * Configuration properties:
+ * - admin.logging.buffer-size: capacity of the ring buffer (default: 8192)
+ * - admin.logging.batch-size: maximum writes per bulk operation (default: 500)
+ * - admin.logging.flush-interval-ms: how often the writer wakes when idle (default: 200)
+ * - admin.logging.max-hold-ms: how long an entry waits for its outcome (default: 30000)
+ * - admin.logging.overflow-policy: drop-newest, drop-oldest or caller-runs
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class AdminLoggingService {
 
-    private final AdminLogRepository adminLogRepository;
+    enum OverflowPolicy {
+        DROP_NEWEST, DROP_OLDEST, CALLER_RUNS
+    }
+
+    /** A buffered write: a complete entry to insert, or a late outcome to apply. */
+    private record Write(AdminLogEntry entry, boolean update) {
+    }
+
+    private record Held(AdminLogEntry entry, long since) {
+    }
+
+    private final MongoOperations mongoOperations;
+    private final AuditRingBuffer<Write> buffer;
+    private final Map<UUID, Held> pending = new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long maxHoldNanos;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Counter enqueued;
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+    private final Counter lateUpdates;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private volatile Thread writer;
 
     @Value("${server.port:8080}")
     private int serverPort;
@@ -27,9 +93,72 @@ public class AdminLoggingService {
     @Value("${spring.application.name:unknown}")
     private String serverName;
 
+    public AdminLoggingService(MongoOperations mongoOperations, MeterRegistry meterRegistry,
+            @Value("${admin.logging.buffer-size:8192}") int bufferSize,
+            @Value("${admin.logging.batch-size:500}") int batchSize,
+            @Value("${admin.logging.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${admin.logging.max-hold-ms:30000}") long maxHoldMs,
+            @Value("${admin.logging.overflow-policy:drop-newest}") String overflowPolicy) {
+        this.mongoOperations = mongoOperations;
+        this.buffer = new AuditRingBuffer<>(bufferSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.maxHoldNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxHoldMs));
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+
+        this.enqueued = Counter.builder("admin.logging.enqueued")
+                .description("Audit writes accepted into the buffer")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("admin.logging.dropped")
+                .description("Audit writes discarded because the buffer was full")
+                .tag("policy", this.overflowPolicy.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+        this.written = Counter.builder("admin.logging.written")
+                .description("Audit writes stored in Mongo")
+                .register(meterRegistry);
+        this.failed = Counter.builder("admin.logging.failed")
+                .description("Audit writes rejected by Mongo")
+                .register(meterRegistry);
+        this.lateUpdates = Counter.builder("admin.logging.late.updates")
+                .description("Outcomes that arrived after their entry was written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("admin.logging.flush")
+                .description("Time taken by one bulk write")
+                .register(meterRegistry);
+        Gauge.builder("admin.logging.buffered", buffer, AuditRingBuffer::size)
+                .description("Audit writes waiting in the buffer")
+                .register(meterRegistry);
+        Gauge.builder("admin.logging.pending", pending, Map::size)
+                .description("Logged requests waiting for their outcome")
+                .register(meterRegistry);
+
+        log.info("AdminLoggingService initialized (buffer: {}, batch: {}, flush interval: {}ms, max hold: {}ms, overflow: {})",
+                buffer.capacity(), this.batchSize, flushIntervalMs, maxHoldMs, this.overflowPolicy);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = Thread.ofPlatform().daemon().name("admin-log-writer").start(this::runWriter);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // Write whatever is left, including entries still waiting for their outcome
+        releaseHeld(true);
+        drain();
+    }
+
     public AdminLogEntry logRequest(ServiceRequest request, String userId) {
         try {
             AdminLogEntry logEntry = AdminLogEntry.builder()
+                    .id(UUID.randomUUID())
                     .timestamp(LocalDateTime.now())
                     .serverId(serverName)
                     .serverPort(serverPort)
@@ -43,7 +172,13 @@ public class AdminLoggingService {
                     .requestId(request.getRequestId())
                     .build();
 
-            return adminLogRepository.save(logEntry);
+            if (pending.size() < buffer.capacity()) {
+                pending.put(logEntry.getId(), new Held(logEntry, System.nanoTime()));
+            } else {
+                // Too many requests in flight to hold them all; write now, update later
+                publish(new Write(logEntry, false));
+            }
+            return logEntry;
         } catch (Exception e) {
             log.error("Error logging request: {}", e.getMessage(), e);
             return null;
@@ -56,18 +191,127 @@ public class AdminLoggingService {
                 return;
             }
 
-            AdminLogEntry logEntry = adminLogRepository.findById(logId)
-                    .orElse(null);
-
-            if (logEntry != null) {
-                logEntry.setSuccessStatus(successStatus);
+            Held held = pending.remove(logId);
+            if (held != null) {
+                held.entry().setSuccessStatus(successStatus);
                 if (errorMessage != null) {
-                    logEntry.setErrorMessage(errorMessage);
+                    held.entry().setErrorMessage(errorMessage);
                 }
-                adminLogRepository.save(logEntry);
+                publish(new Write(held.entry(), false));
+            } else {
+                lateUpdates.increment();
+                publish(new Write(AdminLogEntry.builder()
+                        .id(logId)
+                        .successStatus(successStatus)
+                        .errorMessage(errorMessage)
+                        .build(), true));
             }
         } catch (Exception e) {
             log.error("Error updating log entry: {}", e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    private void publish(Write write) {
+        if (buffer.offer(write)) {
+            enqueued.increment();
+            if (buffer.size() >= batchSize) {
+                wakeWriter();
+            }
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST -> {
+                // Bounded so that a burst of producers cannot keep one caller spinning
+                for (int attempt = 0; attempt < 3; attempt++) {
+                    if (buffer.poll() != null) {
+                        dropped.increment();
+                    }
+                    if (buffer.offer(write)) {
+                        enqueued.increment();
+                        return;
+                    }
+                }
+                dropped.increment();
+            }
+            case CALLER_RUNS -> write(List.of(write));
+            default -> dropped.increment();
+        }
+        wakeWriter();
+    }
+
+    private void wakeWriter() {
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("Audit writer failed: {}", e.getMessage(), e);
+            }
+            LockSupport.parkNanos(flushIntervalNanos);
+        }
+    }
+
+    /**
+     * Release entries that have waited too long for their outcome and write
+     * everything buffered.
+     */
+    void flush() {
+        releaseHeld(false);
+        drain();
+    }
+
+    private void releaseHeld(boolean all) {
+        long now = System.nanoTime();
+        for (Held held : pending.values()) {
+            if ((all || now - held.since() >= maxHoldNanos) && pending.remove(held.entry().getId(), held)) {
+                publish(new Write(held.entry(), false));
+            }
+        }
+    }
+
+    private void drain() {
+        List<Write> batch = new ArrayList<>(Math.min(batchSize, buffer.capacity()));
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Write> batch) {
+        long start = System.nanoTime();
+        try {
+            BulkOperations operations = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, AdminLogEntry.class);
+            for (Write write : batch) {
+                if (write.update()) {
+                    AdminLogEntry outcome = write.entry();
+                    Update update = Update.update("successStatus", outcome.getSuccessStatus());
+                    if (outcome.getErrorMessage() != null) {
+                        update.set("errorMessage", outcome.getErrorMessage());
+                    }
+                    operations.updateOne(Query.query(Criteria.where("_id").is(outcome.getId())), update);
+                } else {
+                    operations.insert(write.entry());
+                }
+            }
+            operations.execute();
+            written.increment(batch.size());
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the reported failures was applied
+            int failures = e.getErrors().size();
+            failed.increment(failures);
+            written.increment(batch.size() - failures);
+            log.error("Failed to write {} of {} audit entries: {}", failures, batch.size(), e.getMessage());
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.error("Failed to write {} audit entries: {}", batch.size(), e.getMessage(), e);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
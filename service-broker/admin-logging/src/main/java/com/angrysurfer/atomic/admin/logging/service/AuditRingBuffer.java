@@ -0,0 +1,102 @@
+package com.angrysurfer.atomic.admin.logging.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer queue backed by a power-of-two ring.
+ *
+ * Each slot carries a sequence number that tells producers and consumers
+ * whose turn it is, so offering and polling are a CAS on the tail or head
+ * counter plus two plain writes, and never block. Consumers may also run
+ * concurrently, which lets producers evict the oldest element when the
+ * buffer is full.
+ */
+final class AuditRingBuffer<T> {
+
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    AuditRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(T element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * @return the oldest element, or null if the buffer is empty
+     */
+    T poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+            } else if (diff < 0) {
+                return null;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Move up to {@code max} elements into {@code into}.
+     *
+     * @return the number of elements moved
+     */
+    int drainTo(List<T> into, int max) {
+        int drained = 0;
+        T element;
+        while (drained < max && (element = poll()) != null) {
+            into.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
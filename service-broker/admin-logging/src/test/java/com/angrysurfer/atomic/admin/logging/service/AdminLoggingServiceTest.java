@@ -0,0 +1,159 @@
+package com.angrysurfer.atomic.admin.logging.service;
+
+import com.angrysurfer.atomic.admin.logging.AdminLogEntry;
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdminLoggingServiceTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        lenient().when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, AdminLogEntry.class))
+                .thenReturn(bulkOperations);
+    }
+
+    private AdminLoggingService service(int bufferSize, long maxHoldMs, String overflowPolicy) {
+        return new AdminLoggingService(mongoOperations, registry, bufferSize, 500, 200, maxHoldMs, overflowPolicy);
+    }
+
+    private static ServiceRequest request(String requestId) {
+        return new ServiceRequest("userService", "findAll", Map.of(), requestId);
+    }
+
+    @Test
+    void testOutcomeIsMergedBeforeTheEntryIsWritten() {
+        // Arrange
+        AdminLoggingService service = service(16, 30_000, "drop-newest");
+        AdminLogEntry entry = service.logRequest(request("r1"), "alice");
+
+        // Act
+        service.flush();
+        verifyNoInteractions(mongoOperations);
+        service.updateLogEntry(entry.getId(), false, "boom");
+        service.flush();
+
+        // Assert - one complete insert, no read back
+        ArgumentCaptor<AdminLogEntry> inserted = ArgumentCaptor.forClass(AdminLogEntry.class);
+        verify(bulkOperations).insert(inserted.capture());
+        verify(bulkOperations).execute();
+        assertEquals(entry.getId(), inserted.getValue().getId());
+        assertEquals(false, inserted.getValue().getSuccessStatus());
+        assertEquals("boom", inserted.getValue().getErrorMessage());
+        assertEquals(1.0, registry.get("admin.logging.written").counter().count());
+    }
+
+    @Test
+    void testEntriesAreWrittenTogetherInOneBulkOperation() {
+        // Arrange
+        AdminLoggingService service = service(16, 30_000, "drop-newest");
+        for (int i = 0; i < 3; i++) {
+            AdminLogEntry entry = service.logRequest(request("r" + i), "alice");
+            service.updateLogEntry(entry.getId(), true, null);
+        }
+
+        // Act
+        service.flush();
+
+        // Assert
+        verify(mongoOperations, times(1)).bulkOps(BulkOperations.BulkMode.UNORDERED, AdminLogEntry.class);
+        verify(bulkOperations, times(3)).insert(any(AdminLogEntry.class));
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    void testLateOutcomeIsAppliedAsUpdate() {
+        // Arrange - nothing is held, so the entry is written without its outcome
+        AdminLoggingService service = service(16, 0, "drop-newest");
+        AdminLogEntry entry = service.logRequest(request("r1"), "alice");
+        service.flush();
+
+        // Act
+        service.updateLogEntry(entry.getId(), true, null);
+        service.flush();
+
+        // Assert
+        verify(bulkOperations).insert(any(AdminLogEntry.class));
+        verify(bulkOperations).updateOne(any(Query.class), any(Update.class));
+        assertEquals(1.0, registry.get("admin.logging.late.updates").counter().count());
+    }
+
+    @Test
+    void testFullBufferDropsNewestEntries() {
+        // Arrange
+        AdminLoggingService service = service(4, 30_000, "drop-newest");
+
+        // Act
+        for (int i = 0; i < 6; i++) {
+            AdminLogEntry entry = service.logRequest(request("r" + i), "alice");
+            service.updateLogEntry(entry.getId(), true, null);
+        }
+        service.flush();
+
+        // Assert
+        verify(bulkOperations, times(4)).insert(any(AdminLogEntry.class));
+        assertEquals(2.0, registry.get("admin.logging.dropped").tags("policy", "drop_newest").counter().count());
+    }
+
+    @Test
+    void testCallerRunsWritesInlineWhenBufferIsFull() {
+        // Arrange
+        AdminLoggingService service = service(4, 30_000, "caller-runs");
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            AdminLogEntry entry = service.logRequest(request("r" + i), "alice");
+            service.updateLogEntry(entry.getId(), true, null);
+        }
+
+        // Assert - the fifth entry was written by the caller
+        verify(bulkOperations, times(1)).insert(any(AdminLogEntry.class));
+        verify(bulkOperations, times(1)).execute();
+        assertEquals(0.0, registry.get("admin.logging.dropped").counter().count());
+    }
+
+    @Test
+    void testRingBufferIsBoundedAndFifo() {
+        // Arrange
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+
+        // Act
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertTrue(buffer.offer(i));
+        }
+        boolean overflowed = !buffer.offer(99);
+
+        // Assert
+        assertEquals(4, buffer.capacity());
+        assertTrue(overflowed);
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertEquals(1, buffer.poll());
+        assertEquals(3, buffer.size());
+    }
+}
@@ -0,0 +1,162 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticApplicationContext;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+import com.angrysurfer.atomic.broker.spi.BrokerParam;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+
+/**
+ * Baseline for the broker dispatch path, stage by stage: the whole of
+ * {@link Broker#submit}, then bean lookup, operation lookup (a fresh method
+ * scan versus the plan cache), argument binding for simple and DTO
+ * parameters, and serializing the response to JSON.
+ *
+ * The beans live in a {@link StaticApplicationContext}, so lookups go through
+ * a real bean factory without starting Spring Boot.
+ *
+ * Run with: {@code java -jar broker-benchmarks/target/benchmarks.jar BrokerDispatchBenchmark -prof gc}
+ * and compare {@code gc.alloc.rate.norm} (bytes per operation) as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrokerDispatchBenchmark {
+
+    public static class PostDTO {
+        public Long id;
+        public Long forumId;
+        public String author;
+        public String content;
+        public int rating;
+        public List<String> tags;
+    }
+
+    public static class ForumService {
+        @BrokerOperation("findByAlias")
+        public Map<String, Object> findByAlias(@BrokerParam("alias") String alias, @BrokerParam("page") int page) {
+            return Map.of("alias", alias, "page", page);
+        }
+
+        @BrokerOperation("createPost")
+        public PostDTO createPost(@BrokerParam("post") @jakarta.validation.Valid PostDTO post) {
+            return post;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final Map<String, Object> simpleParams = Map.of("alias", "alice", "page", 3);
+    private final Map<String, Object> dtoParams = Map.of("post", Map.of(
+            "id", 42,
+            "forumId", 7,
+            "author", "alice",
+            "content", "Lorem ipsum dolor sit amet, consectetur adipiscing elit.",
+            "rating", 5,
+            "tags", List.of("java", "broker")));
+
+    private StaticApplicationContext ctx;
+    private ValidatorFactory validatorFactory;
+    private Broker broker;
+    private ServiceRequest simpleRequest;
+    private ServiceRequest dtoRequest;
+    private InvocationPlan simplePlan;
+    private InvocationPlan dtoPlan;
+    private ServiceResponse<?> dtoResponse;
+
+    @Setup
+    public void setUp() {
+        ctx = new StaticApplicationContext();
+        ctx.registerSingleton("forumService", ForumService.class);
+        ctx.refresh();
+
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        broker = new Broker(ctx, objectMapper, validatorFactory.getValidator());
+        broker.buildServiceIndex();
+        broker.buildInvocationPlans();
+
+        simpleRequest = new ServiceRequest("forumService", "findByAlias", simpleParams, "bench-simple");
+        dtoRequest = new ServiceRequest("forumService", "createPost", dtoParams, "bench-dto");
+        simplePlan = broker.planFor(ForumService.class, "findByAlias");
+        dtoPlan = broker.planFor(ForumService.class, "createPost");
+        dtoResponse = broker.submit(dtoRequest);
+        if (!broker.submit(simpleRequest).isOk() || !dtoResponse.isOk()) {
+            throw new IllegalStateException("Benchmark requests failed: " + dtoResponse.getErrors());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.shutdown();
+        validatorFactory.close();
+        ctx.close();
+    }
+
+    @Benchmark
+    public Object submitSimple() {
+        return broker.submit(simpleRequest);
+    }
+
+    @Benchmark
+    public Object submitDto() {
+        return broker.submit(dtoRequest);
+    }
+
+    @Benchmark
+    public Object resolveBeanByName() {
+        return broker.resolveBean("forumService");
+    }
+
+    @Benchmark
+    public Object resolveBeanBySimpleName() {
+        return broker.resolveBean("ForumService");
+    }
+
+    @Benchmark
+    public Object resolveMethodUncached() {
+        return broker.resolveMethod(ForumService.class, "createPost");
+    }
+
+    @Benchmark
+    public Object resolveMethodCached() {
+        return broker.planFor(ForumService.class, "createPost");
+    }
+
+    @Benchmark
+    public Object bindArgsSimple() {
+        return broker.bindArgs(simplePlan, simpleParams, "bench-simple");
+    }
+
+    @Benchmark
+    public Object bindArgsDto() {
+        return broker.bindArgs(dtoPlan, dtoParams, "bench-dto");
+    }
+
+    @Benchmark
+    public byte[] responseToJson() throws Exception {
+        return objectMapper.writeValueAsBytes(dtoResponse);
+    }
+}
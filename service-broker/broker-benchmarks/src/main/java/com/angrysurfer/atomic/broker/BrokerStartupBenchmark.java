@@ -0,0 +1,145 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.GenericApplicationContext;
+
+import com.angrysurfer.atomic.broker.api.ServiceRegistration;
+import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+import com.angrysurfer.atomic.broker.spi.BrokerParam;
+import com.angrysurfer.atomic.broker.spi.OperationIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+
+/**
+ * The broker's share of application startup: building invocation plans at
+ * context refresh and registering every service's operations when the
+ * application is ready, with the operations found through the compile-time
+ * {@link OperationIndex} ({@code index}) or by scanning every bean
+ * ({@code scan}, what happens when the index is empty).
+ *
+ * The context holds a few services among {@code beans} other, lazily
+ * initialized beans, as an application's context does. Each measurement
+ * starts from a freshly refreshed context, so the cost of the beans the scan
+ * creates is counted; {@code -prof gc} shows it in the allocation rate too.
+ *
+ * Run with: {@code java -jar broker-benchmarks/target/benchmarks.jar BrokerStartupBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 30)
+@Fork(1)
+public class BrokerStartupBenchmark {
+
+    public static class NoteService {
+        @BrokerOperation("listNotes")
+        public List<String> list(@BrokerParam("owner") String owner) {
+            return List.of(owner);
+        }
+
+        @BrokerOperation("saveNote")
+        public String save(@BrokerParam("owner") String owner, @BrokerParam("text") String text) {
+            return text;
+        }
+    }
+
+    public static class SearchService {
+        @BrokerOperation("search")
+        public List<String> search(@BrokerParam("query") String query, @BrokerParam("page") int page) {
+            return List.of(query);
+        }
+    }
+
+    public static class RegistryService {
+        final List<String> registered = new ArrayList<>();
+
+        @BrokerOperation("register")
+        public String register(@BrokerParam("registration") ServiceRegistration registration) {
+            registered.add(registration.getServiceName());
+            return registration.getServiceName();
+        }
+    }
+
+    /** Stands in for the repositories, controllers and configuration of an application. */
+    public static class PlainBean {
+        private final byte[] state = new byte[256];
+
+        public byte[] state() {
+            return state;
+        }
+    }
+
+    @Param({"200", "1000"})
+    public int beans;
+
+    @Param({"index", "scan"})
+    public String discovery;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ValidatorFactory validatorFactory;
+    private GenericApplicationContext ctx;
+    private Broker broker;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ctx = new GenericApplicationContext();
+        ctx.registerBean("noteService", NoteService.class);
+        ctx.registerBean("searchService", SearchService.class);
+        ctx.registerBean("serviceRegistry", RegistryService.class);
+        for (int i = 0; i < beans; i++) {
+            ctx.registerBean("plainBean" + i, PlainBean.class, bd -> bd.setLazyInit(true));
+        }
+        ctx.refresh();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        List<String> registered = ctx.getBean(RegistryService.class).registered;
+        if (!registered.containsAll(List.of("noteService", "searchService"))) {
+            throw new IllegalStateException("Services were not registered: " + registered);
+        }
+        broker.shutdown();
+        ctx.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Object startBroker() {
+        OperationIndex index = discovery.equals("index") ? OperationIndex.load(getClass().getClassLoader())
+                : OperationIndex.empty();
+        broker = new Broker(ctx, objectMapper, validatorFactory.getValidator(), new BrokerMetrics(),
+                new BrokerResponseCache(), new BrokerBulkheads(), index);
+        broker.buildInvocationPlans();
+        new BrokerAutoRegistration(ctx, broker).registerServices();
+        return broker;
+    }
+}
@@ -0,0 +1,88 @@
+package com.angrysurfer.atomic.broker;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+import com.angrysurfer.atomic.broker.spi.BrokerParam;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the original reflective dispatch (per-call parameter/annotation
+ * scanning plus {@link Method#invoke}) with a precompiled {@link InvocationPlan}.
+ *
+ * Run with: {@code java -jar broker-benchmarks/target/benchmarks.jar InvocationPlanBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvocationPlanBenchmark {
+
+    public static class SampleService {
+        @BrokerOperation("greet")
+        public String greet(@BrokerParam("name") String name, @BrokerParam("times") int times) {
+            return name;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SampleService bean = new SampleService();
+    private final Map<String, Object> params = Map.of("name", "alice", "times", 3);
+
+    private Method method;
+    private InvocationPlan plan;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        method = SampleService.class.getMethod("greet", String.class, int.class);
+        plan = InvocationPlan.build(method, objectMapper);
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        Parameter[] ps = method.getParameters();
+        Object[] args = new Object[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            Parameter p = ps[i];
+            BrokerParam ann = p.getAnnotation(BrokerParam.class);
+            String name = ann != null ? ann.value() : p.getName();
+            Object converted = objectMapper.convertValue(params.get(name), objectMapper.constructType(p.getType()));
+            for (Annotation an : p.getAnnotations()) {
+                if (an.annotationType().equals(jakarta.validation.Valid.class)) {
+                    break;
+                }
+            }
+            args[i] = converted;
+        }
+        return method.invoke(bean, args);
+    }
+
+    @Benchmark
+    public Object planned() throws Exception {
+        List<InvocationPlan.ParamSpec> ps = plan.getParams();
+        Object[] args = new Object[ps.size()];
+        for (int i = 0; i < args.length; i++) {
+            InvocationPlan.ParamSpec p = ps.get(i);
+            args[i] = p.binder().bind(params.get(p.name()));
+        }
+        return plan.invoke(bean, args);
+    }
+}
@@ -0,0 +1,115 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares {@link ObjectMapper#convertValue} with the precomputed
+ * {@link ParamBinder}s for the parameter shapes broker operations take:
+ * strings, numbers sent as JSON numbers or strings, and DTOs.
+ *
+ * Run with: {@code java -jar broker-benchmarks/target/benchmarks.jar ParamBindingBenchmark -prof gc}
+ * and compare {@code gc.alloc.rate.norm} (bytes per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParamBindingBenchmark {
+
+    public static class PostDTO {
+        public Long id;
+        public Long forumId;
+        public String author;
+        public String content;
+        public int rating;
+        public List<String> tags;
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final String alias = "alice";
+    private final Integer page = 3;
+    private final String pageText = "3";
+    private final Map<String, Object> post = Map.of(
+            "id", 42,
+            "forumId", 7,
+            "author", "alice",
+            "content", "Lorem ipsum dolor sit amet, consectetur adipiscing elit.",
+            "rating", 5,
+            "tags", List.of("java", "broker"));
+
+    private JavaType stringType;
+    private JavaType intType;
+    private JavaType postType;
+    private ParamBinder stringBinder;
+    private ParamBinder intBinder;
+    private ParamBinder postBinder;
+
+    @Setup
+    public void setUp() {
+        stringType = objectMapper.constructType(String.class);
+        intType = objectMapper.constructType(int.class);
+        postType = objectMapper.constructType(PostDTO.class);
+        stringBinder = ParamBinder.forType(stringType, objectMapper);
+        intBinder = ParamBinder.forType(intType, objectMapper);
+        postBinder = ParamBinder.forType(postType, objectMapper);
+    }
+
+    @Benchmark
+    public Object stringConvertValue() {
+        return objectMapper.convertValue(alias, stringType);
+    }
+
+    @Benchmark
+    public Object stringBinder() {
+        return stringBinder.bind(alias);
+    }
+
+    @Benchmark
+    public Object intConvertValue() {
+        return objectMapper.convertValue(page, intType);
+    }
+
+    @Benchmark
+    public Object intBinder() {
+        return intBinder.bind(page);
+    }
+
+    @Benchmark
+    public Object intFromStringConvertValue() {
+        return objectMapper.convertValue(pageText, intType);
+    }
+
+    @Benchmark
+    public Object intFromStringBinder() {
+        return intBinder.bind(pageText);
+    }
+
+    @Benchmark
+    public Object dtoConvertValue() {
+        return objectMapper.convertValue(post, postType);
+    }
+
+    @Benchmark
+    public Object dtoBinder() {
+        return postBinder.bind(post);
+    }
+}
@@ -0,0 +1,105 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Compares JSON and Smile for the payloads exchanged between services: a
+ * typical {@link ServiceRequest} and a {@link ServiceResponse} carrying a list
+ * of records. Encoded sizes are printed once per fork during setup.
+ *
+ * Run with: {@code java -jar broker-benchmarks/target/benchmarks.jar WireFormatBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({ "json", "smile" })
+    public String format;
+
+    /** Number of records in the response payload. */
+    @Param({ "1", "50" })
+    public int records;
+
+    private ObjectMapper mapper;
+    private ServiceRequest request;
+    private ServiceResponse<?> response;
+    private byte[] requestBytes;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = "smile".equals(format)
+                ? new ObjectMapper(new SmileFactory()).findAndRegisterModules()
+                : new ObjectMapper().findAndRegisterModules();
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("alias", "alice");
+        params.put("page", 0);
+        params.put("size", 25);
+        params.put("filter", Map.of("active", true, "roles", List.of("admin", "editor")));
+        request = new ServiceRequest("userService", "findByAlias", params, "5f0c2a4e-8d1b-4b7a-9c3e-2f6d1a0b7e91");
+
+        List<Map<String, Object>> data = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            Map<String, Object> user = new LinkedHashMap<>();
+            user.put("id", "64f1c0d2e4b0a1b2c3d4e5" + String.format("%02d", i % 100));
+            user.put("alias", "user" + i);
+            user.put("email", "user" + i + "@example.com");
+            user.put("avatarUrl", "https://cdn.example.com/avatars/user" + i + ".png");
+            user.put("followers", 1000 + i);
+            user.put("admin", i % 10 == 0);
+            data.add(user);
+        }
+        response = ServiceResponse.ok("userService", "findAll", data, request.getRequestId());
+
+        requestBytes = mapper.writeValueAsBytes(request);
+        responseBytes = mapper.writeValueAsBytes(response);
+        System.out.printf("%n%s: request %d bytes, response (%d records) %d bytes%n",
+                format, requestBytes.length, records, responseBytes.length);
+    }
+
+    @Benchmark
+    public byte[] writeRequest() throws Exception {
+        return mapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ServiceRequest readRequest() throws Exception {
+        return mapper.readValue(requestBytes, ServiceRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws Exception {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ServiceResponse<?> readResponse() throws Exception {
+        return mapper.readValue(responseBytes, ServiceResponse.class);
+    }
+}
@@ -4,11 +4,18 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import com.angrysurfer.atomic.broker.BrokerCompression;
+import com.angrysurfer.atomic.broker.BrokerHttpTransport;
+
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * For the gateway's own calls to services and the registry, on the shared
+     * pooled transport. Responses are asked for compressed.
+     */
     @Bean("gatewayRestTemplate")
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(BrokerHttpTransport transport, BrokerCompression compression) {
+        return compression.decompressing(transport.restTemplate());
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * One circuit breaker per service endpoint, so that calls to a failing
+ * deployment fail fast (or go to another deployment) instead of each waiting
+ * out the network timeout.
+ *
+ * A breaker opens when at least {@code failure-rate} of the last
+ * {@code window} calls failed (once {@code min-calls} have been made). After
+ * {@code open-ms} it lets {@code half-open-calls} probe calls through: the
+ * breaker closes when they all succeed and opens again on the first failure.
+ * Probes that never report back are replaced after another {@code open-ms}.
+ *
+ * Configuration properties:
+ * - gateway.circuit-breaker.enabled: (default: true)
+ * - gateway.circuit-breaker.window: calls the failure rate is measured over (default: 20)
+ * - gateway.circuit-breaker.min-calls: calls needed before the breaker can open (default: 10)
+ * - gateway.circuit-breaker.failure-rate: failure rate that opens the breaker (default: 0.5)
+ * - gateway.circuit-breaker.open-ms: how long an open breaker rejects calls (default: 10000)
+ * - gateway.circuit-breaker.half-open-calls: probe calls let through once open-ms passed (default: 3)
+ */
+@Component
+public class EndpointCircuitBreakers {
+
+    private static final Logger log = LoggerFactory.getLogger(EndpointCircuitBreakers.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final int window;
+    private final int minCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EndpointCircuitBreakers(
+            @Value("${gateway.circuit-breaker.enabled:true}") boolean enabled,
+            @Value("${gateway.circuit-breaker.window:20}") int window,
+            @Value("${gateway.circuit-breaker.min-calls:10}") int minCalls,
+            @Value("${gateway.circuit-breaker.failure-rate:0.5}") double failureRate,
+            @Value("${gateway.circuit-breaker.open-ms:10000}") long openMs,
+            @Value("${gateway.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        this(enabled, window, minCalls, failureRate, openMs, halfOpenCalls, System::nanoTime);
+    }
+
+    EndpointCircuitBreakers(boolean enabled, int window, int minCalls, double failureRate, long openMs,
+            int halfOpenCalls, LongSupplier clock) {
+        this.enabled = enabled;
+        this.window = Math.max(1, window);
+        this.minCalls = Math.max(1, Math.min(minCalls, this.window));
+        this.failureRate = failureRate;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, openMs));
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.clock = clock;
+        log.info("EndpointCircuitBreakers initialized (enabled: {}, window: {}, failure rate: {}, open: {}ms)",
+                enabled, this.window, failureRate, openMs);
+    }
+
+    public EndpointCircuitBreakers() {
+        this(true, 20, 10, 0.5, 10_000, 3);
+    }
+
+    /**
+     * @return whether a call to {@code endpoint} would currently be let
+     *         through; unlike {@link #tryAcquire} this takes no probe permit
+     */
+    public boolean isAvailable(String endpoint) {
+        return !enabled || breaker(endpoint).isAvailable(clock.getAsLong());
+    }
+
+    /**
+     * @return whether a call to {@code endpoint} may be made now; the call's
+     *         outcome must then be reported through {@link #onResult}
+     */
+    public boolean tryAcquire(String endpoint) {
+        return !enabled || breaker(endpoint).tryAcquire(clock.getAsLong());
+    }
+
+    public void onResult(String endpoint, boolean success) {
+        if (enabled) {
+            breaker(endpoint).onResult(endpoint, success, clock.getAsLong());
+        }
+    }
+
+    public State state(String endpoint) {
+        Breaker breaker = breakers.get(endpoint);
+        return breaker == null ? State.CLOSED : breaker.state();
+    }
+
+    private Breaker breaker(String endpoint) {
+        return breakers.computeIfAbsent(endpoint, e -> new Breaker());
+    }
+
+    private final class Breaker {
+        /** Outcomes of the last calls, true for failures, as a ring. */
+        private final boolean[] failures = new boolean[window];
+        private int next;
+        private int calls;
+        private int failed;
+
+        private State state = State.CLOSED;
+        private long changedAt;
+        private int permits;
+        private int probesSucceeded;
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized boolean isAvailable(long now) {
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> now - changedAt >= openNanos;
+                case HALF_OPEN -> permits > 0 || now - changedAt >= openNanos;
+            };
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (now - changedAt >= openNanos && (state == State.OPEN || permits == 0)) {
+                transition(State.HALF_OPEN, now);
+            }
+            if (state == State.HALF_OPEN && permits > 0) {
+                permits--;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void onResult(String endpoint, boolean success, long now) {
+            switch (state) {
+                case CLOSED -> {
+                    record(!success);
+                    if (calls >= minCalls && failed >= failureRate * calls) {
+                        log.warn("Opening circuit for {} ({} of the last {} calls failed)", endpoint, failed, calls);
+                        transition(State.OPEN, now);
+                    }
+                }
+                case HALF_OPEN -> {
+                    if (!success) {
+                        log.warn("Probe call to {} failed, circuit stays open", endpoint);
+                        transition(State.OPEN, now);
+                    } else if (++probesSucceeded >= halfOpenCalls) {
+                        log.info("Closing circuit for {}", endpoint);
+                        transition(State.CLOSED, now);
+                    }
+                }
+                case OPEN -> {
+                    // A call that started before the breaker opened
+                }
+            }
+        }
+
+        private void record(boolean failure) {
+            if (calls == window) {
+                if (failures[next]) {
+                    failed--;
+                }
+            } else {
+                calls++;
+            }
+            failures[next] = failure;
+            if (failure) {
+                failed++;
+            }
+            next = (next + 1) % window;
+        }
+
+        private void transition(State to, long now) {
+            state = to;
+            changedAt = now;
+            permits = to == State.HALF_OPEN ? halfOpenCalls : 0;
+            probesSucceeded = 0;
+            if (to == State.CLOSED) {
+                Arrays.fill(failures, false);
+                next = 0;
+                calls = 0;
+                failed = 0;
+            }
+        }
+    }
+}
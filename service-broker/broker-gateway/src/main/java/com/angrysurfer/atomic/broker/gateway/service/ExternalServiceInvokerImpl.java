@@ -1,43 +1,91 @@
 package com.angrysurfer.atomic.broker.gateway.service;
 
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import com.angrysurfer.atomic.broker.Deadlines;
 import com.angrysurfer.atomic.broker.spi.ExternalServiceInvoker;
 import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient;
 import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient.ServiceDetails;
+import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient.ServiceInstance;
 
 @Service
 public class ExternalServiceInvokerImpl implements ExternalServiceInvoker {
 
     private static final Logger log = LoggerFactory.getLogger(ExternalServiceInvokerImpl.class);
 
-    @Autowired
-    private ServiceDiscoveryClient discoveryClient;
+    private final ServiceDiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final ServiceLoadBalancer loadBalancer;
+    private final EndpointCircuitBreakers circuitBreakers;
+    private final RetryPolicy retryPolicy;
+    private final HedgingPolicy hedgingPolicy;
+    private final ServiceHealthProber healthProber;
 
     @Autowired
-    private RestTemplate restTemplate;
-
-    // For testing purposes
-    public void setDiscoveryClient(ServiceDiscoveryClient discoveryClient) {
+    public ExternalServiceInvokerImpl(ServiceDiscoveryClient discoveryClient,
+            @Qualifier("gatewayRestTemplate") RestTemplate restTemplate, ServiceLoadBalancer loadBalancer,
+            EndpointCircuitBreakers circuitBreakers, RetryPolicy retryPolicy, HedgingPolicy hedgingPolicy,
+            ServiceHealthProber healthProber) {
         this.discoveryClient = discoveryClient;
-    }
-
-    // For testing purposes
-    public void setRestTemplate(RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
+        this.loadBalancer = loadBalancer;
+        this.circuitBreakers = circuitBreakers;
+        this.retryPolicy = retryPolicy;
+        this.hedgingPolicy = hedgingPolicy;
+        this.healthProber = healthProber;
     }
 
     @Override
     public InvocationResult invokeOperation(String operation, Object requestBody) {
+        return invokeOperation(operation, requestBody, null);
+    }
+
+    /**
+     * Services running several deployments are balanced across them, see
+     * {@link ServiceLoadBalancer}. Deployments whose circuit is open (see
+     * {@link EndpointCircuitBreakers}) or that failed their health probes (see
+     * {@link ServiceHealthProber}) are skipped; failed attempts are
+     * retried on another deployment within the retry budget (see
+     * {@link RetryPolicy}), and slow idempotent calls may be hedged (see
+     * {@link HedgingPolicy}).
+     *
+     * The remaining budget is sent to the service in the
+     * {@value Deadlines#TIMEOUT_HEADER} header, and the call is interrupted
+     * (aborting the socket read) once the budget is used up.
+     */
+    @Override
+    public InvocationResult invokeOperation(String operation, Object requestBody, Long timeoutMs) {
         log.info("Invoking operation: {} on external service", operation);
+        long deadline = timeoutMs == null ? Deadlines.NONE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMs));
+        if (Deadlines.isExpired(deadline)) {
+            return new InvocationResultImpl(false, 504, null, "Deadline exceeded before invoking: " + operation);
+        }
 
         // Find service that can handle this operation
         var serviceOpt = discoveryClient.findServiceByOperation(operation);
@@ -57,37 +105,263 @@ public class ExternalServiceInvokerImpl implements ExternalServiceInvoker {
         }
 
         ServiceDetails details = detailsOpt.get();
-        String endpoint = details.getEndpoint();
+        List<? extends ServiceInstance> instances = details.getInstances().isEmpty()
+                ? List.of(ServiceLoadBalancer.instanceOf(details.getEndpoint()))
+                : details.getInstances();
+        boolean idempotent = retryPolicy.isIdempotent(operation);
+        retryPolicy.onCall(serviceName);
 
-        // Build the full URL for the operation
-        String operationUrl = endpoint.endsWith("/") ? endpoint + operation : endpoint + "/" + operation;
+        Invocation invocation = new Invocation(serviceName, operation, requestBody, deadline, timeoutMs);
+        Set<String> tried = new HashSet<>();
+        for (int attempt = 1;; attempt++) {
+            Attempt result = idempotent ? invocation.hedged(instances, tried) : invocation.once(instances, tried);
+            // Operations that are not idempotent are only retried if they never reached the service
+            if (!result.retryable() || (!idempotent && result.sent())) {
+                return result.result();
+            }
+            if (attempt >= retryPolicy.maxAttempts() || !retryPolicy.tryRetry(serviceName)) {
+                return result.result();
+            }
+            long backoff = retryPolicy.backoffNanos(attempt + 1);
+            if (deadline != Deadlines.NONE && Deadlines.remainingNanos(deadline) <= backoff) {
+                return result.result();
+            }
+            log.debug("Retrying operation {} on service {} (attempt {})", operation, serviceName, attempt + 1);
+            try {
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return result.result();
+            }
+        }
+    }
 
-        log.debug("Invoking operation at: {}", operationUrl);
+    /**
+     * The outcome of one attempt: {@code call} is null if no request was made.
+     * An attempt is retryable when it failed for reasons another deployment
+     * or a later try might not have; {@code sent} is false when the request
+     * cannot have reached the service.
+     */
+    private record Attempt(ServiceLoadBalancer.Call call, InvocationResult result, boolean healthy,
+            boolean retryable, boolean sent, long latencyNanos) {
+    }
 
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Content-Type", "application/json");
+    /** One invocation, made in one or more attempts. */
+    private final class Invocation {
+        private final String serviceName;
+        private final String operation;
+        private final Object requestBody;
+        private final long deadline;
+        private final Long timeoutMs;
 
-            HttpEntity<Object> requestEntity = new HttpEntity<>(requestBody, headers);
+        Invocation(String serviceName, String operation, Object requestBody, long deadline, Long timeoutMs) {
+            this.serviceName = serviceName;
+            this.operation = operation;
+            this.requestBody = requestBody;
+            this.deadline = deadline;
+            this.timeoutMs = timeoutMs;
+        }
 
-            ResponseEntity<String> response = restTemplate.exchange(
-                    operationUrl,
-                    HttpMethod.POST,
-                    requestEntity,
-                    String.class);
+        /** A single call on the current thread, interrupted at the deadline. */
+        Attempt once(List<? extends ServiceInstance> instances, Set<String> tried) {
+            ServiceLoadBalancer.Call call = choose(instances, tried, true);
+            if (call == null) {
+                return unavailable();
+            }
+            try {
+                return settle(Deadlines.await(deadline, () -> execute(call)));
+            } catch (TimeoutException e) {
+                return settle(timedOut(call));
+            } catch (Exception e) {
+                return settle(failed(call, e, 0));
+            }
+        }
 
-            log.info("Successfully invoked operation {} on service {}. Status: {}",
-                    operation, serviceName, response.getStatusCode());
+        /**
+         * A call that, if it has not answered within the service's hedging
+         * delay, is raced against a second call to another deployment.
+         */
+        Attempt hedged(List<? extends ServiceInstance> instances, Set<String> tried) {
+            long hedgeDelay = hedgingPolicy.delayNanos(serviceName);
+            if (hedgeDelay < 0 || instances.size() < 2) {
+                return once(instances, tried);
+            }
+            ServiceLoadBalancer.Call first = choose(instances, tried, true);
+            if (first == null) {
+                return unavailable();
+            }
+            Map<FutureTask<Attempt>, ServiceLoadBalancer.Call> running = new LinkedHashMap<>();
+            BlockingQueue<FutureTask<Attempt>> done = new LinkedBlockingQueue<>();
+            running.put(submit(first, done), first);
+            Attempt failure = null;
+            try {
+                FutureTask<Attempt> finished = done.poll(waitNanos(hedgeDelay), TimeUnit.NANOSECONDS);
+                if (finished == null && !Deadlines.isExpired(deadline) && retryPolicy.tryRetry(serviceName)) {
+                    ServiceLoadBalancer.Call second = choose(instances, tried, false);
+                    if (second != null) {
+                        log.debug("Hedging operation {} on service {} to {}", operation, serviceName,
+                                second.instance().getEndpoint());
+                        running.put(submit(second, done), second);
+                    }
+                }
+                while (!running.isEmpty()) {
+                    if (finished == null) {
+                        finished = done.poll(waitNanos(Long.MAX_VALUE), TimeUnit.NANOSECONDS);
+                        if (finished == null) {
+                            break;
+                        }
+                    }
+                    running.remove(finished);
+                    Attempt attempt = settle(finished.get());
+                    finished = null;
+                    if (!attempt.retryable() || running.isEmpty()) {
+                        return attempt;
+                    }
+                    // The other call may still succeed
+                    failure = attempt;
+                }
+                // The deadline passed with calls outstanding
+                return failure != null ? failure : settle(timedOut(first));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return failure != null ? failure : failed(null, e, 0);
+            } catch (ExecutionException e) {
+                return failed(null, e, 0);
+            } finally {
+                // Calls still outstanding lost the race; their results are not looked at
+                running.forEach((task, call) -> {
+                    task.cancel(true);
+                    call.cancel();
+                });
+            }
+        }
 
-            return new InvocationResultImpl(
-                    response.getStatusCode().is2xxSuccessful(),
-                    response.getStatusCode().value(),
-                    response.getBody(),
-                    null);
-        } catch (Exception e) {
+        /**
+         * Start a call to one of {@code instances} that is healthy and whose
+         * circuit lets it through, preferring ones not tried yet; with {@code mayRepeat}
+         * false, only ones not tried yet.
+         */
+        private ServiceLoadBalancer.Call choose(List<? extends ServiceInstance> instances, Set<String> tried,
+                boolean mayRepeat) {
+            Set<String> ejected = healthProber.ejected(instances);
+            List<ServiceInstance> available = new ArrayList<>(instances.size());
+            for (ServiceInstance instance : instances) {
+                if (!tried.contains(instance.getEndpoint()) && isAvailable(instance, ejected)) {
+                    available.add(instance);
+                }
+            }
+            if (available.isEmpty() && mayRepeat) {
+                for (ServiceInstance instance : instances) {
+                    if (isAvailable(instance, ejected)) {
+                        available.add(instance);
+                    }
+                }
+            }
+            while (!available.isEmpty()) {
+                ServiceInstance instance = loadBalancer.choose(serviceName, available);
+                // Another caller may have taken the last probe of a half-open circuit
+                if (circuitBreakers.tryAcquire(instance.getEndpoint())) {
+                    tried.add(instance.getEndpoint());
+                    return loadBalancer.start(instance);
+                }
+                available.remove(instance);
+            }
+            return null;
+        }
+
+        private boolean isAvailable(ServiceInstance instance, Set<String> ejected) {
+            return !ejected.contains(instance.getEndpoint())
+                    && circuitBreakers.isAvailable(instance.getEndpoint());
+        }
+
+        private FutureTask<Attempt> submit(ServiceLoadBalancer.Call call, BlockingQueue<FutureTask<Attempt>> done) {
+            FutureTask<Attempt> task = new FutureTask<>(() -> execute(call)) {
+                @Override
+                protected void done() {
+                    done.add(this);
+                }
+            };
+            Thread.ofVirtual().name("gateway-hedge").start(task);
+            return task;
+        }
+
+        private long waitNanos(long nanos) {
+            return deadline == Deadlines.NONE ? nanos : Math.min(nanos, Deadlines.remainingNanos(deadline));
+        }
+
+        /** Blocking call to the chosen instance; touches no shared state, so it can be abandoned. */
+        private Attempt execute(ServiceLoadBalancer.Call call) {
+            String endpoint = call.instance().getEndpoint();
+
+            // Build the full URL for the operation
+            String operationUrl = endpoint.endsWith("/") ? endpoint + operation : endpoint + "/" + operation;
+
+            log.debug("Invoking operation at: {}", operationUrl);
+
+            long startedAt = System.nanoTime();
+            try {
+                HttpHeaders headers = new HttpHeaders();
+                headers.set("Content-Type", "application/json");
+                if (deadline != Deadlines.NONE) {
+                    headers.set(Deadlines.TIMEOUT_HEADER, String.valueOf(Deadlines.remainingMillis(deadline)));
+                }
+
+                HttpEntity<Object> requestEntity = new HttpEntity<>(requestBody, headers);
+
+                ResponseEntity<String> response = restTemplate.exchange(
+                        operationUrl,
+                        HttpMethod.POST,
+                        requestEntity,
+                        String.class);
+
+                log.info("Successfully invoked operation {} on service {}. Status: {}",
+                        operation, serviceName, response.getStatusCode());
+
+                // Error statuses never get here: the RestTemplate throws them, and failed() classifies them
+                return new Attempt(call, new InvocationResultImpl(
+                        response.getStatusCode().is2xxSuccessful(),
+                        response.getStatusCode().value(),
+                        response.getBody(),
+                        null), true, false, true, System.nanoTime() - startedAt);
+            } catch (Exception e) {
+                return failed(call, e, System.nanoTime() - startedAt);
+            }
+        }
+
+        private Attempt failed(ServiceLoadBalancer.Call call, Exception e, long latencyNanos) {
             log.error("Failed to invoke operation {} on service {}: {}",
                     operation, serviceName, e.getMessage(), e);
-            return new InvocationResultImpl(false, 500, null, "Failed to invoke external service: " + e.getMessage());
+            // A rejected request says nothing about the instance's health
+            boolean rejected = e instanceof HttpClientErrorException;
+            boolean sent = !(e instanceof ResourceAccessException && e.getCause() instanceof ConnectException);
+            return new Attempt(call,
+                    new InvocationResultImpl(false, 500, null, "Failed to invoke external service: " + e.getMessage()),
+                    rejected, !rejected, sent, latencyNanos);
+        }
+
+        private Attempt timedOut(ServiceLoadBalancer.Call call) {
+            log.warn("Deadline exceeded invoking operation {} on service {} ({}ms)", operation, serviceName, timeoutMs);
+            return new Attempt(call, new InvocationResultImpl(false, 504, null,
+                    "Deadline exceeded after " + timeoutMs + "ms invoking: " + operation), false, false, true, 0);
+        }
+
+        private Attempt unavailable() {
+            log.warn("No deployment of service {} is available, not invoking {}", serviceName, operation);
+            return new Attempt(null, new InvocationResultImpl(false, 503, null,
+                    "No deployment of service " + serviceName + " is available"), false, false, false, 0);
+        }
+
+        /** Report the attempt's outcome to the balancer, breakers and hedging stats. */
+        private Attempt settle(Attempt attempt) {
+            if (attempt.call() != null) {
+                String endpoint = attempt.call().instance().getEndpoint();
+                attempt.call().complete(attempt.healthy());
+                circuitBreakers.onResult(endpoint, attempt.healthy());
+                if (attempt.healthy()) {
+                    hedgingPolicy.record(serviceName, attempt.latencyNanos());
+                }
+            }
+            return attempt;
         }
     }
 
@@ -102,11 +376,7 @@ public class ExternalServiceInvokerImpl implements ExternalServiceInvoker {
         }
 
         ServiceDetails details = detailsOpt.get();
-        String healthCheckUrl = details.getEndpoint();
-        if (details.getHealthCheck() != null && !details.getHealthCheck().isEmpty()) {
-            healthCheckUrl = details.getEndpoint().endsWith("/") ? details.getEndpoint() + details.getHealthCheck()
-                    : details.getEndpoint() + "/" + details.getHealthCheck();
-        }
+        String healthCheckUrl = ServiceHealthProber.healthUrl(details.getEndpoint(), details.getHealthCheck());
 
         try {
             ResponseEntity<String> response = restTemplate.getForEntity(healthCheckUrl, String.class);
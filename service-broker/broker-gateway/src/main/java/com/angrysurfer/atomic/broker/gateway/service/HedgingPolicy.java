@@ -0,0 +1,108 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * When to hedge an idempotent external invocation: send the same request to
+ * a second deployment of the service once the first has been outstanding for
+ * longer than most calls to that service take, and use whichever answers
+ * first. The delay is the {@code percentile} of the service's recent
+ * latencies, so only the slowest few percent of calls are hedged.
+ *
+ * Configuration properties:
+ * - gateway.hedge.enabled: (default: false)
+ * - gateway.hedge.percentile: latency percentile after which to hedge (default: 0.95)
+ * - gateway.hedge.min-delay-ms: never hedge sooner than this (default: 10)
+ * - gateway.hedge.min-samples: latencies needed before hedging (default: 20)
+ * - gateway.hedge.samples: latencies kept per service (default: 128)
+ */
+@Component
+public class HedgingPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgingPolicy.class);
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final int minSamples;
+    private final int samples;
+    private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HedgingPolicy(
+            @Value("${gateway.hedge.enabled:false}") boolean enabled,
+            @Value("${gateway.hedge.percentile:0.95}") double percentile,
+            @Value("${gateway.hedge.min-delay-ms:10}") long minDelayMs,
+            @Value("${gateway.hedge.min-samples:20}") int minSamples,
+            @Value("${gateway.hedge.samples:128}") int samples) {
+        this.enabled = enabled;
+        this.percentile = Math.min(1.0, Math.max(0.0, percentile));
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minDelayMs));
+        this.samples = Math.max(1, samples);
+        this.minSamples = Math.max(1, Math.min(minSamples, this.samples));
+        log.info("HedgingPolicy initialized (enabled: {}, percentile: {}, min delay: {}ms)",
+                enabled, percentile, minDelayMs);
+    }
+
+    public HedgingPolicy() {
+        this(false, 0.95, 10, 20, 128);
+    }
+
+    /**
+     * @return how long to wait for a call to {@code serviceName} before
+     *         hedging it, or -1 not to hedge it
+     */
+    public long delayNanos(String serviceName) {
+        if (!enabled) {
+            return -1;
+        }
+        Latencies recent = latencies.get(serviceName);
+        long delay = recent == null ? -1 : recent.percentile(percentile, minSamples);
+        return delay < 0 ? -1 : Math.max(minDelayNanos, delay);
+    }
+
+    /**
+     * Record how long a successful call to {@code serviceName} took.
+     */
+    public void record(String serviceName, long nanos) {
+        if (enabled && serviceName != null) {
+            latencies.computeIfAbsent(serviceName, name -> new Latencies(samples)).add(nanos);
+        }
+    }
+
+    /** The last latencies of a service, as a ring. */
+    private static final class Latencies {
+        private final long[] values;
+        private int next;
+        private int count;
+
+        Latencies(int size) {
+            this.values = new long[size];
+        }
+
+        synchronized void add(long nanos) {
+            values[next] = nanos;
+            next = (next + 1) % values.length;
+            count = Math.min(count + 1, values.length);
+        }
+
+        synchronized long percentile(double percentile, int minSamples) {
+            if (count < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Pushes the service status changes the registry publishes on Redis into
+ * the local routing table ({@link ServiceDiscoveryClientImpl}), so that
+ * registrations and deregistrations are picked up without waiting for the
+ * next periodic refresh. Requires the gateway and the registry to share a
+ * Redis; without one the table is only refreshed periodically.
+ *
+ * Configuration properties:
+ * - service.registry.status-channel: channel status changes are published on
+ *   (default: service-status-updates)
+ */
+@Component
+public class RegistryStatusSubscriber implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistryStatusSubscriber.class);
+
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+    private final ServiceDiscoveryClientImpl discoveryClient;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+
+    private RedisMessageListenerContainer container;
+
+    public RegistryStatusSubscriber(ObjectProvider<RedisConnectionFactory> connectionFactory,
+            ServiceDiscoveryClientImpl discoveryClient,
+            ObjectMapper objectMapper,
+            @Value("${service.registry.status-channel:service-status-updates}") String channel) {
+        this.connectionFactory = connectionFactory;
+        this.discoveryClient = discoveryClient;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        RedisConnectionFactory factory = connectionFactory.getIfAvailable();
+        if (factory == null) {
+            log.info("No Redis connection; routing table is refreshed periodically only");
+            return;
+        }
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener((message, pattern) -> onMessage(message.getBody()), new ChannelTopic(channel));
+        container.afterPropertiesSet();
+        container.start();
+        log.info("Listening for service status changes on Redis channel {}", channel);
+    }
+
+    void onMessage(byte[] body) {
+        try {
+            JsonNode status = objectMapper.readTree(new String(body, StandardCharsets.UTF_8));
+            discoveryClient.onServiceStatusChange(status.path("serviceName").asText(null),
+                    status.path("healthState").asText(null));
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable service status update: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (container != null) {
+            container.destroy();
+        }
+    }
+}
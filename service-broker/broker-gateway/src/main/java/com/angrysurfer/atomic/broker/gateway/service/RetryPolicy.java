@@ -0,0 +1,179 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * When a failed external invocation may be tried again, and how long to wait
+ * before it.
+ *
+ * Only idempotent operations are retried after the request reached the
+ * service; any operation may be retried when it never did (circuit open,
+ * connection refused). Retries and hedged calls are drawn from a budget per
+ * service: every call adds {@code budget-ratio} of a token, up to
+ * {@code budget-cap}, and every retry takes a whole token. A failing service
+ * therefore sees at most {@code budget-ratio} more traffic than it is sent,
+ * rather than {@code max-attempts} times as much.
+ *
+ * Backoff is exponential with full jitter: before attempt n the invoker waits
+ * a random time up to {@code backoff-ms} * 2^(n-2), capped at
+ * {@code max-backoff-ms}, so that the retries of calls that failed together
+ * do not arrive together.
+ *
+ * Configuration properties:
+ * - gateway.retry.max-attempts: attempts per invocation, including the first (default: 3)
+ * - gateway.retry.backoff-ms: base backoff (default: 50)
+ * - gateway.retry.max-backoff-ms: longest backoff (default: 1000)
+ * - gateway.retry.budget-ratio: tokens added per call (default: 0.2)
+ * - gateway.retry.budget-cap: most tokens a service can save up (default: 10)
+ * - gateway.retry.idempotent-prefixes: operations starting with one of these
+ *   are idempotent (default: get,find,list,search,count,exists,read,fetch,lookup)
+ * - gateway.retry.idempotent-operations: further idempotent operations (default: none)
+ */
+@Component
+public class RetryPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(RetryPolicy.class);
+
+    static final String DEFAULT_IDEMPOTENT_PREFIXES = "get,find,list,search,count,exists,read,fetch,lookup";
+
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final double budgetRatio;
+    private final double budgetCap;
+    private final Set<String> idempotentPrefixes;
+    private final Set<String> idempotentOperations;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RetryPolicy(
+            @Value("${gateway.retry.max-attempts:3}") int maxAttempts,
+            @Value("${gateway.retry.backoff-ms:50}") long backoffMs,
+            @Value("${gateway.retry.max-backoff-ms:1000}") long maxBackoffMs,
+            @Value("${gateway.retry.budget-ratio:0.2}") double budgetRatio,
+            @Value("${gateway.retry.budget-cap:10}") double budgetCap,
+            @Value("${gateway.retry.idempotent-prefixes:" + DEFAULT_IDEMPOTENT_PREFIXES + "}") String idempotentPrefixes,
+            @Value("${gateway.retry.idempotent-operations:}") String idempotentOperations) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, backoffMs));
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(backoffMs, maxBackoffMs));
+        this.budgetRatio = Math.max(0, budgetRatio);
+        this.budgetCap = Math.max(0, budgetCap);
+        this.idempotentPrefixes = split(idempotentPrefixes, true);
+        this.idempotentOperations = split(idempotentOperations, false);
+        log.info("RetryPolicy initialized (max attempts: {}, backoff: {}-{}ms, budget ratio: {})",
+                this.maxAttempts, backoffMs, maxBackoffMs, budgetRatio);
+    }
+
+    public RetryPolicy() {
+        this(3, 50, 1000, 0.2, 10, DEFAULT_IDEMPOTENT_PREFIXES, "");
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isIdempotent(String operation) {
+        if (operation == null) {
+            return false;
+        }
+        if (idempotentOperations.contains(operation)) {
+            return true;
+        }
+        String lower = operation.toLowerCase(Locale.ROOT);
+        for (String prefix : idempotentPrefixes) {
+            if (lower.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count a call to {@code serviceName} towards its budget.
+     */
+    public void onCall(String serviceName) {
+        budget(serviceName).deposit();
+    }
+
+    /**
+     * Take a retry (or hedged call) to {@code serviceName} from its budget.
+     *
+     * @return false if the budget is used up
+     */
+    public boolean tryRetry(String serviceName) {
+        boolean allowed = budget(serviceName).withdraw();
+        if (!allowed) {
+            log.debug("Retry budget for {} is used up", serviceName);
+        }
+        return allowed;
+    }
+
+    /**
+     * @return a random backoff before {@code attempt} (2 for the first retry)
+     */
+    public long backoffNanos(int attempt) {
+        if (backoffNanos == 0) {
+            return 0;
+        }
+        int doublings = Math.min(Math.max(0, attempt - 2), 30);
+        long ceiling = Math.min(maxBackoffNanos, backoffNanos << doublings);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    double tokens(String serviceName) {
+        return budget(serviceName).tokens();
+    }
+
+    private Budget budget(String serviceName) {
+        return budgets.computeIfAbsent(String.valueOf(serviceName), name -> new Budget(budgetCap));
+    }
+
+    private static Set<String> split(String values, boolean lowerCase) {
+        if (values == null || values.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(value -> lowerCase ? value.toLowerCase(Locale.ROOT) : value)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private final class Budget {
+        private double tokens;
+
+        Budget(double tokens) {
+            this.tokens = tokens;
+        }
+
+        synchronized double tokens() {
+            return tokens;
+        }
+
+        synchronized void deposit() {
+            tokens = Math.min(budgetCap, tokens + budgetRatio);
+        }
+
+        synchronized boolean withdraw() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
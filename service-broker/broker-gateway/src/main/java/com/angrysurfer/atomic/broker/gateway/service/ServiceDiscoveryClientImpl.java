@@ -1,27 +1,101 @@
 package com.angrysurfer.atomic.broker.gateway.service;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Resolves operations to services through a local routing table, so that an
+ * external invocation does not wait on two registry round trips.
+ *
+ * The table is loaded in bulk from the registry's {@code /routes} endpoint
+ * at startup and re-checked every {@code refresh-ms} with the last ETag, so
+ * an unchanged table costs a 304. Status changes the registry publishes on
+ * Redis (registrations, deregistrations, services going offline) trigger an
+ * immediate re-check, see {@link RegistryStatusSubscriber}. While the
+ * registry is unreachable the last table keeps being served. Operations not
+ * in the table fall back to asking the registry directly.
+ *
+ * Configuration properties:
+ * - service.registry.url: base URL of the service-registry (default: http://localhost:8085)
+ * - service.registry.routes.enabled: keep a local routing table (default: true)
+ * - service.registry.routes.refresh-ms: interval between table re-checks (default: 30000)
+ */
 @Service
 public class ServiceDiscoveryClientImpl implements ServiceDiscoveryClient {
 
     private static final Logger log = LoggerFactory.getLogger(ServiceDiscoveryClientImpl.class);
 
+    /** Operation and service name to details, replaced as a whole on refresh. */
+    private record RoutingTable(Map<String, ServiceDetailsImpl> byOperation, Map<String, ServiceDetailsImpl> byService) {
+
+        static final RoutingTable EMPTY = new RoutingTable(Map.of(), Map.of());
+
+        static RoutingTable of(ServiceDetailsImpl[] services) {
+            Map<String, ServiceDetailsImpl> byOperation = new HashMap<>();
+            Map<String, ServiceDetailsImpl> byService = new HashMap<>();
+            for (ServiceDetailsImpl details : services) {
+                if (details == null || details.getServiceName() == null) {
+                    continue;
+                }
+                byService.put(details.getServiceName(), details);
+                if (details.getOperations() != null) {
+                    for (String operation : details.getOperations().split(",")) {
+                        if (!operation.isBlank()) {
+                            byOperation.putIfAbsent(operation.trim(), details);
+                        }
+                    }
+                }
+            }
+            return new RoutingTable(Map.copyOf(byOperation), Map.copyOf(byService));
+        }
+    }
+
     @Value("${service.registry.url:http://localhost:8085}")
     private String hostServerUrl;
 
+    @Value("${service.registry.routes.enabled:true}")
+    private boolean routesEnabled = true;
+
+    @Value("${service.registry.routes.refresh-ms:30000}")
+    private long refreshIntervalMs = 30000;
+
     @Autowired
+    @Qualifier("gatewayRestTemplate")
     private RestTemplate restTemplate;
 
+    private volatile RoutingTable routes = RoutingTable.EMPTY;
+    private volatile String routesEtag;
+    private final Map<String, String> healthStates = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private ScheduledExecutorService refresher;
+
     // For testing purposes
     public void setRestTemplate(RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
@@ -32,10 +106,108 @@ public class ServiceDiscoveryClientImpl implements ServiceDiscoveryClient {
         this.hostServerUrl = hostServerUrl;
     }
 
+    @PostConstruct
+    public void start() {
+        if (!routesEnabled) {
+            log.info("Local routing table disabled, every lookup goes to the registry");
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "routing-table-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshRoutes, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Re-load the routing table if the registry's has changed since the last
+     * load. On failure the current table is kept.
+     */
+    public void refreshRoutes() {
+        String url = hostServerUrl + "/api/registry/routes";
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            String etag = routesEtag;
+            if (etag != null) {
+                headers.setIfNoneMatch(etag);
+            }
+            ResponseEntity<ServiceDetailsImpl[]> response = restTemplate.exchange(url, HttpMethod.GET,
+                    new HttpEntity<>(headers), ServiceDetailsImpl[].class);
+            if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                log.debug("Routing table unchanged ({})", etag);
+                return;
+            }
+            ServiceDetailsImpl[] services = response.getBody();
+            if (services == null) {
+                log.warn("Registry returned an empty routing table body, keeping the current table");
+                return;
+            }
+            routes = RoutingTable.of(services);
+            routesEtag = response.getHeaders().getETag();
+            log.info("Loaded routing table: {} services, {} operations", routes.byService().size(),
+                    routes.byOperation().size());
+        } catch (Exception e) {
+            log.warn("Failed to refresh routing table from {}, serving {} cached routes: {}", url,
+                    routes.byOperation().size(), e.getMessage());
+        }
+    }
+
+    /**
+     * A service's status changed in the registry. The table is re-checked
+     * when the service is new to it or its health state changed; repeated
+     * updates with the same state (heartbeats) are ignored.
+     */
+    public void onServiceStatusChange(String serviceName, String healthState) {
+        if (serviceName == null) {
+            return;
+        }
+        String previous = healthStates.put(serviceName, String.valueOf(healthState));
+        if (!routes.byService().containsKey(serviceName) || !Objects.equals(previous, String.valueOf(healthState))) {
+            log.debug("Service {} is now {}, re-checking routing table", serviceName, healthState);
+            requestRefresh();
+        }
+    }
+
+    private void requestRefresh() {
+        if (refresher == null) {
+            if (routesEnabled) {
+                refreshRoutes();
+            }
+            return;
+        }
+        // Coalesce bursts of updates into one re-check
+        if (refreshQueued.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                refreshQueued.set(false);
+                refreshRoutes();
+            });
+        }
+    }
+
+    /**
+     * @return the services in the local routing table
+     */
+    public List<ServiceDetails> routedServices() {
+        return List.copyOf(routes.byService().values());
+    }
+
     @Override
     public Optional<ServiceInfo> findServiceByOperation(String operation) {
         log.debug("Looking for service to handle operation: {}", operation);
 
+        ServiceDetailsImpl route = routes.byOperation().get(operation);
+        if (route != null) {
+            return Optional.of(route.toServiceInfo());
+        }
+
         try {
             String url = hostServerUrl + "/api/registry/services/by-operation/" + operation;
             log.debug("Querying service registry at: {}", url);
@@ -57,6 +229,11 @@ public class ServiceDiscoveryClientImpl implements ServiceDiscoveryClient {
     public Optional<ServiceDetails> getServiceDetails(String serviceName) {
         log.debug("Getting details for service: {}", serviceName);
 
+        ServiceDetailsImpl route = routes.byService().get(serviceName);
+        if (route != null) {
+            return Optional.of(route);
+        }
+
         try {
             String url = hostServerUrl + "/api/registry/services/" + serviceName + "/details";
             log.debug("Querying service details at: {}", url);
@@ -124,12 +301,22 @@ public class ServiceDiscoveryClientImpl implements ServiceDiscoveryClient {
      * Implementation of ServiceDetails interface
      */
     public static class ServiceDetailsImpl implements ServiceDetails {
+        private Long serviceId;
         private String serviceName;
         private String endpoint;
         private String healthCheck;
         private String framework;
         private String status;
         private String operations;
+        private List<ServiceInstanceImpl> instances = List.of();
+
+        public Long getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(Long serviceId) {
+            this.serviceId = serviceId;
+        }
 
         @Override
         public String getServiceName() {
@@ -184,5 +371,107 @@ public class ServiceDiscoveryClientImpl implements ServiceDiscoveryClient {
         public void setOperations(String operations) {
             this.operations = operations;
         }
+
+        @Override
+        public List<ServiceInstance> getInstances() {
+            return Collections.unmodifiableList(instances);
+        }
+
+        public void setInstances(List<ServiceInstanceImpl> instances) {
+            this.instances = instances != null ? instances : List.of();
+        }
+
+        ServiceInfo toServiceInfo() {
+            ServiceInfoImpl info = new ServiceInfoImpl();
+            info.setId(serviceId);
+            info.setName(serviceName);
+            info.setStatus(status);
+            return info;
+        }
+    }
+
+    /**
+     * Implementation of ServiceInstance interface, one running deployment of
+     * a service
+     */
+    public static class ServiceInstanceImpl implements ServiceInstance {
+        private Long id;
+        private String endpoint;
+        private String host;
+        private String zone;
+        private int priority = 1;
+        private int weight = 100;
+        private boolean backup;
+        private String healthStatus;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        @Override
+        public String getZone() {
+            return zone;
+        }
+
+        public void setZone(String zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        public void setPriority(int priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        public boolean isBackup() {
+            return backup;
+        }
+
+        public void setBackup(boolean backup) {
+            this.backup = backup;
+        }
+
+        public String getHealthStatus() {
+            return healthStatus;
+        }
+
+        public void setHealthStatus(String healthStatus) {
+            this.healthStatus = healthStatus;
+        }
     }
 }
@@ -0,0 +1,384 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import com.angrysurfer.atomic.broker.Deadlines;
+import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient.ServiceDetails;
+import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient.ServiceInstance;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Health-checks every deployment in the routing table in the background and
+ * ejects outliers from routing until they recover, so that calls stop being
+ * sent to deployments that are down.
+ *
+ * Each endpoint is probed every {@code interval-ms}, give or take
+ * {@code jitter} of it so that probes do not all go out together, on virtual
+ * threads of which at most {@code max-concurrent} run at once. The prober
+ * keeps an EWMA of each endpoint's probe latency and error rate. An endpoint
+ * is ejected when its error rate reaches {@code eject-error-rate}, or when
+ * its latency exceeds {@code eject-latency-factor} times the median of the
+ * service's other endpoints (for services with at least three). It is
+ * readmitted after {@code recover-successes} successful probes in a row. At
+ * most {@code max-ejection-percent} of a service's endpoints are ejected at a
+ * time, though always at least one of several may be; a service's last
+ * deployment is never ejected.
+ *
+ * Only services with a health-check path are probed: a service's bare
+ * endpoint may well answer 404 while it serves its operations. When fewer
+ * than {@code panic-threshold} percent of a service's endpoints are healthy,
+ * the prober is in panic mode for the service and calls are routed to all of
+ * them, as a mostly failing health check says more about the check than about
+ * the deployments.
+ *
+ * Configuration properties:
+ * - gateway.health.enabled: (default: true)
+ * - gateway.health.interval-ms: time between probes of an endpoint (default: 10000)
+ * - gateway.health.jitter: fraction the interval varies by (default: 0.2)
+ * - gateway.health.timeout-ms: probe timeout (default: 2000)
+ * - gateway.health.max-concurrent: probes running at once (default: 16)
+ * - gateway.health.ewma-alpha: weight of the newest probe in the averages (default: 0.3)
+ * - gateway.health.eject-error-rate: error rate that ejects an endpoint (default: 0.5)
+ * - gateway.health.eject-latency-factor: latency, relative to the service's median, that ejects an endpoint (default: 3.0)
+ * - gateway.health.recover-successes: successful probes that readmit an endpoint (default: 3)
+ * - gateway.health.max-ejection-percent: share of a service's endpoints that may be ejected (default: 50)
+ * - gateway.health.panic-threshold: percent of healthy endpoints below which ejection is ignored (default: 50)
+ */
+@Component
+public class ServiceHealthProber {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceHealthProber.class);
+
+    /** One endpoint of a service to probe. */
+    record Target(String serviceName, String endpoint, String healthUrl) {
+    }
+
+    /** Probe history of one endpoint. */
+    static final class EndpointHealth {
+        final String serviceName;
+        double latencyNanos;
+        double errorRate;
+        int consecutiveSuccesses;
+        volatile boolean ejected;
+        long nextProbeAt;
+        boolean probing;
+
+        EndpointHealth(String serviceName) {
+            this.serviceName = serviceName;
+        }
+    }
+
+    private final ServiceDiscoveryClientImpl discoveryClient;
+    private final RestTemplate restTemplate;
+    private final boolean enabled;
+    private final long intervalNanos;
+    private final double jitter;
+    private final long timeoutNanos;
+    private final Semaphore permits;
+    private final double alpha;
+    private final double ejectErrorRate;
+    private final double ejectLatencyFactor;
+    private final int recoverSuccesses;
+    private final int maxEjectionPercent;
+    private final int panicThreshold;
+    private final Map<String, EndpointHealth> health = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public ServiceHealthProber(ServiceDiscoveryClientImpl discoveryClient,
+            @Qualifier("gatewayRestTemplate") RestTemplate restTemplate,
+            @Value("${gateway.health.enabled:true}") boolean enabled,
+            @Value("${gateway.health.interval-ms:10000}") long intervalMs,
+            @Value("${gateway.health.jitter:0.2}") double jitter,
+            @Value("${gateway.health.timeout-ms:2000}") long timeoutMs,
+            @Value("${gateway.health.max-concurrent:16}") int maxConcurrent,
+            @Value("${gateway.health.ewma-alpha:0.3}") double alpha,
+            @Value("${gateway.health.eject-error-rate:0.5}") double ejectErrorRate,
+            @Value("${gateway.health.eject-latency-factor:3.0}") double ejectLatencyFactor,
+            @Value("${gateway.health.recover-successes:3}") int recoverSuccesses,
+            @Value("${gateway.health.max-ejection-percent:50}") int maxEjectionPercent,
+            @Value("${gateway.health.panic-threshold:50}") int panicThreshold) {
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+        this.enabled = enabled && discoveryClient != null;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, intervalMs));
+        this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, timeoutMs));
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+        this.alpha = Math.min(1.0, Math.max(0.01, alpha));
+        this.ejectErrorRate = ejectErrorRate;
+        this.ejectLatencyFactor = ejectLatencyFactor;
+        this.recoverSuccesses = Math.max(1, recoverSuccesses);
+        this.maxEjectionPercent = Math.min(100, Math.max(0, maxEjectionPercent));
+        this.panicThreshold = Math.min(100, Math.max(0, panicThreshold));
+    }
+
+    ServiceHealthProber(ServiceDiscoveryClientImpl discoveryClient, RestTemplate restTemplate, boolean enabled,
+            long intervalMs, double jitter, long timeoutMs, int maxConcurrent, double alpha, double ejectErrorRate,
+            double ejectLatencyFactor, int recoverSuccesses, int maxEjectionPercent) {
+        this(discoveryClient, restTemplate, enabled, intervalMs, jitter, timeoutMs, maxConcurrent, alpha,
+                ejectErrorRate, ejectLatencyFactor, recoverSuccesses, maxEjectionPercent, 50);
+    }
+
+    /**
+     * A prober that probes nothing and ejects nothing.
+     */
+    public ServiceHealthProber() {
+        this(null, null, false, 10_000, 0.2, 2_000, 16, 0.3, 0.5, 3.0, 3, 50);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Health probing of external services disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A frequent tick starts the probes that are due, so each endpoint keeps its own jittered schedule
+        long tickMs = Math.max(50, TimeUnit.NANOSECONDS.toMillis(intervalNanos) / 10);
+        scheduler.scheduleWithFixedDelay(this::probeDue, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("ServiceHealthProber started (interval: {}ms, max concurrent probes: {})",
+                TimeUnit.NANOSECONDS.toMillis(intervalNanos), permits.availablePermits());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return whether calls to {@code endpoint} should be routed elsewhere
+     */
+    public boolean isEjected(String endpoint) {
+        EndpointHealth endpointHealth = health.get(endpoint);
+        return endpointHealth != null && endpointHealth.ejected;
+    }
+
+    /**
+     * @return the endpoints of {@code instances} that calls should be routed
+     *         around: the ejected ones, or none when too few of the instances
+     *         are healthy (panic mode)
+     */
+    public Set<String> ejected(List<? extends ServiceInstance> instances) {
+        Set<String> ejected = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            if (isEjected(instance.getEndpoint())) {
+                ejected.add(instance.getEndpoint());
+            }
+        }
+        if (ejected.isEmpty()) {
+            return ejected;
+        }
+        int healthy = instances.size() - ejected.size();
+        if (healthy == 0 || healthy * 100 < panicThreshold * instances.size()) {
+            log.debug("Only {} of {} endpoints healthy, routing to all of them", healthy, instances.size());
+            return Set.of();
+        }
+        return ejected;
+    }
+
+    /**
+     * Start the probes that are due, each on its own virtual thread, as far
+     * as the concurrency limit allows; the others wait for the next tick.
+     */
+    void probeDue() {
+        try {
+            startDueProbes();
+        } catch (Exception e) {
+            // Keep the schedule alive
+            log.warn("Failed to start health probes: {}", e.getMessage(), e);
+        }
+    }
+
+    private void startDueProbes() {
+        long now = System.nanoTime();
+        for (Target target : targets()) {
+            EndpointHealth endpointHealth = health.computeIfAbsent(target.endpoint(),
+                    endpoint -> newHealth(target.serviceName(), now));
+            synchronized (this) {
+                if (endpointHealth.probing || now - endpointHealth.nextProbeAt < 0) {
+                    continue;
+                }
+                if (!permits.tryAcquire()) {
+                    return;
+                }
+                endpointHealth.probing = true;
+                endpointHealth.nextProbeAt = now + jittered(intervalNanos);
+            }
+            Thread.ofVirtual().name("health-probe").start(() -> {
+                try {
+                    probe(target);
+                } finally {
+                    synchronized (this) {
+                        endpointHealth.probing = false;
+                    }
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Probe {@code target} on the calling thread and update its health.
+     */
+    void probe(Target target) {
+        long startedAt = System.nanoTime();
+        boolean healthy;
+        try {
+            ResponseEntity<String> response = Deadlines.await(startedAt + timeoutNanos,
+                    () -> restTemplate.getForEntity(target.healthUrl(), String.class));
+            healthy = response.getStatusCode().is2xxSuccessful();
+        } catch (Exception e) {
+            log.debug("Health probe of {} ({}) failed: {}", target.endpoint(), target.serviceName(), e.getMessage());
+            healthy = false;
+        }
+        record(target, healthy, System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Record a probe result and re-evaluate which of the service's endpoints
+     * are ejected.
+     */
+    synchronized void record(Target target, boolean healthy, long latencyNanos) {
+        EndpointHealth endpointHealth = health.computeIfAbsent(target.endpoint(),
+                endpoint -> newHealth(target.serviceName(), System.nanoTime()));
+        double sample = healthy ? 0 : 1;
+        endpointHealth.errorRate = alpha * sample + (1 - alpha) * endpointHealth.errorRate;
+        if (healthy) {
+            endpointHealth.latencyNanos = endpointHealth.latencyNanos == 0 ? latencyNanos
+                    : alpha * latencyNanos + (1 - alpha) * endpointHealth.latencyNanos;
+            endpointHealth.consecutiveSuccesses++;
+        } else {
+            endpointHealth.consecutiveSuccesses = 0;
+        }
+        evaluate(target.serviceName());
+    }
+
+    private void evaluate(String serviceName) {
+        List<Map.Entry<String, EndpointHealth>> endpoints = new ArrayList<>();
+        for (Map.Entry<String, EndpointHealth> entry : health.entrySet()) {
+            if (serviceName.equals(entry.getValue().serviceName)) {
+                endpoints.add(entry);
+            }
+        }
+        double medianLatency = medianLatency(endpoints);
+        int ejected = 0;
+        for (Map.Entry<String, EndpointHealth> entry : endpoints) {
+            EndpointHealth endpointHealth = entry.getValue();
+            if (endpointHealth.ejected && endpointHealth.consecutiveSuccesses >= recoverSuccesses
+                    && !isSlow(endpointHealth, medianLatency)) {
+                endpointHealth.ejected = false;
+                log.info("Readmitting {} ({}) to routing", entry.getKey(), serviceName);
+            }
+            if (endpointHealth.ejected) {
+                ejected++;
+            }
+        }
+        // Never the last one: with every deployment ejected the service would be unreachable
+        int maxEjected = Math.min(Math.max(1, endpoints.size() * maxEjectionPercent / 100), endpoints.size() - 1);
+        for (Map.Entry<String, EndpointHealth> entry : endpoints) {
+            EndpointHealth endpointHealth = entry.getValue();
+            if (endpointHealth.ejected || ejected >= maxEjected) {
+                continue;
+            }
+            boolean failing = endpointHealth.errorRate >= ejectErrorRate;
+            if (failing || isSlow(endpointHealth, medianLatency)) {
+                endpointHealth.ejected = true;
+                endpointHealth.consecutiveSuccesses = 0;
+                ejected++;
+                log.warn("Ejecting {} ({}) from routing: error rate {}, latency {}ms", entry.getKey(), serviceName,
+                        String.format("%.2f", endpointHealth.errorRate),
+                        TimeUnit.NANOSECONDS.toMillis((long) endpointHealth.latencyNanos));
+            }
+        }
+    }
+
+    private boolean isSlow(EndpointHealth endpointHealth, double medianLatency) {
+        return medianLatency > 0 && endpointHealth.latencyNanos > ejectLatencyFactor * medianLatency;
+    }
+
+    /**
+     * @return the median latency of the endpoints, or 0 when there are too
+     *         few of them to tell an outlier
+     */
+    private static double medianLatency(List<Map.Entry<String, EndpointHealth>> endpoints) {
+        double[] latencies = endpoints.stream()
+                .mapToDouble(entry -> entry.getValue().latencyNanos)
+                .filter(latency -> latency > 0)
+                .sorted()
+                .toArray();
+        return latencies.length < 3 ? 0 : latencies[latencies.length / 2];
+    }
+
+    /**
+     * @return the endpoints to probe, of the services with a health-check
+     *         path; endpoints no longer probed are forgotten
+     */
+    List<Target> targets() {
+        List<Target> targets = new ArrayList<>();
+        for (ServiceDetails details : discoveryClient.routedServices()) {
+            if (details.getHealthCheck() == null || details.getHealthCheck().isEmpty()) {
+                continue;
+            }
+            List<? extends ServiceInstance> instances = details.getInstances().isEmpty()
+                    ? List.of(ServiceLoadBalancer.instanceOf(details.getEndpoint()))
+                    : details.getInstances();
+            for (ServiceInstance instance : instances) {
+                if (instance.getEndpoint() != null) {
+                    targets.add(new Target(details.getServiceName(), instance.getEndpoint(),
+                            healthUrl(instance.getEndpoint(), details.getHealthCheck())));
+                }
+            }
+        }
+        Set<String> endpoints = new HashSet<>();
+        targets.forEach(target -> endpoints.add(target.endpoint()));
+        health.keySet().retainAll(endpoints);
+        return targets;
+    }
+
+    static String healthUrl(String endpoint, String healthCheck) {
+        if (healthCheck == null || healthCheck.isEmpty()) {
+            return endpoint;
+        }
+        return endpoint.endsWith("/") ? endpoint + healthCheck : endpoint + "/" + healthCheck;
+    }
+
+    private EndpointHealth newHealth(String serviceName, long now) {
+        EndpointHealth endpointHealth = new EndpointHealth(serviceName);
+        // Spread the first probes over the interval
+        endpointHealth.nextProbeAt = now + (long) (ThreadLocalRandom.current().nextDouble() * jitter * intervalNanos);
+        return endpointHealth;
+    }
+
+    private long jittered(long nanos) {
+        double factor = 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return (long) (nanos * factor);
+    }
+}
@@ -0,0 +1,334 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient.ServiceInstance;
+
+/**
+ * Picks which deployment of a service an external call goes to.
+ *
+ * Strategies:
+ * - round-robin: instances in turn
+ * - weighted: only the best (lowest) priority tier, randomly in proportion
+ *   to each instance's weight
+ * - least-outstanding: the instance with the fewest calls in flight
+ * - power-of-two: the cheaper of two random instances, where cost is the
+ *   instance's latency (EWMA) times its calls in flight plus one; instances
+ *   without a measured latency yet are tried first
+ *
+ * Backup instances are only used when no other instance is available. With
+ * affinity configured, instances on the same host, or else in the same zone,
+ * are preferred when there are any.
+ *
+ * Configuration properties:
+ * - gateway.lb.strategy: round-robin, weighted, least-outstanding or
+ *   power-of-two (default: round-robin)
+ * - gateway.lb.strategies.[service]: strategy for one service
+ * - gateway.lb.affinity.host: prefer instances on this host (default: none)
+ * - gateway.lb.affinity.zone: prefer instances in this zone (default: none)
+ */
+@Component
+public class ServiceLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceLoadBalancer.class);
+
+    private static final String STRATEGIES_PREFIX = "gateway.lb.strategies.";
+
+    /** Weight of the newest sample in the latency EWMA. */
+    private static final double LATENCY_ALPHA = 0.3;
+
+    public enum Strategy {
+        ROUND_ROBIN, WEIGHTED, LEAST_OUTSTANDING, POWER_OF_TWO;
+
+        static Strategy parse(String value) {
+            return Strategy.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    /** One call to the chosen instance; complete it exactly once. */
+    public interface Call {
+        ServiceInstance instance();
+
+        /**
+         * @param success false if the instance failed the call (5xx, timeout,
+         *                connection error), not for rejected requests
+         */
+        void complete(boolean success);
+
+        /** Give up on the call without judging the instance, e.g. a hedged call that lost. */
+        void cancel();
+    }
+
+    /** An instance known only by its endpoint. */
+    record EndpointInstance(String getEndpoint) implements ServiceInstance {
+        @Override
+        public String getHost() {
+            return null;
+        }
+
+        @Override
+        public String getZone() {
+            return null;
+        }
+
+        @Override
+        public int getPriority() {
+            return 1;
+        }
+
+        @Override
+        public int getWeight() {
+            return 100;
+        }
+
+        @Override
+        public boolean isBackup() {
+            return false;
+        }
+    }
+
+    /** Live stats of one endpoint, shared by every service routed to it. */
+    static final class EndpointStats {
+        final AtomicInteger outstanding = new AtomicInteger();
+        private volatile double latencyNanos;
+
+        double latencyNanos() {
+            return latencyNanos;
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencyNanos = latencyNanos == 0 ? nanos : LATENCY_ALPHA * nanos + (1 - LATENCY_ALPHA) * latencyNanos;
+        }
+    }
+
+    private final Environment env;
+    private final Strategy defaultStrategy;
+    private final String affinityHost;
+    private final String affinityZone;
+    private final Map<String, Strategy> strategies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ServiceLoadBalancer(Environment env,
+            @Value("${gateway.lb.strategy:round-robin}") String strategy,
+            @Value("${gateway.lb.affinity.host:}") String affinityHost,
+            @Value("${gateway.lb.affinity.zone:}") String affinityZone) {
+        this.env = env;
+        this.defaultStrategy = Strategy.parse(strategy);
+        this.affinityHost = affinityHost == null || affinityHost.isBlank() ? null : affinityHost;
+        this.affinityZone = affinityZone == null || affinityZone.isBlank() ? null : affinityZone;
+        log.info("ServiceLoadBalancer initialized (strategy: {}, host affinity: {}, zone affinity: {})",
+                defaultStrategy, this.affinityHost, this.affinityZone);
+    }
+
+    public ServiceLoadBalancer() {
+        this(null, "round-robin", null, null);
+    }
+
+    public static ServiceInstance instanceOf(String endpoint) {
+        return new EndpointInstance(endpoint);
+    }
+
+    /**
+     * Choose an instance of {@code serviceName} and count a call to it as in
+     * flight until the returned call is completed.
+     */
+    public Call start(String serviceName, List<? extends ServiceInstance> instances) {
+        return start(choose(serviceName, instances));
+    }
+
+    /**
+     * Choose an instance of {@code serviceName} without starting a call to it.
+     */
+    public ServiceInstance choose(String serviceName, List<? extends ServiceInstance> instances) {
+        if (instances == null || instances.isEmpty()) {
+            throw new IllegalArgumentException("No instances of " + serviceName + " to choose from");
+        }
+        List<? extends ServiceInstance> candidates = preferred(instances);
+        ServiceInstance chosen = switch (strategyFor(serviceName)) {
+            case ROUND_ROBIN -> roundRobin(serviceName, candidates);
+            case WEIGHTED -> weighted(candidates);
+            case LEAST_OUTSTANDING -> leastOutstanding(candidates);
+            case POWER_OF_TWO -> powerOfTwo(candidates);
+        };
+        log.debug("Routing call to {} at {}", serviceName, chosen.getEndpoint());
+        return chosen;
+    }
+
+    /**
+     * Count a call to {@code instance} as in flight until the returned call
+     * is completed.
+     */
+    public Call start(ServiceInstance instance) {
+        EndpointStats endpointStats = statsFor(instance.getEndpoint());
+        endpointStats.outstanding.incrementAndGet();
+        long startedAt = System.nanoTime();
+        return new Call() {
+            private boolean completed;
+
+            @Override
+            public ServiceInstance instance() {
+                return instance;
+            }
+
+            @Override
+            public synchronized void complete(boolean success) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                endpointStats.outstanding.decrementAndGet();
+                long latency = System.nanoTime() - startedAt;
+                // A failure counts as slow, so that an instance failing fast does not attract calls
+                endpointStats.recordLatency(success ? latency
+                        : Math.max(latency, 2 * (long) endpointStats.latencyNanos()));
+            }
+
+            @Override
+            public synchronized void cancel() {
+                if (!completed) {
+                    completed = true;
+                    endpointStats.outstanding.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    Strategy strategyFor(String serviceName) {
+        if (env == null || serviceName == null) {
+            return defaultStrategy;
+        }
+        return strategies.computeIfAbsent(serviceName, name -> {
+            String value = env.getProperty(STRATEGIES_PREFIX + name);
+            return value == null ? defaultStrategy : Strategy.parse(value);
+        });
+    }
+
+    int outstanding(String endpoint) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        return endpointStats == null ? 0 : endpointStats.outstanding.get();
+    }
+
+    private EndpointStats statsFor(String endpoint) {
+        return stats.computeIfAbsent(endpoint, e -> new EndpointStats());
+    }
+
+    /**
+     * Non-backup instances if there are any, narrowed to the same host or
+     * else the same zone when affinity is configured and any match.
+     */
+    private List<? extends ServiceInstance> preferred(List<? extends ServiceInstance> instances) {
+        List<? extends ServiceInstance> candidates = instances;
+        List<ServiceInstance> primaries = filter(candidates, instance -> !instance.isBackup());
+        if (!primaries.isEmpty()) {
+            candidates = primaries;
+        }
+        if (affinityHost != null) {
+            List<ServiceInstance> local = filter(candidates, instance -> affinityHost.equals(instance.getHost()));
+            if (!local.isEmpty()) {
+                return local;
+            }
+        }
+        if (affinityZone != null) {
+            List<ServiceInstance> local = filter(candidates, instance -> affinityZone.equals(instance.getZone()));
+            if (!local.isEmpty()) {
+                return local;
+            }
+        }
+        return candidates;
+    }
+
+    private static List<ServiceInstance> filter(List<? extends ServiceInstance> instances,
+            Predicate<ServiceInstance> predicate) {
+        List<ServiceInstance> matching = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (predicate.test(instance)) {
+                matching.add(instance);
+            }
+        }
+        return matching;
+    }
+
+    private ServiceInstance roundRobin(String serviceName, List<? extends ServiceInstance> candidates) {
+        int next = cursors.computeIfAbsent(String.valueOf(serviceName), name -> new AtomicInteger())
+                .getAndIncrement();
+        return candidates.get(Math.floorMod(next, candidates.size()));
+    }
+
+    private static ServiceInstance weighted(List<? extends ServiceInstance> candidates) {
+        int bestPriority = Integer.MAX_VALUE;
+        for (ServiceInstance instance : candidates) {
+            bestPriority = Math.min(bestPriority, instance.getPriority());
+        }
+        long totalWeight = 0;
+        List<ServiceInstance> tier = new ArrayList<>();
+        for (ServiceInstance instance : candidates) {
+            if (instance.getPriority() == bestPriority) {
+                tier.add(instance);
+                totalWeight += Math.max(0, instance.getWeight());
+            }
+        }
+        if (totalWeight == 0) {
+            return tier.get(ThreadLocalRandom.current().nextInt(tier.size()));
+        }
+        long pick = ThreadLocalRandom.current().nextLong(totalWeight);
+        for (ServiceInstance instance : tier) {
+            pick -= Math.max(0, instance.getWeight());
+            if (pick < 0) {
+                return instance;
+            }
+        }
+        return tier.get(tier.size() - 1);
+    }
+
+    private ServiceInstance leastOutstanding(List<? extends ServiceInstance> candidates) {
+        // Start at a random instance so that ties are spread
+        int offset = ThreadLocalRandom.current().nextInt(candidates.size());
+        ServiceInstance best = null;
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < candidates.size(); i++) {
+            ServiceInstance instance = candidates.get((offset + i) % candidates.size());
+            int inFlight = outstanding(instance.getEndpoint());
+            if (inFlight < fewest) {
+                best = instance;
+                fewest = inFlight;
+            }
+        }
+        return best;
+    }
+
+    private ServiceInstance powerOfTwo(List<? extends ServiceInstance> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    private double cost(ServiceInstance instance) {
+        EndpointStats endpointStats = statsFor(instance.getEndpoint());
+        return endpointStats.latencyNanos() * (endpointStats.outstanding.get() + 1);
+    }
+}
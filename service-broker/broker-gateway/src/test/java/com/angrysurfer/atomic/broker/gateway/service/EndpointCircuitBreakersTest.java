@@ -0,0 +1,106 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointCircuitBreakersTest {
+
+    private static final String ENDPOINT = "http://test-service:8080";
+
+    private final AtomicLong now = new AtomicLong();
+
+    private EndpointCircuitBreakers breakers;
+
+    @BeforeEach
+    void setUp() {
+        breakers = new EndpointCircuitBreakers(true, 10, 4, 0.5, 1000, 2, now::get);
+    }
+
+    private void calls(int successes, int failures) {
+        for (int i = 0; i < successes; i++) {
+            assertTrue(breakers.tryAcquire(ENDPOINT));
+            breakers.onResult(ENDPOINT, true);
+        }
+        for (int i = 0; i < failures; i++) {
+            assertTrue(breakers.tryAcquire(ENDPOINT));
+            breakers.onResult(ENDPOINT, false);
+        }
+    }
+
+    @Test
+    void onResult_WhenFailureRateIsReached_ShouldOpenTheCircuit() {
+        // Given
+        calls(3, 2);
+        assertEquals(EndpointCircuitBreakers.State.CLOSED, breakers.state(ENDPOINT));
+
+        // When
+        calls(0, 1);
+
+        // Then
+        assertEquals(EndpointCircuitBreakers.State.OPEN, breakers.state(ENDPOINT));
+        assertFalse(breakers.isAvailable(ENDPOINT));
+        assertFalse(breakers.tryAcquire(ENDPOINT));
+    }
+
+    @Test
+    void onResult_WithTooFewCalls_ShouldKeepTheCircuitClosed() {
+        // When
+        calls(0, 3);
+
+        // Then
+        assertEquals(EndpointCircuitBreakers.State.CLOSED, breakers.state(ENDPOINT));
+    }
+
+    @Test
+    void tryAcquire_AfterOpenPeriod_ShouldLetProbesThroughAndCloseOnSuccess() {
+        // Given
+        calls(0, 4);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        // When
+        assertTrue(breakers.isAvailable(ENDPOINT));
+        assertTrue(breakers.tryAcquire(ENDPOINT));
+        assertTrue(breakers.tryAcquire(ENDPOINT));
+        boolean thirdProbe = breakers.tryAcquire(ENDPOINT);
+        breakers.onResult(ENDPOINT, true);
+        breakers.onResult(ENDPOINT, true);
+
+        // Then
+        assertFalse(thirdProbe);
+        assertEquals(EndpointCircuitBreakers.State.CLOSED, breakers.state(ENDPOINT));
+        calls(1, 0);
+    }
+
+    @Test
+    void onResult_WhenAProbeFails_ShouldReopenTheCircuit() {
+        // Given
+        calls(0, 4);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertTrue(breakers.tryAcquire(ENDPOINT));
+
+        // When
+        breakers.onResult(ENDPOINT, false);
+
+        // Then
+        assertEquals(EndpointCircuitBreakers.State.OPEN, breakers.state(ENDPOINT));
+        assertFalse(breakers.tryAcquire(ENDPOINT));
+    }
+
+    @Test
+    void tryAcquire_WhenDisabled_ShouldAlwaysLetCallsThrough() {
+        // Given
+        breakers = new EndpointCircuitBreakers(false, 10, 4, 0.5, 1000, 2, now::get);
+
+        // When
+        calls(0, 10);
+
+        // Then
+        assertTrue(breakers.tryAcquire(ENDPOINT));
+        assertEquals(EndpointCircuitBreakers.State.CLOSED, breakers.state(ENDPOINT));
+    }
+}
@@ -8,9 +8,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.*;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,13 +28,25 @@ class ExternalServiceInvokerTest {
     @Mock
     private RestTemplate restTemplate;
 
+    private RetryPolicy retryPolicy;
+    private EndpointCircuitBreakers circuitBreakers;
+    private HedgingPolicy hedgingPolicy;
+    private ServiceHealthProber healthProber;
+
     private ExternalServiceInvokerImpl serviceInvoker;
 
     @BeforeEach
     void setUp() {
-        serviceInvoker = new ExternalServiceInvokerImpl();
-        serviceInvoker.setDiscoveryClient(discoveryClient);
-        serviceInvoker.setRestTemplate(restTemplate);
+        retryPolicy = new RetryPolicy();
+        circuitBreakers = new EndpointCircuitBreakers();
+        hedgingPolicy = new HedgingPolicy();
+        healthProber = new ServiceHealthProber();
+        serviceInvoker = invoker();
+    }
+
+    private ExternalServiceInvokerImpl invoker() {
+        return new ExternalServiceInvokerImpl(discoveryClient, restTemplate, new ServiceLoadBalancer(),
+                circuitBreakers, retryPolicy, hedgingPolicy, healthProber);
     }
 
     @Test
@@ -206,4 +221,187 @@ class ExternalServiceInvokerTest {
         // Then
         assertFalse(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void invokeOperation_WhenDeadlinePasses_ShouldReturnGatewayTimeout() {
+        // Given
+        String operation = "slowOperation";
+        ServiceDiscoveryClientImpl.ServiceInfoImpl serviceInfo = new ServiceDiscoveryClientImpl.ServiceInfoImpl();
+        serviceInfo.setName("slowService");
+        ServiceDiscoveryClientImpl.ServiceDetailsImpl serviceDetails = new ServiceDiscoveryClientImpl.ServiceDetailsImpl();
+        serviceDetails.setEndpoint("http://slow-service:8080");
+
+        when(discoveryClient.findServiceByOperation(operation)).thenReturn(Optional.of(serviceInfo));
+        when(discoveryClient.getServiceDetails("slowService")).thenReturn(Optional.of(serviceDetails));
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(5_000);
+                    return ResponseEntity.ok("too late");
+                });
+
+        // When
+        var result = serviceInvoker.invokeOperation(operation, new Object(), 50L);
+
+        // Then
+        assertFalse(result.isSuccess());
+        assertEquals(504, result.getStatusCode());
+        ArgumentCaptor<HttpEntity> entityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate).exchange(anyString(), eq(HttpMethod.POST), entityCaptor.capture(), eq(String.class));
+        assertNotNull(entityCaptor.getValue().getHeaders().getFirst("X-Broker-Timeout-Ms"));
+    }
+
+    @Test
+    void invokeOperation_WithSeveralDeployments_ShouldSpreadCallsAcrossThem() {
+        // Given
+        String operation = "testOperation";
+        ServiceDiscoveryClientImpl.ServiceInfoImpl serviceInfo = new ServiceDiscoveryClientImpl.ServiceInfoImpl();
+        serviceInfo.setName("testService");
+        ServiceDiscoveryClientImpl.ServiceDetailsImpl serviceDetails = new ServiceDiscoveryClientImpl.ServiceDetailsImpl();
+        serviceDetails.setEndpoint("http://test-service-a:8080");
+        ServiceDiscoveryClientImpl.ServiceInstanceImpl first = new ServiceDiscoveryClientImpl.ServiceInstanceImpl();
+        first.setEndpoint("http://test-service-a:8080");
+        ServiceDiscoveryClientImpl.ServiceInstanceImpl second = new ServiceDiscoveryClientImpl.ServiceInstanceImpl();
+        second.setEndpoint("http://test-service-b:8080");
+        serviceDetails.setInstances(List.of(first, second));
+
+        when(discoveryClient.findServiceByOperation(operation)).thenReturn(Optional.of(serviceInfo));
+        when(discoveryClient.getServiceDetails("testService")).thenReturn(Optional.of(serviceDetails));
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("success"));
+
+        // When
+        serviceInvoker.invokeOperation(operation, new Object());
+        serviceInvoker.invokeOperation(operation, new Object());
+
+        // Then
+        ArgumentCaptor<String> urlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(restTemplate, times(2)).exchange(urlCaptor.capture(), eq(HttpMethod.POST), any(HttpEntity.class),
+                eq(String.class));
+        assertEquals(List.of("http://test-service-a:8080/testOperation", "http://test-service-b:8080/testOperation"),
+                urlCaptor.getAllValues());
+    }
+
+    private ServiceDiscoveryClientImpl.ServiceDetailsImpl twoDeployments(String operation) {
+        ServiceDiscoveryClientImpl.ServiceInfoImpl serviceInfo = new ServiceDiscoveryClientImpl.ServiceInfoImpl();
+        serviceInfo.setName("testService");
+        ServiceDiscoveryClientImpl.ServiceDetailsImpl serviceDetails = new ServiceDiscoveryClientImpl.ServiceDetailsImpl();
+        serviceDetails.setEndpoint("http://test-service-a:8080");
+        ServiceDiscoveryClientImpl.ServiceInstanceImpl first = new ServiceDiscoveryClientImpl.ServiceInstanceImpl();
+        first.setEndpoint("http://test-service-a:8080");
+        ServiceDiscoveryClientImpl.ServiceInstanceImpl second = new ServiceDiscoveryClientImpl.ServiceInstanceImpl();
+        second.setEndpoint("http://test-service-b:8080");
+        serviceDetails.setInstances(List.of(first, second));
+        when(discoveryClient.findServiceByOperation(operation)).thenReturn(Optional.of(serviceInfo));
+        when(discoveryClient.getServiceDetails("testService")).thenReturn(Optional.of(serviceDetails));
+        return serviceDetails;
+    }
+
+    @Test
+    void invokeOperation_WhenIdempotentCallFails_ShouldRetryOnAnotherDeployment() {
+        // Given
+        twoDeployments("getRecord");
+        retryPolicy = new RetryPolicy(3, 1, 1, 0.2, 10, RetryPolicy.DEFAULT_IDEMPOTENT_PREFIXES, "");
+        serviceInvoker = invoker();
+        when(restTemplate.exchange(eq("http://test-service-a:8080/getRecord"), eq(HttpMethod.POST),
+                any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        when(restTemplate.exchange(eq("http://test-service-b:8080/getRecord"), eq(HttpMethod.POST),
+                any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("success"));
+
+        // When
+        var result = serviceInvoker.invokeOperation("getRecord", new Object());
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertEquals("success", result.getBody());
+        verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                eq(String.class));
+    }
+
+    @Test
+    void invokeOperation_WhenNonIdempotentCallFails_ShouldNotRetry() {
+        // Given
+        twoDeployments("createRecord");
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // When
+        var result = serviceInvoker.invokeOperation("createRecord", new Object());
+
+        // Then
+        assertFalse(result.isSuccess());
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                eq(String.class));
+    }
+
+    @Test
+    void invokeOperation_WhenEveryCircuitIsOpen_ShouldFailFast() {
+        // Given
+        twoDeployments("createRecord");
+        circuitBreakers = new EndpointCircuitBreakers(true, 2, 2, 0.5, 60_000, 1);
+        for (String endpoint : List.of("http://test-service-a:8080", "http://test-service-b:8080")) {
+            circuitBreakers.onResult(endpoint, false);
+            circuitBreakers.onResult(endpoint, false);
+        }
+        serviceInvoker = invoker();
+
+        // When
+        var result = serviceInvoker.invokeOperation("createRecord", new Object());
+
+        // Then
+        assertFalse(result.isSuccess());
+        assertEquals(503, result.getStatusCode());
+        verify(restTemplate, never()).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class),
+                any(Class.class));
+    }
+
+    @Test
+    void invokeOperation_WhenDeploymentIsSlow_ShouldHedgeToAnother() {
+        // Given
+        twoDeployments("getRecord");
+        hedgingPolicy = new HedgingPolicy(true, 0.95, 20, 1, 16);
+        hedgingPolicy.record("testService", TimeUnit.MILLISECONDS.toNanos(20));
+        serviceInvoker = invoker();
+        when(restTemplate.exchange(eq("http://test-service-a:8080/getRecord"), eq(HttpMethod.POST),
+                any(HttpEntity.class), eq(String.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(5_000);
+                    return ResponseEntity.ok("slow");
+                });
+        when(restTemplate.exchange(eq("http://test-service-b:8080/getRecord"), eq(HttpMethod.POST),
+                any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("fast"));
+
+        // When
+        long startedAt = System.nanoTime();
+        var result = serviceInvoker.invokeOperation("getRecord", new Object(), 2_000L);
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertEquals("fast", result.getBody());
+        assertTrue(System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void invokeOperation_WhenDeploymentIsEjected_ShouldRouteAroundIt() {
+        // Given
+        twoDeployments("createRecord");
+        healthProber = new ServiceHealthProber(null, null, false, 10_000, 0.2, 2_000, 16, 1.0, 0.5, 3.0, 3, 50);
+        healthProber.record(new ServiceHealthProber.Target("testService", "http://test-service-b:8080", "health"),
+                true, 1);
+        healthProber.record(new ServiceHealthProber.Target("testService", "http://test-service-a:8080", "health"),
+                false, 1);
+        serviceInvoker = invoker();
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("success"));
+
+        // When
+        serviceInvoker.invokeOperation("createRecord", new Object());
+        serviceInvoker.invokeOperation("createRecord", new Object());
+
+        // Then
+        verify(restTemplate, times(2)).exchange(eq("http://test-service-b:8080/createRecord"), eq(HttpMethod.POST),
+                any(HttpEntity.class), eq(String.class));
+    }
+}
@@ -0,0 +1,59 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    void isIdempotent_ShouldMatchPrefixesAndListedOperations() {
+        // Given
+        RetryPolicy policy = new RetryPolicy(3, 50, 1000, 0.2, 10, RetryPolicy.DEFAULT_IDEMPOTENT_PREFIXES,
+                "resolveAddress");
+
+        // When / Then
+        assertTrue(policy.isIdempotent("getUser"));
+        assertTrue(policy.isIdempotent("searchNotes"));
+        assertTrue(policy.isIdempotent("resolveAddress"));
+        assertFalse(policy.isIdempotent("createUser"));
+        assertFalse(policy.isIdempotent(null));
+    }
+
+    @Test
+    void tryRetry_ShouldBeLimitedToTheBudget() {
+        // Given
+        RetryPolicy policy = new RetryPolicy(3, 50, 1000, 0.5, 2, "", "");
+
+        // When
+        boolean first = policy.tryRetry("testService");
+        boolean second = policy.tryRetry("testService");
+        boolean third = policy.tryRetry("testService");
+        policy.onCall("testService");
+        policy.onCall("testService");
+        boolean afterCalls = policy.tryRetry("testService");
+
+        // Then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertTrue(afterCalls);
+        assertTrue(policy.tryRetry("otherService"));
+    }
+
+    @Test
+    void backoffNanos_ShouldGrowExponentiallyUpToTheCap() {
+        // Given
+        RetryPolicy policy = new RetryPolicy(5, 100, 300, 0.2, 10, "", "");
+
+        // When / Then
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.backoffNanos(2) <= TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(policy.backoffNanos(3) <= TimeUnit.MILLISECONDS.toNanos(200));
+            assertTrue(policy.backoffNanos(10) <= TimeUnit.MILLISECONDS.toNanos(300));
+            assertTrue(policy.backoffNanos(2) >= 0);
+        }
+    }
+}
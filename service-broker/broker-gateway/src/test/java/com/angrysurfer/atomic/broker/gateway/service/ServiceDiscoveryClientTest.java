@@ -7,8 +7,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -202,4 +209,100 @@ class ServiceDiscoveryClientTest {
                 assertEquals("ACTIVE", serviceDetails.getStatus());
                 assertEquals("op1,op2,op3", serviceDetails.getOperations());
         }
-}
\ No newline at end of file
+
+        private static final String ROUTES_URL = "http://localhost:8085/api/registry/routes";
+
+        private static ServiceDiscoveryClientImpl.ServiceDetailsImpl route(String name, String operations) {
+                ServiceDiscoveryClientImpl.ServiceDetailsImpl details = new ServiceDiscoveryClientImpl.ServiceDetailsImpl();
+                details.setServiceId(7L);
+                details.setServiceName(name);
+                details.setEndpoint("http://" + name + ":8080");
+                details.setStatus("ACTIVE");
+                details.setOperations(operations);
+                return details;
+        }
+
+        private static ResponseEntity<ServiceDiscoveryClientImpl.ServiceDetailsImpl[]> routes(String etag,
+                        ServiceDiscoveryClientImpl.ServiceDetailsImpl... services) {
+                return ResponseEntity.ok().eTag(etag).body(services);
+        }
+
+        @Test
+        void findServiceByOperation_WithLoadedRoutingTable_ShouldNotQueryRegistry() {
+                // Given
+                when(restTemplate.exchange(eq(ROUTES_URL), eq(HttpMethod.GET), any(HttpEntity.class),
+                                eq(ServiceDiscoveryClientImpl.ServiceDetailsImpl[].class)))
+                                .thenReturn(routes("\"v1\"", route("pythonService", "translate, summarize")));
+                discoveryClient.refreshRoutes();
+
+                // When
+                Optional<ServiceDiscoveryClient.ServiceInfo> info = discoveryClient.findServiceByOperation("summarize");
+                Optional<ServiceDiscoveryClient.ServiceDetails> details = discoveryClient.getServiceDetails("pythonService");
+
+                // Then
+                assertEquals("pythonService", info.get().getName());
+                assertEquals(Long.valueOf(7L), info.get().getId());
+                assertEquals("http://pythonService:8080", details.get().getEndpoint());
+                verify(restTemplate, never()).getForObject(anyString(), any());
+        }
+
+        @SuppressWarnings("unchecked")
+        @Test
+        void refreshRoutes_WithUnchangedTable_ShouldSendETagAndKeepRoutes() {
+                // Given
+                when(restTemplate.exchange(eq(ROUTES_URL), eq(HttpMethod.GET), any(HttpEntity.class),
+                                eq(ServiceDiscoveryClientImpl.ServiceDetailsImpl[].class)))
+                                .thenReturn(routes("\"v1\"", route("pythonService", "translate")))
+                                .thenReturn(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+                discoveryClient.refreshRoutes();
+
+                // When
+                discoveryClient.refreshRoutes();
+
+                // Then
+                var requests = org.mockito.ArgumentCaptor.forClass(HttpEntity.class);
+                verify(restTemplate, times(2)).exchange(eq(ROUTES_URL), eq(HttpMethod.GET), requests.capture(),
+                                eq(ServiceDiscoveryClientImpl.ServiceDetailsImpl[].class));
+                HttpHeaders second = requests.getAllValues().get(1).getHeaders();
+                assertEquals(List.of("\"v1\""), second.getIfNoneMatch());
+                assertTrue(discoveryClient.findServiceByOperation("translate").isPresent());
+        }
+
+        @Test
+        void findServiceByOperation_WithRegistryDown_ShouldServeStaleRoutes() {
+                // Given
+                when(restTemplate.exchange(eq(ROUTES_URL), eq(HttpMethod.GET), any(HttpEntity.class),
+                                eq(ServiceDiscoveryClientImpl.ServiceDetailsImpl[].class)))
+                                .thenReturn(routes("\"v1\"", route("pythonService", "translate")))
+                                .thenThrow(new ResourceAccessException("Connection refused"));
+                discoveryClient.refreshRoutes();
+                discoveryClient.refreshRoutes();
+
+                // When
+                Optional<ServiceDiscoveryClient.ServiceInfo> result = discoveryClient.findServiceByOperation("translate");
+
+                // Then
+                assertEquals("pythonService", result.get().getName());
+                verify(restTemplate, never()).getForObject(anyString(), any());
+        }
+
+        @Test
+        void onServiceStatusChange_ShouldRefreshOnlyForNewServicesOrStateChanges() {
+                // Given
+                when(restTemplate.exchange(eq(ROUTES_URL), eq(HttpMethod.GET), any(HttpEntity.class),
+                                eq(ServiceDiscoveryClientImpl.ServiceDetailsImpl[].class)))
+                                .thenReturn(routes("\"v1\"", route("pythonService", "translate")))
+                                .thenReturn(routes("\"v2\"", route("pythonService", "translate"), route("goService", "resize")));
+                discoveryClient.refreshRoutes();
+                discoveryClient.onServiceStatusChange("pythonService", "HEALTHY");
+
+                // When
+                discoveryClient.onServiceStatusChange("pythonService", "HEALTHY");
+                discoveryClient.onServiceStatusChange("goService", "UNKNOWN");
+
+                // Then
+                verify(restTemplate, times(3)).exchange(eq(ROUTES_URL), eq(HttpMethod.GET), any(HttpEntity.class),
+                                eq(ServiceDiscoveryClientImpl.ServiceDetailsImpl[].class));
+                assertEquals("goService", discoveryClient.findServiceByOperation("resize").get().getName());
+        }
+}
@@ -0,0 +1,203 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ServiceHealthProberTest {
+
+    @Mock
+    private ServiceDiscoveryClientImpl discoveryClient;
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private ServiceHealthProber prober;
+
+    @BeforeEach
+    void setUp() {
+        prober = new ServiceHealthProber(discoveryClient, restTemplate, true, 60_000, 0.2, 1_000, 4, 0.5, 0.6,
+                3.0, 2, 50);
+    }
+
+    private static ServiceHealthProber.Target target(String endpoint) {
+        return new ServiceHealthProber.Target("testService", endpoint, endpoint + "/health");
+    }
+
+    private static void routes(ServiceDiscoveryClientImpl discoveryClient, String... endpoints) {
+        ServiceDiscoveryClientImpl.ServiceDetailsImpl details = new ServiceDiscoveryClientImpl.ServiceDetailsImpl();
+        details.setServiceName("testService");
+        details.setEndpoint(endpoints[0]);
+        details.setHealthCheck("health");
+        List<ServiceDiscoveryClientImpl.ServiceInstanceImpl> instances = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            ServiceDiscoveryClientImpl.ServiceInstanceImpl instance = new ServiceDiscoveryClientImpl.ServiceInstanceImpl();
+            instance.setEndpoint(endpoint);
+            instances.add(instance);
+        }
+        details.setInstances(instances);
+        when(discoveryClient.routedServices()).thenReturn(List.<ServiceDiscoveryClient.ServiceDetails>of(details));
+    }
+
+    @Test
+    void record_WhenProbesFail_ShouldEjectUntilTheEndpointRecovers() {
+        // Given
+        ServiceHealthProber.Target failing = target("http://a");
+        prober.record(target("http://b"), true, 1_000_000);
+        prober.record(failing, false, 1_000_000);
+        assertFalse(prober.isEjected("http://a"));
+
+        // When
+        prober.record(failing, false, 1_000_000);
+
+        // Then
+        assertTrue(prober.isEjected("http://a"));
+        prober.record(failing, true, 1_000_000);
+        assertTrue(prober.isEjected("http://a"));
+        prober.record(failing, true, 1_000_000);
+        assertFalse(prober.isEjected("http://a"));
+    }
+
+    @Test
+    void record_WithSlowOutlier_ShouldEjectIt() {
+        // Given
+        prober.record(target("http://a"), true, TimeUnit.MILLISECONDS.toNanos(10));
+        prober.record(target("http://b"), true, TimeUnit.MILLISECONDS.toNanos(12));
+
+        // When
+        prober.record(target("http://c"), true, TimeUnit.MILLISECONDS.toNanos(200));
+
+        // Then
+        assertTrue(prober.isEjected("http://c"));
+        assertFalse(prober.isEjected("http://a"));
+        assertFalse(prober.isEjected("http://b"));
+    }
+
+    @Test
+    void record_WhenEveryEndpointFails_ShouldEjectNoMoreThanTheLimit() {
+        // Given
+        ServiceHealthProber.Target first = target("http://a");
+        ServiceHealthProber.Target second = target("http://b");
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            prober.record(first, false, 1_000_000);
+            prober.record(second, false, 1_000_000);
+        }
+
+        // Then
+        assertTrue(prober.isEjected("http://a"));
+        assertFalse(prober.isEjected("http://b"));
+    }
+
+    @Test
+    void probeDue_ShouldProbeEveryRoutedEndpoint() {
+        // Given
+        prober = new ServiceHealthProber(discoveryClient, restTemplate, true, 60_000, 0.0, 1_000, 4, 0.5, 0.5,
+                3.0, 2, 50);
+        routes(discoveryClient, "http://a", "http://b");
+        when(restTemplate.getForEntity("http://a/health", String.class)).thenReturn(ResponseEntity.ok("UP"));
+        when(restTemplate.getForEntity("http://b/health", String.class))
+                .thenReturn(ResponseEntity.status(503).body("DOWN"));
+
+        // When
+        prober.probeDue();
+        prober.probeDue();
+
+        // Then
+        verify(restTemplate, timeout(2_000).times(1)).getForEntity("http://a/health", String.class);
+        verify(restTemplate, timeout(2_000).times(1)).getForEntity("http://b/health", String.class);
+    }
+
+    @Test
+    void probe_WhenEndpointDoesNotAnswer_ShouldTimeOutAndCountAFailure() {
+        // Given
+        prober = new ServiceHealthProber(discoveryClient, restTemplate, true, 60_000, 0.0, 50, 4, 1.0, 0.5,
+                3.0, 2, 50);
+        prober.record(target("http://b"), true, 1_000_000);
+        when(restTemplate.getForEntity("http://a/health", String.class)).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return ResponseEntity.ok("UP");
+        });
+
+        // When
+        long startedAt = System.nanoTime();
+        prober.probe(target("http://a"));
+
+        // Then
+        assertTrue(System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(2));
+        assertTrue(prober.isEjected("http://a"));
+    }
+
+    @Test
+    void record_WithSingleDeployment_ShouldKeepItRoutable() {
+        // Given
+        ServiceHealthProber.Target only = target("http://a");
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            prober.record(only, false, 1_000_000);
+        }
+
+        // Then
+        assertFalse(prober.isEjected("http://a"));
+        assertTrue(prober.ejected(List.of(instance("http://a"))).isEmpty());
+    }
+
+    @Test
+    void probeDue_WithoutHealthCheckPath_ShouldNotProbe() {
+        // Given
+        ServiceDiscoveryClientImpl.ServiceDetailsImpl details = new ServiceDiscoveryClientImpl.ServiceDetailsImpl();
+        details.setServiceName("testService");
+        details.setEndpoint("http://a");
+        when(discoveryClient.routedServices()).thenReturn(List.<ServiceDiscoveryClient.ServiceDetails>of(details));
+
+        // When
+        prober.probeDue();
+
+        // Then
+        assertTrue(prober.targets().isEmpty());
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void ejected_WhenTooFewEndpointsAreHealthy_ShouldRouteToAll() {
+        // Given
+        prober = new ServiceHealthProber(discoveryClient, restTemplate, true, 60_000, 0.2, 1_000, 4, 1.0, 0.5,
+                3.0, 2, 100, 50);
+        List<ServiceDiscoveryClient.ServiceInstance> instances = List.of(instance("http://a"), instance("http://b"),
+                instance("http://c"));
+        prober.record(target("http://c"), true, 1_000_000);
+        prober.record(target("http://a"), false, 1_000_000);
+
+        // When
+        var oneEjected = prober.ejected(instances);
+        prober.record(target("http://b"), false, 1_000_000);
+        var twoEjected = prober.ejected(instances);
+
+        // Then
+        assertEquals(Set.of("http://a"), oneEjected);
+        assertTrue(prober.isEjected("http://b"));
+        assertTrue(twoEjected.isEmpty());
+    }
+
+    private static ServiceDiscoveryClient.ServiceInstance instance(String endpoint) {
+        ServiceDiscoveryClientImpl.ServiceInstanceImpl instance = new ServiceDiscoveryClientImpl.ServiceInstanceImpl();
+        instance.setEndpoint(endpoint);
+        return instance;
+    }
+}
@@ -0,0 +1,151 @@
+package com.angrysurfer.atomic.broker.gateway.service;
+
+import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient.ServiceInstance;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceLoadBalancerTest {
+
+    private static ServiceDiscoveryClientImpl.ServiceInstanceImpl instance(String endpoint, String host, String zone,
+            int priority, int weight, boolean backup) {
+        ServiceDiscoveryClientImpl.ServiceInstanceImpl instance = new ServiceDiscoveryClientImpl.ServiceInstanceImpl();
+        instance.setEndpoint(endpoint);
+        instance.setHost(host);
+        instance.setZone(zone);
+        instance.setPriority(priority);
+        instance.setWeight(weight);
+        instance.setBackup(backup);
+        return instance;
+    }
+
+    private static ServiceDiscoveryClientImpl.ServiceInstanceImpl instance(String endpoint) {
+        return instance(endpoint, null, null, 1, 100, false);
+    }
+
+    private static String pick(ServiceLoadBalancer balancer, List<? extends ServiceInstance> instances) {
+        ServiceLoadBalancer.Call call = balancer.start("testService", instances);
+        call.complete(true);
+        return call.instance().getEndpoint();
+    }
+
+    @Test
+    void start_WithRoundRobin_ShouldTakeInstancesInTurn() {
+        // Given
+        ServiceLoadBalancer balancer = new ServiceLoadBalancer();
+        List<ServiceInstance> instances = List.of(instance("http://a"), instance("http://b"), instance("http://c"));
+
+        // When
+        List<String> picked = List.of(pick(balancer, instances), pick(balancer, instances),
+                pick(balancer, instances), pick(balancer, instances));
+
+        // Then
+        assertEquals(List.of("http://a", "http://b", "http://c", "http://a"), picked);
+    }
+
+    @Test
+    void start_WithWeighted_ShouldStayInBestPriorityTierInProportionToWeight() {
+        // Given
+        ServiceLoadBalancer balancer = new ServiceLoadBalancer(null, "weighted", null, null);
+        List<ServiceInstance> instances = List.of(
+                instance("http://heavy", null, null, 1, 300, false),
+                instance("http://light", null, null, 1, 100, false),
+                instance("http://failover", null, null, 2, 1000, false));
+
+        // When
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 4000; i++) {
+            counts.merge(pick(balancer, instances), 1, Integer::sum);
+        }
+
+        // Then
+        assertNull(counts.get("http://failover"));
+        assertEquals(3.0, counts.get("http://heavy") / (double) counts.get("http://light"), 0.5);
+    }
+
+    @Test
+    void start_WithBackupInstances_ShouldOnlyUseThemWhenNothingElseIsLeft() {
+        // Given
+        ServiceLoadBalancer balancer = new ServiceLoadBalancer();
+        ServiceInstance backup = instance("http://backup", null, null, 1, 100, true);
+
+        // When
+        String withPrimary = pick(balancer, List.of(backup, instance("http://primary")));
+        String withoutPrimary = pick(balancer, List.of(backup));
+
+        // Then
+        assertEquals("http://primary", withPrimary);
+        assertEquals("http://backup", withoutPrimary);
+    }
+
+    @Test
+    void start_WithAffinity_ShouldPreferSameHostThenSameZone() {
+        // Given
+        ServiceLoadBalancer balancer = new ServiceLoadBalancer(null, "round-robin", "host-1", "eu");
+        ServiceInstance local = instance("http://local", "host-1", "eu", 1, 100, false);
+        ServiceInstance sameZone = instance("http://same-zone", "host-2", "eu", 1, 100, false);
+        ServiceInstance remote = instance("http://remote", "host-3", "us", 1, 100, false);
+
+        // When / Then
+        for (int i = 0; i < 3; i++) {
+            assertEquals("http://local", pick(balancer, List.of(remote, sameZone, local)));
+            assertEquals("http://same-zone", pick(balancer, List.of(remote, sameZone)));
+        }
+        assertEquals("http://remote", pick(balancer, List.of(remote)));
+    }
+
+    @Test
+    void start_WithLeastOutstanding_ShouldAvoidBusyInstances() {
+        // Given
+        ServiceLoadBalancer balancer = new ServiceLoadBalancer(null, "least-outstanding", null, null);
+        List<ServiceInstance> instances = List.of(instance("http://a"), instance("http://b"));
+        ServiceLoadBalancer.Call busy = balancer.start("testService", instances);
+
+        // When
+        ServiceLoadBalancer.Call next = balancer.start("testService", instances);
+
+        // Then
+        assertNotEquals(busy.instance().getEndpoint(), next.instance().getEndpoint());
+        assertEquals(1, balancer.outstanding(busy.instance().getEndpoint()));
+        busy.complete(true);
+        busy.complete(true);
+        assertEquals(0, balancer.outstanding(busy.instance().getEndpoint()));
+    }
+
+    @Test
+    void start_WithPowerOfTwo_ShouldPreferTheFasterInstance() throws Exception {
+        // Given
+        ServiceLoadBalancer balancer = new ServiceLoadBalancer(null, "power-of-two", null, null);
+        ServiceInstance fast = instance("http://fast");
+        ServiceInstance slow = instance("http://slow");
+        ServiceLoadBalancer.Call slowCall = balancer.start("testService", List.of(slow));
+        Thread.sleep(20);
+        slowCall.complete(true);
+        pick(balancer, List.of(fast));
+
+        // When
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            counts.merge(pick(balancer, List.of(slow, fast)), 1, Integer::sum);
+        }
+
+        // Then
+        assertEquals(20, counts.get("http://fast"));
+    }
+
+    @Test
+    void strategyFor_WithServiceOverride_ShouldUseIt() {
+        // Given
+        MockEnvironment env = new MockEnvironment().withProperty("gateway.lb.strategies.searchService", "weighted");
+        ServiceLoadBalancer balancer = new ServiceLoadBalancer(env, "round-robin", null, null);
+
+        // When / Then
+        assertEquals(ServiceLoadBalancer.Strategy.WEIGHTED, balancer.strategyFor("searchService"));
+        assertEquals(ServiceLoadBalancer.Strategy.ROUND_ROBIN, balancer.strategyFor("noteService"));
+    }
+}
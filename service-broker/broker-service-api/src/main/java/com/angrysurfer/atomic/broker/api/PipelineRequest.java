@@ -0,0 +1,58 @@
+package com.angrysurfer.atomic.broker.api;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * An ordered list of broker requests run one after the other on the server,
+ * in a single round trip. A parameter value of the form
+ * {@code "${step.path}"} is replaced by a field of an earlier step's result
+ * data, where {@code step} is the step's index or its requestId and
+ * {@code path} is a dot-separated list of field names or list indices, e.g.
+ * {@code "${login.id}"} or {@code "${0.files.0.name}"}. {@code "${step}"}
+ * refers to the whole result.
+ *
+ * The pipeline stops at the first step that fails.
+ */
+public class PipelineRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<ServiceRequest> steps;
+    private String requestId;
+
+    /** Time budget in milliseconds for the whole pipeline; null for none. */
+    private Long timeoutMs;
+
+    public PipelineRequest() {
+    }
+
+    public PipelineRequest(List<ServiceRequest> steps, String requestId) {
+        this.steps = steps;
+        this.requestId = requestId;
+    }
+
+    public List<ServiceRequest> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<ServiceRequest> steps) {
+        this.steps = steps;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+}
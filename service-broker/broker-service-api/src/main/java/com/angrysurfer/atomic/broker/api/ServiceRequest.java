@@ -14,6 +14,13 @@ public class ServiceRequest implements Serializable {
 
     private boolean encrypt = false;
 
+    /**
+     * Deadline of the request, as the time budget in milliseconds left when it
+     * was sent; null for no deadline. A relative budget rather than a point in
+     * time, so that clock skew between hosts does not matter.
+     */
+    private Long timeoutMs;
+
     public ServiceRequest() {
     }
 
@@ -51,4 +58,12 @@ public class ServiceRequest implements Serializable {
     public void setParams(Map<String, Object> params) {
         this.params = params;
     }
+
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
 }
\ No newline at end of file
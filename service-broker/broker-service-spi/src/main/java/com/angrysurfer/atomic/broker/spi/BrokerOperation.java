@@ -10,4 +10,38 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 public @interface BrokerOperation {
     String value() default "";
+
+    /**
+     * How long, in milliseconds, the broker may answer repeated calls with the
+     * same key parameters from its response cache. Only successful results are
+     * cached. 0 (the default) disables caching; use it only for idempotent
+     * reads. Every caller served from the cache receives the same result
+     * instance, which must therefore never be modified.
+     */
+    long cacheTtlMs() default 0;
+
+    /**
+     * Parameters that identify a call, for caching and coalescing. Empty (the
+     * default) means all request parameters.
+     */
+    String[] cacheKey() default {};
+
+    /**
+     * Invalidation group for cached results of this operation. Defaults to the
+     * simple name of the declaring class.
+     */
+    String cacheGroup() default "";
+
+    /**
+     * Cache groups to evict after this operation completes successfully, for
+     * operations that change what cached reads would return.
+     */
+    String[] evicts() default {};
+
+    /**
+     * When true, concurrent calls with the same key parameters share a single
+     * execution and each caller receives its result, the same instance, which
+     * must therefore never be modified. Use only for idempotent reads.
+     */
+    boolean coalesce() default false;
 }
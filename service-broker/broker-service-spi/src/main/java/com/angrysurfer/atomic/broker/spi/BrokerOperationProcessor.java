@@ -0,0 +1,224 @@
+package com.angrysurfer.atomic.broker.spi;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes the {@link OperationIndex} of the classes being compiled.
+ *
+ * Every public {@code @BrokerOperation} method of a class is recorded with
+ * the name of the bean the class is registered under: the value of its
+ * stereotype annotation ({@code @Service("name")} and the like), or Spring's
+ * default name for a scanned component. Beans defined by {@code @Bean}
+ * methods may have other names; the broker looks those up by type.
+ *
+ * Modules enable it by adding {@code broker-service-spi} to the compiler's
+ * {@code annotationProcessorPaths}. When only some sources are recompiled,
+ * the entries of the classes that were not are kept from the previous index.
+ */
+// Every compilation is processed, so that one that removes the last operation
+// of a class still updates the index
+@SupportedAnnotationTypes("*")
+public class BrokerOperationProcessor extends AbstractProcessor {
+
+    private static final String COMPONENT = "org.springframework.stereotype.Component";
+
+    private Elements elements;
+    private Types types;
+    private Filer filer;
+
+    private final Map<String, OperationIndex.Entry> entries = new LinkedHashMap<>();
+    private final Set<String> compiledTypes = new HashSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.filer = processingEnv.getFiler();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element root : roundEnv.getRootElements()) {
+            collectTypes(root);
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(BrokerOperation.class)) {
+            if (element.getKind() == ElementKind.METHOD) {
+                index((ExecutableElement) element);
+            }
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void collectTypes(Element element) {
+        if (element instanceof TypeElement type) {
+            compiledTypes.add(elements.getBinaryName(type).toString());
+        }
+    }
+
+    /**
+     * @return true if {@code className}, or the class it is nested in, is
+     *         part of this compilation
+     */
+    private boolean isCompiled(String className) {
+        for (int nested = className.indexOf('$'); nested > 0; nested = className.indexOf('$', nested + 1)) {
+            if (compiledTypes.contains(className.substring(0, nested))) {
+                return true;
+            }
+        }
+        return compiledTypes.contains(className);
+    }
+
+    private void index(ExecutableElement method) {
+        TypeElement owner = (TypeElement) method.getEnclosingElement();
+        if (owner.getKind().isInterface()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "@BrokerOperation is only honoured on methods of classes, not interfaces", method);
+            return;
+        }
+        if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "@BrokerOperation method is not public and will not be exposed", method);
+            return;
+        }
+        List<String> parameterTypes = new ArrayList<>();
+        List<String> parameterNames = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            parameterTypes.add(typeName(types.erasure(parameter.asType())));
+            parameterNames.add(parameter.getSimpleName().toString());
+        }
+        OperationIndex.Entry entry = new OperationIndex.Entry(elements.getBinaryName(owner).toString(),
+                beanName(owner), method.getSimpleName().toString(),
+                method.getAnnotation(BrokerOperation.class).value(), parameterTypes, parameterNames);
+        entries.put(entry.format(), entry);
+    }
+
+    private String typeName(TypeMirror type) {
+        return switch (type.getKind()) {
+            case ARRAY -> typeName(((ArrayType) type).getComponentType()) + "[]";
+            case DECLARED -> elements.getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+            default -> type.toString();
+        };
+    }
+
+    private String beanName(TypeElement type) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!isComponent(mirror.getAnnotationType().asElement(), new HashSet<>())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror
+                    .getElementValues().entrySet()) {
+                if (value.getKey().getSimpleName().contentEquals("value")
+                        && value.getValue().getValue() instanceof String name && !name.isEmpty()) {
+                    return name;
+                }
+            }
+        }
+        return defaultBeanName(type);
+    }
+
+    private static boolean isComponent(Element annotation, Set<String> seen) {
+        String name = ((TypeElement) annotation).getQualifiedName().toString();
+        if (name.equals(COMPONENT)) {
+            return true;
+        }
+        if (!seen.add(name)) {
+            return false;
+        }
+        for (AnnotationMirror meta : annotation.getAnnotationMirrors()) {
+            if (isComponent(meta.getAnnotationType().asElement(), seen)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Spring's default for a scanned component: the short class name
+     * ({@code Outer.Inner} for nested classes), decapitalized unless it starts
+     * with two capitals.
+     */
+    private String defaultBeanName(TypeElement type) {
+        PackageElement pkg = elements.getPackageOf(type);
+        String binaryName = elements.getBinaryName(type).toString();
+        String shortName = (pkg.isUnnamed() ? binaryName
+                : binaryName.substring(pkg.getQualifiedName().length() + 1)).replace('$', '.');
+        if (shortName.length() > 1 && Character.isUpperCase(shortName.charAt(0))
+                && Character.isUpperCase(shortName.charAt(1))) {
+            return shortName;
+        }
+        return Character.toLowerCase(shortName.charAt(0)) + shortName.substring(1);
+    }
+
+    private void writeIndex() {
+        List<OperationIndex.Entry> merged = new ArrayList<>();
+        boolean existed = false;
+        try {
+            FileObject previous = filer.getResource(StandardLocation.CLASS_OUTPUT, "", OperationIndex.LOCATION);
+            try (Reader reader = previous.openReader(true)) {
+                existed = true;
+                for (OperationIndex.Entry entry : OperationIndex.read(reader)) {
+                    if (!isCompiled(entry.className())) {
+                        merged.add(entry);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // No previous index, or one that cannot be kept: index this compilation only
+            merged.clear();
+        }
+        merged.addAll(entries.values());
+        if (merged.isEmpty() && !existed) {
+            return;
+        }
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", OperationIndex.LOCATION);
+            try (Writer writer = file.openWriter()) {
+                OperationIndex.of(merged).write(writer);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write " + OperationIndex.LOCATION + ": " + e.getMessage());
+        }
+    }
+}
@@ -16,6 +16,20 @@ public interface ExternalServiceInvoker {
      */
     InvocationResult invokeOperation(String operation, Object requestBody);
 
+    /**
+     * Invoke an operation on an external service within a time budget. The
+     * budget should be passed on to the service and the call abandoned once it
+     * has been used up.
+     *
+     * @param operation   The operation name to invoke
+     * @param requestBody The request body to send
+     * @param timeoutMs   Milliseconds left for the call, or null for no deadline
+     * @return Result containing response data and status
+     */
+    default InvocationResult invokeOperation(String operation, Object requestBody, Long timeoutMs) {
+        return invokeOperation(operation, requestBody);
+    }
+
     /**
      * Perform a health check on an external service
      * 
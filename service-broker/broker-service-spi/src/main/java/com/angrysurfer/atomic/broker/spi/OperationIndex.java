@@ -0,0 +1,213 @@
+package com.angrysurfer.atomic.broker.spi;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code @BrokerOperation} methods of a module, written at compile time by
+ * {@link BrokerOperationProcessor} to {@value #LOCATION}.
+ *
+ * Loading the index lets the broker find every operation without asking the
+ * application context for the type of each bean and scanning its methods.
+ * Each jar on the class path carries the index of its own classes;
+ * {@link #load(ClassLoader)} merges them.
+ *
+ * The file has one line per operation, with tab-separated fields: declaring
+ * class (binary name), bean name, method name, alias (empty if the operation
+ * is only known by its method name), parameter types and parameter names
+ * (both comma-separated). Lines starting with {@code #} are comments.
+ */
+public final class OperationIndex {
+
+    public static final String LOCATION = "META-INF/broker/operations.idx";
+
+    private static final OperationIndex EMPTY = new OperationIndex(List.of());
+
+    private static final Map<String, Class<?>> PRIMITIVES = Map.of(
+            "boolean", boolean.class, "byte", byte.class, "char", char.class, "short", short.class,
+            "int", int.class, "long", long.class, "float", float.class, "double", double.class,
+            "void", void.class);
+
+    /**
+     * One indexed operation.
+     *
+     * @param className      binary name of the class declaring the method
+     * @param beanName       the bean name the class is registered under by
+     *                       default, or by its stereotype annotation
+     * @param methodName     the method's name
+     * @param alias          {@link BrokerOperation#value()}, or empty
+     * @param parameterTypes erased parameter types, as {@link Class#getName()}
+     *                       for classes and with a {@code []} suffix for arrays
+     * @param parameterNames parameter names as written in the source
+     */
+    public record Entry(String className, String beanName, String methodName, String alias,
+            List<String> parameterTypes, List<String> parameterNames) {
+
+        public Entry {
+            parameterTypes = List.copyOf(parameterTypes);
+            parameterNames = List.copyOf(parameterNames);
+        }
+
+        /**
+         * @return the name clients call the operation by: its alias, or the
+         *         method name if it has none
+         */
+        public String operation() {
+            return alias.isEmpty() ? methodName : alias;
+        }
+
+        /**
+         * @return true if a request for {@code operation} is answered by this
+         *         method, by alias or by method name
+         */
+        public boolean answers(String operation) {
+            return operation.equals(alias) || operation.equals(methodName);
+        }
+
+        /**
+         * Look up the indexed method on {@code type}, which is the declaring
+         * class or one of its subclasses.
+         *
+         * @throws ReflectiveOperationException if the index does not match the
+         *                                      compiled class (a stale index)
+         */
+        public Method method(Class<?> type) throws ReflectiveOperationException {
+            Class<?>[] types = new Class<?>[parameterTypes.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = resolve(parameterTypes.get(i), type.getClassLoader());
+            }
+            return type.getMethod(methodName, types);
+        }
+
+        String format() {
+            return String.join("\t", className, beanName, methodName, alias,
+                    String.join(",", parameterTypes), String.join(",", parameterNames));
+        }
+
+        static Entry parse(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 6 || fields[0].isEmpty() || fields[2].isEmpty()) {
+                throw new IllegalArgumentException("Malformed operation index entry: " + line);
+            }
+            return new Entry(fields[0], fields[1], fields[2], fields[3], split(fields[4]), split(fields[5]));
+        }
+
+        private static List<String> split(String field) {
+            return field.isEmpty() ? List.of() : List.of(field.split(","));
+        }
+    }
+
+    private final List<Entry> entries;
+    private final Map<String, List<Entry>> byClass;
+
+    private OperationIndex(List<Entry> entries) {
+        this.entries = List.copyOf(entries);
+        Map<String, List<Entry>> grouped = new LinkedHashMap<>();
+        for (Entry entry : this.entries) {
+            grouped.computeIfAbsent(entry.className(), k -> new ArrayList<>()).add(entry);
+        }
+        grouped.replaceAll((k, v) -> List.copyOf(v));
+        this.byClass = Map.copyOf(grouped);
+    }
+
+    public static OperationIndex empty() {
+        return EMPTY;
+    }
+
+    public static OperationIndex of(Collection<Entry> entries) {
+        return entries.isEmpty() ? EMPTY : new OperationIndex(new ArrayList<>(new LinkedHashSet<>(entries)));
+    }
+
+    /**
+     * Merge every index visible to {@code classLoader}.
+     *
+     * @return the merged index; empty if no module on the class path was
+     *         compiled with {@link BrokerOperationProcessor}
+     */
+    public static OperationIndex load(ClassLoader classLoader) {
+        ClassLoader loader = classLoader != null ? classLoader : OperationIndex.class.getClassLoader();
+        Set<Entry> entries = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> resources = loader.getResources(LOCATION);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                try (InputStream in = url.openStream()) {
+                    entries.addAll(read(new InputStreamReader(in, StandardCharsets.UTF_8)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException("Invalid operation index " + url + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read operation index", e);
+        }
+        return of(entries);
+    }
+
+    static List<Entry> read(Reader reader) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            if (!line.isBlank() && !line.startsWith("#")) {
+                entries.add(Entry.parse(line));
+            }
+        }
+        return entries;
+    }
+
+    void write(Writer writer) throws IOException {
+        writer.write("# Generated by " + BrokerOperationProcessor.class.getName() + "\n");
+        for (Entry entry : entries) {
+            writer.write(entry.format());
+            writer.write('\n');
+        }
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * @return the operations declared by the class with binary name
+     *         {@code className}, not including inherited ones
+     */
+    public List<Entry> forClass(String className) {
+        return byClass.getOrDefault(className, List.of());
+    }
+
+    private static Class<?> resolve(String typeName, ClassLoader loader) throws ClassNotFoundException {
+        int dimensions = 0;
+        String name = typeName;
+        while (name.endsWith("[]")) {
+            name = name.substring(0, name.length() - 2);
+            dimensions++;
+        }
+        Class<?> type = PRIMITIVES.get(name);
+        if (type == null) {
+            type = Class.forName(name, false, loader);
+        }
+        for (int i = 0; i < dimensions; i++) {
+            type = type.arrayType();
+        }
+        return type;
+    }
+}
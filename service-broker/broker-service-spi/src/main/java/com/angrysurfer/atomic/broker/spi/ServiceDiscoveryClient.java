@@ -1,5 +1,6 @@
 package com.angrysurfer.atomic.broker.spi;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -47,5 +48,40 @@ public interface ServiceDiscoveryClient {
         String getStatus();
 
         String getOperations();
+
+        /**
+         * Running deployments of the service to balance calls across; empty
+         * if only {@link #getEndpoint()} is known
+         */
+        default List<ServiceInstance> getInstances() {
+            return List.of();
+        }
+    }
+
+    /**
+     * One deployment of a service
+     */
+    interface ServiceInstance {
+        String getEndpoint();
+
+        String getHost();
+
+        String getZone();
+
+        /**
+         * Failover tier, 1 = highest; lower tiers only get calls when no
+         * instance in a higher one is available
+         */
+        int getPriority();
+
+        /**
+         * Relative share of calls within a tier
+         */
+        int getWeight();
+
+        /**
+         * Only used when no other instance is available
+         */
+        boolean isBackup();
     }
 }
@@ -0,0 +1,160 @@
+package com.angrysurfer.atomic.broker.spi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.annotation.AliasFor;
+import org.springframework.stereotype.Service;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerOperationProcessorTest {
+
+    private static final String NOTE_SERVICE = """
+            package demo;
+
+            import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+            import org.springframework.stereotype.Service;
+
+            @Service("notes")
+            public class NoteService {
+                @BrokerOperation("listNotes")
+                public java.util.List<String> list(String owner, int[] pages) { return java.util.List.of(); }
+
+                @BrokerOperation
+                public void purge() { }
+
+                @BrokerOperation("hidden")
+                void hidden() { }
+            }
+            """;
+
+    private static final String SEARCH_SERVICE = """
+            package demo;
+
+            import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+
+            public class SearchService {
+                public static class Images {
+                    @BrokerOperation("searchImages")
+                    public <T extends CharSequence> String search(T query, java.util.Map<String, Object> filters) {
+                        return query.toString();
+                    }
+                }
+            }
+            """;
+
+    @TempDir
+    Path out;
+
+    private static JavaFileObject source(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private static String locationOf(Class<?> type) throws Exception {
+        return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+    private void compile(JavaFileObject... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classPath = String.join(File.pathSeparator, locationOf(BrokerOperation.class),
+                locationOf(Service.class), locationOf(AliasFor.class), out.toString());
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, null,
+                List.of("-d", out.toString(), "-classpath", classPath), null,
+                List.of(sources));
+        task.setProcessors(List.of(new BrokerOperationProcessor()));
+        assertTrue(task.call(), "compilation failed");
+    }
+
+    private OperationIndex load() throws Exception {
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {out.toUri().toURL()}, getClass().getClassLoader())) {
+            return OperationIndex.load(loader);
+        }
+    }
+
+    @Test
+    void testIndexesPublicOperationsWithBeanNameAndParameters() throws Exception {
+        // Arrange & Act
+        compile(source("demo.NoteService", NOTE_SERVICE), source("demo.SearchService", SEARCH_SERVICE));
+
+        // Assert
+        OperationIndex index = load();
+        assertEquals(List.of(
+                new OperationIndex.Entry("demo.NoteService", "notes", "list", "listNotes",
+                        List.of("java.lang.String", "int[]"), List.of("owner", "pages")),
+                new OperationIndex.Entry("demo.NoteService", "notes", "purge", "", List.of(), List.of())),
+                index.forClass("demo.NoteService"));
+        assertEquals(List.of(new OperationIndex.Entry("demo.SearchService$Images", "searchService.Images", "search",
+                "searchImages", List.of("java.lang.CharSequence", "java.util.Map"), List.of("query", "filters"))),
+                index.forClass("demo.SearchService$Images"));
+        assertEquals(3, index.entries().size());
+    }
+
+    @Test
+    void testIndexedEntriesResolveToTheCompiledMethods() throws Exception {
+        // Arrange
+        compile(source("demo.NoteService", NOTE_SERVICE));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {out.toUri().toURL()}, getClass().getClassLoader())) {
+            OperationIndex index = OperationIndex.load(loader);
+            Class<?> type = loader.loadClass("demo.NoteService");
+
+            // Act
+            List<Method> methods = new ArrayList<>();
+            for (OperationIndex.Entry entry : index.forClass("demo.NoteService")) {
+                methods.add(entry.method(type));
+            }
+
+            // Assert
+            assertEquals(type.getMethod("list", String.class, int[].class), methods.get(0));
+            assertEquals(type.getMethod("purge"), methods.get(1));
+            assertEquals("purge", index.forClass("demo.NoteService").get(1).operation());
+            assertTrue(index.forClass("demo.NoteService").get(0).answers("list"));
+            assertTrue(index.forClass("demo.NoteService").get(0).answers("listNotes"));
+        }
+    }
+
+    @Test
+    void testRecompilingSomeClassesKeepsTheOthersEntries() throws Exception {
+        // Arrange
+        compile(source("demo.NoteService", NOTE_SERVICE), source("demo.SearchService", SEARCH_SERVICE));
+
+        // Act - only SearchService changed, and lost its operation
+        compile(source("demo.SearchService", "package demo; public class SearchService { }"));
+
+        // Assert
+        OperationIndex index = load();
+        assertEquals(2, index.forClass("demo.NoteService").size());
+        assertTrue(index.forClass("demo.SearchService$Images").isEmpty());
+        assertEquals(2, index.entries().size());
+    }
+
+    @Test
+    void testNothingIsWrittenWithoutOperations() throws Exception {
+        // Arrange & Act
+        compile(source("demo.Plain", "package demo; public class Plain { public void run() { } }"));
+
+        // Assert
+        assertFalse(Files.exists(out.resolve(OperationIndex.LOCATION)));
+        assertTrue(load().isEmpty());
+    }
+}
@@ -1,10 +1,7 @@
 package com.angrysurfer.atomic.broker;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -12,23 +9,44 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.core.SimpleAliasRegistry;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import com.angrysurfer.atomic.broker.api.ServiceRequest;
 import com.angrysurfer.atomic.broker.api.ServiceResponse;
 import com.angrysurfer.atomic.broker.spi.BrokerOperation;
-import com.angrysurfer.atomic.broker.spi.BrokerParam;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.angrysurfer.atomic.broker.spi.ServiceDiscoveryClient;
 import com.angrysurfer.atomic.broker.spi.ExternalServiceInvoker;
+import com.angrysurfer.atomic.broker.spi.OperationIndex;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 
@@ -51,75 +69,485 @@ public class Broker {
 
     }
 
-    private final Map<MethodKey, Method> methodCache = new ConcurrentHashMap<>();
+    private final Map<MethodKey, InvocationPlan> planCache = new ConcurrentHashMap<>();
 
-    public Broker(ApplicationContext ctx, ObjectMapper objectMapper, Validator validator) {
+    private final ServiceNameIndex serviceNameIndex;
+
+    private final IndexedOperations indexedOperations;
+
+    private static final ReactiveAdapterRegistry REACTIVE_ADAPTERS = ReactiveAdapterRegistry.getSharedInstance();
+
+    private final ExecutorService asyncExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final BrokerMetrics metrics;
+
+    private final BrokerResponseCache responseCache;
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    private final BrokerBulkheads bulkheads;
+
+    @Autowired
+    public Broker(ApplicationContext ctx, ObjectMapper objectMapper, Validator validator, BrokerMetrics metrics,
+            BrokerResponseCache responseCache, BrokerBulkheads bulkheads) {
+        this(ctx, objectMapper, validator, metrics, responseCache, bulkheads,
+                OperationIndex.load(ctx.getClassLoader()));
+    }
+
+    Broker(ApplicationContext ctx, ObjectMapper objectMapper, Validator validator, BrokerMetrics metrics,
+            BrokerResponseCache responseCache, BrokerBulkheads bulkheads, OperationIndex operationIndex) {
         this.ctx = ctx;
         this.objectMapper = objectMapper;
         this.validator = validator;
+        this.metrics = metrics;
+        this.responseCache = responseCache;
+        this.bulkheads = bulkheads;
+        this.serviceNameIndex = new ServiceNameIndex(ctx);
+        this.indexedOperations = new IndexedOperations(ctx, operationIndex);
         log.info("ServiceBroker initialized");
     }
 
+    public Broker(ApplicationContext ctx, ObjectMapper objectMapper, Validator validator, BrokerMetrics metrics,
+            BrokerResponseCache responseCache) {
+        this(ctx, objectMapper, validator, metrics, responseCache, new BrokerBulkheads());
+    }
+
+    public Broker(ApplicationContext ctx, ObjectMapper objectMapper, Validator validator) {
+        this(ctx, objectMapper, validator, new BrokerMetrics(), new BrokerResponseCache());
+    }
+
+    /**
+     * Invoke the requested operation on the calling thread. The request's
+     * deadline (see {@link Deadlines}) is bound to the thread while the
+     * operation runs, so nested broker calls inherit it; a request whose
+     * deadline has already passed is not started.
+     */
     public ServiceResponse<?> submit(ServiceRequest req) {
+        return submit(req, Deadlines.of(req));
+    }
+
+    private ServiceResponse<?> submit(ServiceRequest req, long deadline) {
         log.info("Invoking service: {}, operation: {}, requestId: {}", req.getService(), req.getOperation(),
                 req.getRequestId());
+        BrokerMetrics.OperationMetrics m = metrics.forOperation(req.getService(), req.getOperation());
+        long start = m.start();
+        ServiceResponse<?> response;
         try {
-            Object bean = resolveBean(req.getService());
+            checkDeadline(req, deadline);
+            response = toResponse(req, Deadlines.within(deadline, () -> invoke(req, m, null)));
+        } catch (Exception e) {
+            // Failures caused by cancelling work for a dead request are reported as such
+            response = toError(req, Deadlines.isExpired(deadline) ? deadlineExceeded(req) : e);
+        }
+        m.stop(start, response);
+        return response;
+    }
 
-            // Handle external service proxy
+    /**
+     * A call whose result is consumed after the operation has returned, such
+     * as a stream written to a client; see {@link Broker#open}.
+     */
+    static final class OpenCall {
+
+        private final ServiceResponse<?> response;
+        private final long deadline;
+        private final Consumer<ServiceResponse<?>> onClose;
+        private boolean closed;
+
+        OpenCall(ServiceResponse<?> response, long deadline, Consumer<ServiceResponse<?>> onClose) {
+            this.response = response;
+            this.deadline = deadline;
+            this.onClose = onClose;
+        }
+
+        ServiceResponse<?> response() {
+            return response;
+        }
+
+        /**
+         * @return the request's deadline, which also bounds consuming the
+         *         result
+         */
+        long deadline() {
+            return deadline;
+        }
+
+        /**
+         * Finish the call once its result has been consumed, recording
+         * {@code outcome} in the metrics; later calls do nothing.
+         */
+        synchronized void close(ServiceResponse<?> outcome) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            onClose.accept(outcome);
+        }
+    }
+
+    /**
+     * Invoke the requested operation on the calling thread for a caller that
+     * consumes the result after it returns, such as a stream written to a
+     * client. Until the returned call is closed it counts as in flight and
+     * holds its bulkhead permit, so draining a lazy result is bounded and
+     * metered like the invocation itself; the caller should drain it within
+     * {@link OpenCall#deadline()}. Coalescing does not apply, since a lazy
+     * result can be consumed only once.
+     */
+    OpenCall open(ServiceRequest req) {
+        log.info("Opening service: {}, operation: {}, requestId: {}", req.getService(), req.getOperation(),
+                req.getRequestId());
+        long deadline = Deadlines.of(req);
+        BrokerMetrics.OperationMetrics m = metrics.forOperation(req.getService(), req.getOperation());
+        long start = m.start();
+        AtomicReference<BrokerBulkheads.Permit> held = new AtomicReference<>();
+        ServiceResponse<?> response;
+        try {
+            checkDeadline(req, deadline);
+            response = toResponse(req, Deadlines.within(deadline, () -> invoke(req, m, held)));
+        } catch (Exception e) {
+            response = toError(req, Deadlines.isExpired(deadline) ? deadlineExceeded(req) : e);
+        }
+        OpenCall call = new OpenCall(response, deadline, outcome -> {
+            BrokerBulkheads.Permit permit = held.getAndSet(null);
+            if (permit != null) {
+                permit.release();
+            }
+            m.stop(start, outcome);
+        });
+        if (!response.isOk()) {
+            call.close(response);
+        }
+        return call;
+    }
+
+    /**
+     * @param held where to leave the bulkhead permit of a call whose result is
+     *             consumed later, instead of releasing it on return; null to
+     *             release it
+     */
+    private Object invoke(ServiceRequest req, BrokerMetrics.OperationMetrics m,
+            AtomicReference<BrokerBulkheads.Permit> held) throws Exception {
+        Object result = dispatch(req, m, held);
+
+        CompletableFuture<?> pending = toFuture(result);
+        if (pending != null) {
+            long deadline = Deadlines.current();
+            try {
+                result = deadline == Deadlines.NONE ? pending.join()
+                        : pending.get(Deadlines.remainingNanos(deadline), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                pending.cancel(true);
+                throw deadlineExceeded(req);
+            } catch (InterruptedException e) {
+                pending.cancel(true);
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (ExecutionException | CompletionException | CancellationException e) {
+                throw new InvocationTargetException(unwrap(e));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Asynchronous variant of {@link #submit}. Operations whose methods return a
+     * {@link CompletionStage} or a single-valued reactive type (e.g. Mono) are
+     * invoked directly and completed when their result completes; everything
+     * else, including calls routed to external services, runs on a virtual
+     * thread so the caller's thread is never blocked.
+     *
+     * When the request's deadline passes, the returned future completes with
+     * a {@code deadline_exceeded} error and the work is cancelled: the virtual
+     * thread is interrupted, or the operation's own future cancelled.
+     * Cancelling the returned future has the same effect.
+     */
+    public CompletableFuture<ServiceResponse<?>> submitAsync(ServiceRequest req) {
+        log.info("Invoking service asynchronously: {}, operation: {}, requestId: {}", req.getService(),
+                req.getOperation(), req.getRequestId());
+        long deadline = Deadlines.of(req);
+        try {
+            checkDeadline(req, deadline);
+            Object bean = resolveBean(req.getService());
             if (bean instanceof ExternalServiceProxy) {
-                ExternalServiceProxy proxy = (ExternalServiceProxy) bean;
-                Object result = proxy.invokeOperation(req.getOperation(), req.getParams());
-                return ServiceResponse.ok(req.getService(), req.getOperation(), result, req.getRequestId());
+                return submitOnVirtualThread(req, deadline);
+            }
+            InvocationPlan plan = resolvePlan(bean, req.getOperation());
+            if (!plan.isAsync()) {
+                return submitOnVirtualThread(req, deadline);
             }
 
-            Method method = resolveMethod(bean, req.getOperation());
-            Object[] args = bindArgs(method, req.getParams(), req.getRequestId());
+            return invokeAsync(req, bean, plan, deadline);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(toError(req, e));
+        }
+    }
 
-            Object result = method.invoke(bean, args);
+    private CompletableFuture<ServiceResponse<?>> submitOnVirtualThread(ServiceRequest req, long deadline) {
+        CompletableFuture<ServiceResponse<?>> response = new CompletableFuture<>();
+        AtomicBoolean finished = new AtomicBoolean();
+        Future<?> task = asyncExecutor.submit(() -> {
+            ServiceResponse<?> result = submit(req, deadline);
+            finished.set(true);
+            response.complete(result);
+        });
+        return withDeadline(response, req, deadline, () -> {
+            if (!finished.get()) {
+                task.cancel(true);
+            }
+        });
+    }
 
-            // If a service method tries to return ServiceResponse, unwrap it
-            if (result instanceof ServiceResponse<?> re) {
-                log.debug("Service returned ServiceResponse directly, unwrapping body");
-                if (re.isOk()) {
-                    return ServiceResponse.ok(req.getService(), req.getOperation(), re.getData(), req.getRequestId());
-                } else {
-                    return ServiceResponse.error(req.getService(), req.getOperation(), re.getErrors(),
-                            req.getRequestId());
-                }
+    private CompletableFuture<ServiceResponse<?>> invokeAsync(ServiceRequest req, Object bean, InvocationPlan plan,
+            long deadline) {
+        BrokerMetrics.OperationMetrics m = metrics.forOperation(req.getService(), req.getOperation());
+        long start = m.start();
+        CompletableFuture<ServiceResponse<?>> response;
+        CompletableFuture<?> pending = null;
+        BrokerBulkheads.Permit permit = null;
+        try {
+            long bound = System.nanoTime();
+            Object[] args;
+            try {
+                args = bindArgs(plan, req.getParams(), req.getRequestId());
+            } finally {
+                m.recordBinding(System.nanoTime() - bound);
+            }
+            // Never queue here: this runs on the caller's thread
+            permit = bulkheads.acquire(bulkheadFor(req.getService()), req.getOperation(), false);
+            long invoked = System.nanoTime();
+            pending = toFuture(Deadlines.within(deadline, () -> plan.invoke(bean, args)));
+            if (pending == null) {
+                permit.release();
+                m.recordInvocation(System.nanoTime() - invoked);
+                evictAfter(plan, null);
+                response = CompletableFuture.completedFuture(toResponse(req, null));
+            } else {
+                BrokerBulkheads.Permit held = permit;
+                response = pending.handle((result, e) -> {
+                    held.release();
+                    m.recordInvocation(System.nanoTime() - invoked);
+                    if (e != null) {
+                        return toError(req, new InvocationTargetException(unwrap(e)));
+                    }
+                    evictAfter(plan, result);
+                    return toResponse(req, result);
+                });
+            }
+        } catch (Exception e) {
+            if (permit != null) {
+                permit.release();
+            }
+            response = CompletableFuture.completedFuture(toError(req, e));
+        }
+        CompletableFuture<?> operation = pending;
+        return withDeadline(response, req, deadline, () -> {
+            if (operation != null) {
+                operation.cancel(true);
+            }
+        }).whenComplete((r, e) -> m.stop(start, r));
+    }
+
+    /**
+     * Complete {@code response} with a {@code deadline_exceeded} error when the
+     * deadline passes, and run {@code cancel} if it completes by any means
+     * other than the work finishing (deadline, or cancellation by the caller).
+     */
+    private CompletableFuture<ServiceResponse<?>> withDeadline(CompletableFuture<ServiceResponse<?>> response,
+            ServiceRequest req, long deadline, Runnable cancel) {
+        if (deadline != Deadlines.NONE) {
+            response.completeOnTimeout(toError(req, deadlineExceeded(req)), Deadlines.remainingNanos(deadline),
+                    TimeUnit.NANOSECONDS);
+        }
+        response.whenComplete((r, e) -> cancel.run());
+        return response;
+    }
+
+    private static void checkDeadline(ServiceRequest req, long deadline) {
+        if (Deadlines.isExpired(deadline)) {
+            throw deadlineExceeded(req);
+        }
+    }
+
+    private static BrokerDeadlineExceededException deadlineExceeded(ServiceRequest req) {
+        return new BrokerDeadlineExceededException(
+                "Deadline exceeded for " + req.getService() + "." + req.getOperation());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        asyncExecutor.shutdownNow();
+    }
+
+    private Object dispatch(ServiceRequest req, BrokerMetrics.OperationMetrics m,
+            AtomicReference<BrokerBulkheads.Permit> held) throws Exception {
+        Object bean = resolveBean(req.getService());
+
+        // Handle external service proxy
+        if (bean instanceof ExternalServiceProxy) {
+            ExternalServiceProxy proxy = (ExternalServiceProxy) bean;
+            // Operation names of external services are not known up front; only the service limit applies
+            BrokerBulkheads.Permit permit = bulkheads.acquire(proxy.registeredServiceName(req.getOperation()), null,
+                    true);
+            long invoked = System.nanoTime();
+            try {
+                return proxy.invokeOperation(req.getOperation(), req.getParams(),
+                        Deadlines.remainingMillis(Deadlines.current()));
+            } finally {
+                permit.release();
+                m.recordInvocation(System.nanoTime() - invoked);
+            }
+        }
+
+        InvocationPlan plan = resolvePlan(bean, req.getOperation());
+
+        InvocationPlan.CachePolicy policy = plan.getCachePolicy();
+        BrokerResponseCache.Key cacheKey = policy == null ? null
+                : responseCache.keyFor(policy, req.getService(), req.getOperation(), req.getParams());
+        long generation = 0;
+        if (cacheKey != null) {
+            Object cached = responseCache.get(cacheKey);
+            if (cached != BrokerResponseCache.MISS) {
+                log.debug("Serving {}.{} from response cache", req.getService(), req.getOperation());
+                return cached;
             }
+            generation = responseCache.generation(cacheKey);
+        }
+
+        SingleFlight.Key flightKey = !plan.isCoalesce() || held != null ? null
+                : singleFlight.keyFor(req.getService(), req.getOperation(), req.getParams(), plan.getKeyParams());
+        Object result = flightKey == null
+                ? call(req, bean, plan, m, held)
+                : singleFlight.execute(flightKey, () -> call(req, bean, plan, m, null), m::recordCoalesced);
+
+        if (cacheKey != null) {
+            responseCache.put(cacheKey, result, policy.ttlNanos(), generation);
+        }
+        evictAfter(plan, result);
+        return result;
+    }
 
-            log.debug("Service returned: {}", result);
-            return ServiceResponse.ok(req.getService(), req.getOperation(), result, req.getRequestId());
+    private Object call(ServiceRequest req, Object bean, InvocationPlan plan, BrokerMetrics.OperationMetrics m,
+            AtomicReference<BrokerBulkheads.Permit> held) throws InvocationTargetException {
+        long bound = System.nanoTime();
+        Object[] args;
+        try {
+            args = bindArgs(plan, req.getParams(), req.getRequestId());
+        } finally {
+            m.recordBinding(System.nanoTime() - bound);
+        }
+        BrokerBulkheads.Permit permit = bulkheads.acquire(bulkheadFor(req.getService()), req.getOperation(), true);
+        long invoked = System.nanoTime();
+
+        CompletableFuture<?> pending = null;
+        try {
+            Object result = plan.invoke(bean, args);
+            // An asynchronous result holds its permit until it completes
+            pending = toFuture(result);
+            return pending != null ? pending : result;
+        } finally {
+            if (pending != null) {
+                pending.whenComplete((r, e) -> permit.release());
+            } else if (held != null) {
+                held.set(permit);
+            } else {
+                permit.release();
+            }
+            m.recordInvocation(System.nanoTime() - invoked);
+        }
+    }
+
+    /**
+     * Evict the cache groups named by a mutating operation once it has
+     * succeeded.
+     */
+    private void evictAfter(InvocationPlan plan, Object result) {
+        if (plan.getEvicts().isEmpty() || (result instanceof ServiceResponse<?> re && !re.isOk())) {
+            return;
+        }
+        responseCache.evictGroups(plan.getEvicts());
+    }
+
+    private ServiceResponse<?> toResponse(ServiceRequest req, Object result) {
+        // If a service method tries to return ServiceResponse, unwrap it
+        if (result instanceof ServiceResponse<?> re) {
+            log.debug("Service returned ServiceResponse directly, unwrapping body");
+            if (re.isOk()) {
+                return ServiceResponse.ok(req.getService(), req.getOperation(), re.getData(), req.getRequestId());
+            } else {
+                return ServiceResponse.error(req.getService(), req.getOperation(), re.getErrors(),
+                        req.getRequestId());
+            }
+        }
 
-        } catch (NoSuchElementException e) {
+        log.debug("Service returned: {}", result);
+        return ServiceResponse.ok(req.getService(), req.getOperation(), result, req.getRequestId());
+    }
+
+    ServiceResponse<?> toError(ServiceRequest req, Exception e) {
+        if (e instanceof NoSuchElementException) {
             log.warn("Not found: {}", e.getMessage());
             return ServiceResponse.error(req.getService(), req.getOperation(),
                     List.of(Map.of("code", "not_found", "message", e.getMessage())), req.getRequestId());
 
-        } catch (BrokerValidationException e) {
-            log.warn("Validation error: {}", e.getErrors());
-            return ServiceResponse.error(req.getService(), req.getOperation(), e.getErrors(), e.getRequestId());
+        } else if (e instanceof BrokerValidationException ve) {
+            log.warn("Validation error: {}", ve.getErrors());
+            return ServiceResponse.error(req.getService(), req.getOperation(), ve.getErrors(), req.getRequestId());
 
-        } catch (IllegalArgumentException e) {
+        } else if (e instanceof IllegalArgumentException) {
             log.warn("Binding error: {}", e.getMessage());
             return ServiceResponse.error(req.getService(), req.getOperation(),
                     List.of(Map.of("code", "binding_error", "message", e.getMessage())), req.getRequestId());
 
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getTargetException();
+        } else if (e instanceof BrokerDeadlineExceededException de) {
+            log.warn("Deadline exceeded: {}", de.getMessage());
+            return ServiceResponse.error(req.getService(), req.getOperation(),
+                    List.of(Map.of("code", "deadline_exceeded", "message", de.getMessage())), req.getRequestId());
+
+        } else if (e instanceof BrokerOverloadedException oe) {
+            return ServiceResponse.error(req.getService(), req.getOperation(),
+                    List.of(Map.of("code", "overloaded", "message", oe.getMessage())), req.getRequestId());
+
+        } else if (e instanceof InvocationTargetException ite) {
+            Throwable cause = ite.getTargetException();
             log.error("Service error: {}", cause.getMessage(), cause);
             return ServiceResponse.error(req.getService(), req.getOperation(), List.of(Map.of("code", "service_error",
                     "type", cause.getClass().getSimpleName(), "message", cause.getMessage())), req.getRequestId());
 
-        } catch (IllegalAccessException | RuntimeException e) {
+        } else {
             log.error("Broker error: {}", e.getMessage(), e);
             return ServiceResponse.error(req.getService(), req.getOperation(),
                     List.of(Map.of("code", "broker_error", "message", e.getMessage())), req.getRequestId());
         }
     }
 
-    private Object resolveBean(String serviceName) {
+    /**
+     * Adapt an asynchronous method result to a {@link CompletableFuture}, or
+     * return null if the result is a plain value.
+     */
+    private static CompletableFuture<?> toFuture(Object result) {
+        if (result instanceof CompletionStage<?> stage) {
+            return stage.toCompletableFuture();
+        }
+        if (result == null) {
+            return null;
+        }
+        ReactiveAdapter adapter = REACTIVE_ADAPTERS.getAdapter(result.getClass());
+        ReactiveAdapter futureAdapter = REACTIVE_ADAPTERS.getAdapter(CompletableFuture.class);
+        if (adapter == null || adapter.isMultiValue() || futureAdapter == null) {
+            return null;
+        }
+        return (CompletableFuture<?>) futureAdapter.fromPublisher(adapter.toPublisher(result));
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    Object resolveBean(String serviceName) {
         if (!StringUtils.hasText(serviceName)) {
             log.error("Missing 'service' name");
             throw new NoSuchElementException("Missing 'service' name.");
@@ -129,13 +557,10 @@ public class Broker {
             return ctx.getBean(serviceName);
         }
         // Try by type simple name (e.g., "UserService" -> bean)
-        String[] beanNames = ctx.getBeanDefinitionNames();
-        for (String name : beanNames) {
-            Object bean = ctx.getBean(name);
-            if (bean.getClass().getSimpleName().equalsIgnoreCase(serviceName)) {
-                log.debug("Found bean by type simple name: {}", serviceName);
-                return bean;
-            }
+        String beanName = serviceNameIndex.lookup(serviceName);
+        if (beanName != null) {
+            log.debug("Found bean by type simple name: {}", serviceName);
+            return ctx.getBean(beanName);
         }
 
         // Check external services if discovery client is available
@@ -150,20 +575,138 @@ public class Broker {
         throw new NoSuchElementException("Service bean not found: " + serviceName);
     }
 
-    private Method resolveMethod(Object bean, String operation) {
+    /**
+     * @return the bulkhead of the local bean answering to {@code serviceName}:
+     *         its canonical bean name, so that aliases and simple class names
+     *         share one; null if no local bean answers to it
+     */
+    private String bulkheadFor(String serviceName) {
+        if (ctx.containsBean(serviceName)) {
+            String beanName = BeanFactoryUtils.transformedBeanName(serviceName);
+            if (ctx instanceof ConfigurableApplicationContext configurable
+                    && configurable.getBeanFactory() instanceof SimpleAliasRegistry aliases) {
+                return aliases.canonicalName(beanName);
+            }
+            return beanName;
+        }
+        return serviceNameIndex.lookup(serviceName);
+    }
+
+    /**
+     * Precompute invocation plans for every {@code @BrokerOperation} exposed by
+     * the context's beans, so the first request to each operation does not pay
+     * for method discovery and annotation scanning. When the application was
+     * compiled with the operation index, only the beans of indexed classes are
+     * looked at; otherwise the types of all beans are inspected. Either way
+     * nothing is instantiated, and operations on beans that are not known
+     * here are still planned lazily by {@link #resolvePlan}.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void buildInvocationPlans() {
+        if (!indexedOperations.isEmpty()) {
+            buildIndexedInvocationPlans();
+            return;
+        }
+        int planned = 0;
+        for (String name : ctx.getBeanDefinitionNames()) {
+            Class<?> type;
+            try {
+                type = ctx.getType(name);
+            } catch (RuntimeException e) {
+                log.debug("Skipping bean {} while building invocation plans: {}", name, e.getMessage());
+                continue;
+            }
+            if (type == null) {
+                continue;
+            }
+            for (Method m : type.getMethods()) {
+                BrokerOperation op = m.getAnnotation(BrokerOperation.class);
+                if (op == null) {
+                    continue;
+                }
+                try {
+                    if (StringUtils.hasText(op.value())) {
+                        planFor(type, op.value());
+                    }
+                    planFor(type, m.getName());
+                    planned++;
+                } catch (RuntimeException e) {
+                    log.warn("Could not plan operation {} on bean {}: {}", m.getName(), name, e.getMessage());
+                }
+            }
+        }
+        log.info("Built invocation plans for {} broker operations", planned);
+    }
+
+    private void buildIndexedInvocationPlans() {
+        int planned = 0;
+        for (Map.Entry<String, List<IndexedOperations.Operation>> bean : indexedOperations.byBean().entrySet()) {
+            Class<?> type;
+            try {
+                type = ctx.getType(bean.getKey());
+            } catch (RuntimeException e) {
+                log.debug("Skipping bean {} while building invocation plans: {}", bean.getKey(), e.getMessage());
+                continue;
+            }
+            if (type == null) {
+                continue;
+            }
+            for (IndexedOperations.Operation operation : bean.getValue()) {
+                OperationIndex.Entry entry = operation.entry();
+                try {
+                    if (StringUtils.hasText(entry.alias())) {
+                        planFor(type, entry.alias());
+                    }
+                    planFor(type, entry.methodName());
+                    planned++;
+                } catch (RuntimeException e) {
+                    log.warn("Could not plan operation {} on bean {}: {}", entry.methodName(), bean.getKey(),
+                            e.getMessage());
+                }
+            }
+        }
+        log.info("Built invocation plans for {} indexed broker operations", planned);
+    }
+
+    IndexedOperations indexedOperations() {
+        return indexedOperations;
+    }
+
+    /**
+     * Index the context's beans by simple class name once, instead of
+     * instantiating and comparing every bean on each unmatched service name.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void buildServiceIndex() {
+        serviceNameIndex.rebuild();
+    }
+
+    private InvocationPlan resolvePlan(Object bean, String operation) {
         if (!StringUtils.hasText(operation)) {
             log.error("Missing 'operation' name");
             throw new NoSuchElementException("Missing 'operation' name.");
         }
-        MethodKey key = new MethodKey(bean.getClass().getName(), operation);
-        Method cached = methodCache.get(key);
+        return planFor(bean.getClass(), operation);
+    }
+
+    InvocationPlan planFor(Class<?> beanClass, String operation) {
+        MethodKey key = new MethodKey(beanClass.getName(), operation);
+        InvocationPlan cached = planCache.get(key);
         if (cached != null) {
-            log.debug("Using cached method for operation: {}", operation);
+            log.debug("Using cached plan for operation: {}", operation);
             return cached;
         }
+        IndexedOperations.Operation indexed = indexedOperations.find(beanClass, operation);
+        InvocationPlan plan = indexed != null
+                ? InvocationPlan.build(indexed.method(), objectMapper, indexed.entry().parameterNames())
+                : InvocationPlan.build(resolveMethod(beanClass, operation), objectMapper);
+        InvocationPlan existing = planCache.putIfAbsent(key, plan);
+        return existing != null ? existing : plan;
+    }
 
+    Method resolveMethod(Class<?> beanClass, String operation) {
         // Only methods annotated with @BrokerOperation are exposed.
-        List<Method> candidates = Arrays.stream(bean.getClass().getMethods())
+        List<Method> candidates = Arrays.stream(beanClass.getMethods())
                 .filter(m -> m.isAnnotationPresent(BrokerOperation.class)).filter(m -> {
                     String alias = m.getAnnotation(BrokerOperation.class).value();
                     return operation.equals(alias) || operation.equals(m.getName());
@@ -178,44 +721,32 @@ public class Broker {
             Optional<Method> exact = candidates.stream()
                     .filter(m -> operation.equals(m.getAnnotation(BrokerOperation.class).value())).findFirst();
             Method chosen = exact.orElse(candidates.get(0));
-            methodCache.put(key, chosen);
             log.debug("Multiple candidates, using: {}", chosen.getName());
             return chosen;
         }
         Method method = candidates.get(0);
-        methodCache.put(key, method);
         log.debug("Resolved method: {}", method.getName());
         return method;
     }
 
-    private Object[] bindArgs(Method method, Map<String, Object> params, String requestId) {
+    Object[] bindArgs(InvocationPlan plan, Map<String, Object> params, String requestId) {
         params = (params == null) ? Map.of() : params;
-        Parameter[] ps = method.getParameters();
-        Object[] bound = new Object[ps.length];
+        List<InvocationPlan.ParamSpec> ps = plan.getParams();
+        Object[] bound = new Object[ps.size()];
 
         List<Map<String, Object>> violations = new ArrayList<>();
 
-        for (int i = 0; i < ps.length; i++) {
-            Parameter p = ps[i];
-            Class<?> pt = p.getType();
+        for (int i = 0; i < bound.length; i++) {
+            InvocationPlan.ParamSpec p = ps.get(i);
 
             // Allow context injection without being in params:
-            if (Principal.class.isAssignableFrom(pt)) {
+            if (p.context()) {
                 bound[i] = null; // Let a HandlerMethodArgumentResolver variant inject if you extend; keep null
                                  // for now.
                 continue;
             }
-            if (jakarta.servlet.http.HttpServletRequest.class.isAssignableFrom(pt)) {
-                bound[i] = null;
-                continue;
-            }
-
-            // Name to lookup in params:
-            BrokerParam paramAnnotation = p.getAnnotation(BrokerParam.class);
-            String name = (paramAnnotation != null
-                    && org.springframework.util.StringUtils.hasText(paramAnnotation.value())) ? paramAnnotation.value()
-                            : p.getName(); // requires -parameters at compile to retain names
 
+            String name = p.name();
             boolean required = true; // (paramAnnotation == null) || paramAnnotation.required();
 
             Object raw = params.get(name);
@@ -224,10 +755,10 @@ public class Broker {
                 throw new IllegalArgumentException("Missing required parameter: " + name);
             }
 
-            Object converted = objectMapper.convertValue(raw, objectMapper.constructType(p.getType()));
+            Object converted = p.binder().bind(raw);
 
             // Manual validation for @Valid parameters (method-level programmatic):
-            if (hasAnnotation(p, jakarta.validation.Valid.class) && converted != null && validator != null) {
+            if (p.validate() && converted != null && validator != null) {
                 Set<ConstraintViolation<Object>> errs = validator.validate(converted);
                 if (!errs.isEmpty()) {
                     errs.stream().map(cv -> Map.<String, Object>of("param", name, "path",
@@ -245,15 +776,6 @@ public class Broker {
         return bound;
     }
 
-    private boolean hasAnnotation(Parameter p, Class<? extends Annotation> a) {
-        for (Annotation an : p.getAnnotations()) {
-            if (an.annotationType().equals(a)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private ServiceResponse<?> badRequest(String code, String msg, String requestId) {
         log.warn("Bad request [{}]: {}", code, msg);
         return ServiceResponse.error(List.of(Map.of("code", code, "message", msg)), requestId);
@@ -280,13 +802,24 @@ public class Broker {
             this.externalServiceInvoker = externalServiceInvoker;
         }
 
+        /**
+         * @return the name the registry knows the service answering
+         *         {@code operation} by, or null if it knows none
+         */
+        public String registeredServiceName(String operation) {
+            return discoveryClient.findServiceByOperation(operation)
+                    .map(ServiceDiscoveryClient.ServiceInfo::getName)
+                    .orElse(null);
+        }
+
         /**
          * Handle any method call by routing to the external service
          */
-        public Object invokeOperation(String operation, Map<String, Object> params) {
+        public Object invokeOperation(String operation, Map<String, Object> params, Long timeoutMs) {
             log.debug("Proxying call to external service: {} operation: {}", serviceName, operation);
 
-            ExternalServiceInvoker.InvocationResult result = externalServiceInvoker.invokeOperation(operation, params);
+            ExternalServiceInvoker.InvocationResult result = externalServiceInvoker.invokeOperation(operation, params,
+                    timeoutMs);
 
             if (result.isSuccess()) {
                 log.debug("External service call successful for {}: {}", operation, result.getStatusCode());
@@ -3,6 +3,7 @@ package com.angrysurfer.atomic.broker;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -43,34 +44,9 @@ public class BrokerAutoRegistration {
     public void registerServices() {
         log.info("Starting auto-registration of broker services...");
 
-        String[] beanNames = context.getBeanDefinitionNames();
-        Map<String, List<String>> serviceOperations = new HashMap<>();
-
-        for (String beanName : beanNames) {
-            Object bean = context.getBean(beanName);
-            Class<?> beanClass = bean.getClass();
-            
-            // Skip Spring internal beans and proxies if possible, but we need to check methods
-            // AOP proxies might hide annotations, but Spring usually handles this.
-            
-            List<String> operations = new ArrayList<>();
-            for (Method method : beanClass.getMethods()) {
-                if (method.isAnnotationPresent(BrokerOperation.class)) {
-                    BrokerOperation annotation = method.getAnnotation(BrokerOperation.class);
-                    String opName = annotation.value();
-                    if (opName.isEmpty()) {
-                        opName = method.getName();
-                    }
-                    operations.add(opName);
-                }
-            }
-
-            if (!operations.isEmpty()) {
-                // Use the bean name or a dedicated service name if we had an annotation for it
-                // For now, using bean name as service name
-                serviceOperations.put(beanName, operations);
-            }
-        }
+        IndexedOperations indexedOperations = broker.indexedOperations();
+        Map<String, List<String>> serviceOperations = indexedOperations.isEmpty() ? scanOperations()
+                : indexedOperations(indexedOperations);
 
         for (Map.Entry<String, List<String>> entry : serviceOperations.entrySet()) {
             String serviceName = entry.getKey();
@@ -123,4 +99,60 @@ public class BrokerAutoRegistration {
         
         log.info("Auto-registration complete.");
     }
+
+    /**
+     * The operations of each bean, from the compile-time operation index.
+     * Only the beans of indexed classes are looked at and none is created.
+     */
+    private Map<String, List<String>> indexedOperations(IndexedOperations indexedOperations) {
+        Map<String, List<String>> serviceOperations = new LinkedHashMap<>();
+        for (Map.Entry<String, List<IndexedOperations.Operation>> bean : indexedOperations.byBean().entrySet()) {
+            List<String> operations = new ArrayList<>();
+            for (IndexedOperations.Operation operation : bean.getValue()) {
+                String opName = operation.entry().operation();
+                if (!operations.contains(opName)) {
+                    operations.add(opName);
+                }
+            }
+            serviceOperations.put(bean.getKey(), operations);
+        }
+        return serviceOperations;
+    }
+
+    /**
+     * The operations of each bean, found by creating every bean in the
+     * context and scanning its methods. Used when the application was not
+     * compiled with the operation index.
+     */
+    private Map<String, List<String>> scanOperations() {
+        String[] beanNames = context.getBeanDefinitionNames();
+        Map<String, List<String>> serviceOperations = new HashMap<>();
+
+        for (String beanName : beanNames) {
+            Object bean = context.getBean(beanName);
+            Class<?> beanClass = bean.getClass();
+            
+            // Skip Spring internal beans and proxies if possible, but we need to check methods
+            // AOP proxies might hide annotations, but Spring usually handles this.
+            
+            List<String> operations = new ArrayList<>();
+            for (Method method : beanClass.getMethods()) {
+                if (method.isAnnotationPresent(BrokerOperation.class)) {
+                    BrokerOperation annotation = method.getAnnotation(BrokerOperation.class);
+                    String opName = annotation.value();
+                    if (opName.isEmpty()) {
+                        opName = method.getName();
+                    }
+                    operations.add(opName);
+                }
+            }
+
+            if (!operations.isEmpty()) {
+                // Use the bean name or a dedicated service name if we had an annotation for it
+                // For now, using bean name as service name
+                serviceOperations.put(beanName, operations);
+            }
+        }
+        return serviceOperations;
+    }
 }
@@ -0,0 +1,115 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs a batch of independent broker requests concurrently, one virtual thread
+ * per request, and returns the responses in request order.
+ *
+ * The batch timeout is the deadline of every request in it (see
+ * {@link Deadlines}), so downstream calls are made with what is left of the
+ * batch's budget rather than running on after the batch has given up.
+ *
+ * Configuration properties:
+ * - broker.batch.max-size: largest batch accepted (default: 50)
+ * - broker.batch.timeout-ms: time allowed for the whole batch (default: 30000)
+ */
+@Component
+public class BrokerBatchExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerBatchExecutor.class);
+
+    private final Broker broker;
+    private final int maxBatchSize;
+    private final long timeoutMs;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BrokerBatchExecutor(Broker broker,
+            @Value("${broker.batch.max-size:50}") int maxBatchSize,
+            @Value("${broker.batch.timeout-ms:30000}") long timeoutMs) {
+        this.broker = broker;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMs = timeoutMs;
+        log.info("BrokerBatchExecutor initialized (max size: {}, timeout: {}ms)", maxBatchSize, timeoutMs);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Submit every request in the batch. The returned future completes when
+     * all of them have, or when the batch timeout expires: requests still
+     * running then are cancelled and answered with a {@code timeout} error.
+     */
+    public CompletableFuture<List<ServiceResponse<?>>> submitAll(List<ServiceRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException(
+                    "Batch size " + requests.size() + " exceeds maximum of " + maxBatchSize);
+        }
+        log.debug("Submitting batch of {} requests", requests.size());
+
+        long deadline = Deadlines.of(timeoutMs);
+        List<CompletableFuture<ServiceResponse<?>>> futures = new ArrayList<>(requests.size());
+        for (ServiceRequest request : requests) {
+            futures.add(request == null
+                    ? CompletableFuture.completedFuture(error(null, "invalid_request", "Missing request"))
+                    : submit(request, deadline));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(done -> futures.stream().<ServiceResponse<?>>map(CompletableFuture::join).toList());
+    }
+
+    private CompletableFuture<ServiceResponse<?>> submit(ServiceRequest request, long deadline) {
+        CompletableFuture<ServiceResponse<?>> response = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                response.complete(Deadlines.within(deadline, () -> broker.submit(request)));
+            } catch (Exception e) {
+                log.error("Batch request failed: {}", e.getMessage(), e);
+                response.complete(error(request, "broker_error", String.valueOf(e.getMessage())));
+            }
+        });
+        if (deadline != Deadlines.NONE) {
+            response.completeOnTimeout(error(request, "timeout", "Batch timed out after " + timeoutMs + "ms"),
+                    Deadlines.remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        }
+        response.whenComplete((r, e) -> {
+            if (!task.isDone()) {
+                log.warn("Batch request timed out: {}.{}", request.getService(), request.getOperation());
+                task.cancel(true);
+            }
+        });
+        return response;
+    }
+
+    private static ServiceResponse<?> error(ServiceRequest request, String code, String message) {
+        if (request == null) {
+            return ServiceResponse.error(List.of(Map.of("code", code, "message", message)), null);
+        }
+        return ServiceResponse.error(request.getService(), request.getOperation(),
+                List.of(Map.of("code", code, "message", message)), request.getRequestId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,362 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Concurrency limits (bulkheads) for broker calls, so that one slow service
+ * cannot hold every request thread.
+ *
+ * Every service gets a bulkhead limiting how many of its calls run at once;
+ * operations can additionally be given their own, tighter limit. A call that
+ * finds its bulkhead full waits in a bounded queue for up to
+ * {@code max-wait-ms}; if the queue is full or the wait expires the call is
+ * shed with {@link BrokerOverloadedException}. Cache hits and calls that join
+ * an identical call in flight do not take a permit.
+ *
+ * In adaptive mode each limit moves between {@code min-limit} and its
+ * configured value from observed latency (AIMD): it grows by about one per
+ * round of calls while latency stays within {@code tolerance} times the
+ * lowest recently observed latency, and shrinks by 10% when it rises above.
+ *
+ * Published through Micrometer per bulkhead ({@code service} or
+ * {@code service.operation}): broker.bulkhead.limit, broker.bulkhead.inflight
+ * and broker.bulkhead.rejected.
+ *
+ * Callers pass the resolved service name (the bean name, or the name the
+ * registry knows an external service by), so aliases share one bulkhead.
+ * Calls to services that do not resolve, and to services beyond
+ * {@code max-bulkheads}, share the {@code other} bulkhead; operations beyond
+ * it get no bulkhead of their own.
+ *
+ * Configuration properties:
+ * - broker.bulkhead.enabled: apply limits at all (default: true)
+ * - broker.bulkhead.default-limit: concurrent calls per service (default: 100)
+ * - broker.bulkhead.limits.[service]: limit for one service
+ * - broker.bulkhead.limits.[service].[operation]: limit for one local operation
+ * - broker.bulkhead.max-bulkheads: distinct service and operation bulkheads (default: 500)
+ * - broker.bulkhead.queue-size: calls that may wait for a permit (default: 50)
+ * - broker.bulkhead.max-wait-ms: longest wait for a permit (default: 1000)
+ * - broker.bulkhead.adaptive.enabled: derive limits from latency (default: false)
+ * - broker.bulkhead.adaptive.min-limit: lowest adaptive limit (default: 2)
+ * - broker.bulkhead.adaptive.tolerance: latency increase over the observed
+ *   minimum treated as congestion (default: 2.0)
+ */
+@Component
+public class BrokerBulkheads {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerBulkheads.class);
+
+    private static final String LIMITS_PREFIX = "broker.bulkhead.limits.";
+
+    /** Calls per window over which the latency baseline is re-measured. */
+    private static final int BASELINE_WINDOW = 500;
+
+    private static final double BACKOFF = 0.9;
+
+    private static final String OTHER = "other";
+
+    /** Held while a call runs; released exactly once when it completes. */
+    public interface Permit {
+        void release();
+    }
+
+    private static final Permit NONE = () -> {
+    };
+
+    private final Environment env;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final int defaultLimit;
+    private final int maxBulkheads;
+    private final int queueSize;
+    private final long maxWaitNanos;
+    private final boolean adaptive;
+    private final int minLimit;
+    private final double tolerance;
+
+    private final Map<String, Limiter> services = new ConcurrentHashMap<>();
+    private final Map<String, Optional<Limiter>> operations = new ConcurrentHashMap<>();
+    private Limiter overflow;
+
+    @Autowired
+    public BrokerBulkheads(Environment env, MeterRegistry registry,
+            @Value("${broker.bulkhead.enabled:true}") boolean enabled,
+            @Value("${broker.bulkhead.default-limit:100}") int defaultLimit,
+            @Value("${broker.bulkhead.max-bulkheads:500}") int maxBulkheads,
+            @Value("${broker.bulkhead.queue-size:50}") int queueSize,
+            @Value("${broker.bulkhead.max-wait-ms:1000}") long maxWaitMs,
+            @Value("${broker.bulkhead.adaptive.enabled:false}") boolean adaptive,
+            @Value("${broker.bulkhead.adaptive.min-limit:2}") int minLimit,
+            @Value("${broker.bulkhead.adaptive.tolerance:2.0}") double tolerance) {
+        this.env = env;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.defaultLimit = Math.max(1, defaultLimit);
+        this.maxBulkheads = Math.max(1, maxBulkheads);
+        this.queueSize = Math.max(0, queueSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.adaptive = adaptive;
+        this.minLimit = Math.max(1, minLimit);
+        this.tolerance = Math.max(1.0, tolerance);
+        log.info("BrokerBulkheads initialized (enabled: {}, default limit: {}, queue: {}, max wait: {}ms, adaptive: {})",
+                enabled, this.defaultLimit, this.queueSize, maxWaitMs, adaptive);
+    }
+
+    BrokerBulkheads(Environment env, MeterRegistry registry, boolean enabled, int defaultLimit, int queueSize,
+            long maxWaitMs, boolean adaptive, int minLimit, double tolerance) {
+        this(env, registry, enabled, defaultLimit, 500, queueSize, maxWaitMs, adaptive, minLimit, tolerance);
+    }
+
+    /**
+     * Bulkheads with the default limits and no per-service overrides, for
+     * brokers created outside a Spring context.
+     */
+    public BrokerBulkheads() {
+        this(null, new SimpleMeterRegistry(), true, 100, 500, 50, 1000, false, 2, 2.0);
+    }
+
+    /**
+     * Take a permit from the service's bulkhead and, if {@code operation} is
+     * given and has its own limit, from the operation's.
+     *
+     * @param service   the resolved service name, or null if it did not
+     *                  resolve
+     * @param operation the operation, or null to apply only the service limit
+     * @param wait      whether to queue for a permit; callers that must not
+     *                  block (asynchronous dispatch) are shed immediately
+     * @throws BrokerOverloadedException if no permit could be taken
+     */
+    public Permit acquire(String service, String operation, boolean wait) {
+        if (!enabled) {
+            return NONE;
+        }
+        long waitNanos = wait ? maxWaitNanos : 0;
+        long deadline = Deadlines.current();
+        if (deadline != Deadlines.NONE) {
+            // Never queue past the caller's deadline
+            waitNanos = Math.min(waitNanos, Deadlines.remainingNanos(deadline));
+        }
+        Limiter serviceLimiter = serviceLimiter(service);
+        serviceLimiter.acquire(waitNanos);
+
+        Limiter operationLimiter = operation == null || service == null ? null : operationLimiter(service, operation);
+        if (operationLimiter == null) {
+            return once(List.of(serviceLimiter));
+        }
+        try {
+            operationLimiter.acquire(waitNanos);
+        } catch (RuntimeException e) {
+            serviceLimiter.release(0, false);
+            throw e;
+        }
+        return once(List.of(operationLimiter, serviceLimiter));
+    }
+
+    private Permit once(List<Limiter> limiters) {
+        long acquired = System.nanoTime();
+        return new Permit() {
+            private boolean released;
+
+            @Override
+            public synchronized void release() {
+                if (released) {
+                    return;
+                }
+                released = true;
+                long latency = System.nanoTime() - acquired;
+                for (Limiter limiter : limiters) {
+                    limiter.release(latency, true);
+                }
+            }
+        };
+    }
+
+    private Limiter serviceLimiter(String service) {
+        Limiter limiter = service == null ? null : services.get(service);
+        if (limiter != null) {
+            return limiter;
+        }
+        if (service == null || services.size() >= maxBulkheads) {
+            return overflow();
+        }
+        return services.computeIfAbsent(service, s -> new Limiter(s, configuredLimit(s).orElse(defaultLimit)));
+    }
+
+    private Limiter operationLimiter(String service, String operation) {
+        String key = service + "." + operation;
+        Optional<Limiter> limiter = operations.get(key);
+        if (limiter == null) {
+            if (operations.size() >= maxBulkheads) {
+                return null;
+            }
+            limiter = operations.computeIfAbsent(key, k -> configuredLimit(k).map(limit -> new Limiter(k, limit)));
+        }
+        return limiter.orElse(null);
+    }
+
+    private synchronized Limiter overflow() {
+        if (overflow == null) {
+            overflow = new Limiter(OTHER, defaultLimit);
+        }
+        return overflow;
+    }
+
+    private Optional<Integer> configuredLimit(String key) {
+        if (env == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(env.getProperty(LIMITS_PREFIX + key, Integer.class)).map(l -> Math.max(1, l));
+    }
+
+    /**
+     * A resizable semaphore with a bounded wait queue.
+     */
+    private final class Limiter {
+
+        private final String name;
+        private final int maxLimit;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition available = lock.newCondition();
+        private final Counter rejected;
+
+        private double limit;
+        private int inFlight;
+        private int waiting;
+
+        private long baseline = Long.MAX_VALUE;
+        private long windowMin = Long.MAX_VALUE;
+        private int windowSamples;
+
+        private Limiter(String name, int maxLimit) {
+            this.name = name;
+            this.maxLimit = maxLimit;
+            this.limit = maxLimit;
+            this.rejected = Counter.builder("broker.bulkhead.rejected")
+                    .description("Broker calls shed because the bulkhead was full")
+                    .tag("bulkhead", name)
+                    .register(registry);
+            Gauge.builder("broker.bulkhead.limit", this, Limiter::currentLimit)
+                    .description("Current concurrency limit of the bulkhead")
+                    .tag("bulkhead", name)
+                    .register(registry);
+            Gauge.builder("broker.bulkhead.inflight", this, Limiter::currentInFlight)
+                    .description("Calls holding a bulkhead permit")
+                    .tag("bulkhead", name)
+                    .register(registry);
+            log.debug("Bulkhead {} created with limit {}", name, maxLimit);
+        }
+
+        void acquire(long waitNanos) {
+            lock.lock();
+            try {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return;
+                }
+                if (waitNanos <= 0 || waiting >= queueSize) {
+                    throw reject("limit of " + (int) limit + " concurrent calls reached");
+                }
+                waiting++;
+                try {
+                    long remaining = waitNanos;
+                    while (inFlight >= (int) limit) {
+                        if (remaining <= 0) {
+                            throw reject("no permit within " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms");
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                    inFlight++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject("interrupted while waiting for a permit");
+                } finally {
+                    waiting--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(long latencyNanos, boolean completed) {
+            lock.lock();
+            try {
+                inFlight--;
+                int before = (int) limit;
+                if (adaptive && completed) {
+                    adjust(latencyNanos);
+                }
+                if ((int) limit > before) {
+                    available.signalAll();
+                } else {
+                    available.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Additive increase while latency stays near the baseline, multiplicative
+         * decrease once it rises above it. The baseline is the lowest latency of
+         * the previous window of calls, so it follows lasting changes in the
+         * service's unloaded latency.
+         */
+        private void adjust(long latencyNanos) {
+            windowMin = Math.min(windowMin, latencyNanos);
+            if (++windowSamples >= BASELINE_WINDOW) {
+                baseline = windowMin;
+                windowMin = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            long reference = Math.min(baseline, windowMin);
+            if (latencyNanos > reference * tolerance) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+            } else if (inFlight + 1 >= (int) limit / 2) {
+                // Only grow a limit that is actually being used
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+
+        private BrokerOverloadedException reject(String reason) {
+            rejected.increment();
+            log.debug("Shedding call to {}: {}", name, reason);
+            return new BrokerOverloadedException(name, name + " is overloaded: " + reason);
+        }
+
+        private double currentLimit() {
+            lock.lock();
+            try {
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private double currentInFlight() {
+            lock.lock();
+            try {
+                return inFlight;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
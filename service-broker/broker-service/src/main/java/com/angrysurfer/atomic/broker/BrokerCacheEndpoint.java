@@ -0,0 +1,50 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for inspecting and evicting the broker's response cache.
+ *
+ * Evicting the cache forces every cached read back to its service, so this is
+ * an operator action and is kept off the public broker API. Like every
+ * actuator endpoint other than health it is not exposed over HTTP until
+ * listed in {@code management.endpoints.web.exposure.include}, and should
+ * then be served on a management port that is not reachable by clients.
+ *
+ * - GET /actuator/brokercache: hit/miss statistics and size
+ * - DELETE /actuator/brokercache: evict every entry
+ * - DELETE /actuator/brokercache/{group}: evict one invalidation group
+ */
+@Component
+@Endpoint(id = "brokercache")
+public class BrokerCacheEndpoint {
+
+    private final BrokerResponseCache responseCache;
+
+    public BrokerCacheEndpoint(BrokerResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return responseCache.stats();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> evictAll() {
+        responseCache.evictAll();
+        return responseCache.stats();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> evictGroup(@Selector String group) {
+        int evicted = responseCache.evictGroup(group);
+        return Map.of("group", group, "evicted", evicted);
+    }
+}
@@ -0,0 +1,282 @@
+package com.angrysurfer.atomic.broker;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOption;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+
+/**
+ * Sends broker requests to a {@link BrokerChannelServer} over one long-lived
+ * TCP connection, with many requests in flight on it at once. Each request
+ * gets a correlation id, and responses, which may come back in any order, are
+ * matched to their callers by it. {@link RemoteBrokerClient} uses the channel
+ * when it is configured and falls back to HTTP while it is unavailable.
+ *
+ * At most {@code max-in-flight} requests are outstanding at a time; further
+ * callers wait for one to finish, but no longer than their own deadline.
+ *
+ * The connection is opened on first use. When it drops, requests still
+ * waiting on it fail with {@code channel_closed} (they may already have run,
+ * so they are not sent again), and the next request reconnects. A failed
+ * connect is not retried for a backoff that doubles from
+ * {@code reconnect-backoff-ms} up to {@code max-reconnect-backoff-ms};
+ * requests in the meantime go over HTTP.
+ *
+ * Configuration properties:
+ * - broker.remote.channel.address: host:port of the gateway's broker channel; off unless set
+ * - broker.remote.channel.max-in-flight: requests outstanding at once (default: 256)
+ * - broker.remote.channel.max-frame-bytes: largest frame accepted (default: 16777216)
+ * - broker.remote.channel.connect-timeout-ms: (default: 5000)
+ * - broker.remote.channel.reconnect-backoff-ms: first wait after a failed connect (default: 100)
+ * - broker.remote.channel.max-reconnect-backoff-ms: longest wait after a failed connect (default: 5000)
+ */
+@Component
+@ConditionalOnProperty(name = "broker.remote.channel.address")
+public class BrokerChannelClient implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerChannelClient.class);
+
+    private final String host;
+    private final int port;
+    private final BrokerChannelCodec codec;
+    private final int maxFrameBytes;
+    private final Duration connectTimeout;
+    private final long reconnectBackoffNanos;
+    private final long maxReconnectBackoffNanos;
+    private final Semaphore inFlight;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, Call> pending = new ConcurrentHashMap<>();
+
+    /** A request waiting for its response. */
+    private record Call(ServiceRequest request, CompletableFuture<ServiceResponse<?>> future) {
+    }
+
+    private final Object connectLock = new Object();
+    private volatile Connection connection;
+    private long nextConnectNanos;
+    private long backoffNanos;
+    private volatile boolean closed;
+
+    @Autowired
+    public BrokerChannelClient(Jackson2ObjectMapperBuilder builder,
+            @Value("${broker.remote.channel.address}") String address,
+            @Value("${broker.remote.channel.max-in-flight:256}") int maxInFlight,
+            @Value("${broker.remote.channel.max-frame-bytes:16777216}") int maxFrameBytes,
+            @Value("${broker.remote.channel.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${broker.remote.channel.reconnect-backoff-ms:100}") long reconnectBackoffMs,
+            @Value("${broker.remote.channel.max-reconnect-backoff-ms:5000}") long maxReconnectBackoffMs) {
+        this(builder.factory(new SmileFactory()).build(), address, maxInFlight, maxFrameBytes, connectTimeoutMs,
+                reconnectBackoffMs, maxReconnectBackoffMs);
+    }
+
+    BrokerChannelClient(ObjectMapper smile, String address, int maxInFlight, int maxFrameBytes,
+            long connectTimeoutMs, long reconnectBackoffMs, long maxReconnectBackoffMs) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0 || colon == address.length() - 1) {
+            throw new IllegalArgumentException("Broker channel address must be host:port, got " + address);
+        }
+        this.host = address.substring(0, colon);
+        this.port = Integer.parseInt(address.substring(colon + 1));
+        this.codec = new BrokerChannelCodec(smile);
+        this.maxFrameBytes = maxFrameBytes;
+        this.connectTimeout = Duration.ofMillis(Math.max(1, connectTimeoutMs));
+        this.reconnectBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, reconnectBackoffMs));
+        this.maxReconnectBackoffNanos = Math.max(reconnectBackoffNanos,
+                TimeUnit.MILLISECONDS.toNanos(maxReconnectBackoffMs));
+        this.backoffNanos = reconnectBackoffNanos;
+        this.nextConnectNanos = System.nanoTime();
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        log.info("Broker channel client configured for {}:{} (max in flight: {})", host, port, maxInFlight);
+    }
+
+    /**
+     * Send {@code request} over the channel and wait for its response.
+     *
+     * @return the response, or null if the request could not be sent because
+     *         the channel is unavailable, in which case it may be sent another way
+     * @throws TimeoutException if {@code deadline} passes first
+     */
+    public ServiceResponse<?> submit(ServiceRequest request, long deadline)
+            throws TimeoutException, InterruptedException {
+        if (closed) {
+            return null;
+        }
+        acquire(deadline);
+        Connection current = connection();
+        if (current == null) {
+            inFlight.release();
+            return null;
+        }
+
+        long id = ids.incrementAndGet();
+        CompletableFuture<ServiceResponse<?>> future = new CompletableFuture<>();
+        // Whoever completes the future, whether response, disconnect or the
+        // caller giving up, frees the slot
+        future.whenComplete((response, error) -> {
+            pending.remove(id);
+            inFlight.release();
+        });
+        pending.put(id, new Call(request, future));
+        try {
+            current.channel()
+                    .writeAndFlush(Unpooled.wrappedBuffer(codec.encode(id, BrokerChannelCodec.REQUEST, request)))
+                    .addListener(write -> {
+                        if (!write.isSuccess()) {
+                            future.completeExceptionally(new ClosedChannelException());
+                        }
+                    });
+        } catch (IOException e) {
+            future.cancel(false);
+            throw new IllegalArgumentException("Request cannot be encoded: " + e.getMessage(), e);
+        }
+
+        try {
+            return deadline == Deadlines.NONE ? future.get()
+                    : future.get(Deadlines.remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            // A late response finds no caller and is dropped
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            // Only a failed write completes exceptionally, so the request was never sent
+            return null;
+        }
+    }
+
+    /**
+     * @return whether a connection is open, without opening one
+     */
+    public boolean isConnected() {
+        Connection current = connection;
+        return current != null && !current.isDisposed();
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        Connection current = connection;
+        if (current != null) {
+            current.disposeNow();
+        }
+    }
+
+    int inFlight() {
+        return pending.size();
+    }
+
+    private void acquire(long deadline) throws TimeoutException, InterruptedException {
+        if (deadline == Deadlines.NONE) {
+            inFlight.acquire();
+        } else if (!inFlight.tryAcquire(Math.max(0, Deadlines.remainingNanos(deadline)), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException("No broker channel slot free before the deadline");
+        }
+    }
+
+    /**
+     * @return the open connection, opening one unless a recent attempt
+     *         failed, or null
+     */
+    private Connection connection() {
+        Connection current = connection;
+        if (current != null && !current.isDisposed()) {
+            return current;
+        }
+        synchronized (connectLock) {
+            current = connection;
+            if (current != null && !current.isDisposed()) {
+                return current;
+            }
+            long now = System.nanoTime();
+            if (now - nextConnectNanos < 0 || closed) {
+                return null;
+            }
+            try {
+                Connection opened = TcpClient.create()
+                        .host(host)
+                        .port(port)
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                        .option(ChannelOption.SO_KEEPALIVE, true)
+                        .doOnConnected(c -> c.addHandlerLast("broker-channel-frames",
+                                BrokerChannelCodec.frameDecoder(maxFrameBytes)))
+                        .handle((inbound, outbound) -> inbound.receive()
+                                .asByteArray()
+                                .doOnNext(this::onFrame)
+                                .then())
+                        .connectNow(connectTimeout.plusSeconds(1));
+                opened.onDispose(() -> onClosed(opened));
+                connection = opened;
+                backoffNanos = reconnectBackoffNanos;
+                log.info("Broker channel connected to {}:{}", host, port);
+                return opened;
+            } catch (RuntimeException e) {
+                nextConnectNanos = now + backoffNanos;
+                log.warn("Could not connect broker channel to {}:{}, retrying in {}ms: {}", host, port,
+                        TimeUnit.NANOSECONDS.toMillis(backoffNanos), e.getMessage());
+                backoffNanos = Math.min(maxReconnectBackoffNanos, backoffNanos * 2);
+                return null;
+            }
+        }
+    }
+
+    private void onFrame(byte[] bytes) {
+        BrokerChannelCodec.Frame frame = BrokerChannelCodec.decode(bytes);
+        Call call = pending.get(frame.id());
+        if (frame.kind() != BrokerChannelCodec.RESPONSE || call == null) {
+            log.debug("Dropping broker channel frame {} (kind {}) with no caller waiting", frame.id(), frame.kind());
+            return;
+        }
+        try {
+            call.future().complete(codec.read(frame, ServiceResponse.class));
+        } catch (IOException e) {
+            log.warn("Unreadable response on broker channel: {}", e.getMessage());
+            call.future().complete(error(call.request(), "remote_broker_error",
+                    "Unreadable response from remote broker"));
+        }
+    }
+
+    private void onClosed(Connection closedConnection) {
+        synchronized (connectLock) {
+            if (connection == closedConnection) {
+                connection = null;
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Broker channel to {}:{} closed with {} requests outstanding", host, port, pending.size());
+        }
+        for (Call call : List.copyOf(pending.values())) {
+            call.future().complete(error(call.request(), "channel_closed", "Connection to remote broker closed"));
+        }
+    }
+
+    private static ServiceResponse<?> error(ServiceRequest request, String code, String message) {
+        return ServiceResponse.error(request.getService(), request.getOperation(),
+                List.of(Map.of("code", code, "message", message)), request.getRequestId());
+    }
+}
@@ -0,0 +1,70 @@
+package com.angrysurfer.atomic.broker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+/**
+ * Frames exchanged over the broker channel (see {@link BrokerChannelServer}
+ * and {@link BrokerChannelClient}).
+ *
+ * A frame is a 4-byte length of the rest of the frame, an 8-byte correlation
+ * id chosen by the client, a 1-byte kind and the Smile-encoded
+ * {@code ServiceRequest} or {@code ServiceResponse}. A response carries the
+ * correlation id of its request; responses come back in completion order, not
+ * request order.
+ */
+final class BrokerChannelCodec {
+
+    static final byte REQUEST = 1;
+    static final byte RESPONSE = 2;
+
+    /** Correlation id and kind. */
+    private static final int HEADER_BYTES = Long.BYTES + 1;
+
+    /** A frame without its length prefix. */
+    record Frame(long id, byte kind, byte[] payload) {
+    }
+
+    private final ObjectMapper smile;
+
+    BrokerChannelCodec(ObjectMapper smile) {
+        this.smile = smile;
+    }
+
+    /**
+     * Splits the inbound byte stream into frames, dropping the length prefix.
+     */
+    static LengthFieldBasedFrameDecoder frameDecoder(int maxFrameBytes) {
+        return new LengthFieldBasedFrameDecoder(maxFrameBytes, 0, Integer.BYTES, 0, Integer.BYTES);
+    }
+
+    byte[] encode(long id, byte kind, Object payload) throws IOException {
+        byte[] body = smile.writeValueAsBytes(payload);
+        return ByteBuffer.allocate(Integer.BYTES + HEADER_BYTES + body.length)
+                .putInt(HEADER_BYTES + body.length)
+                .putLong(id)
+                .put(kind)
+                .put(body)
+                .array();
+    }
+
+    static Frame decode(byte[] frame) {
+        if (frame.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Broker channel frame too short: " + frame.length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        long id = buffer.getLong();
+        byte kind = buffer.get();
+        byte[] payload = new byte[buffer.remaining()];
+        buffer.get(payload);
+        return new Frame(id, kind, payload);
+    }
+
+    <T> T read(Frame frame, Class<T> type) throws IOException {
+        return smile.readValue(frame.payload(), type);
+    }
+}
@@ -0,0 +1,181 @@
+package com.angrysurfer.atomic.broker;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyInbound;
+import reactor.netty.NettyOutbound;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * Accepts broker requests over long-lived TCP connections, as an alternative
+ * to one HTTP exchange per request. Services reach it through
+ * {@link BrokerChannelClient}.
+ *
+ * Each connection carries any number of requests at once, framed as described
+ * in {@link BrokerChannelCodec}. Requests are submitted to the {@link Broker}
+ * as they arrive and each response is written as soon as it is ready, tagged
+ * with its request's correlation id, so a slow request does not hold up the
+ * ones behind it. Requests are audited like those submitted over HTTP (see
+ * {@link BrokerRequestAudit}). At most {@code max-in-flight} requests per connection are
+ * being worked on; beyond that the server stops reading from the connection,
+ * and TCP flow control pushes back on the client until responses drain.
+ *
+ * Requests carry their remaining budget ({@code timeoutMs}), so the broker
+ * gives up on work the client has stopped waiting for. Work still running when
+ * its connection closes is cancelled.
+ *
+ * Configuration properties:
+ * - broker.channel.port: port to listen on; the channel is off unless set (0 picks a free port)
+ * - broker.channel.host: address to bind (default: 0.0.0.0)
+ * - broker.channel.max-in-flight: requests worked on at once per connection (default: 256)
+ * - broker.channel.max-frame-bytes: largest frame accepted (default: 16777216)
+ */
+@Component
+@ConditionalOnProperty(name = "broker.channel.port")
+public class BrokerChannelServer implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerChannelServer.class);
+
+    private final Broker broker;
+    private final BrokerRequestAudit audit;
+    private final BrokerChannelCodec codec;
+    private final String host;
+    private final int port;
+    private final int maxInFlight;
+    private final int maxFrameBytes;
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private DisposableServer server;
+
+    @Autowired
+    public BrokerChannelServer(Broker broker, BrokerRequestAudit audit, Jackson2ObjectMapperBuilder builder,
+            @Value("${broker.channel.host:0.0.0.0}") String host,
+            @Value("${broker.channel.port}") int port,
+            @Value("${broker.channel.max-in-flight:256}") int maxInFlight,
+            @Value("${broker.channel.max-frame-bytes:16777216}") int maxFrameBytes) {
+        this(broker, audit, builder.factory(new SmileFactory()).build(), host, port, maxInFlight, maxFrameBytes);
+    }
+
+    BrokerChannelServer(Broker broker, BrokerRequestAudit audit, ObjectMapper smile, String host, int port,
+            int maxInFlight, int maxFrameBytes) {
+        this.broker = broker;
+        this.audit = audit;
+        this.codec = new BrokerChannelCodec(smile);
+        this.host = host;
+        this.port = port;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        server = TcpServer.create()
+                .host(host)
+                .port(port)
+                .doOnConnection(connection -> {
+                    accepted.incrementAndGet();
+                    connections.add(connection);
+                    connection.onDispose(() -> connections.remove(connection));
+                    connection.addHandlerLast("broker-channel-frames", BrokerChannelCodec.frameDecoder(maxFrameBytes));
+                })
+                .handle(this::serve)
+                .bindNow();
+        log.info("Broker channel listening on {}:{} (max in flight per connection: {})",
+                host, server.port(), maxInFlight);
+    }
+
+    /**
+     * @return the port the server is bound to
+     */
+    public int port() {
+        return server.port();
+    }
+
+    /**
+     * @return how many connections have been accepted
+     */
+    int accepted() {
+        return accepted.get();
+    }
+
+    @Override
+    public void destroy() {
+        if (server != null) {
+            server.disposeNow();
+        }
+        // Closing the listener leaves accepted connections open
+        connections.forEach(Connection::dispose);
+    }
+
+    private Publisher<Void> serve(NettyInbound inbound, NettyOutbound outbound) {
+        return outbound.sendByteArray(inbound.receive()
+                .asByteArray()
+                .flatMap(this::respond, maxInFlight));
+    }
+
+    /**
+     * Every well-formed frame gets a response frame, errors included; a frame
+     * that cannot be read at all closes the connection.
+     */
+    private Mono<byte[]> respond(byte[] bytes) {
+        BrokerChannelCodec.Frame frame = BrokerChannelCodec.decode(bytes);
+        if (frame.kind() != BrokerChannelCodec.REQUEST) {
+            return Mono.error(new IOException("Unexpected broker channel frame kind: " + frame.kind()));
+        }
+        ServiceRequest request;
+        try {
+            request = codec.read(frame, ServiceRequest.class);
+        } catch (IOException e) {
+            log.warn("Unreadable request on broker channel: {}", e.getMessage());
+            return encode(frame.id(), ServiceResponse.error(null, null,
+                    List.of(Map.of("code", "bad_request", "message", "Unreadable request")), null));
+        }
+        log.debug("Received request on broker channel: {}.{}", request.getService(), request.getOperation());
+        return Mono.fromFuture(audit.submit(request, broker::submitAsync))
+                .onErrorResume(e -> Mono.just(ServiceResponse.error(request.getService(), request.getOperation(),
+                        List.of(Map.of("code", "broker_error", "message", String.valueOf(e.getMessage()))),
+                        request.getRequestId())))
+                .flatMap(response -> encode(frame.id(), response));
+    }
+
+    private Mono<byte[]> encode(long id, ServiceResponse<?> response) {
+        try {
+            return Mono.just(codec.encode(id, BrokerChannelCodec.RESPONSE, response));
+        } catch (IOException e) {
+            log.error("Could not encode broker channel response: {}", e.getMessage(), e);
+            try {
+                return Mono.just(codec.encode(id, BrokerChannelCodec.RESPONSE, ServiceResponse.error(
+                        response.getService(), response.getOperation(),
+                        List.of(Map.of("code", "serialization_error", "message", "Response could not be encoded")),
+                        response.getRequestId())));
+            } catch (IOException again) {
+                return Mono.error(again);
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.angrysurfer.atomic.broker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.github.luben.zstd.util.Native;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Content-encoding for broker responses. {@link BrokerCompressionFilter}
+ * compresses responses of the broker endpoints for clients that accept it;
+ * {@link #interceptor()} asks for compressed responses on outbound calls
+ * (remote broker, gateway to services) and decompresses them.
+ *
+ * Two encodings are offered: zstd, which compresses about as well as gzip at
+ * a fraction of the CPU cost and is what brokers ask each other for, and gzip
+ * for browsers and other clients. The first encoding in {@code encodings}
+ * that the client accepts is used. zstd is left out where its native library
+ * cannot be loaded.
+ *
+ * Compression runs as the response is written, a buffer at a time, so a
+ * large response is never held in memory. Only the first {@code min-size}
+ * bytes are held back, to send responses smaller than that uncompressed.
+ *
+ * Published through Micrometer, tagged with the encoding:
+ * broker.compression.ratio (uncompressed over compressed size, per response),
+ * broker.compression.bytes.in and broker.compression.bytes.out, and
+ * broker.compression.time (time spent in the compressor, excluding writes to
+ * the network).
+ *
+ * Configuration properties:
+ * - broker.compression.enabled: (default: true)
+ * - broker.compression.min-size: smallest response compressed, in bytes (default: 2048)
+ * - broker.compression.encodings: encodings to offer, in order of preference (default: zstd,gzip)
+ * - broker.compression.zstd-level: (default: 3)
+ * - broker.compression.gzip-level: (default: 6)
+ */
+@Component
+public class BrokerCompression {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerCompression.class);
+
+    enum Encoding {
+        ZSTD("zstd"),
+        GZIP("gzip");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        String token() {
+            return token;
+        }
+
+        static Encoding forToken(String token) {
+            if (token != null) {
+                String trimmed = token.trim();
+                for (Encoding encoding : values()) {
+                    if (encoding.token.equalsIgnoreCase(trimmed)) {
+                        return encoding;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final boolean ZSTD_AVAILABLE = loadZstd();
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final int minSize;
+    private final List<Encoding> encodings;
+    private final int zstdLevel;
+    private final int gzipLevel;
+    private final String acceptEncoding;
+
+    @Autowired
+    public BrokerCompression(MeterRegistry registry,
+            @Value("${broker.compression.enabled:true}") boolean enabled,
+            @Value("${broker.compression.min-size:2048}") int minSize,
+            @Value("${broker.compression.encodings:zstd,gzip}") String encodings,
+            @Value("${broker.compression.zstd-level:3}") int zstdLevel,
+            @Value("${broker.compression.gzip-level:6}") int gzipLevel) {
+        this.registry = registry;
+        this.minSize = Math.max(0, minSize);
+        this.encodings = parseEncodings(encodings);
+        this.enabled = enabled && !this.encodings.isEmpty();
+        this.zstdLevel = zstdLevel;
+        this.gzipLevel = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, gzipLevel));
+        this.acceptEncoding = String.join(", ", this.encodings.stream().map(Encoding::token).toList());
+        log.info("BrokerCompression initialized (enabled: {}, min size: {} bytes, encodings: {})",
+                this.enabled, this.minSize, this.acceptEncoding);
+    }
+
+    public BrokerCompression() {
+        this(new SimpleMeterRegistry(), true, 2048, "zstd,gzip", 3, 6);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    int minSize() {
+        return minSize;
+    }
+
+    /**
+     * @return the encoding to compress a response with, given the request's
+     *         {@code Accept-Encoding}, or null to send it as it is
+     */
+    Encoding negotiate(String acceptEncoding) {
+        if (!enabled || acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        List<String> accepted = new ArrayList<>();
+        boolean any = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String name = tokens[0].trim().toLowerCase(Locale.ROOT);
+            if (isRefused(tokens)) {
+                continue;
+            }
+            if (name.equals("*")) {
+                any = true;
+            } else {
+                accepted.add(name);
+            }
+        }
+        for (Encoding encoding : encodings) {
+            if (any || accepted.contains(encoding.token())) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isRefused(String[] tokens) {
+        for (int i = 1; i < tokens.length; i++) {
+            String parameter = tokens[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A stream that compresses what is written to it into {@code target}.
+     * {@link CompressingStream#flush()} pushes out everything written so far,
+     * so that streamed responses keep flowing; {@link CompressingStream#finish()}
+     * ends the compressed data and records it, without closing {@code target}.
+     */
+    CompressingStream compress(Encoding encoding, OutputStream target) throws IOException {
+        return new CompressingStream(encoding, target);
+    }
+
+    InputStream decompress(Encoding encoding, InputStream source) throws IOException {
+        return switch (encoding) {
+            case ZSTD -> new ZstdInputStream(source);
+            case GZIP -> new GZIPInputStream(source);
+        };
+    }
+
+    /**
+     * Asks for a compressed response on outbound calls, and decompresses the
+     * response if it is one.
+     */
+    public ClientHttpRequestInterceptor interceptor() {
+        return (request, body, execution) -> {
+            if (!enabled) {
+                return execution.execute(request, body);
+            }
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+            ClientHttpResponse response = execution.execute(request, body);
+            Encoding encoding = Encoding.forToken(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            return encoding == null ? response : new DecompressedResponse(response, encoding);
+        };
+    }
+
+    /**
+     * Adds {@link #interceptor()} to {@code restTemplate}.
+     *
+     * @return {@code restTemplate}
+     */
+    public RestTemplate decompressing(RestTemplate restTemplate) {
+        restTemplate.getInterceptors().add(interceptor());
+        return restTemplate;
+    }
+
+    private static List<Encoding> parseEncodings(String encodings) {
+        List<Encoding> parsed = new ArrayList<>();
+        for (String token : encodings.split(",")) {
+            if (token.isBlank()) {
+                continue;
+            }
+            Encoding encoding = Encoding.forToken(token);
+            if (encoding == null) {
+                throw new IllegalArgumentException("Unknown encoding in broker.compression.encodings: " + token);
+            }
+            if (encoding == Encoding.ZSTD && !ZSTD_AVAILABLE) {
+                continue;
+            }
+            if (!parsed.contains(encoding)) {
+                parsed.add(encoding);
+            }
+        }
+        return List.copyOf(parsed);
+    }
+
+    private static boolean loadZstd() {
+        try {
+            Native.load();
+            return true;
+        } catch (Throwable e) {
+            log.warn("zstd is not available on this platform, compressing with gzip only: {}", e.toString());
+            return false;
+        }
+    }
+
+    final class CompressingStream extends OutputStream {
+
+        private final Encoding encoding;
+        private final OutputStream target;
+        /** Holds what the compressor produced until it is passed on to the target. */
+        private final ByteArrayOutputStream produced = new ByteArrayOutputStream(8192);
+        private final OutputStream compressor;
+        private long bytesIn;
+        private long bytesOut;
+        private long nanos;
+        private boolean finished;
+
+        private CompressingStream(Encoding encoding, OutputStream target) throws IOException {
+            this.encoding = encoding;
+            this.target = target;
+            this.compressor = switch (encoding) {
+                case ZSTD -> new ZstdOutputStream(produced, zstdLevel);
+                case GZIP -> new GZIPOutputStream(produced, 8192, true) {
+                    {
+                        def.setLevel(gzipLevel);
+                    }
+                };
+            };
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            compressor.write(b);
+            nanos += System.nanoTime() - start;
+            bytesIn++;
+            drain();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            compressor.write(b, off, len);
+            nanos += System.nanoTime() - start;
+            bytesIn += len;
+            drain();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            compressor.flush();
+            nanos += System.nanoTime() - start;
+            drain();
+            target.flush();
+        }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long start = System.nanoTime();
+            compressor.close();
+            nanos += System.nanoTime() - start;
+            drain();
+            record();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            target.close();
+        }
+
+        private void drain() throws IOException {
+            if (produced.size() > 0) {
+                bytesOut += produced.size();
+                produced.writeTo(target);
+                produced.reset();
+            }
+        }
+
+        private void record() {
+            String tag = encoding.token();
+            Counter.builder("broker.compression.bytes.in").tag("encoding", tag).register(registry).increment(bytesIn);
+            Counter.builder("broker.compression.bytes.out").tag("encoding", tag).register(registry).increment(bytesOut);
+            Timer.builder("broker.compression.time").tag("encoding", tag).register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            if (bytesOut > 0) {
+                DistributionSummary.builder("broker.compression.ratio").tag("encoding", tag).register(registry)
+                        .record((double) bytesIn / bytesOut);
+            }
+        }
+    }
+
+    /** A response whose body is decompressed as it is read. */
+    private final class DecompressedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private final Encoding encoding;
+        private final HttpHeaders headers;
+        private InputStream body;
+
+        DecompressedResponse(ClientHttpResponse response, Encoding encoding) {
+            this.response = response;
+            this.encoding = encoding;
+            this.headers = new HttpHeaders();
+            this.headers.putAll(response.getHeaders());
+            this.headers.remove(HttpHeaders.CONTENT_ENCODING);
+            this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = decompress(encoding, response.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
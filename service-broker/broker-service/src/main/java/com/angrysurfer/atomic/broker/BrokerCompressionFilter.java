@@ -0,0 +1,302 @@
+package com.angrysurfer.atomic.broker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Compresses responses of the broker endpoints ({@code /api/broker/**}) with
+ * the encoding negotiated by {@link BrokerCompression}.
+ *
+ * The body is held back only until it reaches the minimum size; from then on
+ * it is compressed and passed on as it is written. A response that ends
+ * below the minimum is sent as it is. Streamed responses (NDJSON and Server-
+ * Sent Events) are compressed from their first write, and every flush pushes
+ * out what has been compressed so far.
+ *
+ * Broker responses are usually completed asynchronously, so the compressed
+ * data is ended when the async dispatch finishes rather than when the
+ * initial dispatch returns.
+ */
+@Component
+public class BrokerCompressionFilter extends OncePerRequestFilter {
+
+    private static final String BROKER_PATH = "/api/broker/";
+
+    private final BrokerCompression compression;
+
+    public BrokerCompressionFilter(BrokerCompression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !compression.isEnabled()
+                || !request.getRequestURI().startsWith(request.getContextPath() + BROKER_PATH)
+                || "HEAD".equalsIgnoreCase(request.getMethod());
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CompressingResponse compressing = WebUtils.getNativeResponse(response, CompressingResponse.class);
+        if (compressing == null) {
+            BrokerCompression.Encoding encoding = compression.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            if (encoding == null) {
+                chain.doFilter(request, response);
+                return;
+            }
+            compressing = new CompressingResponse(response, encoding);
+        }
+        chain.doFilter(request, compressing);
+        if (!request.isAsyncStarted()) {
+            compressing.finish();
+        }
+    }
+
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+
+        private final BrokerCompression.Encoding encoding;
+        private ThresholdStream stream;
+        private PrintWriter writer;
+        private long contentLength = -1;
+
+        CompressingResponse(HttpServletResponse response, BrokerCompression.Encoding encoding) {
+            super(response);
+            this.encoding = encoding;
+            // Whether or not this response ends up compressed, the next may be
+            addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            return stream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(stream(), Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        // The length of the compressed body is not known up front
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = Long.parseLong(value);
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = Long.parseLong(value);
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = value;
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = value;
+            } else {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (stream != null) {
+                stream.flush();
+            } else {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (stream != null) {
+                stream.resetBuffer();
+            }
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            contentLength = -1;
+            super.reset();
+            super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        private ThresholdStream stream() throws IOException {
+            if (stream == null) {
+                stream = new ThresholdStream(this, super.getOutputStream());
+            }
+            return stream;
+        }
+
+        private boolean isStreamed() {
+            String contentType = getContentType();
+            if (contentType == null) {
+                return false;
+            }
+            MediaType type = MediaType.parseMediaType(contentType);
+            return MediaType.APPLICATION_NDJSON.includes(type) || MediaType.TEXT_EVENT_STREAM.includes(type);
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.finish();
+            } else if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+    }
+
+    /**
+     * Holds the body back until it is known whether it will be compressed.
+     */
+    private final class ThresholdStream extends ServletOutputStream {
+
+        private final CompressingResponse response;
+        private final ServletOutputStream target;
+        private ByteArrayOutputStream held = new ByteArrayOutputStream();
+        /** Where the body goes once decided: the compressor, or the target itself. */
+        private OutputStream out;
+        private BrokerCompression.CompressingStream compressor;
+
+        ThresholdStream(CompressingResponse response, ServletOutputStream target) {
+            this.response = response;
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null && (held.size() + len > compression.minSize() || response.isStreamed())) {
+                decide(true);
+            }
+            if (out != null) {
+                out.write(b, off, len);
+            } else {
+                held.write(b, off, len);
+            }
+        }
+
+        /**
+         * Flushes before the body is large enough to compress are held back,
+         * except for streamed responses, which are compressed from their
+         * first write anyway.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        void resetBuffer() {
+            if (out == null) {
+                held.reset();
+            }
+        }
+
+        void finish() throws IOException {
+            if (out == null) {
+                decide(false);
+            }
+            if (compressor != null) {
+                compressor.finish();
+            }
+        }
+
+        private void decide(boolean compress) throws IOException {
+            if (compress && response.getHeader(HttpHeaders.CONTENT_ENCODING) == null) {
+                ((HttpServletResponse) response.getResponse()).setHeader(HttpHeaders.CONTENT_ENCODING,
+                        response.encoding.token());
+                compressor = compression.compress(response.encoding, target);
+                out = compressor;
+            } else {
+                if (!compress || response.contentLength >= 0) {
+                    response.getResponse().setContentLengthLong(compress ? response.contentLength : held.size());
+                }
+                out = target;
+            }
+            held.writeTo(out);
+            held = null;
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            target.setWriteListener(listener);
+        }
+    }
+}
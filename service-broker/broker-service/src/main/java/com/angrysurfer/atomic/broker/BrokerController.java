@@ -1,19 +1,27 @@
 package com.angrysurfer.atomic.broker;
 
 import java.util.Collections;
-import java.util.UUID;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.angrysurfer.atomic.admin.logging.service.AdminLoggingService;
+import com.angrysurfer.atomic.broker.api.PipelineRequest;
 import com.angrysurfer.atomic.broker.api.ServiceRequest;
 import com.angrysurfer.atomic.broker.api.ServiceResponse;
 
@@ -25,11 +33,21 @@ public class BrokerController {
     private static final Logger log = LoggerFactory.getLogger(BrokerController.class);
 
     private final Broker broker;
-    private final AdminLoggingService adminLoggingService;
-
-    public BrokerController(Broker broker, AdminLoggingService adminLoggingService) {
+    private final BrokerRequestAudit audit;
+    private final BrokerBatchExecutor batchExecutor;
+    private final BrokerPipelineExecutor pipelineExecutor;
+    private final BrokerStreamer streamer;
+    private final BrokerMetrics metrics;
+
+    public BrokerController(Broker broker, BrokerRequestAudit audit,
+            BrokerBatchExecutor batchExecutor, BrokerPipelineExecutor pipelineExecutor, BrokerStreamer streamer,
+            BrokerMetrics metrics) {
         this.broker = broker;
-        this.adminLoggingService = adminLoggingService;
+        this.audit = audit;
+        this.batchExecutor = batchExecutor;
+        this.pipelineExecutor = pipelineExecutor;
+        this.streamer = streamer;
+        this.metrics = metrics;
         log.info("BrokerController initialized");
     }
 
@@ -51,53 +69,125 @@ public class BrokerController {
         }
     }
 
-    @PostMapping(value = "/submitRequest", consumes = {"application/json"})
-    public ResponseEntity<?> submitRequest(@RequestBody ServiceRequest request) {
+    /**
+     * Submit a single request. The servlet thread is released while the
+     * operation runs; the response is written when the broker's future
+     * completes.
+     */
+    @PostMapping(value = "/submitRequest", consumes = {"application/json", BrokerWireFormat.SMILE_VALUE})
+    public CompletableFuture<ResponseEntity<?>> submitRequest(@RequestBody ServiceRequest request) {
         log.debug("Received request: {}", request);
 
-        // Log the request before processing it
-        UUID logId = null;
-        String userId = extractUserId(request); // Extract user ID or set to a default
-        // try {
-        //     var logEntry = adminLoggingService.logRequest(request, userId);
-        //     if (logEntry != null) {
-        //         logId = logEntry.getId();
-        //     }
-        // } catch (Exception e) {
-        //     log.error("Error logging request: {}", e.getMessage(), e);
-        // }
+        return audit.submit(request, broker::submitAsync).thenApply(response -> {
+            log.debug("returning: {}", response);
 
-        ServiceResponse<?> response = broker.submit(request);
-        
-        // Update the log entry with success/failure status
-        // if (logId != null) {
-        //     adminLoggingService.updateLogEntry(logId, response.isOk(), 
-        //         response.isOk() ? null : extractErrorMessage(response));
-        // }
+            if (response.isOk()) {
+                return ResponseEntity.ok(response);
+            } else {
+                return errorStatus(response).body(response);
+            }
+        });
+    }
 
-        log.debug("returning: {}", response);
+    /**
+     * Submit several independent requests in one round trip. The requests run
+     * concurrently and the responses are returned in the same order. As with
+     * submitRequest, the servlet thread is released while the batch runs.
+     */
+    @PostMapping(value = "/submitBatch", consumes = {"application/json", BrokerWireFormat.SMILE_VALUE})
+    public CompletableFuture<ResponseEntity<?>> submitBatch(@RequestBody List<ServiceRequest> requests) {
+        if (requests == null) {
+            requests = List.of();
+        }
+        log.debug("Received batch of {} requests", requests.size());
+
+        if (requests.size() > batchExecutor.getMaxBatchSize()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(ServiceResponse.error(
+                    List.of(Map.of("code", "batch_too_large", "message",
+                            "Batch size " + requests.size() + " exceeds maximum of "
+                                    + batchExecutor.getMaxBatchSize())),
+                    null)));
+        }
 
+        return audit.submitAll(requests, batchExecutor::submitAll).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Submit a sequence of dependent requests in one round trip. Steps run in
+     * order, later steps may reference fields of earlier results, and the
+     * pipeline stops at the first failed step.
+     */
+    @PostMapping(value = "/submitPipeline", consumes = {"application/json", BrokerWireFormat.SMILE_VALUE})
+    public ResponseEntity<?> submitPipeline(@RequestBody PipelineRequest pipeline) {
+        log.debug("Received pipeline: {}", pipeline == null ? null : pipeline.getRequestId());
+
+        ServiceResponse<?> response = pipelineExecutor.run(pipeline);
         if (response.isOk()) {
             return ResponseEntity.ok(response);
-        } else {
-            // decide on HTTP code: validation errors = 400, not_found = 404, etc.
-            // simplest case: always return 400 for errors
-            return ResponseEntity.badRequest().body(response);
         }
+        return errorStatus(response).body(response);
+    }
+
+    /**
+     * Submit a request whose result is written incrementally: as NDJSON by
+     * default, or as Server-Sent Events when the client accepts
+     * text/event-stream. Requests that fail before producing any element are
+     * answered with a regular JSON error response.
+     */
+    @PostMapping(value = "/submitStream", consumes = {"application/json"})
+    public ResponseEntity<StreamingResponseBody> submitStream(@RequestBody ServiceRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("Received streaming request: {}", request);
+
+        boolean sse = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+        BrokerStreamer.Opened opened = streamer.open(request, sse);
+
+        if (opened.error() != null) {
+            return (isOverloaded(opened.error()) ? overloaded() : ResponseEntity.badRequest())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(opened.body());
+        }
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+                .body(opened.body());
+    }
+
+    /**
+     * Per-operation request counts, error counts by code, in-flight requests
+     * and latency percentiles, busiest operations first. The same meters are
+     * published through Micrometer as broker.*.
+     */
+    @GetMapping(value = "/metrics")
+    public ResponseEntity<List<Map<String, Object>>> metrics() {
+        return ResponseEntity.ok(metrics.snapshot());
     }
 
-    private String extractUserId(ServiceRequest request) {
-        // Extract userId from request. This could come from a header, or be extracted from security context
-        // For now, using a default value, but in a real application, this would come from authentication
-        return "anonymous"; // Replace with actual user extraction logic
+    /**
+     * Requests shed by a full bulkhead are answered with 503 and a Retry-After
+     * hint, so that clients and load balancers back off instead of retrying
+     * immediately.
+     */
+    private static ResponseEntity.BodyBuilder overloaded() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1");
     }
 
-    private String extractErrorMessage(ServiceResponse<?> response) {
-        // Extract error message from response, assuming error details are stored in response
-        if (response.getErrors() != null && !response.getErrors().isEmpty()) {
-            // Extract the first error message or return all errors as JSON
-            return response.getErrors().toString();
+    private static ResponseEntity.BodyBuilder errorStatus(ServiceResponse<?> response) {
+        if (isOverloaded(response)) {
+            return overloaded();
+        } else if (hasErrorCode(response, "deadline_exceeded")) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT);
         }
-        return "Unknown error occurred";
+        // decide on HTTP code: validation errors = 400, not_found = 404, etc.
+        // simplest case: always return 400 for errors
+        return ResponseEntity.badRequest();
+    }
+
+    private static boolean isOverloaded(ServiceResponse<?> response) {
+        return hasErrorCode(response, "overloaded");
+    }
+
+    private static boolean hasErrorCode(ServiceResponse<?> response, String code) {
+        return response.getErrors() != null
+                && response.getErrors().stream().anyMatch(error -> code.equals(error.get("code")));
     }
 }
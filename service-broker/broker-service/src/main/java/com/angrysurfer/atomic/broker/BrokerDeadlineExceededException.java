@@ -0,0 +1,12 @@
+package com.angrysurfer.atomic.broker;
+
+/**
+ * Thrown when a request's deadline passes before it could be completed.
+ * Mapped to the {@code deadline_exceeded} error code.
+ */
+public class BrokerDeadlineExceededException extends RuntimeException {
+
+    public BrokerDeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,196 @@
+package com.angrysurfer.atomic.broker;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * The one outbound HTTP transport for broker traffic between services
+ * (remote broker calls, external service invocations, registry lookups,
+ * file-service calls), so that they share kept-alive connections instead of
+ * opening a connection per request.
+ *
+ * Connections are pooled per remote host:port, each pool bounded to
+ * {@code max-connections}; requests beyond that wait (at most
+ * {@code max-pending} of them, for at most {@code pending-timeout-ms}) for a
+ * connection to be released. HTTPS hosts that support HTTP/2 are spoken to
+ * over it (negotiated through ALPN), with requests multiplexed as streams
+ * over one connection; other hosts get kept-alive HTTP/1.1 connections. Add
+ * {@code h2c} to the protocols to also offer plain-text hosts an upgrade to
+ * HTTP/2; only do so if they accept upgrades on requests with a body.
+ *
+ * Published through Micrometer per pool, tagged with the pool id and remote
+ * address: broker.http.pool.leased (connections in use),
+ * broker.http.pool.idle, broker.http.pool.pending (requests waiting for a
+ * connection), broker.http.pool.total and broker.http.pool.max.
+ *
+ * Configuration properties:
+ * - broker.http.max-connections: connections per host (default: 100)
+ * - broker.http.max-pending: requests that may wait for a connection per host (default: 500)
+ * - broker.http.pending-timeout-ms: longest wait for a connection (default: 5000)
+ * - broker.http.max-idle-ms: idle connections are closed after this, kept below
+ *   the servers' keep-alive timeout (default: 15000)
+ * - broker.http.max-life-ms: connections are retired after this, so that
+ *   traffic rebalances across new hosts (default: 300000)
+ * - broker.http.connect-timeout-ms: TCP connect timeout (default: 10000)
+ * - broker.http.response-timeout-ms: longest wait for a response (default: 30000)
+ * - broker.http.protocols: comma-separated http11, h2 and/or h2c (default: http11,h2)
+ */
+@Component
+public class BrokerHttpTransport implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerHttpTransport.class);
+
+    static final String POOL_NAME = "broker-http";
+
+    private final ConnectionProvider connectionProvider;
+    private final HttpClient httpClient;
+    private final ClientHttpRequestFactory requestFactory;
+
+    @Autowired
+    public BrokerHttpTransport(MeterRegistry registry,
+            @Value("${broker.http.max-connections:100}") int maxConnections,
+            @Value("${broker.http.max-pending:500}") int maxPending,
+            @Value("${broker.http.pending-timeout-ms:5000}") long pendingTimeoutMs,
+            @Value("${broker.http.max-idle-ms:15000}") long maxIdleMs,
+            @Value("${broker.http.max-life-ms:300000}") long maxLifeMs,
+            @Value("${broker.http.connect-timeout-ms:10000}") int connectTimeoutMs,
+            @Value("${broker.http.response-timeout-ms:30000}") long responseTimeoutMs,
+            @Value("${broker.http.protocols:http11,h2}") String protocols) {
+        PoolMeters poolMeters = new PoolMeters(registry);
+        this.connectionProvider = ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPending)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeMs))
+                // Close expired idle connections even when no request comes to notice
+                .evictInBackground(Duration.ofMillis(Math.max(1000, maxIdleMs / 2)))
+                .metrics(true, () -> poolMeters)
+                .build();
+        this.httpClient = HttpClient.create(connectionProvider)
+                .protocol(parseProtocols(protocols))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+        this.requestFactory = new ReactorClientHttpRequestFactory(httpClient);
+        log.info("BrokerHttpTransport initialized (max connections per host: {}, max pending: {}, protocols: {})",
+                maxConnections, maxPending, protocols);
+    }
+
+    public BrokerHttpTransport() {
+        this(new SimpleMeterRegistry(), 100, 500, 5000, 15000, 300000, 10000, 30000, "http11,h2");
+    }
+
+    /**
+     * The pooled client itself, for reactive callers (WebClient).
+     */
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
+    public ClientHttpRequestFactory requestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * A new RestTemplate on the shared pool. Each caller gets its own
+     * instance, so that converters or interceptors added by one do not leak
+     * into the others; the connections underneath are the same.
+     */
+    public RestTemplate restTemplate() {
+        return new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public void destroy() {
+        connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+    }
+
+    static HttpProtocol[] parseProtocols(String protocols) {
+        List<HttpProtocol> parsed = new ArrayList<>();
+        for (String protocol : protocols.split(",")) {
+            switch (protocol.trim().toLowerCase(Locale.ROOT)) {
+                case "http11", "http/1.1" -> parsed.add(HttpProtocol.HTTP11);
+                case "h2c" -> parsed.add(HttpProtocol.H2C);
+                case "h2" -> parsed.add(HttpProtocol.H2);
+                case "" -> {
+                }
+                default -> throw new IllegalArgumentException("Unknown protocol in broker.http.protocols: " + protocol);
+            }
+        }
+        if (parsed.isEmpty()) {
+            parsed.add(HttpProtocol.HTTP11);
+        }
+        return parsed.toArray(HttpProtocol[]::new);
+    }
+
+    /**
+     * Registers gauges for each per-host pool as the pool is created, and
+     * removes them when the pool is disposed.
+     */
+    private static final class PoolMeters implements ConnectionProvider.MeterRegistrar {
+
+        private final MeterRegistry registry;
+        private final Map<String, List<Meter>> meters = new ConcurrentHashMap<>();
+
+        PoolMeters(MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                ConnectionPoolMetrics metrics) {
+            String remote = String.valueOf(remoteAddress);
+            meters.put(id + remote, List.of(
+                    gauge("broker.http.pool.leased", id, remote, metrics, ConnectionPoolMetrics::acquiredSize),
+                    gauge("broker.http.pool.idle", id, remote, metrics, ConnectionPoolMetrics::idleSize),
+                    gauge("broker.http.pool.pending", id, remote, metrics, ConnectionPoolMetrics::pendingAcquireSize),
+                    gauge("broker.http.pool.total", id, remote, metrics, ConnectionPoolMetrics::allocatedSize),
+                    gauge("broker.http.pool.max", id, remote, metrics, ConnectionPoolMetrics::maxAllocatedSize)));
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            List<Meter> removed = meters.remove(id + remoteAddress);
+            if (removed != null) {
+                removed.forEach(registry::remove);
+            }
+        }
+
+        private Meter gauge(String name, String id, String remote, ConnectionPoolMetrics metrics,
+                ToDoubleFunction<ConnectionPoolMetrics> value) {
+            // Held strongly, as nothing else references the pool's metrics;
+            // the gauges are removed with the pool
+            return Gauge.builder(name, metrics, value)
+                    .strongReference(true)
+                    .tag("id", id)
+                    .tag("remote.address", remote)
+                    .register(registry);
+        }
+    }
+}
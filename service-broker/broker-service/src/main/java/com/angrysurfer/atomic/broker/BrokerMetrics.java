@@ -0,0 +1,275 @@
+package com.angrysurfer.atomic.broker;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Per-operation broker metrics, keyed by {@code service.operation} and
+ * published through Micrometer:
+ *
+ * - broker.requests: end-to-end latency timer with p50/p99/p999
+ * - broker.binding: time spent converting and validating parameters
+ * - broker.invocation: time spent in the service method itself
+ * - broker.errors: failed requests, tagged with the error {@code code}
+ * - broker.inflight: requests currently being handled
+ * - broker.coalesced: requests answered by joining an identical call in flight
+ *
+ * Meters for an operation are created on first use and then held directly, so
+ * recording a request costs one map lookup and no tag allocation. Service and
+ * operation names come from clients, so the number of distinct operations
+ * tracked is capped; anything beyond the cap is recorded under
+ * {@code other.other}. Error codes come from services, so each operation
+ * likewise tracks a capped number of them and counts the rest under
+ * {@code code=other}.
+ *
+ * Configuration properties:
+ * - broker.metrics.max-operations: distinct operations tracked (default: 500)
+ * - broker.metrics.max-error-codes: distinct error codes tracked per operation
+ *   (default: 20)
+ * - broker.metrics.percentile-histogram: also publish histogram buckets for
+ *   server-side aggregation (default: false)
+ */
+@Component
+public class BrokerMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerMetrics.class);
+
+    private static final double[] PERCENTILES = { 0.5, 0.99, 0.999 };
+
+    private static final String OTHER = "other";
+
+    private record Key(String service, String operation) {
+    }
+
+    private final MeterRegistry registry;
+    private final int maxOperations;
+    private final int maxErrorCodes;
+    private final boolean percentileHistogram;
+    private final Map<Key, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final OperationMetrics overflow;
+
+    @Autowired
+    public BrokerMetrics(MeterRegistry registry,
+            @Value("${broker.metrics.max-operations:500}") int maxOperations,
+            @Value("${broker.metrics.max-error-codes:20}") int maxErrorCodes,
+            @Value("${broker.metrics.percentile-histogram:false}") boolean percentileHistogram) {
+        this.registry = registry;
+        this.maxOperations = maxOperations;
+        this.maxErrorCodes = maxErrorCodes;
+        this.percentileHistogram = percentileHistogram;
+        this.overflow = new OperationMetrics(OTHER, OTHER);
+    }
+
+    BrokerMetrics(MeterRegistry registry, int maxOperations, boolean percentileHistogram) {
+        this(registry, maxOperations, 20, percentileHistogram);
+    }
+
+    /**
+     * Metrics recorded into a private in-memory registry, for brokers created
+     * outside a Spring context.
+     */
+    public BrokerMetrics() {
+        this(new SimpleMeterRegistry(), 500, 20, false);
+    }
+
+    public OperationMetrics forOperation(String service, String operation) {
+        Key key = new Key(nameOrUnknown(service), nameOrUnknown(operation));
+        OperationMetrics metrics = operations.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (operations.size() >= maxOperations) {
+            return overflow;
+        }
+        return operations.computeIfAbsent(key, k -> new OperationMetrics(k.service(), k.operation()));
+    }
+
+    /**
+     * @return one entry per tracked operation with request and error counts,
+     *         in-flight requests and latency summaries in milliseconds
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> result = new ArrayList<>(operations.size() + 1);
+        for (OperationMetrics metrics : operations.values()) {
+            result.add(metrics.snapshot());
+        }
+        if (overflow.requests.count() > 0) {
+            result.add(overflow.snapshot());
+        }
+        result.sort((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")));
+        return result;
+    }
+
+    private static String nameOrUnknown(String name) {
+        return (name == null || name.isBlank()) ? "unknown" : name;
+    }
+
+    /**
+     * Meters for a single operation.
+     */
+    public final class OperationMetrics {
+
+        private final String service;
+        private final String operation;
+        private final Tags tags;
+        private final Timer requests;
+        private final Timer binding;
+        private final Timer invocation;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+        private final Counter coalesced;
+
+        private OperationMetrics(String service, String operation) {
+            this.service = service;
+            this.operation = operation;
+            this.tags = Tags.of("service", service, "operation", operation);
+            this.requests = timer("broker.requests", "Broker request latency");
+            this.binding = timer("broker.binding", "Parameter binding and validation time");
+            this.invocation = timer("broker.invocation", "Service method invocation time");
+            this.coalesced = Counter.builder("broker.coalesced")
+                    .description("Requests that joined an identical call in flight")
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("broker.inflight", inFlight, AtomicInteger::get)
+                    .description("Broker requests in flight")
+                    .tags(tags)
+                    .register(registry);
+            log.debug("Tracking metrics for {}.{}", service, operation);
+        }
+
+        private Timer timer(String name, String description) {
+            return Timer.builder(name)
+                    .description(description)
+                    .tags(tags)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(registry);
+        }
+
+        /**
+         * Mark a request as started.
+         *
+         * @return the start time to pass to {@link #stop}
+         */
+        public long start() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        /**
+         * Record a completed request, counting it as an error under the first
+         * error code of a failed response.
+         */
+        public void stop(long startNanos, ServiceResponse<?> response) {
+            requests.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            inFlight.decrementAndGet();
+            if (response != null && !response.isOk()) {
+                recordError(errorCode(response));
+            }
+        }
+
+        public void recordBinding(long nanos) {
+            binding.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordInvocation(long nanos) {
+            invocation.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordCoalesced() {
+            coalesced.increment();
+        }
+
+        /**
+         * Count a failed request under {@code code}, or under {@code other}
+         * once this operation already tracks the maximum number of codes.
+         */
+        public void recordError(String code) {
+            String name = nameOrUnknown(code);
+            Counter counter = errors.get(name);
+            if (counter == null) {
+                if (errors.size() >= maxErrorCodes) {
+                    name = OTHER;
+                }
+                counter = errors.computeIfAbsent(name, c -> Counter.builder("broker.errors")
+                        .description("Failed broker requests by error code")
+                        .tags(tags)
+                        .tag("code", c)
+                        .register(registry));
+            }
+            counter.increment();
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("service", service);
+            out.put("operation", operation);
+            out.put("count", requests.count());
+            Map<String, Long> errorCounts = new LinkedHashMap<>();
+            errors.forEach((code, counter) -> errorCounts.put(code, (long) counter.count()));
+            out.put("errors", errorCounts);
+            out.put("inFlight", inFlight.get());
+            out.put("coalesced", (long) coalesced.count());
+            out.put("latencyMs", summarize(requests));
+            out.put("bindingMs", summarize(binding));
+            out.put("invocationMs", summarize(invocation));
+            return out;
+        }
+
+        private static Map<String, Object> summarize(Timer timer) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile p : snapshot.percentileValues()) {
+                out.put(percentileName(p.percentile()), p.value(TimeUnit.MILLISECONDS));
+            }
+            out.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+            return out;
+        }
+
+        private static String percentileName(double percentile) {
+            // 0.5 -> p50, 0.99 -> p99, 0.999 -> p999
+            return "p" + BigDecimal.valueOf(percentile).movePointRight(2).stripTrailingZeros().toPlainString()
+                    .replace(".", "");
+        }
+
+        private static String errorCode(ServiceResponse<?> response) {
+            if (response.getErrors() != null) {
+                for (Map<String, Object> error : response.getErrors()) {
+                    Object code = error.get("code");
+                    if (code != null) {
+                        return code.toString();
+                    }
+                }
+                // Validation failures carry one entry per violation and no code
+                if (!response.getErrors().isEmpty() && response.getErrors().get(0).containsKey("param")) {
+                    return "validation_error";
+                }
+            }
+            return "error";
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.angrysurfer.atomic.broker;
+
+/**
+ * Thrown when a call is shed because its service or operation bulkhead is
+ * full. Mapped to the {@code overloaded} error code.
+ */
+public class BrokerOverloadedException extends RuntimeException {
+    private final String bulkhead;
+
+    public BrokerOverloadedException(String bulkhead, String message) {
+        super(message);
+        this.bulkhead = bulkhead;
+    }
+
+    public String getBulkhead() { return bulkhead; }
+}
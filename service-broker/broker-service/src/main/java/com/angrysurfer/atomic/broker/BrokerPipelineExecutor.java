@@ -0,0 +1,223 @@
+package com.angrysurfer.atomic.broker;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.broker.api.PipelineRequest;
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the steps of a {@link PipelineRequest} in order, substituting
+ * {@code "${step.path}"} parameter references with fields of earlier results,
+ * so that a dependent sequence of calls (e.g. resolve a token, then list the
+ * user's files) costs the client one round trip instead of one per step.
+ *
+ * The response's data is the list of step responses, in step order. The
+ * pipeline stops at the first failed step: the response is then an error
+ * carrying that step's errors, tagged with the step's index and requestId,
+ * and the data holds the responses of the steps that ran. A
+ * {@code timeoutMs} on the pipeline is a budget shared by all of its steps.
+ *
+ * Configuration properties:
+ * - broker.pipeline.max-steps: longest pipeline accepted (default: 20)
+ */
+@Component
+public class BrokerPipelineExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerPipelineExecutor.class);
+
+    private static final String REF_START = "${";
+    private static final String REF_END = "}";
+
+    private final Broker broker;
+    private final ObjectMapper objectMapper;
+    private final int maxSteps;
+
+    public BrokerPipelineExecutor(Broker broker, ObjectMapper objectMapper,
+            @Value("${broker.pipeline.max-steps:20}") int maxSteps) {
+        this.broker = broker;
+        this.objectMapper = objectMapper;
+        this.maxSteps = maxSteps;
+        log.info("BrokerPipelineExecutor initialized (max steps: {})", maxSteps);
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    public ServiceResponse<?> run(PipelineRequest pipeline) {
+        String requestId = pipeline == null ? null : pipeline.getRequestId();
+        List<ServiceRequest> steps = pipeline == null ? null : pipeline.getSteps();
+        if (steps == null || steps.isEmpty()) {
+            return error("invalid_request", "Pipeline has no steps", requestId);
+        }
+        if (steps.size() > maxSteps) {
+            return error("pipeline_too_large",
+                    "Pipeline has " + steps.size() + " steps, maximum is " + maxSteps, requestId);
+        }
+        log.debug("Running pipeline {} with {} steps", requestId, steps.size());
+
+        try {
+            return Deadlines.within(Deadlines.of(pipeline.getTimeoutMs()), () -> runSteps(steps, requestId));
+        } catch (Exception e) {
+            log.error("Pipeline {} failed: {}", requestId, e.getMessage(), e);
+            return error("broker_error", String.valueOf(e.getMessage()), requestId);
+        }
+    }
+
+    private ServiceResponse<?> runSteps(List<ServiceRequest> steps, String requestId) {
+        Results results = new Results();
+        List<ServiceResponse<?>> responses = new ArrayList<>(steps.size());
+
+        for (int i = 0; i < steps.size(); i++) {
+            ServiceRequest step = steps.get(i);
+            if (step == null) {
+                return failed(responses, i, null,
+                        List.of(Map.of("code", "invalid_request", "message", "Missing request")), requestId);
+            }
+
+            ServiceResponse<?> response;
+            try {
+                response = broker.submit(withResolvedParams(step, results));
+            } catch (IllegalArgumentException e) {
+                log.warn("Pipeline {} step {}: {}", requestId, i, e.getMessage());
+                return failed(responses, i, step,
+                        List.of(Map.of("code", "invalid_reference", "message", String.valueOf(e.getMessage()))),
+                        requestId);
+            }
+
+            responses.add(response);
+            if (!response.isOk()) {
+                log.debug("Pipeline {} stopped at step {} ({}.{})", requestId, i, step.getService(),
+                        step.getOperation());
+                return failed(responses, i, step, response.getErrors(), requestId);
+            }
+            results.add(i, step.getRequestId(), response.getData());
+        }
+        return ServiceResponse.ok(responses, requestId);
+    }
+
+    private ServiceRequest withResolvedParams(ServiceRequest step, Results results) {
+        Map<String, Object> params = step.getParams();
+        if (params == null || params.isEmpty()) {
+            return step;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> resolved = (Map<String, Object>) resolve(params, results);
+        if (resolved == params) {
+            return step;
+        }
+        ServiceRequest copy = new ServiceRequest(step.getService(), step.getOperation(), resolved,
+                step.getRequestId());
+        copy.setEncrypt(step.isEncrypt());
+        copy.setTimeoutMs(step.getTimeoutMs());
+        return copy;
+    }
+
+    /**
+     * @return {@code value} with references replaced, or {@code value} itself
+     *         if it contains none
+     */
+    private Object resolve(Object value, Results results) {
+        if (value instanceof String s && s.startsWith(REF_START) && s.endsWith(REF_END)) {
+            return results.lookup(s.substring(REF_START.length(), s.length() - REF_END.length()));
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = null;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object resolved = resolve(entry.getValue(), results);
+                if (resolved != entry.getValue() && copy == null) {
+                    copy = new LinkedHashMap<>(map);
+                }
+                if (copy != null) {
+                    copy.put(entry.getKey(), resolved);
+                }
+            }
+            return copy != null ? copy : map;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = null;
+            for (int i = 0; i < list.size(); i++) {
+                Object resolved = resolve(list.get(i), results);
+                if (resolved != list.get(i) && copy == null) {
+                    copy = new ArrayList<>(list);
+                }
+                if (copy != null) {
+                    copy.set(i, resolved);
+                }
+            }
+            return copy != null ? copy : list;
+        }
+        return value;
+    }
+
+    private static ServiceResponse<?> failed(List<ServiceResponse<?>> responses, int index, ServiceRequest step,
+            List<Map<String, Object>> errors, String requestId) {
+        List<Map<String, Object>> tagged = new ArrayList<>();
+        for (Map<String, Object> error : errors == null ? List.<Map<String, Object>>of() : errors) {
+            Map<String, Object> copy = new LinkedHashMap<>(error);
+            copy.put("step", index);
+            if (step != null && step.getRequestId() != null) {
+                copy.put("stepId", step.getRequestId());
+            }
+            tagged.add(copy);
+        }
+        return new ServiceResponse<>(false, responses, tagged, requestId, Instant.now());
+    }
+
+    private static ServiceResponse<?> error(String code, String message, String requestId) {
+        return ServiceResponse.error(List.of(Map.of("code", code, "message", message)), requestId);
+    }
+
+    /**
+     * Results of the steps run so far, by index and by requestId. Each result
+     * is converted to a tree at most once, when it is first referenced.
+     */
+    private final class Results {
+
+        private final Map<String, Object> data = new HashMap<>();
+        private final Map<String, JsonNode> trees = new HashMap<>();
+
+        void add(int index, String stepId, Object result) {
+            data.put(String.valueOf(index), result);
+            if (stepId != null) {
+                data.putIfAbsent(stepId, result);
+            }
+        }
+
+        Object lookup(String reference) {
+            int dot = reference.indexOf('.');
+            String step = dot < 0 ? reference : reference.substring(0, dot);
+            if (!data.containsKey(step)) {
+                throw new IllegalArgumentException("Unknown step in reference ${" + reference + "}");
+            }
+            if (dot < 0) {
+                return data.get(step);
+            }
+
+            JsonNode tree = trees.computeIfAbsent(step, key -> objectMapper.valueToTree(data.get(key)));
+            StringBuilder pointer = new StringBuilder();
+            for (String field : reference.substring(dot + 1).split("\\.")) {
+                pointer.append('/').append(field.replace("~", "~0").replace("/", "~1"));
+            }
+            JsonNode node = tree.at(JsonPointer.compile(pointer.toString()));
+            if (node.isMissingNode()) {
+                throw new IllegalArgumentException("Nothing at ${" + reference + "}");
+            }
+            return objectMapper.convertValue(node, Object.class);
+        }
+    }
+}
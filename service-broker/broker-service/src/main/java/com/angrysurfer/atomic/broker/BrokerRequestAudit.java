@@ -0,0 +1,134 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.admin.logging.service.AdminLoggingService;
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+
+/**
+ * The admin audit trail of requests that reach the broker from outside, by
+ * any route: submitRequest, submitBatch or the binary channel. An entry is
+ * logged before a request runs and updated with its outcome once it has a
+ * response.
+ */
+@Component
+public class BrokerRequestAudit {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerRequestAudit.class);
+
+    private final AdminLoggingService adminLoggingService;
+
+    public BrokerRequestAudit(AdminLoggingService adminLoggingService) {
+        this.adminLoggingService = adminLoggingService;
+    }
+
+    /**
+     * Submit {@code request} with {@code submit}, auditing it before it runs
+     * and after it completes.
+     */
+    public CompletableFuture<ServiceResponse<?>> submit(ServiceRequest request,
+            Function<ServiceRequest, CompletableFuture<ServiceResponse<?>>> submit) {
+        // Audit writes are buffered and flushed in the background, so this adds no Mongo round trips
+        UUID logId = logRequest(request);
+        CompletableFuture<ServiceResponse<?>> response;
+        try {
+            response = submit.apply(request);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete((r, e) -> {
+            if (e != null) {
+                logFailure(logId, String.valueOf(e.getMessage()));
+            } else {
+                logResponse(logId, r);
+            }
+        });
+    }
+
+    /**
+     * Submit a batch with {@code submitAll}, auditing each of its requests as
+     * {@link #submit} does.
+     */
+    public CompletableFuture<List<ServiceResponse<?>>> submitAll(List<ServiceRequest> requests,
+            Function<List<ServiceRequest>, CompletableFuture<List<ServiceResponse<?>>>> submitAll) {
+        List<UUID> logIds = new ArrayList<>(requests.size());
+        for (ServiceRequest request : requests) {
+            logIds.add(logRequest(request));
+        }
+        CompletableFuture<List<ServiceResponse<?>>> responses;
+        try {
+            responses = submitAll.apply(requests);
+        } catch (RuntimeException e) {
+            responses = CompletableFuture.failedFuture(e);
+        }
+        return responses.whenComplete((r, e) -> {
+            for (int i = 0; i < logIds.size(); i++) {
+                if (e != null) {
+                    logFailure(logIds.get(i), String.valueOf(e.getMessage()));
+                } else {
+                    logResponse(logIds.get(i), r.get(i));
+                }
+            }
+        });
+    }
+
+    /**
+     * Log {@code request} before it runs.
+     *
+     * @return the id of the entry to update with the outcome, or null if none
+     *         was logged
+     */
+    public UUID logRequest(ServiceRequest request) {
+        if (request == null) {
+            return null;
+        }
+        String userId = extractUserId(request); // Extract user ID or set to a default
+        try {
+            var logEntry = adminLoggingService.logRequest(request, userId);
+            return logEntry != null ? logEntry.getId() : null;
+        } catch (Exception e) {
+            log.error("Error logging request: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Update the entry logged for a request with its success/failure status.
+     */
+    public void logResponse(UUID logId, ServiceResponse<?> response) {
+        if (logId != null) {
+            adminLoggingService.updateLogEntry(logId, response.isOk(),
+                    response.isOk() ? null : extractErrorMessage(response));
+        }
+    }
+
+    private void logFailure(UUID logId, String errorMessage) {
+        if (logId != null) {
+            adminLoggingService.updateLogEntry(logId, false, errorMessage);
+        }
+    }
+
+    private String extractUserId(ServiceRequest request) {
+        // Extract userId from request. This could come from a header, or be extracted from security context
+        // For now, using a default value, but in a real application, this would come from authentication
+        return "anonymous"; // Replace with actual user extraction logic
+    }
+
+    private String extractErrorMessage(ServiceResponse<?> response) {
+        // Extract error message from response, assuming error details are stored in response
+        if (response.getErrors() != null && !response.getErrors().isEmpty()) {
+            // Extract the first error message or return all errors as JSON
+            return response.getErrors().toString();
+        }
+        return "Unknown error occurred";
+    }
+}
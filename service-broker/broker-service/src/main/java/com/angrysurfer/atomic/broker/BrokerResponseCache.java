@@ -0,0 +1,202 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded in-process cache of operation results, for operations declaring a
+ * {@code cacheTtlMs} on their {@code @BrokerOperation}.
+ *
+ * Entries are keyed by service, operation and the canonical form of the key
+ * parameters (see {@link RequestKeys}), and carry the TTL of the operation
+ * that produced them. The cache is size-bounded and
+ * records hit/miss statistics, which are also published through Micrometer as
+ * {@code cache.*{cache=broker.responses}}.
+ *
+ * Every entry belongs to an invalidation group. Evicting a group removes its
+ * entries and bumps the group's generation, so a read that started before the
+ * eviction cannot put a stale result back afterwards.
+ *
+ * Results are stored and handed out as they are, not copied, so every caller
+ * served from an entry shares one instance; operations, and the code
+ * consuming their results, must treat cached results as immutable.
+ *
+ * Configuration properties:
+ * - broker.cache.max-size: maximum number of cached results (default: 10000)
+ */
+@Component
+public class BrokerResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerResponseCache.class);
+
+    private static final long DEFAULT_MAX_SIZE = 10_000;
+
+    /** Returned by {@link #get} when there is no live entry for the key. */
+    static final Object MISS = new Object();
+
+    private static final Object NULL_RESULT = new Object();
+
+    record Key(String group, String service, String operation, String params) {
+    }
+
+    private record Entry(Object value, long ttlNanos) {
+    }
+
+    private final Cache<Key, Entry> cache;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BrokerResponseCache(@Value("${broker.cache.max-size:10000}") long maxSize, MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Key, Entry>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        if (registry != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "broker.responses");
+        }
+        log.info("BrokerResponseCache initialized (max size: {})", maxSize);
+    }
+
+    /**
+     * Cache without Micrometer binding, for brokers created outside a Spring
+     * context.
+     */
+    public BrokerResponseCache() {
+        this(DEFAULT_MAX_SIZE, null);
+    }
+
+    /**
+     * @return the cache key for a call, or null if the key parameters cannot be
+     *         put in canonical form (in which case the call is not cached)
+     */
+    Key keyFor(InvocationPlan.CachePolicy policy, String service, String operation, Map<String, Object> params) {
+        try {
+            return new Key(policy.group(), service, operation, RequestKeys.canonicalParams(params, policy.keyParams()));
+        } catch (JsonProcessingException e) {
+            log.debug("Not caching {}.{}: cannot build key: {}", service, operation, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the cached result, which may be null, or {@link #MISS}
+     */
+    Object get(Key key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return MISS;
+        }
+        return entry.value() == NULL_RESULT ? null : entry.value();
+    }
+
+    /**
+     * @return the current generation of {@code key}'s group, to pass to
+     *         {@link #put} once the result is known
+     */
+    long generation(Key key) {
+        return generationOf(key.group()).get();
+    }
+
+    /**
+     * Cache a successful result, unless its group was evicted since
+     * {@code generation} was read. Failed {@link ServiceResponse}s are never
+     * cached.
+     */
+    void put(Key key, Object result, long ttlNanos, long generation) {
+        if (result instanceof ServiceResponse<?> response && !response.isOk()) {
+            return;
+        }
+        AtomicLong current = generationOf(key.group());
+        if (current.get() != generation) {
+            return;
+        }
+        cache.put(key, new Entry(result == null ? NULL_RESULT : result, ttlNanos));
+        // An eviction may have run between the check and the put
+        if (current.get() != generation) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Remove every cached result in the given groups.
+     *
+     * @return the number of entries removed
+     */
+    public int evictGroups(Collection<String> groups) {
+        int removed = 0;
+        for (String group : groups) {
+            generationOf(group).incrementAndGet();
+            List<Key> keys = cache.asMap().keySet().stream().filter(k -> k.group().equals(group)).toList();
+            cache.invalidateAll(keys);
+            removed += keys.size();
+        }
+        if (removed > 0) {
+            log.debug("Evicted {} cached results for groups {}", removed, groups);
+        }
+        return removed;
+    }
+
+    public int evictGroup(String group) {
+        return evictGroups(List.of(group));
+    }
+
+    public void evictAll() {
+        generations.values().forEach(AtomicLong::incrementAndGet);
+        cache.invalidateAll();
+        log.debug("Evicted all cached results");
+    }
+
+    /**
+     * @return size and hit/miss/eviction counts since startup
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("size", cache.estimatedSize());
+        out.put("hits", stats.hitCount());
+        out.put("misses", stats.missCount());
+        out.put("hitRate", stats.hitRate());
+        out.put("evictions", stats.evictionCount());
+        return out;
+    }
+
+    private AtomicLong generationOf(String group) {
+        return generations.computeIfAbsent(group, g -> new AtomicLong());
+    }
+}
@@ -0,0 +1,363 @@
+package com.angrysurfer.atomic.broker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.BaseStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes the result of a broker operation element by element instead of as a
+ * single JSON document.
+ *
+ * Operations returning a {@code Stream}, {@code Iterator}, {@code Iterable}, a
+ * multi-value reactive type (e.g. Flux) or a Spring Data {@link Slice} are
+ * streamed as NDJSON (one JSON value per line) or as Server-Sent Events. Elements
+ * are pulled from the source only as fast as they can be written to the client,
+ * so a slow reader holds back the producer rather than filling memory. For
+ * slices, the operation is re-invoked with the next {@code page} parameter until
+ * the last page has been written. Any other result is written as a single
+ * element.
+ *
+ * The operation, and each further page of a slice, is invoked through
+ * {@link Broker#open}: until its elements have been written the call holds
+ * its bulkhead permit, counts as in flight and is timed, and elements are
+ * pulled within the request's deadline, so a lazy source is drained under the
+ * same limits as any other call.
+ *
+ * Configuration properties:
+ * - broker.stream.flush-every: NDJSON elements written between flushes (default: 32)
+ * - broker.stream.prefetch: elements requested at a time from reactive sources (default: 256)
+ */
+@Component
+public class BrokerStreamer {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerStreamer.class);
+
+    private static final String PAGE_PARAM = "page";
+
+    /**
+     * Outcome of opening a stream. {@code error} is set when the request failed
+     * before any element was produced, in which case {@code body} writes that
+     * error as a single JSON document.
+     */
+    public record Opened(StreamingResponseBody body, ServiceResponse<?> error) {
+    }
+
+    private final Broker broker;
+    private final ObjectWriter writer;
+    private final int flushEvery;
+    private final int prefetch;
+
+    public BrokerStreamer(Broker broker, ObjectMapper objectMapper,
+            @Value("${broker.stream.flush-every:32}") int flushEvery,
+            @Value("${broker.stream.prefetch:256}") int prefetch) {
+        this.broker = broker;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.flushEvery = Math.max(1, flushEvery);
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    /**
+     * Invoke the operation on the calling thread so that resolution, binding
+     * and service errors can still be answered with a regular error response,
+     * and return a body that writes its elements.
+     */
+    public Opened open(ServiceRequest req, boolean sse) {
+        log.info("Streaming service: {}, operation: {}, requestId: {}", req.getService(), req.getOperation(),
+                req.getRequestId());
+        Broker.OpenCall call = broker.open(req);
+        if (!call.response().isOk()) {
+            return failed(call.response());
+        }
+        return new Opened(out -> write(req, call, out, sse), null);
+    }
+
+    private Opened failed(ServiceResponse<?> error) {
+        return new Opened(out -> writer.writeValue(out, error), error);
+    }
+
+    /**
+     * Write every element, page by page. Each page's call is closed once its
+     * elements have been written, before the next page is opened.
+     */
+    private void write(ServiceRequest req, Broker.OpenCall first, OutputStream out, boolean sse)
+            throws IOException {
+        JsonGenerator gen = writer.getFactory().createGenerator(out);
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gen.setRootValueSeparator(null);
+
+        Broker.OpenCall call = first;
+        long count = 0;
+        try {
+            while (call != null) {
+                Broker.OpenCall page = call;
+                Object current = orEmpty(page.response().getData());
+                long written = count;
+                count = Deadlines.within(page.deadline(), () -> writeElements(req, current, gen, sse, written));
+                page.close(page.response());
+                call = nextPage(req, current);
+            }
+            if (sse) {
+                gen.writeRaw("event: complete\ndata: {\"count\":" + count + "}\n\n");
+            }
+        } catch (IOException e) {
+            // Client went away; stop pulling from the source.
+            log.debug("Stream closed by client after {} elements: {}", count, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Stream failed after {} elements: {}", count, e.getMessage(), e);
+            ServiceResponse<?> error = broker.toError(req, e);
+            if (call != null) {
+                call.close(error);
+            }
+            if (sse) {
+                gen.writeRaw("event: error\ndata: ");
+                writer.writeValue(gen, error);
+                gen.writeRaw("\n\n");
+            } else {
+                writer.writeValue(gen, error);
+                gen.writeRaw('\n');
+            }
+        } finally {
+            // Whatever ended the stream, the call no longer holds its permit
+            if (call != null) {
+                call.close(call.response());
+            }
+            gen.flush();
+        }
+        log.debug("Streamed {} elements for {}.{}", count, req.getService(), req.getOperation());
+    }
+
+    private long writeElements(ServiceRequest req, Object result, JsonGenerator gen, boolean sse, long count)
+            throws Exception {
+        Object source = adaptReactive(result);
+        Iterator<?> elements = iterate(source);
+        long deadline = Deadlines.current();
+        try {
+            while (elements.hasNext()) {
+                if (Deadlines.isExpired(deadline)) {
+                    throw new BrokerDeadlineExceededException(
+                            "Deadline exceeded for " + req.getService() + "." + req.getOperation());
+                }
+                Object element = elements.next();
+                if (sse) {
+                    gen.writeRaw("data: ");
+                    writer.writeValue(gen, element);
+                    gen.writeRaw("\n\n");
+                    gen.flush();
+                } else {
+                    writer.writeValue(gen, element);
+                    gen.writeRaw('\n');
+                    // Flush the first element early for time-to-first-byte, then in batches
+                    if (count == 0 || (count + 1) % flushEvery == 0) {
+                        gen.flush();
+                    }
+                }
+                count++;
+            }
+        } finally {
+            // Releases database cursors and cancels reactive subscriptions
+            if (source instanceof BaseStream<?, ?> stream) {
+                stream.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Multi-value reactive results (e.g. Flux) are consumed as a blocking
+     * stream with bounded demand: at most {@code prefetch} elements are
+     * requested ahead of the writer.
+     */
+    private Object adaptReactive(Object result) {
+        ReactiveAdapter adapter = ReactiveAdapterRegistry.getSharedInstance().getAdapter(result.getClass());
+        if (adapter == null || !adapter.isMultiValue()) {
+            return result;
+        }
+        return PublisherIterator.stream(adapter.toPublisher(result), prefetch);
+    }
+
+    /**
+     * @return an iterator over the elements of {@code result}; values that are
+     *         not sequences yield a single element
+     */
+    private static Iterator<?> iterate(Object result) {
+        if (result instanceof Slice<?> slice) {
+            return slice.getContent().iterator();
+        }
+        if (result instanceof BaseStream<?, ?> stream) {
+            return stream.iterator();
+        }
+        if (result instanceof Iterator<?> iterator) {
+            return iterator;
+        }
+        if (result instanceof Iterable<?> iterable) {
+            return iterable.iterator();
+        }
+        return List.of(result).iterator();
+    }
+
+    /**
+     * Follow a paging cursor: when the operation returned a slice with more
+     * content and was called with a {@code page} parameter, invoke it again for
+     * the next page.
+     *
+     * @return the open call for the next page, or null after the last page
+     */
+    private Broker.OpenCall nextPage(ServiceRequest req, Object current) throws Exception {
+        if (!(current instanceof Slice<?> slice) || !slice.hasNext()
+                || req.getParams() == null || !req.getParams().containsKey(PAGE_PARAM)) {
+            return null;
+        }
+        Map<String, Object> params = new HashMap<>(req.getParams());
+        params.put(PAGE_PARAM, slice.getNumber() + 1);
+        ServiceRequest next = new ServiceRequest(req.getService(), req.getOperation(), params, req.getRequestId());
+
+        Broker.OpenCall call = broker.open(next);
+        ServiceResponse<?> response = call.response();
+        if (!response.isOk()) {
+            throw new IllegalStateException("Failed to fetch page " + (slice.getNumber() + 1) + ": "
+                    + response.getErrors());
+        }
+        if (response.getData() instanceof Slice<?> nextSlice && nextSlice.getNumber() <= slice.getNumber()) {
+            log.warn("Operation {}.{} did not advance past page {}; ending stream", req.getService(),
+                    req.getOperation(), slice.getNumber());
+            call.close(response);
+            return null;
+        }
+        return call;
+    }
+
+    private static Object orEmpty(Object result) {
+        return result != null ? result : List.of();
+    }
+
+    /**
+     * Consumes a Reactive Streams publisher as a blocking iterator with bounded
+     * demand, without depending on a particular reactive library: at most
+     * {@code prefetch} elements are requested ahead of the reader, and more
+     * are requested as three quarters of them have been read. Closing the
+     * stream cancels the subscription.
+     */
+    private static final class PublisherIterator implements Subscriber<Object>, Iterator<Object> {
+
+        private static final Object COMPLETE = new Object();
+
+        private record Failure(Throwable error) {
+        }
+
+        private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        private final int prefetch;
+        private final int replenish;
+        private volatile Subscription subscription;
+        private int consumed;
+        private Object next;
+
+        private PublisherIterator(int prefetch) {
+            this.prefetch = prefetch;
+            this.replenish = Math.max(1, prefetch - (prefetch >> 2));
+        }
+
+        static Stream<Object> stream(Publisher<?> publisher, int prefetch) {
+            PublisherIterator iterator = new PublisherIterator(prefetch);
+            publisher.subscribe(iterator);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .onClose(iterator::cancel);
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(prefetch);
+        }
+
+        @Override
+        public void onNext(Object element) {
+            signals.add(element);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            signals.add(new Failure(error));
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add(COMPLETE);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = signals.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    throw new IllegalStateException("Interrupted while waiting for the next element", e);
+                }
+            }
+            if (next instanceof Failure failure) {
+                if (failure.error() instanceof RuntimeException e) {
+                    throw e;
+                }
+                if (failure.error() instanceof Error e) {
+                    throw e;
+                }
+                throw new IllegalStateException(failure.error().getMessage(), failure.error());
+            }
+            return next != COMPLETE;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object element = next;
+            next = null;
+            if (++consumed == replenish) {
+                consumed = 0;
+                subscription.request(replenish);
+            }
+            return element;
+        }
+
+        void cancel() {
+            Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.angrysurfer.atomic.broker;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Binary wire format for broker traffic between services.
+ *
+ * Broker endpoints accept and produce Smile, Jackson's binary encoding of the
+ * JSON data model, alongside JSON. The format is chosen per request from the
+ * {@code Content-Type} and {@code Accept} headers; JSON stays the default, so
+ * browsers and other clients that accept anything keep getting JSON.
+ *
+ * The Smile converter is built from Boot's {@link Jackson2ObjectMapperBuilder}
+ * so that it shares the modules and settings of the JSON mapper, and replaces
+ * Spring MVC's default Smile converter in place (after the JSON converter).
+ */
+@Configuration
+public class BrokerWireFormat {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(
+                builder.factory(new SmileFactory()).build());
+    }
+}
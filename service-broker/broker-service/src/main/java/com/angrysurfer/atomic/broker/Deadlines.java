@@ -0,0 +1,145 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+
+/**
+ * Request deadlines, tracked as {@link System#nanoTime()} instants.
+ *
+ * A request's deadline is the earlier of its own {@code timeoutMs} budget and
+ * the deadline of the broker call it is made from: while the broker runs an
+ * operation the deadline is bound to the running thread, so nested
+ * {@code broker.submit} calls (e.g. RestFsService asking loginService for a
+ * token's user) inherit what is left of the outer budget. Outgoing calls pass
+ * the remaining budget on, either in {@link ServiceRequest#getTimeoutMs()} or
+ * in the {@value #TIMEOUT_HEADER} header.
+ */
+public final class Deadlines {
+
+    /** No deadline. */
+    public static final long NONE = Long.MAX_VALUE;
+
+    /** Remaining budget in milliseconds, for calls that do not carry a ServiceRequest. */
+    public static final String TIMEOUT_HEADER = "X-Broker-Timeout-Ms";
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private Deadlines() {
+    }
+
+    /**
+     * @return the deadline for {@code req}: the earlier of its own budget and
+     *         the deadline of the current broker call, or {@link #NONE}
+     */
+    public static long of(ServiceRequest req) {
+        return of(req == null ? null : req.getTimeoutMs());
+    }
+
+    /**
+     * @return the earlier of {@code timeoutMs} from now and the deadline of
+     *         the current broker call, or {@link #NONE}
+     */
+    public static long of(Long timeoutMs) {
+        long inherited = current();
+        if (timeoutMs == null) {
+            return inherited;
+        }
+        long now = System.nanoTime();
+        long own = timeoutMs <= 0 ? now : now + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        // Guard against overflow for very large budgets
+        if (own < now) {
+            own = NONE;
+        }
+        return Math.min(inherited, own);
+    }
+
+    /**
+     * @return the deadline of the broker call running on this thread, or
+     *         {@link #NONE}
+     */
+    public static long current() {
+        Long deadline = CURRENT.get();
+        return deadline == null ? NONE : deadline;
+    }
+
+    public static boolean isExpired(long deadline) {
+        return deadline != NONE && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * @return nanoseconds left until {@code deadline}, never negative; only
+     *         meaningful when there is a deadline
+     */
+    public static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * @return milliseconds left until {@code deadline}, rounded up so that a
+     *         live deadline is never passed on as zero, or null if there is no
+     *         deadline
+     */
+    public static Long remainingMillis(long deadline) {
+        if (deadline == NONE) {
+            return null;
+        }
+        long nanos = remainingNanos(deadline);
+        return nanos == 0 ? 0L : Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos + 999_999));
+    }
+
+    /**
+     * Run {@code call} with {@code deadline} bound to the current thread,
+     * restoring the previous deadline afterwards.
+     */
+    static <T> T within(long deadline, Callable<T> call) throws Exception {
+        Long previous = CURRENT.get();
+        if (deadline == NONE) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        try {
+            return call.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Run a blocking call on a virtual thread and wait for it until
+     * {@code deadline}. When the deadline passes first, the thread is
+     * interrupted, which also aborts socket reads it is blocked in, and
+     * {@link TimeoutException} is thrown.
+     */
+    public static <T> T await(long deadline, Callable<T> call) throws Exception {
+        if (deadline == NONE) {
+            return call.call();
+        }
+        FutureTask<T> task = new FutureTask<>(() -> within(deadline, call));
+        Thread.ofVirtual().name("broker-deadline").start(task);
+        try {
+            return task.get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.angrysurfer.atomic.broker;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.ClassUtils;
+
+import com.angrysurfer.atomic.broker.spi.OperationIndex;
+
+/**
+ * The application's {@code @BrokerOperation} methods as listed by the
+ * compile-time {@link OperationIndex}, matched against the context.
+ *
+ * Beans are found by the type of the indexed classes, so the context is never
+ * asked for the type of every bean and no bean is created. An operation that
+ * is not indexed (a module compiled without the processor) is not known here;
+ * the broker then falls back to scanning the bean's class.
+ */
+final class IndexedOperations {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexedOperations.class);
+
+    /**
+     * An indexed operation and the method it resolves to.
+     */
+    record Operation(OperationIndex.Entry entry, Method method) {
+    }
+
+    private final ApplicationContext ctx;
+    private final OperationIndex index;
+    private final Map<OperationIndex.Entry, Optional<Method>> methods = new ConcurrentHashMap<>();
+
+    IndexedOperations(ApplicationContext ctx, OperationIndex index) {
+        this.ctx = ctx;
+        this.index = index;
+        if (!index.isEmpty()) {
+            log.info("Loaded operation index with {} broker operations", index.entries().size());
+        }
+    }
+
+    boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * @return the indexed operations of every bean that exposes any, by bean
+     *         name
+     */
+    Map<String, List<Operation>> byBean() {
+        Map<String, List<Operation>> byBean = new LinkedHashMap<>();
+        Map<String, List<String>> beansByClass = new HashMap<>();
+        for (OperationIndex.Entry entry : index.entries()) {
+            Class<?> type = classOf(entry);
+            Method method = type == null ? null : method(entry, type);
+            if (method == null) {
+                continue;
+            }
+            List<String> beanNames = beansByClass.computeIfAbsent(entry.className(), k -> beanNames(entry, type));
+            for (String beanName : beanNames) {
+                byBean.computeIfAbsent(beanName, k -> new ArrayList<>()).add(new Operation(entry, method));
+            }
+        }
+        return byBean;
+    }
+
+    /**
+     * Resolve {@code operation} on {@code beanClass} from the index, matching
+     * by alias before method name, as {@link Broker#resolveMethod} does.
+     *
+     * @return the operation, or null if it is not indexed for the class or its
+     *         superclasses
+     */
+    Operation find(Class<?> beanClass, String operation) {
+        if (index.isEmpty()) {
+            return null;
+        }
+        Operation byMethodName = null;
+        for (Class<?> type = ClassUtils.getUserClass(beanClass); type != null
+                && type != Object.class; type = type.getSuperclass()) {
+            for (OperationIndex.Entry entry : index.forClass(type.getName())) {
+                if (!entry.answers(operation)) {
+                    continue;
+                }
+                Method method = method(entry, type);
+                if (method == null) {
+                    continue;
+                }
+                if (operation.equals(entry.alias())) {
+                    return new Operation(entry, method);
+                }
+                if (byMethodName == null) {
+                    byMethodName = new Operation(entry, method);
+                }
+            }
+        }
+        return byMethodName;
+    }
+
+    /**
+     * The beans of the indexed class, including subclasses. Beans whose type
+     * cannot be told without creating them are only found under the name the
+     * index recorded for the class.
+     */
+    private List<String> beanNames(OperationIndex.Entry entry, Class<?> type) {
+        String[] names = ctx.getBeanNamesForType(type, true, false);
+        if (names != null && names.length > 0) {
+            return List.of(names);
+        }
+        String beanName = entry.beanName();
+        if (!beanName.isEmpty() && ctx.containsBean(beanName) && ctx.isTypeMatch(beanName, type)) {
+            return List.of(beanName);
+        }
+        return List.of();
+    }
+
+    private Class<?> classOf(OperationIndex.Entry entry) {
+        try {
+            return ClassUtils.forName(entry.className(), ctx.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            log.debug("Indexed class {} is not available: {}", entry.className(), e.toString());
+            return null;
+        }
+    }
+
+    private Method method(OperationIndex.Entry entry, Class<?> type) {
+        return methods.computeIfAbsent(entry, e -> {
+            try {
+                return Optional.of(e.method(type));
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                log.warn("Ignoring operation index entry for {}.{} that does not match the class: {}",
+                        e.className(), e.methodName(), ex.toString());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+}
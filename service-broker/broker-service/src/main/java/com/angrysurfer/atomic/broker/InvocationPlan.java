@@ -0,0 +1,233 @@
+package com.angrysurfer.atomic.broker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.security.Principal;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.util.StringUtils;
+
+import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+import com.angrysurfer.atomic.broker.spi.BrokerParam;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Valid;
+
+/**
+ * Immutable dispatch plan for a single {@code @BrokerOperation} method.
+ *
+ * Everything that used to be re-derived through reflection on each request
+ * (parameter names, {@code @BrokerParam} aliases, {@code @Valid} markers, target
+ * {@link JavaType}s and their {@link ParamBinder}s) is computed once when the plan is built, and the method
+ * itself is invoked through a pre-adapted {@link MethodHandle} instead of
+ * {@link Method#invoke}.
+ */
+final class InvocationPlan {
+
+    private static final Logger log = LoggerFactory.getLogger(InvocationPlan.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class,
+            Object[].class);
+
+    /**
+     * Precomputed binding information for one method parameter.
+     *
+     * @param name     the key to look up in {@code ServiceRequest.params}
+     * @param type     the declared parameter type
+     * @param javaType the Jackson type used for conversion
+     * @param binder   converts the raw param value to {@code type}
+     * @param context  true for parameters the broker injects itself (Principal,
+     *                 HttpServletRequest) rather than binding from params
+     * @param validate true when the parameter is annotated with {@code @Valid}
+     */
+    record ParamSpec(String name, Class<?> type, JavaType javaType, ParamBinder binder, boolean context,
+            boolean validate) {
+    }
+
+    /**
+     * Response caching declared on the operation.
+     *
+     * @param ttlNanos  how long a result may be served from the cache
+     * @param keyParams parameters making up the key; empty for all params
+     * @param group     invalidation group
+     */
+    record CachePolicy(long ttlNanos, List<String> keyParams, String group) {
+    }
+
+    private final Method method;
+    private final MethodHandle invoker;
+    private final List<ParamSpec> params;
+    private final boolean async;
+    private final List<String> keyParams;
+    private final CachePolicy cachePolicy;
+    private final List<String> evicts;
+    private final boolean coalesce;
+
+    private InvocationPlan(Method method, MethodHandle invoker, List<ParamSpec> params) {
+        this.method = method;
+        this.invoker = invoker;
+        this.params = params;
+        this.async = isAsyncType(method.getReturnType());
+
+        BrokerOperation op = method.getAnnotation(BrokerOperation.class);
+        this.keyParams = op == null ? List.of() : List.of(op.cacheKey());
+        this.cachePolicy = cachePolicy(method, op, async, keyParams);
+        this.evicts = op == null ? List.of() : List.of(op.evicts());
+        this.coalesce = op != null && op.coalesce() && !async;
+        if (op != null && op.coalesce() && async) {
+            log.warn("Ignoring coalesce on asynchronous operation {}", method);
+        }
+    }
+
+    static InvocationPlan build(Method method, ObjectMapper objectMapper) {
+        return build(method, objectMapper, List.of());
+    }
+
+    /**
+     * @param parameterNames source names of the method's parameters, from the
+     *                       operation index; used for parameters without
+     *                       {@code @BrokerParam} when the class was compiled
+     *                       without {@code -parameters}. May be empty.
+     */
+    static InvocationPlan build(Method method, ObjectMapper objectMapper, List<String> parameterNames) {
+        Parameter[] ps = method.getParameters();
+        ParamSpec[] specs = new ParamSpec[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            String sourceName = parameterNames.size() == ps.length ? parameterNames.get(i) : null;
+            specs[i] = describe(ps[i], sourceName, objectMapper);
+        }
+        return new InvocationPlan(method, toInvoker(method), List.of(specs));
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    List<ParamSpec> getParams() {
+        return params;
+    }
+
+    /**
+     * @return true if the method completes asynchronously, i.e. returns a
+     *         {@link CompletionStage} or a single-valued reactive type such as
+     *         Mono
+     */
+    boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * @return the operation's cache policy, or null if results are not cached
+     */
+    CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * @return cache groups to evict after a successful call
+     */
+    List<String> getEvicts() {
+        return evicts;
+    }
+
+    /**
+     * @return true if concurrent identical calls should share one execution
+     */
+    boolean isCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * @return parameters identifying a call; empty for all params
+     */
+    List<String> getKeyParams() {
+        return keyParams;
+    }
+
+    /**
+     * Invoke the planned method on {@code bean}. Any exception raised by the
+     * target is wrapped in an {@link InvocationTargetException}, matching the
+     * contract of {@link Method#invoke} that the broker's error mapping relies
+     * on.
+     */
+    Object invoke(Object bean, Object[] args) throws InvocationTargetException {
+        try {
+            return (Object) invoker.invokeExact(bean, args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    private static ParamSpec describe(Parameter p, String sourceName, ObjectMapper objectMapper) {
+        Class<?> pt = p.getType();
+        boolean context = Principal.class.isAssignableFrom(pt)
+                || jakarta.servlet.http.HttpServletRequest.class.isAssignableFrom(pt);
+
+        BrokerParam paramAnnotation = p.getAnnotation(BrokerParam.class);
+        String name = (paramAnnotation != null && StringUtils.hasText(paramAnnotation.value()))
+                ? paramAnnotation.value()
+                : (!p.isNamePresent() && sourceName != null) ? sourceName
+                : p.getName(); // requires -parameters at compile to retain names
+
+        JavaType javaType = context ? null : objectMapper.constructType(p.getParameterizedType());
+        ParamBinder binder = context ? null : ParamBinder.forType(javaType, objectMapper);
+        return new ParamSpec(name, pt, javaType, binder, context, p.isAnnotationPresent(Valid.class));
+    }
+
+    private static CachePolicy cachePolicy(Method method, BrokerOperation op, boolean async,
+            List<String> keyParams) {
+        if (op == null || op.cacheTtlMs() <= 0) {
+            return null;
+        }
+        if (async) {
+            log.warn("Ignoring cacheTtlMs on asynchronous operation {}", method);
+            return null;
+        }
+        String group = StringUtils.hasText(op.cacheGroup()) ? op.cacheGroup()
+                : method.getDeclaringClass().getSimpleName();
+        return new CachePolicy(TimeUnit.MILLISECONDS.toNanos(op.cacheTtlMs()), keyParams, group);
+    }
+
+    private static boolean isAsyncType(Class<?> returnType) {
+        if (CompletionStage.class.isAssignableFrom(returnType)) {
+            return true;
+        }
+        ReactiveAdapter adapter = ReactiveAdapterRegistry.getSharedInstance().getAdapter(returnType);
+        return adapter != null && !adapter.isMultiValue() && !adapter.isNoValue();
+    }
+
+    private static MethodHandle toInvoker(Method method) {
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            // Public method on a non-public class (e.g. a nested test bean): open it up once here.
+            if (!method.trySetAccessible()) {
+                throw new IllegalStateException("Cannot access broker operation: " + method, e);
+            }
+            try {
+                handle = LOOKUP.unreflect(method);
+            } catch (IllegalAccessException again) {
+                throw new IllegalStateException("Cannot access broker operation: " + method, again);
+            }
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asSpreader(Object[].class, method.getParameterCount()).asType(INVOKER_TYPE);
+    }
+}
@@ -0,0 +1,150 @@
+package com.angrysurfer.atomic.broker;
+
+import java.io.IOException;
+
+import org.springframework.util.ClassUtils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Converts a raw request parameter (as decoded from JSON: String, Number,
+ * Boolean, Map, List) to the declared type of a method parameter.
+ *
+ * A binder is chosen once per parameter when the {@link InvocationPlan} is
+ * built:
+ *
+ * - values that already have the target type are passed through as-is
+ * - strings, numbers and booleans are coerced directly to primitive, boxed
+ *   and String parameters
+ * - everything else (DTOs, typed collections) is read through an
+ *   {@link ObjectReader} created once for the target type
+ *
+ * The direct paths only handle the cases they can convert exactly; any other
+ * value falls back to {@link ObjectMapper#convertValue}, so conversions and
+ * error messages stay the same as before.
+ */
+@FunctionalInterface
+interface ParamBinder {
+
+    Object bind(Object raw);
+
+    static ParamBinder forType(JavaType type, ObjectMapper objectMapper) {
+        ParamBinder fallback = raw -> objectMapper.convertValue(raw, type);
+        if (type == null) {
+            // Mapper could not describe the parameter; leave conversion entirely to it
+            return fallback;
+        }
+        Class<?> target = ClassUtils.resolvePrimitiveIfNecessary(type.getRawClass());
+
+        if (target == String.class) {
+            return raw -> (raw instanceof String || raw == null) ? raw
+                    : (raw instanceof Integer || raw instanceof Long || raw instanceof Boolean) ? raw.toString()
+                    : fallback.bind(raw);
+        }
+        if (target == Integer.class) {
+            return raw -> {
+                if (raw instanceof Integer) {
+                    return raw;
+                }
+                if ((raw instanceof Long || raw instanceof Short || raw instanceof Byte)
+                        && ((Number) raw).longValue() == ((Number) raw).intValue()) {
+                    return ((Number) raw).intValue();
+                }
+                if (raw instanceof String s) {
+                    try {
+                        return Integer.valueOf(s);
+                    } catch (NumberFormatException e) {
+                        // let Jackson decide (trimming, empty strings) and report
+                    }
+                }
+                return fallback.bind(raw);
+            };
+        }
+        if (target == Long.class) {
+            return raw -> {
+                if (raw instanceof Long) {
+                    return raw;
+                }
+                if (raw instanceof Integer || raw instanceof Short || raw instanceof Byte) {
+                    return ((Number) raw).longValue();
+                }
+                if (raw instanceof String s) {
+                    try {
+                        return Long.valueOf(s);
+                    } catch (NumberFormatException e) {
+                        // let Jackson decide (trimming, empty strings) and report
+                    }
+                }
+                return fallback.bind(raw);
+            };
+        }
+        if (target == Double.class) {
+            return raw -> raw instanceof Double ? raw
+                    : (raw instanceof Integer || raw instanceof Long || raw instanceof Float)
+                            ? ((Number) raw).doubleValue()
+                            : fallback.bind(raw);
+        }
+        if (target == Boolean.class) {
+            return raw -> raw instanceof Boolean ? raw
+                    : "true".equals(raw) ? Boolean.TRUE
+                    : "false".equals(raw) ? Boolean.FALSE
+                    : fallback.bind(raw);
+        }
+        if (target == Object.class || (type.isContainerType() && isUntyped(type))) {
+            return raw -> target.isInstance(raw) ? raw : fallback.bind(raw);
+        }
+        return reading(type, objectMapper);
+    }
+
+    /**
+     * @return true if any instance of the container's raw class is a valid
+     *         value for {@code type}, i.e. it has no element type other than
+     *         Object (and String map keys)
+     */
+    private static boolean isUntyped(JavaType type) {
+        if (type.isMapLikeType()) {
+            Class<?> key = type.getKeyType().getRawClass();
+            return (key == String.class || key == Object.class)
+                    && type.getContentType().getRawClass() == Object.class;
+        }
+        for (int i = 0; i < type.containedTypeCount(); i++) {
+            if (type.containedType(i).getRawClass() != Object.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binder for DTOs and typed collections: the value is replayed into a
+     * {@link TokenBuffer} and read with a reader whose root deserializer is
+     * resolved once, instead of per call as {@code convertValue} does.
+     */
+    private static ParamBinder reading(JavaType type, ObjectMapper objectMapper) {
+        ObjectReader reader = objectMapper.readerFor(type);
+        boolean bigDecimals = objectMapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        Class<?> target = type.getRawClass();
+        return raw -> {
+            if (raw == null || (target.isInstance(raw) && !type.isContainerType())) {
+                return raw;
+            }
+            TokenBuffer buffer = new TokenBuffer(objectMapper, false);
+            if (bigDecimals) {
+                buffer = buffer.forceUseOfBigDecimal(true);
+            }
+            try {
+                objectMapper.writeValue(buffer, raw);
+                try (JsonParser parser = buffer.asParser()) {
+                    return reader.readValue(parser);
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        };
+    }
+}
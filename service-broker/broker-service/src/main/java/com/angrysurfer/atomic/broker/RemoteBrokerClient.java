@@ -1,21 +1,63 @@
 package com.angrysurfer.atomic.broker;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 import com.angrysurfer.atomic.broker.api.ServiceRequest;
 import com.angrysurfer.atomic.broker.api.ServiceResponse;
 
+import jakarta.annotation.PreDestroy;
+
 /**
  * A client for connecting to a remote broker gateway instead of using local broker.
  * This is used when services are configured to register with a central broker gateway.
+ *
+ * Requests and responses are exchanged as Smile (binary JSON) by default,
+ * which is smaller and cheaper to parse than JSON text; set the wire format
+ * to {@code json} to talk to a gateway that does not accept Smile. Calls go
+ * through the shared {@link BrokerHttpTransport}, so they reuse pooled
+ * connections to the gateway. Responses are asked for compressed (see
+ * {@link BrokerCompression}).
+ *
+ * With batching enabled, requests submitted within {@code window-ms} of each
+ * other are sent together in one call to the gateway's {@code submitBatch}
+ * endpoint, at most {@code max-size} at a time (a full batch is sent at
+ * once). Each caller still waits only for its own response, and only until
+ * its own deadline. A request with no other in its window is sent on its own.
+ * Keep {@code max-size} within the gateway's {@code broker.batch.max-size}.
+ *
+ * When a {@link BrokerChannelClient} is configured, requests go over its
+ * persistent multiplexed connection instead, and are not batched (the channel
+ * already carries concurrent requests together). Requests fall back to HTTP
+ * while the channel is down.
+ *
+ * Configuration properties:
+ * - broker.remote.gateway.url: base URL of the broker gateway
+ * - broker.remote.wire-format: smile or json (default: smile)
+ * - broker.remote.batch.enabled: batch concurrent requests (default: false)
+ * - broker.remote.batch.window-ms: how long a request waits for others to join its batch (default: 2)
+ * - broker.remote.batch.max-size: most requests per batch (default: 50)
  */
 @Component
 @ConditionalOnProperty(name = "broker.remote.gateway.url")
@@ -25,34 +67,250 @@ public class RemoteBrokerClient {
 
     private final String remoteBrokerUrl;
     private final RestTemplate restTemplate;
+    private final MediaType wireFormat;
+    private final BrokerChannelClient channel;
+
+    /** A request waiting in a batch. */
+    private record Pending(ServiceRequest request, long deadline, CompletableFuture<ServiceResponse<?>> future) {
+    }
 
+    private final boolean batching;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final Object batchLock = new Object();
+    private List<Pending> batch = new ArrayList<>();
+    private final ScheduledExecutorService batchTimer;
+    private final ExecutorService batchSender;
+
+    @Autowired
     public RemoteBrokerClient(
-            @Value("${broker.remote.gateway.url:}") String remoteBrokerUrl) {
-        this.remoteBrokerUrl = remoteBrokerUrl;
+            @Value("${broker.remote.gateway.url:}") String remoteBrokerUrl,
+            @Value("${broker.remote.wire-format:smile}") String wireFormat,
+            BrokerHttpTransport transport,
+            BrokerCompression compression,
+            ObjectProvider<BrokerChannelClient> channel,
+            @Value("${broker.remote.batch.enabled:false}") boolean batching,
+            @Value("${broker.remote.batch.window-ms:2}") long batchWindowMs,
+            @Value("${broker.remote.batch.max-size:50}") int maxBatchSize) {
+        // Its default converters include Smile, since jackson-dataformat-smile is on the classpath
+        this(remoteBrokerUrl, wireFormat, compression.decompressing(transport.restTemplate()),
+                channel.getIfAvailable(), batching, batchWindowMs, maxBatchSize);
+    }
+
+    RemoteBrokerClient(String remoteBrokerUrl, String wireFormat, RestTemplate restTemplate) {
+        this(remoteBrokerUrl, wireFormat, restTemplate, null, false, 2, 50);
+    }
+
+    RemoteBrokerClient(String remoteBrokerUrl, String wireFormat, RestTemplate restTemplate,
+            boolean batching, long batchWindowMs, int maxBatchSize) {
+        this(remoteBrokerUrl, wireFormat, restTemplate, null, batching, batchWindowMs, maxBatchSize);
+    }
 
-        // Create our own RestTemplate instance to avoid conflicts with other configurations
-        this.restTemplate = new RestTemplate();
-        // Configure timeouts
-        if (this.restTemplate.getRequestFactory() instanceof SimpleClientHttpRequestFactory) {
-            SimpleClientHttpRequestFactory factory = (SimpleClientHttpRequestFactory) this.restTemplate.getRequestFactory();
-            factory.setConnectTimeout(10000); // 10 seconds
-            factory.setReadTimeout(30000);    // 30 seconds
+    RemoteBrokerClient(String remoteBrokerUrl, String wireFormat, RestTemplate restTemplate,
+            BrokerChannelClient channel, boolean batching, long batchWindowMs, int maxBatchSize) {
+        this.remoteBrokerUrl = remoteBrokerUrl;
+        this.wireFormat = "json".equalsIgnoreCase(wireFormat) ? MediaType.APPLICATION_JSON : BrokerWireFormat.SMILE;
+        this.restTemplate = restTemplate;
+        this.channel = channel;
+        this.batching = batching;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, batchWindowMs));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        if (batching) {
+            this.batchTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "remote-broker-batch");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.batchSender = Executors.newVirtualThreadPerTaskExecutor();
         } else {
-            // Set a new factory with timeouts
-            SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-            factory.setConnectTimeout(10000);
-            factory.setReadTimeout(30000);
-            this.restTemplate.setRequestFactory(factory);
+            this.batchTimer = null;
+            this.batchSender = null;
         }
-        
+
         if (remoteBrokerUrl != null && !remoteBrokerUrl.trim().isEmpty()) {
-            log.info("Remote broker client configured to connect to: {}", remoteBrokerUrl);
+            log.info("Remote broker client configured to connect to: {} ({}, batching: {}, channel: {})",
+                    remoteBrokerUrl, this.wireFormat, batching ? batchWindowMs + "ms/" + this.maxBatchSize : "off",
+                    channel != null ? "on" : "off");
         } else {
             log.info("Remote broker client not configured (broker.remote.gateway.url not set)");
         }
     }
 
     public ServiceResponse<?> submit(ServiceRequest request) {
+        if (!batchable()) {
+            return submitNow(request);
+        }
+        long deadline = Deadlines.of(request);
+        if (Deadlines.isExpired(deadline)) {
+            return deadlineExceeded(request);
+        }
+        CompletableFuture<ServiceResponse<?>> future = enqueue(request, deadline);
+        try {
+            if (deadline == Deadlines.NONE) {
+                return future.get();
+            }
+            return future.get(Deadlines.remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Deadline exceeded waiting for remote broker: {}.{}",
+                    request.getService(), request.getOperation());
+            return deadlineExceeded(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return remoteError(request, "Interrupted waiting for remote broker");
+        } catch (ExecutionException e) {
+            return remoteError(request, String.valueOf(e.getCause().getMessage()));
+        }
+    }
+
+    /**
+     * Submit without waiting for the response. With batching enabled the
+     * request joins the current batch; otherwise it is sent on a virtual
+     * thread.
+     */
+    public CompletableFuture<ServiceResponse<?>> submitAsync(ServiceRequest request) {
+        long deadline = Deadlines.of(request);
+        if (batchable() && !Deadlines.isExpired(deadline)) {
+            return enqueue(request, deadline);
+        }
+        CompletableFuture<ServiceResponse<?>> future = new CompletableFuture<>();
+        Thread.ofVirtual().name("remote-broker-submit").start(() -> {
+            try {
+                future.complete(Deadlines.within(deadline, () -> submitNow(request)));
+            } catch (Exception e) {
+                future.complete(remoteError(request, e.getMessage()));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Batch only while there is no open channel to send requests over.
+     */
+    private boolean batchable() {
+        return batching && isRemoteConfigured() && (channel == null || !channel.isConnected());
+    }
+
+    private CompletableFuture<ServiceResponse<?>> enqueue(ServiceRequest request, long deadline) {
+        Pending pending = new Pending(request, deadline, new CompletableFuture<>());
+        List<Pending> full = null;
+        synchronized (batchLock) {
+            batch.add(pending);
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                batch = new ArrayList<>();
+            } else if (batch.size() == 1) {
+                List<Pending> opened = batch;
+                batchTimer.schedule(() -> flush(opened), batchWindowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return pending.future();
+    }
+
+    /**
+     * Send {@code expected} if it is still the batch being filled; a batch
+     * that filled up has already been sent.
+     */
+    private void flush(List<Pending> expected) {
+        synchronized (batchLock) {
+            if (batch != expected) {
+                return;
+            }
+            batch = new ArrayList<>();
+        }
+        dispatch(expected);
+    }
+
+    private void dispatch(List<Pending> pending) {
+        try {
+            batchSender.execute(() -> sendBatch(pending));
+        } catch (RuntimeException e) {
+            // Shutting down
+            pending.forEach(p -> p.future().complete(remoteError(p.request(), "Remote broker client is closed")));
+        }
+    }
+
+    private void sendBatch(List<Pending> pending) {
+        List<Pending> live = new ArrayList<>(pending.size());
+        for (Pending p : pending) {
+            if (Deadlines.isExpired(p.deadline())) {
+                p.future().complete(deadlineExceeded(p.request()));
+            } else {
+                live.add(p);
+            }
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+        if (live.size() == 1) {
+            Pending p = live.get(0);
+            p.future().complete(send(p.request(), p.deadline()));
+            return;
+        }
+
+        String fullUrl = remoteBrokerUrl + "/api/broker/submitBatch";
+        List<ServiceRequest> requests = new ArrayList<>(live.size());
+        long deadline = Long.MIN_VALUE;
+        for (Pending p : live) {
+            requests.add(withRemainingBudget(p.request(), p.deadline()));
+            deadline = Math.max(deadline, p.deadline());
+        }
+        long batchDeadline = deadline;
+        try {
+            log.debug("Submitting batch of {} requests to remote broker: {}", requests.size(), fullUrl);
+            HttpEntity<List<ServiceRequest>> entity = new HttpEntity<>(requests, headers());
+            ServiceResponse<?>[] responses = Deadlines.await(batchDeadline, () -> restTemplate.exchange(fullUrl,
+                    HttpMethod.POST, entity, ServiceResponse[].class).getBody());
+            for (int i = 0; i < live.size(); i++) {
+                Pending p = live.get(i);
+                ServiceResponse<?> response = responses != null && i < responses.length ? responses[i] : null;
+                p.future().complete(response != null ? response : ServiceResponse.error(
+                    p.request().getService(),
+                    p.request().getOperation(),
+                    List.of(Map.of("code", "null_response", "message", "Remote broker returned no response in batch")),
+                    p.request().getRequestId()
+                ));
+            }
+        } catch (TimeoutException e) {
+            log.warn("Deadline exceeded waiting for remote broker batch of {} requests", live.size());
+            live.forEach(p -> p.future().complete(deadlineExceeded(p.request())));
+        } catch (Exception e) {
+            log.error("Error submitting batch to remote broker: {}", e.getMessage(), e);
+            live.forEach(p -> p.future().complete(remoteError(p.request(), e.getMessage())));
+        }
+    }
+
+    private HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(wireFormat);
+        // Error responses written by exception handlers may only be available as JSON
+        headers.setAccept(List.of(wireFormat, MediaType.APPLICATION_JSON));
+        return headers;
+    }
+
+    /**
+     * Send any requests still waiting in a batch, then stop batching.
+     */
+    @PreDestroy
+    public void close() {
+        if (!batching) {
+            return;
+        }
+        List<Pending> pending;
+        synchronized (batchLock) {
+            pending = batch;
+            batch = new ArrayList<>();
+        }
+        if (!pending.isEmpty()) {
+            dispatch(pending);
+        }
+        batchTimer.shutdownNow();
+        batchSender.shutdown();
+    }
+
+    private ServiceResponse<?> submitNow(ServiceRequest request) {
         if (remoteBrokerUrl == null || remoteBrokerUrl.trim().isEmpty()) {
             log.warn("Remote broker URL not configured, cannot submit request");
             return ServiceResponse.error(
@@ -63,14 +321,32 @@ public class RemoteBrokerClient {
             );
         }
 
+        long deadline = Deadlines.of(request);
+        if (Deadlines.isExpired(deadline)) {
+            return deadlineExceeded(request);
+        }
+        return send(request, deadline);
+    }
+
+    private ServiceResponse<?> send(ServiceRequest request, long deadline) {
         // Construct the URL for the remote broker endpoint
         String fullUrl = remoteBrokerUrl + "/api/broker/submitRequest";
         
         try {
+            if (channel != null) {
+                ServiceResponse<?> response = channel.submit(withRemainingBudget(request, deadline), deadline);
+                if (response != null) {
+                    return response;
+                }
+                log.debug("Broker channel unavailable, submitting over HTTP");
+            }
+
             log.debug("Submitting request to remote broker: {} -> {}", 
                      fullUrl, request.getService() + "." + request.getOperation());
             
-            ServiceResponse<?> response = restTemplate.postForObject(fullUrl, request, ServiceResponse.class);
+            HttpEntity<ServiceRequest> entity = new HttpEntity<>(withRemainingBudget(request, deadline), headers());
+            ServiceResponse<?> response = Deadlines.await(deadline, () -> restTemplate.exchange(fullUrl,
+                    HttpMethod.POST, entity, ServiceResponse.class).getBody());
             
             if (response != null) {
                 log.debug("Received response from remote broker: {}", response.isOk());
@@ -84,17 +360,50 @@ public class RemoteBrokerClient {
                     request.getRequestId()
                 );
             }
+        } catch (TimeoutException e) {
+            log.warn("Deadline exceeded waiting for remote broker: {}.{}",
+                    request.getService(), request.getOperation());
+            return deadlineExceeded(request);
         } catch (Exception e) {
             log.error("Error submitting request to remote broker: {}", e.getMessage(), e);
-            return ServiceResponse.error(
-                request.getService(), 
-                request.getOperation(), 
-                java.util.List.of(java.util.Map.of("code", "remote_broker_error", "message", e.getMessage())), 
-                request.getRequestId()
-            );
+            return remoteError(request, e.getMessage());
         }
     }
 
+    private static ServiceResponse<?> remoteError(ServiceRequest request, String message) {
+        return ServiceResponse.error(
+            request.getService(),
+            request.getOperation(),
+            List.of(Map.of("code", "remote_broker_error", "message", String.valueOf(message))),
+            request.getRequestId()
+        );
+    }
+
+    /**
+     * The remote broker gets what is left of the budget rather than the
+     * original one, so time spent on this side is not counted twice.
+     */
+    private static ServiceRequest withRemainingBudget(ServiceRequest request, long deadline) {
+        Long remaining = Deadlines.remainingMillis(deadline);
+        if (remaining == null || remaining.equals(request.getTimeoutMs())) {
+            return request;
+        }
+        ServiceRequest copy = new ServiceRequest(request.getService(), request.getOperation(),
+                request.getParams(), request.getRequestId());
+        copy.setEncrypt(request.isEncrypt());
+        copy.setTimeoutMs(remaining);
+        return copy;
+    }
+
+    private static ServiceResponse<?> deadlineExceeded(ServiceRequest request) {
+        return ServiceResponse.error(
+            request.getService(),
+            request.getOperation(),
+            List.of(Map.of("code", "deadline_exceeded", "message", "Deadline exceeded calling remote broker")),
+            request.getRequestId()
+        );
+    }
+
     public boolean isRemoteConfigured() {
         return remoteBrokerUrl != null && !remoteBrokerUrl.trim().isEmpty();
     }
@@ -0,0 +1,45 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * Canonical form of request parameters, used to recognise identical calls.
+ * Map keys are sorted at every level, so parameter order does not matter.
+ */
+final class RequestKeys {
+
+    private static final ObjectWriter WRITER = JsonMapper.builder()
+            .findAndAddModules()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build()
+            .writer();
+
+    private RequestKeys() {
+    }
+
+    /**
+     * @param params request parameters, may be null
+     * @param names  parameters to include; empty for all of them
+     * @return canonical JSON of the selected parameters
+     */
+    static String canonicalParams(Map<String, Object> params, List<String> names) throws JsonProcessingException {
+        Map<String, Object> selected = new TreeMap<>();
+        if (params != null) {
+            if (names.isEmpty()) {
+                selected.putAll(params);
+            } else {
+                for (String name : names) {
+                    selected.put(name, params.get(name));
+                }
+            }
+        }
+        return WRITER.writeValueAsString(selected);
+    }
+}
@@ -0,0 +1,108 @@
+package com.angrysurfer.atomic.broker;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.ClassUtils;
+
+import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+
+/**
+ * Maps the service names clients send to local bean names.
+ *
+ * Exact bean names are still answered by the context itself; this index covers
+ * the fallback where a client addresses a bean by its (case-insensitive)
+ * simple class name, or by the simple name of the class that declares its
+ * {@code @BrokerOperation} methods. It is built once from bean types, without
+ * creating any bean, and rebuilt when the number of bean definitions changes.
+ * Names that are known not to be local are remembered so repeated calls to
+ * external services do not rescan anything.
+ */
+final class ServiceNameIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceNameIndex.class);
+
+    private static final int MAX_MISSES = 1024;
+
+    private final ApplicationContext ctx;
+
+    private volatile Map<String, String> bySimpleName;
+    private volatile int indexedDefinitionCount = -1;
+    private final Set<String> misses = ConcurrentHashMap.newKeySet();
+
+    ServiceNameIndex(ApplicationContext ctx) {
+        this.ctx = ctx;
+    }
+
+    /**
+     * @return the bean name registered for {@code serviceName}, or null if no
+     *         local bean answers to it
+     */
+    String lookup(String serviceName) {
+        Map<String, String> index = currentIndex();
+        if (misses.contains(serviceName)) {
+            return null;
+        }
+        String beanName = index.get(serviceName.toLowerCase(Locale.ROOT));
+        if (beanName == null) {
+            if (misses.size() >= MAX_MISSES) {
+                misses.clear();
+            }
+            misses.add(serviceName);
+        }
+        return beanName;
+    }
+
+    synchronized void rebuild() {
+        int definitionCount = ctx.getBeanDefinitionCount();
+        Map<String, String> index = new HashMap<>();
+        for (String name : ctx.getBeanDefinitionNames()) {
+            Class<?> type = typeOf(name);
+            if (type == null) {
+                continue;
+            }
+            index.putIfAbsent(type.getSimpleName().toLowerCase(Locale.ROOT), name);
+            Class<?> userClass = ClassUtils.getUserClass(type);
+            index.putIfAbsent(userClass.getSimpleName().toLowerCase(Locale.ROOT), name);
+            for (Method m : type.getMethods()) {
+                if (m.isAnnotationPresent(BrokerOperation.class)) {
+                    index.putIfAbsent(m.getDeclaringClass().getSimpleName().toLowerCase(Locale.ROOT), name);
+                }
+            }
+        }
+        misses.clear();
+        bySimpleName = index;
+        indexedDefinitionCount = definitionCount;
+        log.debug("Indexed {} service names", index.size());
+    }
+
+    private Map<String, String> currentIndex() {
+        Map<String, String> index = bySimpleName;
+        if (index == null || ctx.getBeanDefinitionCount() != indexedDefinitionCount) {
+            rebuild();
+            index = bySimpleName;
+        }
+        return index;
+    }
+
+    /**
+     * @return the bean's type, or null if it cannot be told without creating
+     *         the bean (or its factory); such beans are still found by their
+     *         exact name, and indexing must never instantiate anything
+     */
+    private Class<?> typeOf(String name) {
+        try {
+            return ctx.getType(name, false);
+        } catch (RuntimeException e) {
+            log.debug("Skipping bean {} while indexing service names: {}", name, e.getMessage());
+            return null;
+        }
+    }
+}
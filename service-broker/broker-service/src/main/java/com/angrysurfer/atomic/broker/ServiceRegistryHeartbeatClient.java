@@ -68,8 +68,8 @@ public class ServiceRegistryHeartbeatClient {
     private final RestTemplate restTemplate;
     private volatile boolean registered = false;
 
-    public ServiceRegistryHeartbeatClient() {
-        this.restTemplate = new RestTemplate();
+    public ServiceRegistryHeartbeatClient(BrokerHttpTransport transport) {
+        this.restTemplate = transport.restTemplate();
     }
 
     /**
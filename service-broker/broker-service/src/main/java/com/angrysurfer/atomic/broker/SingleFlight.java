@@ -0,0 +1,104 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Collapses concurrent identical calls into one execution.
+ *
+ * The first caller for a key runs the call; callers arriving with the same key
+ * while it is running wait for that execution and receive its result, or its
+ * exception. Nothing is kept once the call completes, so this only removes
+ * duplicate work that overlaps in time; it is not a cache.
+ *
+ * Each waiting caller gives up at its own deadline, with
+ * {@link BrokerDeadlineExceededException}, while the execution carries on for
+ * the others. Every caller receives the same result instance, so results of
+ * coalesced operations must be treated as immutable.
+ */
+final class SingleFlight {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlight.class);
+
+    record Key(String service, String operation, String params) {
+    }
+
+    @FunctionalInterface
+    interface Call {
+        Object run() throws Exception;
+    }
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @return the key for a call, or null if its parameters cannot be put in
+     *         canonical form (in which case the call runs on its own)
+     */
+    Key keyFor(String service, String operation, Map<String, Object> params, List<String> keyParams) {
+        try {
+            return new Key(service, operation, RequestKeys.canonicalParams(params, keyParams));
+        } catch (JsonProcessingException e) {
+            log.debug("Not coalescing {}.{}: cannot build key: {}", service, operation, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Run {@code call}, or join an identical call already in flight.
+     *
+     * @param onJoined run when this caller joined another caller's execution
+     */
+    Object execute(Key key, Call call, Runnable onJoined) throws Exception {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            onJoined.run();
+            return await(key, leader);
+        }
+
+        try {
+            Object result = call.run();
+            mine.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private static Object await(Key key, CompletableFuture<Object> leader) throws Exception {
+        long deadline = Deadlines.current();
+        try {
+            return deadline == Deadlines.NONE ? leader.get()
+                    : leader.get(Deadlines.remainingNanos(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new BrokerDeadlineExceededException(
+                    "Deadline exceeded for " + key.service() + "." + key.operation());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+}
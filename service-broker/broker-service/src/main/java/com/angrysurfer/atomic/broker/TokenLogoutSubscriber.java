@@ -0,0 +1,71 @@
+package com.angrysurfer.atomic.broker;
+
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops logged-out tokens from the {@link TokenPrincipalResolver} cache.
+ * loginService publishes each logged-out token on a Redis channel; every
+ * broker with a Redis connection listens on it, including the one running
+ * loginService itself. Brokers without Redis rely on the cache TTL.
+ *
+ * Configuration properties:
+ * - broker.principal.logout-channel: channel logouts are published on (default: login:logout)
+ */
+@Component
+@ConditionalOnClass(name = "org.springframework.data.redis.connection.RedisConnectionFactory")
+public class TokenLogoutSubscriber implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenLogoutSubscriber.class);
+
+    private final ObjectProvider<RedisConnectionFactory> connectionFactory;
+    private final TokenPrincipalResolver resolver;
+    private final String channel;
+
+    private RedisMessageListenerContainer container;
+
+    public TokenLogoutSubscriber(ObjectProvider<RedisConnectionFactory> connectionFactory,
+            TokenPrincipalResolver resolver,
+            @Value("${broker.principal.logout-channel:login:logout}") String channel) {
+        this.connectionFactory = connectionFactory;
+        this.resolver = resolver;
+        this.channel = channel;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        RedisConnectionFactory factory = connectionFactory.getIfAvailable();
+        if (factory == null) {
+            log.info("No Redis connection; cached tokens expire by TTL only");
+            return;
+        }
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener((message, pattern) -> {
+            String token = new String(message.getBody(), StandardCharsets.UTF_8);
+            log.debug("Token logged out, dropping it from the principal cache");
+            resolver.invalidate(token);
+        }, new ChannelTopic(channel));
+        container.afterPropertiesSet();
+        container.start();
+        log.info("Listening for logouts on Redis channel {}", channel);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (container != null) {
+            container.destroy();
+        }
+    }
+}
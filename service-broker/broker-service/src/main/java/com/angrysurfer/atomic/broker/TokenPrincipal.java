@@ -0,0 +1,8 @@
+package com.angrysurfer.atomic.broker;
+
+/**
+ * The user a login token belongs to, as resolved by
+ * {@link TokenPrincipalResolver}.
+ */
+public record TokenPrincipal(String userId, String alias) {
+}
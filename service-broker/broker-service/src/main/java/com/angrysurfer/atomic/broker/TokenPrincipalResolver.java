@@ -0,0 +1,185 @@
+package com.angrysurfer.atomic.broker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Resolves login tokens to the user they belong to, for services that take a
+ * token on every call (files, notes).
+ *
+ * Lookups go to {@code loginService.getUserRegistrationForToken} through the
+ * broker and are kept in a bounded near-cache, so a burst of calls with the
+ * same token costs one lookup: concurrent misses for a token wait for the
+ * same lookup instead of each making their own. Tokens that loginService
+ * rejects are remembered for a shorter time, so a client retrying with a bad
+ * token does not reach Redis on every call. Failed lookups (loginService
+ * unreachable, overloaded...) are not cached.
+ *
+ * Logged-out tokens are dropped from the cache when a logout notification
+ * arrives (see {@link TokenLogoutSubscriber}); without Redis they expire
+ * after the TTL.
+ *
+ * Configuration properties:
+ * - broker.principal.cache.max-size: maximum number of cached tokens (default: 10000)
+ * - broker.principal.cache.ttl-ms: how long a resolved token is kept (default: 60000)
+ * - broker.principal.cache.negative-ttl-ms: how long a rejected token is kept (default: 5000)
+ */
+@Component
+public class TokenPrincipalResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenPrincipalResolver.class);
+
+    /** A cached lookup; a null principal means loginService rejected the token. */
+    private record Entry(TokenPrincipal principal, long ttlNanos) {
+    }
+
+    private final Broker broker;
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final AsyncCache<String, Entry> cache;
+
+    @Autowired
+    public TokenPrincipalResolver(Broker broker, ObjectMapper objectMapper, MeterRegistry registry,
+            @Value("${broker.principal.cache.max-size:10000}") long maxSize,
+            @Value("${broker.principal.cache.ttl-ms:60000}") long ttlMs,
+            @Value("${broker.principal.cache.negative-ttl-ms:5000}") long negativeTtlMs) {
+        this.broker = broker;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs));
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, negativeTtlMs));
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String token, Entry entry, long currentTime) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(registry, cache, "broker.principals");
+        log.info("TokenPrincipalResolver initialized (max size: {}, ttl: {}ms, negative ttl: {}ms)",
+                maxSize, ttlMs, negativeTtlMs);
+    }
+
+    public TokenPrincipalResolver(Broker broker) {
+        this(broker, new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(), 10_000, 60_000, 5_000);
+    }
+
+    /**
+     * @return the user {@code token} belongs to, or null if the token is
+     *         unknown, expired or could not be resolved
+     */
+    public TokenPrincipal resolve(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> cached = cache.get(token, (key, executor) -> created);
+        if (cached == created) {
+            // This caller does the lookup, on its own thread so that it keeps
+            // the caller's deadline; a null result is not cached
+            try {
+                created.complete(lookup(token));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            }
+        }
+        // A caller waiting for another caller's lookup gives up at its own deadline
+        long deadline = Deadlines.current();
+        try {
+            Entry entry = deadline == Deadlines.NONE ? cached.get()
+                    : cached.get(Deadlines.remainingNanos(deadline), TimeUnit.NANOSECONDS);
+            return entry == null ? null : entry.principal();
+        } catch (TimeoutException e) {
+            log.warn("Token lookup did not complete within the request deadline");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | RuntimeException e) {
+            log.error("Error resolving token: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Forget {@code token}, e.g. because its user logged out.
+     */
+    public void invalidate(String token) {
+        if (token != null) {
+            cache.synchronous().invalidate(token);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    private Entry lookup(String token) {
+        ServiceRequest request = new ServiceRequest(
+                "loginService",
+                "getUserRegistrationForToken",
+                Map.of("token", token),
+                "resolve-principal-" + System.currentTimeMillis());
+
+        ServiceResponse<?> response = broker.submit(request);
+        if (response.isOk() && response.getData() != null) {
+            return new Entry(toPrincipal(response.getData()), ttlNanos);
+        }
+        if (isTokenRejected(response.getErrors())) {
+            log.debug("Token rejected by loginService: {}", response.getErrors());
+            return new Entry(null, negativeTtlNanos);
+        }
+        log.warn("Failed to resolve token: {}", response.getErrors() != null ? response.getErrors() : "No data returned");
+        return null;
+    }
+
+    private TokenPrincipal toPrincipal(Object data) {
+        // Local calls return the registration itself, remote ones a map
+        Map<?, ?> fields = data instanceof Map<?, ?> map ? map : objectMapper.convertValue(data, Map.class);
+        Object id = fields.get("id");
+        Object alias = fields.get("alias");
+        return new TokenPrincipal(id != null ? id.toString() : null, alias != null ? alias.toString() : null);
+    }
+
+    /**
+     * loginService reports unknown, expired and malformed tokens as errors on
+     * the {@code token} field.
+     */
+    private static boolean isTokenRejected(List<Map<String, Object>> errors) {
+        return errors != null && errors.stream().anyMatch(error -> "token".equals(error.get("field")));
+    }
+}
@@ -0,0 +1,96 @@
+package com.angrysurfer.atomic.broker;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BrokerBatchExecutorTest {
+
+    private Broker broker;
+    private BrokerBatchExecutor batchExecutor;
+
+    @BeforeEach
+    void setUp() {
+        broker = mock(Broker.class);
+        batchExecutor = new BrokerBatchExecutor(broker, 10, 200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchExecutor.shutdown();
+    }
+
+    @Test
+    void testRequestsRunWithinTheBatchDeadline() {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("a", "op", Collections.emptyMap(), "r1");
+        AtomicLong remainingMs = new AtomicLong(-1);
+        doAnswer(invocation -> {
+            remainingMs.set(Deadlines.remainingMillis(Deadlines.current()));
+            return ServiceResponse.ok("one", "r1");
+        }).when(broker).submit(request);
+
+        // Act
+        List<ServiceResponse<?>> responses = batchExecutor.submitAll(List.of(request)).join();
+
+        // Assert
+        assertTrue(responses.get(0).isOk());
+        assertTrue(remainingMs.get() > 0 && remainingMs.get() <= 200, "remaining budget: " + remainingMs.get());
+    }
+
+    @Test
+    void testBatchCompletesAtItsTimeoutAndCancelsSlowRequests() throws Exception {
+        // Arrange
+        ServiceRequest fast = new ServiceRequest("a", "op", Collections.emptyMap(), "r1");
+        ServiceRequest slow = new ServiceRequest("b", "op", Collections.emptyMap(), "r2");
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doReturn(ServiceResponse.ok("one", "r1")).when(broker).submit(fast);
+        doAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return ServiceResponse.ok("late", "r2");
+        }).when(broker).submit(slow);
+
+        // Act
+        long started = System.nanoTime();
+        CompletableFuture<List<ServiceResponse<?>>> batch = batchExecutor.submitAll(List.of(fast, slow));
+        List<ServiceResponse<?>> responses = batch.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 5_000);
+        assertEquals("one", responses.get(0).getData());
+        assertFalse(responses.get(1).isOk());
+        assertEquals("timeout", responses.get(1).getErrors().get(0).get("code"));
+        assertEquals("r2", responses.get(1).getRequestId());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testMissingRequestIsAnsweredWithAnError() {
+        // Arrange
+        List<ServiceRequest> requests = new java.util.ArrayList<>();
+        requests.add(null);
+
+        // Act
+        List<ServiceResponse<?>> responses = batchExecutor.submitAll(requests).join();
+
+        // Assert
+        assertEquals("invalid_request", responses.get(0).getErrors().get(0).get("code"));
+        verifyNoInteractions(broker);
+    }
+}
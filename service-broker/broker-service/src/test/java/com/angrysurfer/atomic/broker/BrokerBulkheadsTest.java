@@ -0,0 +1,160 @@
+package com.angrysurfer.atomic.broker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerBulkheadsTest {
+
+    private SimpleMeterRegistry registry;
+
+    private MockEnvironment env;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        env = new MockEnvironment();
+    }
+
+    private BrokerBulkheads bulkheads(int defaultLimit, int queueSize, long maxWaitMs, boolean adaptive) {
+        return new BrokerBulkheads(env, registry, true, defaultLimit, queueSize, maxWaitMs, adaptive, 1, 2.0);
+    }
+
+    @Test
+    void testFullBulkheadWithoutQueueRejectsImmediately() {
+        // Arrange
+        BrokerBulkheads bulkheads = bulkheads(2, 0, 1000, false);
+        BrokerBulkheads.Permit first = bulkheads.acquire("searchService", "simpleSearch", true);
+        bulkheads.acquire("searchService", "simpleSearch", true);
+
+        // Act
+        BrokerOverloadedException e = assertThrows(BrokerOverloadedException.class,
+                () -> bulkheads.acquire("searchService", "searchImages", true));
+        first.release();
+        first.release();
+        BrokerBulkheads.Permit third = bulkheads.acquire("searchService", "searchImages", true);
+
+        // Assert
+        assertEquals("searchService", e.getBulkhead());
+        assertNotNull(third);
+        assertEquals(1.0, registry.get("broker.bulkhead.rejected").tags("bulkhead", "searchService")
+                .counter().count());
+        assertEquals(2.0, registry.get("broker.bulkhead.inflight").tags("bulkhead", "searchService")
+                .gauge().value());
+    }
+
+    @Test
+    void testQueuedCallProceedsWhenPermitIsReleased() throws Exception {
+        // Arrange
+        BrokerBulkheads bulkheads = bulkheads(1, 1, 5000, false);
+        BrokerBulkheads.Permit held = bulkheads.acquire("restFsService", null, true);
+
+        // Act
+        CompletableFuture<BrokerBulkheads.Permit> waiting = CompletableFuture.supplyAsync(
+                () -> bulkheads.acquire("restFsService", null, true));
+        Thread.sleep(50);
+        boolean blocked = !waiting.isDone();
+        held.release();
+
+        // Assert
+        assertTrue(blocked);
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testQueuedCallIsShedWhenWaitExpires() {
+        // Arrange
+        BrokerBulkheads bulkheads = bulkheads(1, 1, 20, false);
+        bulkheads.acquire("restFsService", null, true);
+
+        // Act & Assert
+        assertThrows(BrokerOverloadedException.class, () -> bulkheads.acquire("restFsService", null, true));
+        assertThrows(BrokerOverloadedException.class, () -> bulkheads.acquire("restFsService", null, false));
+    }
+
+    @Test
+    void testOperationLimitIsAppliedOnTopOfServiceLimit() {
+        // Arrange
+        env.setProperty("broker.bulkhead.limits.searchService.generateContent", "1");
+        BrokerBulkheads bulkheads = bulkheads(10, 0, 0, false);
+        bulkheads.acquire("searchService", "generateContent", true);
+
+        // Act
+        BrokerOverloadedException e = assertThrows(BrokerOverloadedException.class,
+                () -> bulkheads.acquire("searchService", "generateContent", true));
+        bulkheads.acquire("searchService", "simpleSearch", true);
+
+        // Assert - the rejected call gave back its service permit
+        assertEquals("searchService.generateContent", e.getBulkhead());
+        assertEquals(2.0, registry.get("broker.bulkhead.inflight").tags("bulkhead", "searchService")
+                .gauge().value());
+    }
+
+    @Test
+    void testAdaptiveLimitShrinksWhenLatencyRises() throws Exception {
+        // Arrange
+        env.setProperty("broker.bulkhead.limits.googleSearchService", "20");
+        BrokerBulkheads bulkheads = bulkheads(100, 0, 0, true);
+        bulkheads.acquire("googleSearchService", null, false).release();
+
+        // Act - calls now take far longer than the first one
+        for (int i = 0; i < 5; i++) {
+            BrokerBulkheads.Permit permit = bulkheads.acquire("googleSearchService", null, false);
+            Thread.sleep(10);
+            permit.release();
+        }
+
+        // Assert
+        double limit = registry.get("broker.bulkhead.limit").tags("bulkhead", "googleSearchService")
+                .gauge().value();
+        assertTrue(limit < 20, "limit should have backed off, was " + limit);
+        assertTrue(limit >= 1);
+    }
+
+    @Test
+    void testDisabledBulkheadsNeverReject() {
+        // Arrange
+        BrokerBulkheads bulkheads = new BrokerBulkheads(env, registry, false, 1, 0, 0, false, 1, 2.0);
+
+        // Act & Assert
+        bulkheads.acquire("userService", "findAll", true);
+        assertDoesNotThrow(() -> bulkheads.acquire("userService", "findAll", true));
+    }
+
+    @Test
+    void testServicesBeyondTheCapShareTheOverflowBulkhead() {
+        // Arrange
+        BrokerBulkheads bulkheads = new BrokerBulkheads(env, registry, true, 1, 2, 0, 0, false, 1, 2.0);
+        bulkheads.acquire("userService", null, false);
+        bulkheads.acquire("searchService", null, false);
+        bulkheads.acquire("unknown-1", null, false);
+
+        // Act
+        BrokerOverloadedException e = assertThrows(BrokerOverloadedException.class,
+                () -> bulkheads.acquire("unknown-2", "findAll", false));
+
+        // Assert
+        assertEquals("other", e.getBulkhead());
+        assertTrue(registry.find("broker.bulkhead.limit").tags("bulkhead", "unknown-1").gauges().isEmpty());
+        assertTrue(registry.find("broker.bulkhead.limit").tags("bulkhead", "unknown-2").gauges().isEmpty());
+    }
+
+    @Test
+    void testUnresolvedServicesShareTheOverflowBulkhead() {
+        // Arrange
+        BrokerBulkheads bulkheads = bulkheads(1, 0, 0, false);
+        bulkheads.acquire(null, "anything", false);
+
+        // Act & Assert
+        BrokerOverloadedException e = assertThrows(BrokerOverloadedException.class,
+                () -> bulkheads.acquire(null, "somethingElse", false));
+        assertEquals("other", e.getBulkhead());
+        assertEquals(1, registry.find("broker.bulkhead.limit").gauges().size());
+    }
+}
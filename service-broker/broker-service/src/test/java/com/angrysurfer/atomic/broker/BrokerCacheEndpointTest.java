@@ -0,0 +1,44 @@
+package com.angrysurfer.atomic.broker;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerCacheEndpointTest {
+
+    @Test
+    void testEvictGroupRemovesOnlyThatGroup() {
+        // Arrange
+        BrokerResponseCache cache = new BrokerResponseCache();
+        BrokerResponseCache.Key users = new BrokerResponseCache.Key("UserService", "userService", "findById", "{\"id\":1}");
+        BrokerResponseCache.Key notes = new BrokerResponseCache.Key("NoteService", "noteService", "findById", "{\"id\":1}");
+        cache.put(users, "user", 60_000_000_000L, cache.generation(users));
+        cache.put(notes, "note", 60_000_000_000L, cache.generation(notes));
+        BrokerCacheEndpoint endpoint = new BrokerCacheEndpoint(cache);
+
+        // Act
+        Map<String, Object> result = endpoint.evictGroup("UserService");
+
+        // Assert
+        assertEquals(Map.of("group", "UserService", "evicted", 1), result);
+        assertSame(BrokerResponseCache.MISS, cache.get(users));
+        assertEquals("note", cache.get(notes));
+    }
+
+    @Test
+    void testEvictAllEmptiesTheCache() {
+        // Arrange
+        BrokerResponseCache cache = new BrokerResponseCache();
+        BrokerResponseCache.Key key = new BrokerResponseCache.Key("UserService", "userService", "findAll", "{}");
+        cache.put(key, "users", 60_000_000_000L, cache.generation(key));
+        BrokerCacheEndpoint endpoint = new BrokerCacheEndpoint(cache);
+
+        // Act
+        endpoint.evictAll();
+
+        // Assert
+        assertSame(BrokerResponseCache.MISS, cache.get(key));
+    }
+}
@@ -0,0 +1,225 @@
+package com.angrysurfer.atomic.broker;
+
+import com.angrysurfer.atomic.admin.logging.AdminLogEntry;
+import com.angrysurfer.atomic.admin.logging.service.AdminLoggingService;
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BrokerChannelTest {
+
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory()).findAndRegisterModules();
+
+    private Broker broker;
+
+    private AdminLoggingService adminLoggingService;
+
+    private BrokerChannelServer server;
+
+    private BrokerChannelClient client;
+
+    @BeforeEach
+    void setUp() {
+        broker = mock(Broker.class);
+        adminLoggingService = mock(AdminLoggingService.class);
+        when(broker.submitAsync(any())).thenAnswer(invocation -> {
+            ServiceRequest request = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(ServiceResponse.ok(request.getService(),
+                    request.getOperation(), request.getParams().get("value"), request.getRequestId()));
+        });
+        server = startServer(0);
+        client = clientFor(server.port());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.destroy();
+        server.destroy();
+    }
+
+    private BrokerChannelServer startServer(int port) {
+        BrokerChannelServer started = new BrokerChannelServer(broker, new BrokerRequestAudit(adminLoggingService),
+                smile, "127.0.0.1", port, 64, 1 << 20);
+        started.afterPropertiesSet();
+        return started;
+    }
+
+    private BrokerChannelClient clientFor(int port) {
+        return new BrokerChannelClient(smile, "127.0.0.1:" + port, 64, 1 << 20, 1000, 1, 1);
+    }
+
+    private static ServiceRequest request(String id, Object value) {
+        return new ServiceRequest("noteService", "echo", Map.of("value", value), id);
+    }
+
+    private static long in(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneConnection() throws Exception {
+        // Arrange
+        List<CompletableFuture<ServiceResponse<?>>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            ServiceRequest request = request("c" + i, "v" + i);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return client.submit(request, in(5_000));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, command -> Thread.ofVirtual().start(command)));
+        }
+
+        // Assert
+        for (int i = 0; i < 50; i++) {
+            ServiceResponse<?> response = futures.get(i).get(10, TimeUnit.SECONDS);
+            assertTrue(response.isOk());
+            assertEquals("c" + i, response.getRequestId());
+            assertEquals("v" + i, response.getData());
+        }
+        assertEquals(1, server.accepted());
+        assertEquals(0, client.inFlight());
+    }
+
+    @Test
+    void testSlowRequestDoesNotHoldUpLaterOnes() throws Exception {
+        // Arrange
+        CompletableFuture<ServiceResponse<?>> slow = new CompletableFuture<>();
+        doReturn(slow).when(broker).submitAsync(argThat(r -> "slow".equals(r.getRequestId())));
+        CountDownLatch slowSent = new CountDownLatch(1);
+        CompletableFuture<ServiceResponse<?>> slowResponse = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                slowSent.countDown();
+                slowResponse.complete(client.submit(request("slow", "s"), in(5_000)));
+            } catch (Exception e) {
+                slowResponse.completeExceptionally(e);
+            }
+        });
+        slowSent.await();
+
+        // Act
+        ServiceResponse<?> fast = client.submit(request("fast", "f"), in(5_000));
+
+        // Assert
+        assertEquals("fast", fast.getRequestId());
+        assertFalse(slowResponse.isDone());
+        slow.complete(ServiceResponse.ok("noteService", "echo", "s", "slow"));
+        assertEquals("slow", slowResponse.get(5, TimeUnit.SECONDS).getRequestId());
+    }
+
+    @Test
+    void testChannelRequestsAreAudited() throws Exception {
+        // Arrange
+        UUID logId = UUID.randomUUID();
+        when(adminLoggingService.logRequest(any(), eq("anonymous")))
+                .thenReturn(AdminLogEntry.builder().id(logId).build());
+
+        // Act
+        ServiceResponse<?> response = client.submit(request("a1", "v"), in(5_000));
+
+        // Assert
+        assertTrue(response.isOk());
+        verify(adminLoggingService).logRequest(argThat(r -> "a1".equals(r.getRequestId())), eq("anonymous"));
+        verify(adminLoggingService, timeout(5_000)).updateLogEntry(logId, true, null);
+    }
+
+    @Test
+    void testDeadlineExpiresWhileWaiting() {
+        // Arrange
+        doReturn(new CompletableFuture<>()).when(broker).submitAsync(any());
+
+        // Act & Assert
+        assertThrows(TimeoutException.class, () -> client.submit(request("d1", "d"), in(100)));
+        assertEquals(0, client.inFlight());
+    }
+
+    @Test
+    void testOutstandingRequestsFailWhenConnectionCloses() throws Exception {
+        // Arrange
+        doReturn(new CompletableFuture<>()).when(broker).submitAsync(any());
+        CompletableFuture<ServiceResponse<?>> response = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                response.complete(client.submit(request("x1", "x"), in(10_000)));
+            } catch (Exception e) {
+                response.completeExceptionally(e);
+            }
+        });
+        verify(broker, timeout(5_000)).submitAsync(any());
+
+        // Act
+        server.destroy();
+
+        // Assert
+        ServiceResponse<?> failed = response.get(5, TimeUnit.SECONDS);
+        assertFalse(failed.isOk());
+        assertEquals("x1", failed.getRequestId());
+        assertEquals("channel_closed", failed.getErrors().get(0).get("code"));
+    }
+
+    @Test
+    void testClientReconnectsAfterServerRestart() throws Exception {
+        // Arrange
+        int port = server.port();
+        assertTrue(client.submit(request("r1", "a"), in(5_000)).isOk());
+        server.destroy();
+        long closed = in(5_000);
+        while (client.isConnected() && System.nanoTime() < closed) {
+            Thread.sleep(10);
+        }
+
+        // Act
+        server = startServer(port);
+        ServiceResponse<?> response = null;
+        long deadline = in(5_000);
+        while (response == null && System.nanoTime() < deadline) {
+            // Null while the client backs off after failing to connect
+            response = client.submit(request("r2", "b"), in(5_000));
+        }
+
+        // Assert
+        assertNotNull(response);
+        assertEquals("b", response.getData());
+        assertEquals(1, server.accepted());
+    }
+
+    @Test
+    void testUnreachableChannelReturnsNull() throws Exception {
+        // Arrange
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        BrokerChannelClient unreachable = clientFor(port);
+
+        // Act
+        ServiceResponse<?> response = unreachable.submit(request("u1", "u"), in(5_000));
+
+        // Assert
+        assertNull(response);
+        assertFalse(unreachable.isConnected());
+        unreachable.destroy();
+    }
+}
@@ -0,0 +1,155 @@
+package com.angrysurfer.atomic.broker;
+
+import com.github.luben.zstd.ZstdInputStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerCompressionFilterTest {
+
+    private static final byte[] LARGE = ("{\"data\":\"" + "search result ".repeat(500) + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private BrokerCompressionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new BrokerCompressionFilter(new BrokerCompression(new SimpleMeterRegistry(), true, 1024,
+                "zstd,gzip", 3, 6));
+    }
+
+    private static MockHttpServletRequest request(String uri, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+
+    private static void writeJson(ServletResponse response, byte[] body) throws java.io.IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        response.getOutputStream().flush();
+    }
+
+    @Test
+    void testLargeResponseIsCompressed() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("/api/broker/submitRequest", "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request, response, (req, res) -> writeJson(res, LARGE));
+
+        // Assert
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertTrue(response.getContentAsByteArray().length < LARGE.length);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertArrayEquals(LARGE, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testSmallResponseIsSentAsItIs() throws Exception {
+        // Arrange
+        byte[] small = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+        MockHttpServletRequest request = request("/api/broker/submitRequest", "zstd, gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request, response, (req, res) -> writeJson(res, small));
+
+        // Assert
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(small.length, response.getContentLength());
+        assertArrayEquals(small, response.getContentAsByteArray());
+    }
+
+    @Test
+    void testOtherPathsAndClientsThatDoNotAskAreLeftAlone() throws Exception {
+        for (MockHttpServletRequest request : new MockHttpServletRequest[] {
+                request("/api/users", "gzip"), request("/api/broker/submitRequest", null)}) {
+            // Arrange
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            // Act
+            filter.doFilter(request, response, (req, res) -> writeJson(res, LARGE));
+
+            // Assert
+            assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+            assertArrayEquals(LARGE, response.getContentAsByteArray());
+        }
+    }
+
+    @Test
+    void testStreamedResponseIsPassedOnAtEachFlush() throws Exception {
+        // Arrange
+        byte[] line = "{\"id\":1}\n".getBytes(StandardCharsets.UTF_8);
+        MockHttpServletRequest request = request("/api/broker/submitStream", "zstd");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<byte[]> afterFlush = new AtomicReference<>();
+
+        // Act
+        filter.doFilter(request, response, (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            res.getOutputStream().write(line);
+            res.getOutputStream().flush();
+            afterFlush.set(response.getContentAsByteArray());
+            res.getOutputStream().write(line);
+        });
+
+        // Assert
+        assertEquals("zstd", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        try (InputStream in = new ZstdInputStream(new ByteArrayInputStream(afterFlush.get()))) {
+            assertArrayEquals(line, in.readNBytes(line.length));
+        }
+        try (InputStream in = new ZstdInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals("{\"id\":1}\n{\"id\":1}\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testAsyncResponseIsFinishedByTheAsyncDispatch() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("/api/broker/submitRequest", "gzip");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<ServletResponse> wrapped = new AtomicReference<>();
+        filter.doFilter(request, response, (req, res) -> {
+            wrapped.set(res);
+            req.startAsync(req, res);
+        });
+        // Written from another thread while the request is suspended
+        writeJson(wrapped.get(), LARGE);
+        int writtenBeforeDispatch = response.getContentAsByteArray().length;
+
+        // Act
+        request.setDispatcherType(DispatcherType.ASYNC);
+        request.setAsyncStarted(false);
+        filter.doFilter(request, wrapped.get(), (req, res) -> {
+        });
+
+        // Assert
+        assertTrue(response.getContentAsByteArray().length > writtenBeforeDispatch);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertArrayEquals(LARGE, in.readAllBytes());
+        }
+    }
+}
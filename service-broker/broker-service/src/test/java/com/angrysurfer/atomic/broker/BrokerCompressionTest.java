@@ -0,0 +1,111 @@
+package com.angrysurfer.atomic.broker;
+
+import com.github.luben.zstd.Zstd;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.headerDoesNotExist;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class BrokerCompressionTest {
+
+    private static final String BODY = "{\"ok\":true,\"data\":\"" + "posts ".repeat(2_000) + "\"}";
+
+    @Test
+    void testNegotiatePrefersTheFirstConfiguredEncodingTheClientAccepts() {
+        // Arrange
+        BrokerCompression compression = new BrokerCompression();
+
+        // Act & Assert
+        assertEquals(BrokerCompression.Encoding.ZSTD, compression.negotiate("gzip, deflate, zstd"));
+        assertEquals(BrokerCompression.Encoding.GZIP, compression.negotiate("gzip, deflate, br"));
+        assertEquals(BrokerCompression.Encoding.GZIP, compression.negotiate("zstd;q=0, gzip;q=0.5"));
+        assertEquals(BrokerCompression.Encoding.ZSTD, compression.negotiate("*"));
+        assertNull(compression.negotiate("br, identity"));
+        assertNull(compression.negotiate(null));
+        assertNull(new BrokerCompression(new SimpleMeterRegistry(), false, 0, "zstd,gzip", 3, 6).negotiate("gzip"));
+    }
+
+    @Test
+    void testCompressedStreamRoundTripsAndIsMeasured() throws Exception {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BrokerCompression compression = new BrokerCompression(registry, true, 0, "zstd,gzip", 3, 6);
+        byte[] raw = BODY.getBytes(StandardCharsets.UTF_8);
+
+        for (BrokerCompression.Encoding encoding : BrokerCompression.Encoding.values()) {
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+            // Act
+            BrokerCompression.CompressingStream stream = compression.compress(encoding, target);
+            stream.write(raw, 0, raw.length / 2);
+            stream.write(raw, raw.length / 2, raw.length - raw.length / 2);
+            stream.finish();
+
+            // Assert
+            String tag = encoding.token();
+            try (InputStream in = compression.decompress(encoding, new ByteArrayInputStream(target.toByteArray()))) {
+                assertArrayEquals(raw, in.readAllBytes());
+            }
+            assertTrue(target.size() < raw.length / 10);
+            assertEquals(raw.length,
+                    registry.get("broker.compression.bytes.in").tag("encoding", tag).counter().count());
+            assertEquals(target.size(),
+                    registry.get("broker.compression.bytes.out").tag("encoding", tag).counter().count());
+            assertEquals(1, registry.get("broker.compression.time").tag("encoding", tag).timer().count());
+            assertEquals((double) raw.length / target.size(),
+                    registry.get("broker.compression.ratio").tag("encoding", tag).summary().max(), 0.001);
+        }
+    }
+
+    @Test
+    void testInterceptorAsksForAndDecompressesCompressedResponses() {
+        // Arrange
+        BrokerCompression compression = new BrokerCompression();
+        RestTemplate restTemplate = compression.decompressing(new RestTemplate());
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_ENCODING, "zstd");
+        server.expect(requestTo("http://gateway/api/broker/submitRequest"))
+                .andExpect(header(HttpHeaders.ACCEPT_ENCODING, "zstd, gzip"))
+                .andRespond(withSuccess(Zstd.compress(BODY.getBytes(StandardCharsets.UTF_8)), MediaType.APPLICATION_JSON)
+                        .headers(headers));
+
+        // Act
+        String body = restTemplate.postForObject("http://gateway/api/broker/submitRequest", "{}", String.class);
+
+        // Assert
+        server.verify();
+        assertEquals(BODY, body);
+    }
+
+    @Test
+    void testInterceptorDoesNothingWhenDisabled() {
+        // Arrange
+        BrokerCompression compression = new BrokerCompression(new SimpleMeterRegistry(), false, 0, "gzip", 3, 6);
+        RestTemplate restTemplate = compression.decompressing(new RestTemplate());
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://gateway/api/broker/submitRequest"))
+                .andExpect(headerDoesNotExist(HttpHeaders.ACCEPT_ENCODING))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+        // Act
+        String body = restTemplate.postForObject("http://gateway/api/broker/submitRequest", "{}", String.class);
+
+        // Assert
+        server.verify();
+        assertEquals("{}", body);
+    }
+}
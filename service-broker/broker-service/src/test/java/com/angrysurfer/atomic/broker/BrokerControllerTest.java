@@ -2,6 +2,7 @@ package com.angrysurfer.atomic.broker;
 
 import com.angrysurfer.atomic.broker.api.ServiceRequest;
 import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.angrysurfer.atomic.admin.logging.AdminLogEntry;
 import com.angrysurfer.atomic.admin.logging.service.AdminLoggingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +12,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -25,11 +28,23 @@ class BrokerControllerTest {
     @Mock
     private AdminLoggingService adminLoggingService;
 
+    @Mock
+    private BrokerBatchExecutor batchExecutor;
+
+    @Mock
+    private BrokerPipelineExecutor pipelineExecutor;
+
+    @Mock
+    private BrokerStreamer streamer;
+
+    @Mock
+    private BrokerMetrics metrics;
+
     private BrokerController brokerController;
 
     @BeforeEach
     void setUp() {
-        brokerController = new BrokerController(broker, adminLoggingService);
+        brokerController = new BrokerController(broker, new BrokerRequestAudit(adminLoggingService), batchExecutor, pipelineExecutor, streamer, metrics);
     }
 
     @Test
@@ -39,10 +54,10 @@ class BrokerControllerTest {
             Collections.emptyMap(), "test-request");
         ServiceResponse<?> mockResponse = ServiceResponse.ok("Test Data", "test-request");
 
-        doReturn(mockResponse).when(broker).submit(any(ServiceRequest.class));
+        doReturn(CompletableFuture.completedFuture(mockResponse)).when(broker).submitAsync(any(ServiceRequest.class));
 
         // Act
-        ResponseEntity<?> response = brokerController.submitRequest(request);
+        ResponseEntity<?> response = brokerController.submitRequest(request).join();
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
@@ -52,7 +67,7 @@ class BrokerControllerTest {
         assertEquals("Test Data", responseEntity.getData());
         assertEquals("test-request", responseEntity.getRequestId());
         
-        verify(broker).submit(any(ServiceRequest.class));
+        verify(broker).submitAsync(any(ServiceRequest.class));
     }
 
     @Test
@@ -63,10 +78,10 @@ class BrokerControllerTest {
         ServiceResponse<?> mockResponse = ServiceResponse.error(
             java.util.List.of(java.util.Map.of("error", "Service error")), "test-request");
 
-        doReturn(mockResponse).when(broker).submit(any(ServiceRequest.class));
+        doReturn(CompletableFuture.completedFuture(mockResponse)).when(broker).submitAsync(any(ServiceRequest.class));
 
         // Act
-        ResponseEntity<?> response = brokerController.submitRequest(request);
+        ResponseEntity<?> response = brokerController.submitRequest(request).join();
 
         // Assert
         assertEquals(400, response.getStatusCodeValue());
@@ -75,7 +90,64 @@ class BrokerControllerTest {
         assertFalse(responseEntity.isOk());
         assertNotNull(responseEntity.getErrors());
         
-        verify(broker).submit(any(ServiceRequest.class));
+        verify(broker).submitAsync(any(ServiceRequest.class));
+    }
+
+    @Test
+    void testSubmitRequestOverloadedReturns503() {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("testService", "testOperation",
+            Collections.emptyMap(), "test-request");
+        ServiceResponse<?> mockResponse = ServiceResponse.error(
+            List.of(java.util.Map.of("code", "overloaded", "message", "testService is overloaded")), "test-request");
+
+        doReturn(CompletableFuture.completedFuture(mockResponse)).when(broker).submitAsync(any(ServiceRequest.class));
+
+        // Act
+        ResponseEntity<?> response = brokerController.submitRequest(request).join();
+
+        // Assert
+        assertEquals(503, response.getStatusCode().value());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+        assertSame(mockResponse, response.getBody());
+    }
+
+    @Test
+    void testSubmitRequestAuditsOutcome() {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("testService", "testOperation",
+            Collections.emptyMap(), "test-request");
+        ServiceResponse<?> mockResponse = ServiceResponse.error(
+            List.of(java.util.Map.of("code", "service_error", "message", "boom")), "test-request");
+        java.util.UUID logId = java.util.UUID.randomUUID();
+
+        when(adminLoggingService.logRequest(request, "anonymous"))
+            .thenReturn(AdminLogEntry.builder().id(logId).build());
+        doReturn(CompletableFuture.completedFuture(mockResponse)).when(broker).submitAsync(any(ServiceRequest.class));
+
+        // Act
+        brokerController.submitRequest(request).join();
+
+        // Assert
+        verify(adminLoggingService).updateLogEntry(eq(logId), eq(false), contains("boom"));
+    }
+
+    @Test
+    void testSubmitRequestDeadlineExceededReturns504() {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("testService", "testOperation",
+            Collections.emptyMap(), "test-request");
+        ServiceResponse<?> mockResponse = ServiceResponse.error(
+            List.of(java.util.Map.of("code", "deadline_exceeded", "message", "Deadline exceeded")), "test-request");
+
+        doReturn(CompletableFuture.completedFuture(mockResponse)).when(broker).submitAsync(any(ServiceRequest.class));
+
+        // Act
+        ResponseEntity<?> response = brokerController.submitRequest(request).join();
+
+        // Assert
+        assertEquals(504, response.getStatusCode().value());
+        assertSame(mockResponse, response.getBody());
     }
 
     @Test
@@ -128,13 +200,13 @@ class BrokerControllerTest {
         
         ServiceResponse<?> mockResponse = ServiceResponse.ok("User created", "request-123");
 
-        doReturn(mockResponse).when(broker).submit(any(ServiceRequest.class));
+        doReturn(CompletableFuture.completedFuture(mockResponse)).when(broker).submitAsync(any(ServiceRequest.class));
 
         // Act
-        ResponseEntity<?> response = brokerController.submitRequest(request);
+        ResponseEntity<?> response = brokerController.submitRequest(request).join();
 
-        // Verify that broker.submit was called with the exact same request
-        verify(broker).submit(eq(request));
+        // Verify that broker.submitAsync was called with the exact same request
+        verify(broker).submitAsync(eq(request));
     }
 
     @Test
@@ -143,15 +215,16 @@ class BrokerControllerTest {
         ServiceRequest request = null;
         
         // This should still be handled by the broker which will validate it
-        doReturn(ServiceResponse.error(java.util.List.of(java.util.Map.of("error", "Invalid request")), "error"))
-            .when(broker).submit(isNull(ServiceRequest.class));
+        doReturn(CompletableFuture.completedFuture(
+                ServiceResponse.error(java.util.List.of(java.util.Map.of("error", "Invalid request")), "error")))
+            .when(broker).submitAsync(isNull(ServiceRequest.class));
 
         // Act
-        ResponseEntity<?> response = brokerController.submitRequest(request);
+        ResponseEntity<?> response = brokerController.submitRequest(request).join();
 
         // Assert
         // The response depends on how the broker handles a null request
-        verify(broker).submit(isNull(ServiceRequest.class));
+        verify(broker).submitAsync(isNull(ServiceRequest.class));
     }
 
     @Test
@@ -163,11 +236,69 @@ class BrokerControllerTest {
         // Note: We can't directly access private fields, so we test behavior instead
         ServiceRequest request = new ServiceRequest("test", "test", Collections.emptyMap(), "test");
         ServiceResponse<?> expectedResponse = ServiceResponse.ok("test", "test");
-        doReturn(expectedResponse).when(broker).submit(any(ServiceRequest.class));
+        doReturn(CompletableFuture.completedFuture(expectedResponse)).when(broker).submitAsync(any(ServiceRequest.class));
         
-        ResponseEntity<?> response = brokerController.submitRequest(request);
+        ResponseEntity<?> response = brokerController.submitRequest(request).join();
         
         assertNotNull(response);
-        verify(broker).submit(any(ServiceRequest.class));
+        verify(broker).submitAsync(any(ServiceRequest.class));
+    }
+
+    @Test
+    void testSubmitBatchReturnsResponsesInOrder() {
+        // Arrange
+        ServiceRequest first = new ServiceRequest("a", "op", Collections.emptyMap(), "r1");
+        ServiceRequest second = new ServiceRequest("b", "op", Collections.emptyMap(), "r2");
+        List<ServiceResponse<?>> responses = List.of(
+            ServiceResponse.ok("one", "r1"), ServiceResponse.ok("two", "r2"));
+
+        when(batchExecutor.getMaxBatchSize()).thenReturn(10);
+        when(batchExecutor.submitAll(List.of(first, second))).thenReturn(CompletableFuture.completedFuture(responses));
+
+        // Act
+        ResponseEntity<?> response = brokerController.submitBatch(List.of(first, second)).join();
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(responses, response.getBody());
+    }
+
+    @Test
+    void testSubmitBatchAuditsEveryRequest() {
+        // Arrange
+        ServiceRequest first = new ServiceRequest("a", "op", Collections.emptyMap(), "r1");
+        ServiceRequest second = new ServiceRequest("b", "op", Collections.emptyMap(), "r2");
+        java.util.UUID firstLogId = java.util.UUID.randomUUID();
+        java.util.UUID secondLogId = java.util.UUID.randomUUID();
+        List<ServiceResponse<?>> responses = List.of(ServiceResponse.ok("one", "r1"), ServiceResponse.error(
+            List.of(java.util.Map.of("code", "timeout", "message", "Batch timed out")), "r2"));
+
+        when(batchExecutor.getMaxBatchSize()).thenReturn(10);
+        when(adminLoggingService.logRequest(first, "anonymous"))
+            .thenReturn(AdminLogEntry.builder().id(firstLogId).build());
+        when(adminLoggingService.logRequest(second, "anonymous"))
+            .thenReturn(AdminLogEntry.builder().id(secondLogId).build());
+        when(batchExecutor.submitAll(List.of(first, second))).thenReturn(CompletableFuture.completedFuture(responses));
+
+        // Act
+        brokerController.submitBatch(List.of(first, second)).join();
+
+        // Assert
+        verify(adminLoggingService).updateLogEntry(firstLogId, true, null);
+        verify(adminLoggingService).updateLogEntry(eq(secondLogId), eq(false), contains("Batch timed out"));
+    }
+
+    @Test
+    void testSubmitBatchRejectsOversizedBatch() {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("a", "op", Collections.emptyMap(), "r1");
+        when(batchExecutor.getMaxBatchSize()).thenReturn(1);
+
+        // Act
+        ResponseEntity<?> response = brokerController.submitBatch(List.of(request, request)).join();
+
+        // Assert
+        assertEquals(400, response.getStatusCodeValue());
+        verify(batchExecutor, never()).submitAll(any());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.angrysurfer.atomic.broker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerHttpTransportTest {
+
+    private SimpleMeterRegistry registry;
+
+    private BrokerHttpTransport transport;
+
+    private DisposableServer server;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        transport = new BrokerHttpTransport(registry, 4, 10, 1000, 15000, 300000, 1000, 5000, "http11,h2");
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.destroy();
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private String start(HttpProtocol... protocols) {
+        server = HttpServer.create()
+                .port(0)
+                .protocol(protocols)
+                .httpRequestDecoder(spec -> spec.h2cMaxContentLength(1024))
+                .doOnChannelInit((observer, channel, address) -> connections.incrementAndGet())
+                .route(routes -> routes.post("/echo", (req, res) -> res.sendString(
+                        req.receive().aggregate().asString().defaultIfEmpty("")
+                                .map(body -> req.protocol() + " " + body))))
+                .bindNow();
+        return "http://localhost:" + server.port() + "/echo";
+    }
+
+    @Test
+    void testRequestsToAHostReuseAPooledConnection() {
+        // Arrange
+        String url = start(HttpProtocol.HTTP11);
+        RestTemplate restTemplate = transport.restTemplate();
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            assertEquals("HTTP/1.1 ping", restTemplate.postForObject(url, "ping", String.class));
+        }
+
+        // Assert
+        assertEquals(1, connections.get());
+        assertEquals(0.0, registry.get("broker.http.pool.leased").gauge().value());
+        assertEquals(1.0, registry.get("broker.http.pool.idle").gauge().value());
+        assertEquals(0.0, registry.get("broker.http.pool.pending").gauge().value());
+        assertEquals(4.0, registry.get("broker.http.pool.max").gauge().value());
+    }
+
+    @Test
+    void testHostsThatSupportItAreSpokenToOverHttp2() {
+        // Arrange
+        String url = start(HttpProtocol.HTTP11, HttpProtocol.H2C);
+        BrokerHttpTransport h2c = new BrokerHttpTransport(registry, 4, 10, 1000, 15000, 300000, 1000, 5000,
+                "http11,h2c");
+        RestTemplate restTemplate = h2c.restTemplate();
+
+        // Act
+        String first = restTemplate.postForObject(url, "ping", String.class);
+        String second = restTemplate.postForObject(url, "pong", String.class);
+
+        // Assert
+        assertTrue(first.endsWith(" ping"));
+        assertEquals("HTTP/2.0 pong", second);
+        assertEquals(1, connections.get());
+        h2c.destroy();
+    }
+
+    @Test
+    void testRestTemplatesShareTheTransportButNotTheirConfiguration() {
+        // Act
+        RestTemplate first = transport.restTemplate();
+        RestTemplate second = transport.restTemplate();
+        assertSame(first.getRequestFactory(), second.getRequestFactory());
+        first.getInterceptors().add((request, body, execution) -> execution.execute(request, body));
+
+        // Assert
+        assertNotSame(first, second);
+        assertTrue(second.getInterceptors().isEmpty());
+    }
+
+    @Test
+    void testUnknownProtocolIsRejected() {
+        // Act & Assert
+        assertArrayEquals(new HttpProtocol[] { HttpProtocol.HTTP11, HttpProtocol.H2C },
+                BrokerHttpTransport.parseProtocols("HTTP11, h2c"));
+        assertThrows(IllegalArgumentException.class, () -> BrokerHttpTransport.parseProtocols("spdy"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.angrysurfer.atomic.broker;
+
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrokerMetricsTest {
+
+    private SimpleMeterRegistry registry;
+
+    private BrokerMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new BrokerMetrics(registry, 2, false);
+    }
+
+    @Test
+    void testSnapshotReportsCountsErrorsAndPercentiles() {
+        // Arrange
+        BrokerMetrics.OperationMetrics m = metrics.forOperation("userService", "findAll");
+
+        // Act
+        m.stop(m.start(), ServiceResponse.ok("data", "r1"));
+        m.stop(m.start(), ServiceResponse.error(List.of(Map.of("code", "not_found", "message", "x")), "r2"));
+        m.stop(m.start(), ServiceResponse.error(List.of(Map.of("param", "name", "msg", "too short")), "r3"));
+        List<Map<String, Object>> snapshot = metrics.snapshot();
+
+        // Assert
+        assertEquals(1, snapshot.size());
+        Map<String, Object> entry = snapshot.get(0);
+        assertEquals("userService", entry.get("service"));
+        assertEquals("findAll", entry.get("operation"));
+        assertEquals(3L, entry.get("count"));
+        assertEquals(Map.of("not_found", 1L, "validation_error", 1L), entry.get("errors"));
+        assertEquals(0, entry.get("inFlight"));
+        Map<?, ?> latency = (Map<?, ?>) entry.get("latencyMs");
+        assertTrue(latency.keySet().containsAll(List.of("mean", "p50", "p99", "p999", "max")));
+    }
+
+    @Test
+    void testOperationsBeyondCapAreRecordedAsOther() {
+        // Arrange
+        metrics.forOperation("a", "op");
+        metrics.forOperation("b", "op");
+
+        // Act
+        BrokerMetrics.OperationMetrics overflow = metrics.forOperation("c", "op");
+        overflow.stop(overflow.start(), ServiceResponse.ok("data", "r1"));
+
+        // Assert
+        assertSame(overflow, metrics.forOperation("d", "op"));
+        assertEquals(1, registry.get("broker.requests").tags("service", "other", "operation", "other").timer().count());
+        assertTrue(registry.find("broker.requests").tags("service", "c").timers().isEmpty());
+    }
+
+    @Test
+    void testErrorCodesBeyondCapAreRecordedAsOther() {
+        // Arrange
+        metrics = new BrokerMetrics(registry, 2, 2, false);
+        BrokerMetrics.OperationMetrics m = metrics.forOperation("userService", "findAll");
+        m.recordError("not_found");
+        m.recordError("conflict");
+
+        // Act
+        m.recordError("code_1");
+        m.recordError("code_2");
+        m.recordError("not_found");
+
+        // Assert
+        assertEquals(2, registry.get("broker.errors").tags("service", "userService", "code", "other").counter().count());
+        assertEquals(2, registry.get("broker.errors").tags("service", "userService", "code", "not_found").counter().count());
+        assertTrue(registry.find("broker.errors").tags("code", "code_1").counters().isEmpty());
+        assertEquals(Map.of("not_found", 2L, "conflict", 1L, "other", 2L), metrics.snapshot().get(0).get("errors"));
+    }
+
+    @Test
+    void testInFlightGaugeTracksStartedRequests() {
+        // Arrange
+        BrokerMetrics.OperationMetrics m = metrics.forOperation("noteService", "save");
+
+        // Act
+        long start = m.start();
+
+        // Assert
+        assertEquals(1.0, registry.get("broker.inflight").tags("service", "noteService").gauge().value());
+        m.stop(start, ServiceResponse.ok("data", "r1"));
+        assertEquals(0.0, registry.get("broker.inflight").tags("service", "noteService").gauge().value());
+    }
+}
@@ -0,0 +1,141 @@
+package com.angrysurfer.atomic.broker;
+
+import com.angrysurfer.atomic.broker.api.PipelineRequest;
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BrokerPipelineExecutorTest {
+
+    @Mock
+    private Broker broker;
+
+    private BrokerPipelineExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new BrokerPipelineExecutor(broker, new ObjectMapper(), 5);
+    }
+
+    private static ServiceRequest step(String service, String operation, Map<String, Object> params, String id) {
+        return new ServiceRequest(service, operation, params, id);
+    }
+
+    @Test
+    void testLaterStepsReceiveFieldsOfEarlierResults() {
+        // Arrange
+        PipelineRequest pipeline = new PipelineRequest(List.of(
+            step("loginService", "getUserRegistrationForToken", Map.of("token", "t-1"), "login"),
+            step("restFsService", "listFiles", Map.of("alias", "${login.alias}", "path", List.of("${0.home}")), "ls")),
+            "pipeline-1");
+        doReturn(ServiceResponse.ok(Map.of("alias", "alice", "home", "docs"), "login"))
+            .when(broker).submit(argThat(r -> "login".equals(r.getRequestId())));
+        doReturn(ServiceResponse.ok(List.of("a.txt"), "ls"))
+            .when(broker).submit(argThat(r -> "ls".equals(r.getRequestId())));
+
+        // Act
+        ServiceResponse<?> response = executor.run(pipeline);
+
+        // Assert
+        ArgumentCaptor<ServiceRequest> submitted = ArgumentCaptor.forClass(ServiceRequest.class);
+        verify(broker, times(2)).submit(submitted.capture());
+        assertEquals("alice", submitted.getAllValues().get(1).getParams().get("alias"));
+        assertEquals(List.of("docs"), submitted.getAllValues().get(1).getParams().get("path"));
+        assertTrue(response.isOk());
+        assertEquals("pipeline-1", response.getRequestId());
+        assertEquals(2, ((List<?>) response.getData()).size());
+    }
+
+    @Test
+    void testPipelineStopsAtFirstFailedStep() {
+        // Arrange
+        PipelineRequest pipeline = new PipelineRequest(List.of(
+            step("loginService", "getUserRegistrationForToken", Map.of("token", "expired"), "login"),
+            step("restFsService", "listFiles", Map.of("alias", "${login.alias}"), "ls")),
+            "pipeline-2");
+        doReturn(ServiceResponse.error(List.of(Map.of("code", "service_error", "message", "Invalid token")), "login"))
+            .when(broker).submit(any(ServiceRequest.class));
+
+        // Act
+        ServiceResponse<?> response = executor.run(pipeline);
+
+        // Assert
+        verify(broker, times(1)).submit(any(ServiceRequest.class));
+        assertFalse(response.isOk());
+        assertEquals(1, ((List<?>) response.getData()).size());
+        Map<String, Object> error = response.getErrors().get(0);
+        assertEquals("service_error", error.get("code"));
+        assertEquals(0, error.get("step"));
+        assertEquals("login", error.get("stepId"));
+    }
+
+    @Test
+    void testReferenceToMissingFieldFailsTheStep() {
+        // Arrange
+        PipelineRequest pipeline = new PipelineRequest(List.of(
+            step("loginService", "getUserRegistrationForToken", Map.of("token", "t-1"), "login"),
+            step("restFsService", "listFiles", Map.of("alias", "${login.nickname}"), "ls")),
+            "pipeline-3");
+        doReturn(ServiceResponse.ok(Map.of("alias", "alice"), "login")).when(broker).submit(any(ServiceRequest.class));
+
+        // Act
+        ServiceResponse<?> response = executor.run(pipeline);
+
+        // Assert
+        verify(broker, times(1)).submit(any(ServiceRequest.class));
+        assertFalse(response.isOk());
+        assertEquals("invalid_reference", response.getErrors().get(0).get("code"));
+        assertEquals(1, response.getErrors().get(0).get("step"));
+    }
+
+    @Test
+    void testOversizedPipelineIsRejected() {
+        // Arrange
+        ServiceRequest request = step("userService", "findAll", Map.of(), "s");
+        PipelineRequest pipeline = new PipelineRequest(List.of(request, request, request, request, request, request),
+            "pipeline-4");
+
+        // Act
+        ServiceResponse<?> response = executor.run(pipeline);
+
+        // Assert
+        verifyNoInteractions(broker);
+        assertFalse(response.isOk());
+        assertEquals("pipeline_too_large", response.getErrors().get(0).get("code"));
+    }
+
+    @Test
+    void testStepsShareThePipelineDeadline() {
+        // Arrange
+        PipelineRequest pipeline = new PipelineRequest(List.of(step("userService", "findAll", Map.of(), "s")),
+            "pipeline-5");
+        pipeline.setTimeoutMs(5_000L);
+        long[] seen = new long[1];
+        doAnswer(inv -> {
+            seen[0] = Deadlines.current();
+            return ServiceResponse.ok(List.of(), "s");
+        }).when(broker).submit(any(ServiceRequest.class));
+
+        // Act
+        executor.run(pipeline);
+
+        // Assert
+        assertNotEquals(Deadlines.NONE, seen[0]);
+        assertEquals(Deadlines.NONE, Deadlines.current());
+    }
+}
@@ -0,0 +1,196 @@
+package com.angrysurfer.atomic.broker;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BrokerStreamerTest {
+
+    @Mock
+    private Broker broker;
+
+    private BrokerStreamer streamer;
+
+    @BeforeEach
+    void setUp() {
+        streamer = new BrokerStreamer(broker, new ObjectMapper().findAndRegisterModules(), 2, 16);
+    }
+
+    @Test
+    void testStreamResultIsWrittenAsNdjsonAndClosed() throws Exception {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("postService", "streamAll", Map.of(), "test-request");
+        AtomicBoolean closed = new AtomicBoolean();
+        doReturn(opened(ServiceResponse.ok(Stream.of(Map.of("id", 1), Map.of("id", 2), Map.of("id", 3))
+            .onClose(() -> closed.set(true)), "test-request"))).when(broker).open(any(ServiceRequest.class));
+
+        // Act
+        BrokerStreamer.Opened opened = streamer.open(request, false);
+        String body = write(opened);
+
+        // Assert
+        assertNull(opened.error());
+        assertEquals("{\"id\":1}\n{\"id\":2}\n{\"id\":3}\n", body);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testFluxResultIsWrittenAsServerSentEvents() throws Exception {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("postService", "streamAll", Map.of(), "test-request");
+        doReturn(opened(ServiceResponse.ok(Flux.just("a", "b"), "test-request")))
+            .when(broker).open(any(ServiceRequest.class));
+
+        // Act
+        String body = write(streamer.open(request, true));
+
+        // Assert
+        assertEquals("data: \"a\"\n\ndata: \"b\"\n\nevent: complete\ndata: {\"count\":2}\n\n", body);
+    }
+
+    @Test
+    void testPublisherIsReadWithBoundedDemand() throws Exception {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("postService", "streamAll", Map.of(), "test-request");
+        List<Long> requested = new CopyOnWriteArrayList<>();
+        Flux<Integer> numbers = Flux.range(1, 100).doOnRequest(requested::add);
+        doReturn(opened(ServiceResponse.ok(numbers, "test-request"))).when(broker).open(any(ServiceRequest.class));
+
+        // Act
+        String body = write(streamer.open(request, false));
+
+        // Assert
+        assertEquals(100, body.lines().count());
+        assertEquals(16L, requested.get(0));
+        assertTrue(requested.stream().allMatch(n -> n <= 16), () -> "requested " + requested);
+    }
+
+    @Test
+    void testPagedResultFollowsPagesUntilLast() throws Exception {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("commentService", "findAllPaginated",
+            Map.of("page", 0, "size", 2), "test-request");
+        doReturn(opened(ServiceResponse.ok(new PageImpl<>(List.of(1, 2), PageRequest.of(0, 2), 3), "test-request")))
+            .when(broker).open(argThat(r -> r != null && Integer.valueOf(0).equals(r.getParams().get("page"))));
+        doReturn(opened(ServiceResponse.ok(new PageImpl<>(List.of(3), PageRequest.of(1, 2), 3), "test-request")))
+            .when(broker).open(argThat(r -> r != null && Integer.valueOf(1).equals(r.getParams().get("page"))));
+
+        // Act
+        String body = write(streamer.open(request, false));
+
+        // Assert
+        assertEquals("1\n2\n3\n", body);
+        verify(broker, times(2)).open(any(ServiceRequest.class));
+    }
+
+    @Test
+    void testServiceResponseDataIsStreamed() throws Exception {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("postService", "findAll", Map.of(), "test-request");
+        doReturn(opened(ServiceResponse.ok(List.of("x", "y"), "test-request")))
+            .when(broker).open(any(ServiceRequest.class));
+
+        // Act
+        String body = write(streamer.open(request, false));
+
+        // Assert
+        assertEquals("\"x\"\n\"y\"\n", body);
+    }
+
+    @Test
+    void testFailureBeforeFirstElementReturnsError() throws Exception {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("missing", "streamAll", Map.of(), "test-request");
+        ServiceResponse<?> error = ServiceResponse.error(
+            List.of(Map.of("code", "not_found", "message", "Service bean not found: missing")), "test-request");
+        doReturn(opened(error)).when(broker).open(request);
+
+        // Act
+        BrokerStreamer.Opened opened = streamer.open(request, false);
+
+        // Assert
+        assertSame(error, opened.error());
+        assertTrue(write(opened).contains("not_found"));
+    }
+
+    @Test
+    void testStreamHoldsItsPermitAndCountsAsInFlightUntilWritten() throws Exception {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BrokerMetrics metrics = new BrokerMetrics();
+        BrokerBulkheads bulkheads = new BrokerBulkheads(null, registry, true, 10, 0, 0, false, 2, 2.0);
+        List<String> whileDraining = new CopyOnWriteArrayList<>();
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            context.registerBean("numberService", NumberService.class);
+            context.refresh();
+            LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
+            validator.afterPropertiesSet();
+            Broker realBroker = new Broker(context, new ObjectMapper(), validator, metrics, new BrokerResponseCache(),
+                bulkheads);
+            // Bulkhead permits and broker in-flight count, as seen by the source
+            context.getBean(NumberService.class).onElement = () -> whileDraining.add(
+                registry.get("broker.bulkhead.inflight").gauge().value() + "/"
+                    + metrics.snapshot().get(0).get("inFlight"));
+            BrokerStreamer realStreamer = new BrokerStreamer(realBroker, new ObjectMapper(), 2, 16);
+
+            // Act
+            BrokerStreamer.Opened opened = realStreamer.open(
+                new ServiceRequest("numberService", "numbers", Map.of(), "test-request"), false);
+            List<String> beforeWriting = List.copyOf(whileDraining);
+            String body = write(opened);
+
+            // Assert
+            assertTrue(beforeWriting.isEmpty());
+            assertEquals("1\n2\n3\n", body);
+            assertEquals(List.of("1.0/1", "1.0/1", "1.0/1"), whileDraining);
+            assertEquals(0.0, registry.get("broker.bulkhead.inflight").gauge().value());
+            assertEquals(0, metrics.snapshot().get(0).get("inFlight"));
+            assertEquals(1L, metrics.snapshot().get(0).get("count"));
+        }
+    }
+
+    public static class NumberService {
+        volatile Runnable onElement = () -> { };
+
+        @BrokerOperation("numbers")
+        public Stream<Integer> numbers() {
+            return Stream.of(1, 2, 3).peek(n -> onElement.run());
+        }
+    }
+
+    private static Broker.OpenCall opened(ServiceResponse<?> response) {
+        return new Broker.OpenCall(response, Deadlines.NONE, outcome -> { });
+    }
+
+    private static String write(BrokerStreamer.Opened opened) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        opened.body().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -11,11 +11,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.context.ApplicationContext;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -250,6 +256,7 @@ class BrokerTest {
 
         when(applicationContext.containsBean("TestBean")).thenReturn(false);
         when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"testBeanInstance"});
+        when(applicationContext.getType("testBeanInstance", false)).thenReturn((Class) TestBean.class);
         when(applicationContext.getBean("testBeanInstance")).thenReturn(testBean);
         // Mock the objectMapper to properly convert the "value1" to the expected type, using lenient to avoid unnecessary stubbing errors
         // Handle both JavaType and null cases
@@ -264,6 +271,417 @@ class BrokerTest {
         assertEquals("Test Result", response.getData());
     }
 
+    @Test
+    void testBuildInvocationPlansWarmsOperationsFromBeanTypes() {
+        // Arrange
+        TestBean testBean = new TestBean();
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"testBean", "plainBean"});
+        when(applicationContext.getType("testBean")).thenReturn((Class) TestBean.class);
+        when(applicationContext.getType("plainBean")).thenReturn((Class) Object.class);
+
+        // Act
+        broker.buildInvocationPlans();
+
+        // Assert - plans are built from types only, no bean is instantiated
+        verify(applicationContext, never()).getBean(anyString());
+
+        when(applicationContext.containsBean("testBean")).thenReturn(true);
+        when(applicationContext.getBean("testBean")).thenReturn(testBean);
+        lenient().when(objectMapper.convertValue(eq("value1"), isNull(com.fasterxml.jackson.databind.JavaType.class))).thenReturn("value1");
+
+        ServiceResponse<?> response = broker.submit(new ServiceRequest("testBean", "testOperation",
+            Map.of("param1", "value1"), "test-request"));
+
+        assertTrue(response.isOk());
+        assertEquals("Test Result", response.getData());
+    }
+
+    @Test
+    void testUnknownServiceNameIsIndexedOnce() {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("unknownService", "testOperation",
+            new HashMap<>(), "test-request");
+
+        when(applicationContext.containsBean("unknownService")).thenReturn(false);
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"testBean"});
+        when(applicationContext.getType("testBean", false)).thenReturn((Class) TestBean.class);
+
+        // Act
+        ServiceResponse<?> first = broker.submit(request);
+        ServiceResponse<?> second = broker.submit(request);
+
+        // Assert - the second miss is answered from the negative cache
+        assertFalse(first.isOk());
+        assertFalse(second.isOk());
+        verify(applicationContext, times(1)).getBeanDefinitionNames();
+        verify(applicationContext, never()).getBean(anyString());
+    }
+
+    @Test
+    void testIndexingServiceNamesDoesNotCreateBeansOfUnknownType() {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("TestBean", "testOperation",
+            Map.of("param1", "value1"), "test-request");
+
+        when(applicationContext.containsBean("TestBean")).thenReturn(false);
+        when(applicationContext.getBeanDefinitionNames()).thenReturn(new String[]{"lazyFactoryProduct"});
+        when(applicationContext.getType("lazyFactoryProduct", false)).thenReturn(null);
+
+        // Act
+        ServiceResponse<?> response = broker.submit(request);
+
+        // Assert - a bean whose type is only known once created is not indexed
+        assertFalse(response.isOk());
+        verify(applicationContext, never()).getBean(anyString());
+    }
+
+    @Test
+    void testSubmitAsyncCompletesWithFutureResult() {
+        // Arrange
+        AsyncBean asyncBean = new AsyncBean();
+        ServiceRequest request = new ServiceRequest("asyncBean", "fetch", new HashMap<>(), "test-request");
+
+        when(applicationContext.containsBean("asyncBean")).thenReturn(true);
+        when(applicationContext.getBean("asyncBean")).thenReturn(asyncBean);
+
+        // Act
+        CompletableFuture<ServiceResponse<?>> future = broker.submitAsync(request);
+        asyncBean.pending.complete("Async Result");
+        ServiceResponse<?> response = future.join();
+
+        // Assert
+        assertTrue(response.isOk());
+        assertEquals("test-request", response.getRequestId());
+        assertEquals("Async Result", response.getData());
+    }
+
+    @Test
+    void testSubmitAsyncMapsFailedFutureToServiceError() {
+        // Arrange
+        AsyncBean asyncBean = new AsyncBean();
+        ServiceRequest request = new ServiceRequest("asyncBean", "fail", new HashMap<>(), "test-request");
+
+        when(applicationContext.containsBean("asyncBean")).thenReturn(true);
+        when(applicationContext.getBean("asyncBean")).thenReturn(asyncBean);
+
+        // Act
+        ServiceResponse<?> response = broker.submitAsync(request).join();
+
+        // Assert
+        assertFalse(response.isOk());
+        assertTrue(response.getErrors().stream()
+            .anyMatch(error -> "service_error".equals(error.get("code"))
+                && error.get("message").toString().contains("Async failure")));
+    }
+
+    @Test
+    void testSubmitAsyncAdaptsMonoResult() {
+        // Arrange
+        AsyncBean asyncBean = new AsyncBean();
+        ServiceRequest request = new ServiceRequest("asyncBean", "mono", new HashMap<>(), "test-request");
+
+        when(applicationContext.containsBean("asyncBean")).thenReturn(true);
+        when(applicationContext.getBean("asyncBean")).thenReturn(asyncBean);
+
+        // Act
+        ServiceResponse<?> response = broker.submitAsync(request).join();
+
+        // Assert
+        assertTrue(response.isOk());
+        assertEquals("Mono Result", response.getData());
+    }
+
+    @Test
+    void testSubmitAwaitsFutureReturningOperation() {
+        // Arrange
+        AsyncBean asyncBean = new AsyncBean();
+        asyncBean.pending.complete("Async Result");
+        ServiceRequest request = new ServiceRequest("asyncBean", "fetch", new HashMap<>(), "test-request");
+
+        when(applicationContext.containsBean("asyncBean")).thenReturn(true);
+        when(applicationContext.getBean("asyncBean")).thenReturn(asyncBean);
+
+        // Act
+        ServiceResponse<?> response = broker.submit(request);
+
+        // Assert
+        assertTrue(response.isOk());
+        assertEquals("Async Result", response.getData());
+    }
+
+    @Test
+    void testSubmitAsyncRunsSynchronousOperation() {
+        // Arrange
+        ExceptionThrowingBean exceptionBean = new ExceptionThrowingBean();
+        ServiceRequest request = new ServiceRequest("exceptionBean", "throwException",
+            new HashMap<>(), "test-request");
+
+        when(applicationContext.containsBean("exceptionBean")).thenReturn(true);
+        when(applicationContext.getBean("exceptionBean")).thenReturn(exceptionBean);
+
+        // Act
+        ServiceResponse<?> response = broker.submitAsync(request).join();
+
+        // Assert
+        assertFalse(response.isOk());
+        assertTrue(response.getErrors().stream()
+            .anyMatch(error -> error.get("message").toString().contains("Test exception")));
+    }
+
+    @Test
+    void testSubmitRecordsOperationMetrics() {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        broker = new Broker(applicationContext, objectMapper, validator, new BrokerMetrics(registry, 500, false),
+            new BrokerResponseCache());
+        ExceptionThrowingBean exceptionBean = new ExceptionThrowingBean();
+        when(applicationContext.containsBean("exceptionBean")).thenReturn(true);
+        when(applicationContext.getBean("exceptionBean")).thenReturn(exceptionBean);
+
+        // Act
+        broker.submit(new ServiceRequest("exceptionBean", "throwException", new HashMap<>(), "test-request"));
+
+        // Assert
+        assertEquals(1, registry.get("broker.requests")
+            .tags("service", "exceptionBean", "operation", "throwException").timer().count());
+        assertEquals(1, registry.get("broker.binding").tags("service", "exceptionBean").timer().count());
+        assertEquals(1, registry.get("broker.invocation").tags("service", "exceptionBean").timer().count());
+        assertEquals(1.0, registry.get("broker.errors").tags("code", "service_error").counter().count());
+        assertEquals(0.0, registry.get("broker.inflight").tags("service", "exceptionBean").gauge().value());
+    }
+
+    @Test
+    void testCachedOperationIsServedFromCacheUntilEvicted() {
+        // Arrange
+        CachingBean cachingBean = new CachingBean();
+        when(applicationContext.containsBean("cachingBean")).thenReturn(true);
+        when(applicationContext.getBean("cachingBean")).thenReturn(cachingBean);
+        lenient().when(objectMapper.convertValue(any(), isNull(com.fasterxml.jackson.databind.JavaType.class)))
+            .thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        ServiceResponse<?> first = broker.submit(new ServiceRequest("cachingBean", "findByName",
+            Map.of("name", "java", "trace", "a"), "request-1"));
+        ServiceResponse<?> second = broker.submit(new ServiceRequest("cachingBean", "findByName",
+            Map.of("trace", "b", "name", "java"), "request-2"));
+        broker.submit(new ServiceRequest("cachingBean", "rename", Map.of("name", "java"), "request-3"));
+        ServiceResponse<?> third = broker.submit(new ServiceRequest("cachingBean", "findByName",
+            Map.of("name", "java", "trace", "c"), "request-4"));
+
+        // Assert - the second call differs only in a non-key param and is a hit;
+        // the mutating call evicts the group
+        assertEquals("java#1", first.getData());
+        assertEquals("java#1", second.getData());
+        assertEquals("request-2", second.getRequestId());
+        assertEquals("java#2", third.getData());
+        assertEquals(2, cachingBean.lookups);
+    }
+
+    @Test
+    void testFailedResultsAreNotCached() {
+        // Arrange
+        CachingBean cachingBean = new CachingBean();
+        when(applicationContext.containsBean("cachingBean")).thenReturn(true);
+        when(applicationContext.getBean("cachingBean")).thenReturn(cachingBean);
+        lenient().when(objectMapper.convertValue(any(), isNull(com.fasterxml.jackson.databind.JavaType.class)))
+            .thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        broker.submit(new ServiceRequest("cachingBean", "findByName", Map.of("name", "missing", "trace", "a"), "request-1"));
+        ServiceResponse<?> second = broker.submit(new ServiceRequest("cachingBean", "findByName",
+            Map.of("name", "missing", "trace", "b"), "request-2"));
+
+        // Assert
+        assertFalse(second.isOk());
+        assertEquals(2, cachingBean.lookups);
+    }
+
+    @Test
+    void testConcurrentIdenticalRequestsShareOneExecution() throws Exception {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        broker = new Broker(applicationContext, objectMapper, validator, new BrokerMetrics(registry, 500, false),
+            new BrokerResponseCache());
+        CoalescingBean coalescingBean = new CoalescingBean();
+        when(applicationContext.containsBean("coalescingBean")).thenReturn(true);
+        when(applicationContext.getBean("coalescingBean")).thenReturn(coalescingBean);
+        lenient().when(objectMapper.convertValue(any(), isNull(com.fasterxml.jackson.databind.JavaType.class)))
+            .thenAnswer(inv -> inv.getArgument(0));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<ServiceResponse<?>> leader = executor.submit(() -> broker.submit(
+                new ServiceRequest("coalescingBean", "lookup", Map.of("key", "k"), "request-1")));
+            assertTrue(coalescingBean.entered.await(5, TimeUnit.SECONDS));
+            Future<ServiceResponse<?>> follower = executor.submit(() -> broker.submit(
+                new ServiceRequest("coalescingBean", "lookup", Map.of("key", "k"), "request-2")));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.get("broker.coalesced").tags("service", "coalescingBean").counter().count() < 1
+                && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            coalescingBean.release.countDown();
+
+            // Assert
+            ServiceResponse<?> first = leader.get(5, TimeUnit.SECONDS);
+            ServiceResponse<?> second = follower.get(5, TimeUnit.SECONDS);
+            assertEquals("k#1", first.getData());
+            assertEquals("k#1", second.getData());
+            assertEquals("request-1", first.getRequestId());
+            assertEquals("request-2", second.getRequestId());
+            assertEquals(1, coalescingBean.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCoalescedRequestGivesUpAtItsOwnDeadline() throws Exception {
+        // Arrange
+        CoalescingBean coalescingBean = new CoalescingBean();
+        when(applicationContext.containsBean("coalescingBean")).thenReturn(true);
+        when(applicationContext.getBean("coalescingBean")).thenReturn(coalescingBean);
+        lenient().when(objectMapper.convertValue(any(), isNull(com.fasterxml.jackson.databind.JavaType.class)))
+            .thenAnswer(inv -> inv.getArgument(0));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<ServiceResponse<?>> leader = executor.submit(() -> broker.submit(
+                new ServiceRequest("coalescingBean", "lookup", Map.of("key", "k"), "request-1")));
+            assertTrue(coalescingBean.entered.await(5, TimeUnit.SECONDS));
+            ServiceRequest follower = new ServiceRequest("coalescingBean", "lookup", Map.of("key", "k"), "request-2");
+            follower.setTimeoutMs(50L);
+
+            // Act
+            long startedAt = System.nanoTime();
+            ServiceResponse<?> response = broker.submit(follower);
+            long waited = System.nanoTime() - startedAt;
+            coalescingBean.release.countDown();
+
+            // Assert
+            assertFalse(response.isOk());
+            assertEquals("deadline_exceeded", response.getErrors().get(0).get("code"));
+            assertTrue(waited < TimeUnit.SECONDS.toNanos(2));
+            assertTrue(leader.get(5, TimeUnit.SECONDS).isOk());
+            assertEquals(1, coalescingBean.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCallsBeyondTheServiceLimitAreShedAsOverloaded() throws Exception {
+        // Arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        broker = new Broker(applicationContext, objectMapper, validator, new BrokerMetrics(registry, 500, false),
+            new BrokerResponseCache(), new BrokerBulkheads(null, registry, true, 1, 0, 0, false, 1, 2.0));
+        CoalescingBean coalescingBean = new CoalescingBean();
+        when(applicationContext.containsBean("coalescingBean")).thenReturn(true);
+        when(applicationContext.getBean("coalescingBean")).thenReturn(coalescingBean);
+        lenient().when(objectMapper.convertValue(any(), isNull(com.fasterxml.jackson.databind.JavaType.class)))
+            .thenAnswer(inv -> inv.getArgument(0));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // Act
+            Future<ServiceResponse<?>> running = executor.submit(() -> broker.submit(
+                new ServiceRequest("coalescingBean", "lookup", Map.of("key", "a"), "request-1")));
+            assertTrue(coalescingBean.entered.await(5, TimeUnit.SECONDS));
+            ServiceResponse<?> shed = broker.submit(
+                new ServiceRequest("coalescingBean", "lookup", Map.of("key", "b"), "request-2"));
+            coalescingBean.release.countDown();
+
+            // Assert
+            assertTrue(running.get(5, TimeUnit.SECONDS).isOk());
+            assertFalse(shed.isOk());
+            assertEquals("overloaded", shed.getErrors().get(0).get("code"));
+            assertEquals("request-2", shed.getRequestId());
+            assertEquals(1.0, registry.get("broker.bulkhead.rejected").tags("bulkhead", "coalescingBean")
+                .counter().count());
+            assertEquals(1.0, registry.get("broker.errors").tags("code", "overloaded").counter().count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExpiredRequestIsNotInvoked() {
+        // Arrange
+        ServiceRequest request = new ServiceRequest("testBean", "testOperation",
+            Map.of("param1", "value1"), "test-request");
+        request.setTimeoutMs(0L);
+
+        // Act
+        ServiceResponse<?> response = broker.submit(request);
+
+        // Assert
+        assertFalse(response.isOk());
+        assertEquals("deadline_exceeded", response.getErrors().get(0).get("code"));
+        assertEquals("test-request", response.getRequestId());
+        verify(applicationContext, never()).getBean(anyString());
+    }
+
+    @Test
+    void testPendingFutureIsCancelledWhenDeadlinePasses() {
+        // Arrange
+        AsyncBean asyncBean = new AsyncBean();
+        ServiceRequest request = new ServiceRequest("asyncBean", "fetch", new HashMap<>(), "test-request");
+        request.setTimeoutMs(50L);
+
+        when(applicationContext.containsBean("asyncBean")).thenReturn(true);
+        when(applicationContext.getBean("asyncBean")).thenReturn(asyncBean);
+
+        // Act
+        ServiceResponse<?> response = broker.submit(request);
+
+        // Assert
+        assertFalse(response.isOk());
+        assertEquals("deadline_exceeded", response.getErrors().get(0).get("code"));
+        assertTrue(asyncBean.pending.isCancelled());
+    }
+
+    @Test
+    void testSubmitAsyncInterruptsBlockedOperationAtDeadline() throws Exception {
+        // Arrange
+        CoalescingBean coalescingBean = new CoalescingBean();
+        ServiceRequest request = new ServiceRequest("coalescingBean", "lookup", Map.of("key", "a"), "test-request");
+        request.setTimeoutMs(100L);
+
+        when(applicationContext.containsBean("coalescingBean")).thenReturn(true);
+        when(applicationContext.getBean("coalescingBean")).thenReturn(coalescingBean);
+        lenient().when(objectMapper.convertValue(any(), isNull(com.fasterxml.jackson.databind.JavaType.class)))
+            .thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        ServiceResponse<?> response = broker.submitAsync(request).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertFalse(response.isOk());
+        assertEquals("deadline_exceeded", response.getErrors().get(0).get("code"));
+        assertTrue(coalescingBean.interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testNestedRequestInheritsTighterOuterDeadline() {
+        // Arrange
+        DeadlineBean deadlineBean = new DeadlineBean();
+        ServiceRequest request = new ServiceRequest("deadlineBean", "nestedBudget", new HashMap<>(), "test-request");
+        request.setTimeoutMs(2_000L);
+
+        when(applicationContext.containsBean("deadlineBean")).thenReturn(true);
+        when(applicationContext.getBean("deadlineBean")).thenReturn(deadlineBean);
+
+        // Act
+        ServiceResponse<?> response = broker.submit(request);
+
+        // Assert
+        assertTrue(response.isOk());
+        long nestedBudget = (Long) response.getData();
+        assertTrue(nestedBudget > 0 && nestedBudget <= 2_000, "nested budget was " + nestedBudget);
+        assertEquals(Deadlines.NONE, Deadlines.current());
+    }
+
     // Test beans for mocking purposes
     public static class TestBean {
         @BrokerOperation("testOperation")
@@ -286,6 +704,73 @@ class BrokerTest {
         }
     }
 
+    public static class AsyncBean {
+        final CompletableFuture<String> pending = new CompletableFuture<>();
+
+        @BrokerOperation("fetch")
+        public CompletableFuture<String> fetch() {
+            return pending;
+        }
+
+        @BrokerOperation("mono")
+        public reactor.core.publisher.Mono<String> mono() {
+            return reactor.core.publisher.Mono.just("Mono Result");
+        }
+
+        @BrokerOperation("fail")
+        public CompletableFuture<String> fail() {
+            return CompletableFuture.failedFuture(new IllegalStateException("Async failure"));
+        }
+    }
+
+    public static class CachingBean {
+        int lookups;
+
+        @BrokerOperation(value = "findByName", cacheTtlMs = 60_000, cacheKey = "name", cacheGroup = "names")
+        public ServiceResponse<String> findByName(@BrokerParam("name") String name, @BrokerParam("trace") String trace) {
+            lookups++;
+            if ("missing".equals(name)) {
+                return (ServiceResponse<String>) ServiceResponse.error(
+                    List.of(Map.of("message", "not found")), "lookup");
+            }
+            return ServiceResponse.ok(name + "#" + lookups, "lookup");
+        }
+
+        @BrokerOperation(value = "rename", evicts = "names")
+        public String rename(@BrokerParam("name") String name) {
+            return name;
+        }
+    }
+
+    public static class CoalescingBean {
+        final java.util.concurrent.CountDownLatch entered = new java.util.concurrent.CountDownLatch(1);
+        final java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        final java.util.concurrent.CountDownLatch interrupted = new java.util.concurrent.CountDownLatch(1);
+        final java.util.concurrent.atomic.AtomicInteger calls = new java.util.concurrent.atomic.AtomicInteger();
+
+        @BrokerOperation(value = "lookup", coalesce = true)
+        public String lookup(@BrokerParam("key") String key) throws InterruptedException {
+            int call = calls.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return key + "#" + call;
+        }
+    }
+
+    public static class DeadlineBean {
+        @BrokerOperation("nestedBudget")
+        public Long nestedBudget() {
+            ServiceRequest nested = new ServiceRequest("loginService", "getUserForToken", Map.of(), "nested");
+            nested.setTimeoutMs(60_000L);
+            return Deadlines.remainingMillis(Deadlines.of(nested));
+        }
+    }
+
     public static class ValidationBean {
         @BrokerOperation("validateMethod")
         public String validateMethod(@jakarta.validation.constraints.Size(min = 3) String invalidValue) {
@@ -0,0 +1,140 @@
+package com.angrysurfer.atomic.broker;
+
+import com.angrysurfer.atomic.broker.api.ServiceRegistration;
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.angrysurfer.atomic.broker.spi.BrokerOperation;
+import com.angrysurfer.atomic.broker.spi.OperationIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class IndexedOperationsTest {
+
+    private static final AtomicInteger LAZY_BEANS_CREATED = new AtomicInteger();
+
+    private GenericApplicationContext context;
+    private Broker broker;
+
+    @BeforeEach
+    void setUp() {
+        LAZY_BEANS_CREATED.set(0);
+        context = new GenericApplicationContext();
+        context.registerBean("greeter", GreetingService.class);
+        context.registerBean("lazyBean", LazyBean.class, bd -> bd.setLazyInit(true));
+        context.refresh();
+
+        LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        // Parameters are named as in the source, which this class is not compiled to keep
+        OperationIndex index = OperationIndex.of(List.of(
+                new OperationIndex.Entry(GreetingService.class.getName(), "greetingService", "greet", "hello",
+                        List.of("java.lang.String"), List.of("name")),
+                new OperationIndex.Entry(GreetingService.class.getName(), "greetingService", "farewell", "",
+                        List.of("java.lang.String", "int"), List.of("name", "times"))));
+        broker = new Broker(context, new ObjectMapper(), validator, new BrokerMetrics(), new BrokerResponseCache(),
+                new BrokerBulkheads(), index);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void testPlansAreBuiltFromTheIndexWithSourceParameterNames() {
+        // Act
+        broker.buildInvocationPlans();
+        ServiceResponse<?> hello = broker.submit(new ServiceRequest("greeter", "hello", Map.of("name", "Ada"), "r1"));
+        ServiceResponse<?> farewell = broker.submit(new ServiceRequest("greeter", "farewell",
+                Map.of("name", "Ada", "times", 2), "r2"));
+
+        // Assert
+        assertTrue(hello.isOk(), () -> String.valueOf(hello.getErrors()));
+        assertEquals("Hello, Ada", hello.getData());
+        assertEquals("Bye Ada, bye Ada", farewell.getData());
+        assertEquals(0, LAZY_BEANS_CREATED.get());
+    }
+
+    @Test
+    void testIndexPrefersAliasOverMethodName() {
+        // Act
+        IndexedOperations.Operation byAlias = broker.indexedOperations().find(GreetingService.class, "hello");
+        IndexedOperations.Operation byName = broker.indexedOperations().find(GreetingService.class, "greet");
+        IndexedOperations.Operation missing = broker.indexedOperations().find(GreetingService.class, "unknown");
+
+        // Assert
+        assertEquals("greet", byAlias.method().getName());
+        assertEquals("greet", byName.method().getName());
+        assertNull(missing);
+    }
+
+    @Test
+    void testAutoRegistrationUsesTheIndexWithoutCreatingBeans() {
+        // Arrange
+        RemoteBrokerClient remoteBrokerClient = mock(RemoteBrokerClient.class);
+        when(remoteBrokerClient.isRemoteConfigured()).thenReturn(true);
+        doReturn(ServiceResponse.ok("registered", "auto-reg-greeter")).when(remoteBrokerClient).submit(any());
+        BrokerAutoRegistration registration = new BrokerAutoRegistration(context, broker);
+        registration.setRemoteBrokerClient(remoteBrokerClient);
+
+        // Act
+        registration.registerServices();
+
+        // Assert
+        ArgumentCaptor<ServiceRequest> request = ArgumentCaptor.forClass(ServiceRequest.class);
+        verify(remoteBrokerClient).submit(request.capture());
+        ServiceRegistration registered = (ServiceRegistration) request.getValue().getParams().get("registration");
+        assertEquals("greeter", registered.getServiceName());
+        assertEquals(List.of("hello", "farewell"), registered.getOperations());
+        assertEquals(0, LAZY_BEANS_CREATED.get());
+    }
+
+    @Test
+    void testStaleIndexEntriesAreIgnored() {
+        // Arrange
+        IndexedOperations operations = new IndexedOperations(context, OperationIndex.of(List.of(
+                new OperationIndex.Entry(GreetingService.class.getName(), "greeter", "greet", "hello",
+                        List.of("java.lang.Long"), List.of("id")),
+                new OperationIndex.Entry("com.example.Removed", "removed", "run", "", List.of(), List.of()))));
+
+        // Act & Assert
+        assertTrue(operations.byBean().isEmpty());
+        assertNull(operations.find(GreetingService.class, "hello"));
+    }
+
+    public static class GreetingService {
+        @BrokerOperation("hello")
+        public String greet(String name) {
+            return "Hello, " + name;
+        }
+
+        @BrokerOperation
+        public String farewell(String name, int times) {
+            return String.join(", ", java.util.Collections.nCopies(times, "bye " + name)).replaceFirst("b", "B");
+        }
+    }
+
+    public static class LazyBean {
+        public LazyBean() {
+            LAZY_BEANS_CREATED.incrementAndGet();
+        }
+
+        @BrokerOperation("lazy")
+        public String lazy() {
+            return "lazy";
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.angrysurfer.atomic.broker;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParamBinderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    public static class PostDTO {
+        public Long id;
+        public String content;
+        public Instant postedAt;
+    }
+
+    private ParamBinder binderFor(Class<?> type) {
+        return ParamBinder.forType(objectMapper.constructType(type), objectMapper);
+    }
+
+    private ParamBinder binderFor(TypeReference<?> type) {
+        return ParamBinder.forType(objectMapper.constructType(type), objectMapper);
+    }
+
+    @Test
+    void testScalarsAreCoercedDirectly() {
+        // Arrange
+        ParamBinder toInt = binderFor(int.class);
+        ParamBinder toLong = binderFor(Long.class);
+        ParamBinder toString = binderFor(String.class);
+        ParamBinder toBoolean = binderFor(boolean.class);
+        ParamBinder toDouble = binderFor(double.class);
+        String value = "alice";
+
+        // Act & Assert
+        assertEquals(42, toInt.bind("42"));
+        assertEquals(7, toInt.bind(7L));
+        assertEquals(3L, toLong.bind(3));
+        assertEquals(12L, toLong.bind("12"));
+        assertSame(value, toString.bind(value));
+        assertEquals("5", toString.bind(5));
+        assertEquals(Boolean.TRUE, toBoolean.bind("true"));
+        assertEquals(2.0, toDouble.bind(2));
+    }
+
+    @Test
+    void testScalarsOutsideTheFastPathMatchConvertValue() {
+        // Arrange
+        ParamBinder toInt = binderFor(int.class);
+        ParamBinder toString = binderFor(String.class);
+
+        // Act & Assert
+        assertEquals(objectMapper.convertValue(" 42 ", int.class), toInt.bind(" 42 "));
+        assertEquals(objectMapper.convertValue(1.5, String.class), toString.bind(1.5));
+        assertThrows(IllegalArgumentException.class, () -> toInt.bind(Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> toInt.bind("forty-two"));
+    }
+
+    @Test
+    void testUntypedContainersArePassedThrough() {
+        // Arrange
+        Map<String, Object> filter = Map.of("active", true);
+        List<Object> tags = List.of("a", 1);
+
+        // Act & Assert
+        assertSame(filter, binderFor(new TypeReference<Map<String, Object>>() {
+        }).bind(filter));
+        assertSame(tags, binderFor(List.class).bind(tags));
+        assertSame(filter, binderFor(Object.class).bind(filter));
+    }
+
+    @Test
+    void testDtosAndTypedCollectionsAreReadWithCachedReader() {
+        // Arrange
+        Map<String, Object> raw = Map.of("id", 5, "content", "hello", "postedAt", "2024-01-02T03:04:05Z");
+        ParamBinder toPost = binderFor(PostDTO.class);
+        ParamBinder toPosts = binderFor(new TypeReference<List<PostDTO>>() {
+        });
+
+        // Act
+        PostDTO post = (PostDTO) toPost.bind(raw);
+        List<?> posts = (List<?>) toPosts.bind(List.of(raw, raw));
+
+        // Assert
+        assertEquals(5L, post.id);
+        assertEquals("hello", post.content);
+        assertEquals(Instant.parse("2024-01-02T03:04:05Z"), post.postedAt);
+        assertEquals(2, posts.size());
+        assertInstanceOf(PostDTO.class, posts.get(0));
+        assertSame(post, toPost.bind(post));
+    }
+
+    @Test
+    void testUnreadableDtoFailsAsBindingError() {
+        // Arrange
+        ParamBinder toPost = binderFor(PostDTO.class);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> toPost.bind(Map.of("id", "not-a-number")));
+    }
+}
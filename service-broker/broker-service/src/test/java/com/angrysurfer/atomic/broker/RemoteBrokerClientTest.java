@@ -0,0 +1,253 @@
+package com.angrysurfer.atomic.broker;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class RemoteBrokerClientTest {
+
+    private static final String GATEWAY = "http://gateway:8080";
+
+    private RestTemplate restTemplate;
+
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    void testSubmitUsesSmileByDefault() throws Exception {
+        // Arrange
+        ObjectMapper smile = new ObjectMapper(new SmileFactory()).findAndRegisterModules();
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "smile", restTemplate);
+        ServiceRequest request = new ServiceRequest("userService", "findByAlias", Map.of("alias", "bob"), "r1");
+        byte[] reply = smile.writeValueAsBytes(ServiceResponse.ok("userService", "findByAlias", Map.of("alias", "bob"), "r1"));
+
+        server.expect(requestTo(GATEWAY + "/api/broker/submitRequest"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().contentType(BrokerWireFormat.SMILE))
+                .andExpect(header(HttpHeaders.ACCEPT, BrokerWireFormat.SMILE_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(req -> {
+                    ServiceRequest sent = smile.readValue(
+                            ((MockClientHttpRequest) req).getBodyAsBytes(),
+                            ServiceRequest.class);
+                    assertEquals("findByAlias", sent.getOperation());
+                    assertEquals("bob", sent.getParams().get("alias"));
+                })
+                .andRespond(withSuccess(reply, BrokerWireFormat.SMILE));
+
+        // Act
+        ServiceResponse<?> response = client.submit(request);
+
+        // Assert
+        server.verify();
+        assertTrue(response.isOk());
+        assertEquals("r1", response.getRequestId());
+        assertEquals(Map.of("alias", "bob"), response.getData());
+    }
+
+    @Test
+    void testSubmitUsesJsonWhenConfigured() {
+        // Arrange
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "json", restTemplate);
+        server.expect(requestTo(GATEWAY + "/api/broker/submitRequest"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.operation").value("findAll"))
+                .andRespond(withSuccess("{\"ok\":true,\"data\":[],\"requestId\":\"r2\"}", MediaType.APPLICATION_JSON));
+
+        // Act
+        ServiceResponse<?> response = client.submit(new ServiceRequest("userService", "findAll", Map.of(), "r2"));
+
+        // Assert
+        server.verify();
+        assertTrue(response.isOk());
+        assertEquals("r2", response.getRequestId());
+    }
+
+    @Test
+    void testSubmitForwardsRemainingBudget() {
+        // Arrange
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "json", restTemplate);
+        ServiceRequest request = new ServiceRequest("userService", "findAll", Map.of(), "r3");
+        request.setTimeoutMs(5_000L);
+        server.expect(requestTo(GATEWAY + "/api/broker/submitRequest"))
+                .andExpect(jsonPath("$.timeoutMs").value(org.hamcrest.Matchers.allOf(
+                        org.hamcrest.Matchers.greaterThan(0), org.hamcrest.Matchers.lessThanOrEqualTo(5_000))))
+                .andRespond(withSuccess("{\"ok\":true,\"data\":[],\"requestId\":\"r3\"}", MediaType.APPLICATION_JSON));
+
+        // Act
+        ServiceResponse<?> response = client.submit(request);
+
+        // Assert
+        server.verify();
+        assertTrue(response.isOk());
+    }
+
+    @Test
+    void testExpiredRequestIsNotSent() {
+        // Arrange
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "json", restTemplate);
+        ServiceRequest request = new ServiceRequest("userService", "findAll", Map.of(), "r4");
+        request.setTimeoutMs(0L);
+
+        // Act
+        ServiceResponse<?> response = client.submit(request);
+
+        // Assert
+        server.verify();
+        assertFalse(response.isOk());
+        assertEquals("deadline_exceeded", response.getErrors().get(0).get("code"));
+    }
+
+    @Test
+    void testFallsBackToHttpWhileChannelIsUnavailable() throws Exception {
+        // Arrange
+        int port;
+        try (java.net.ServerSocket socket = new java.net.ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        BrokerChannelClient channel = new BrokerChannelClient(new ObjectMapper(new SmileFactory()),
+                "127.0.0.1:" + port, 16, 1 << 20, 1000, 60_000, 60_000);
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "json", restTemplate, channel, false, 2, 50);
+        server.expect(requestTo(GATEWAY + "/api/broker/submitRequest"))
+                .andRespond(withSuccess("{\"ok\":true,\"data\":[],\"requestId\":\"h1\"}", MediaType.APPLICATION_JSON));
+
+        // Act
+        ServiceResponse<?> response = client.submit(new ServiceRequest("userService", "findAll", Map.of(), "h1"));
+
+        // Assert
+        server.verify();
+        assertTrue(response.isOk());
+        assertEquals("h1", response.getRequestId());
+        channel.destroy();
+    }
+
+    /**
+     * Answers a batch with one response per request, echoing each request's
+     * id and operation, in the order the requests were sent.
+     */
+    private static org.springframework.test.web.client.ResponseCreator echoBatch(List<List<String>> batches) {
+        ObjectMapper json = new ObjectMapper().findAndRegisterModules();
+        return req -> {
+            ServiceRequest[] sent = json.readValue(((MockClientHttpRequest) req).getBodyAsBytes(),
+                    ServiceRequest[].class);
+            List<String> ids = new ArrayList<>();
+            List<ServiceResponse<?>> responses = new ArrayList<>();
+            for (ServiceRequest request : sent) {
+                ids.add(request.getRequestId());
+                responses.add(ServiceResponse.ok(request.getService(), request.getOperation(),
+                        request.getOperation(), request.getRequestId()));
+            }
+            batches.add(ids);
+            return withSuccess(json.writeValueAsString(responses), MediaType.APPLICATION_JSON).createResponse(req);
+        };
+    }
+
+    @Test
+    void testConcurrentRequestsAreSentAsOneBatch() throws Exception {
+        // Arrange
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "json", restTemplate, true, 200, 10);
+        List<List<String>> batches = new ArrayList<>();
+        server.expect(once(), requestTo(GATEWAY + "/api/broker/submitBatch"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(echoBatch(batches));
+
+        // Act
+        List<CompletableFuture<ServiceResponse<?>>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(client.submitAsync(new ServiceRequest("noteService", "op" + i, Map.of(), "b" + i)));
+        }
+
+        // Assert
+        for (int i = 0; i < 3; i++) {
+            ServiceResponse<?> response = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertTrue(response.isOk());
+            assertEquals("b" + i, response.getRequestId());
+            assertEquals("op" + i, response.getData());
+        }
+        server.verify();
+        assertEquals(List.of(List.of("b0", "b1", "b2")), batches);
+        client.close();
+    }
+
+    @Test
+    void testFullBatchIsSentWithoutWaitingForTheWindow() {
+        // Arrange
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "json", restTemplate, true, 60_000, 2);
+        List<List<String>> batches = new ArrayList<>();
+        server.expect(once(), requestTo(GATEWAY + "/api/broker/submitBatch")).andRespond(echoBatch(batches));
+
+        // Act
+        CompletableFuture<ServiceResponse<?>> first = client.submitAsync(
+                new ServiceRequest("noteService", "first", Map.of(), "f1"));
+        ServiceResponse<?> second = client.submit(new ServiceRequest("noteService", "second", Map.of(), "f2"));
+
+        // Assert
+        assertEquals("f2", second.getRequestId());
+        assertEquals("f1", first.join().getRequestId());
+        server.verify();
+        client.close();
+    }
+
+    @Test
+    void testLoneRequestIsSentOnItsOwn() {
+        // Arrange
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "json", restTemplate, true, 5, 10);
+        server.expect(requestTo(GATEWAY + "/api/broker/submitRequest"))
+                .andRespond(withSuccess("{\"ok\":true,\"data\":[],\"requestId\":\"s1\"}", MediaType.APPLICATION_JSON));
+
+        // Act
+        ServiceResponse<?> response = client.submit(new ServiceRequest("userService", "findAll", Map.of(), "s1"));
+
+        // Assert
+        server.verify();
+        assertTrue(response.isOk());
+        client.close();
+    }
+
+    @Test
+    void testFailedBatchFailsEveryRequestInIt() throws Exception {
+        // Arrange
+        RemoteBrokerClient client = new RemoteBrokerClient(GATEWAY, "json", restTemplate, true, 60_000, 2);
+        server.expect(once(), requestTo(GATEWAY + "/api/broker/submitBatch")).andRespond(withServerError());
+
+        // Act
+        CompletableFuture<ServiceResponse<?>> first = client.submitAsync(
+                new ServiceRequest("noteService", "first", Map.of(), "e1"));
+        CompletableFuture<ServiceResponse<?>> second = client.submitAsync(
+                new ServiceRequest("noteService", "second", Map.of(), "e2"));
+
+        // Assert
+        for (CompletableFuture<ServiceResponse<?>> future : List.of(first, second)) {
+            ServiceResponse<?> response = future.get(5, TimeUnit.SECONDS);
+            assertFalse(response.isOk());
+            assertEquals("remote_broker_error", response.getErrors().get(0).get("code"));
+        }
+        server.verify();
+        client.close();
+    }
+}
@@ -0,0 +1,172 @@
+package com.angrysurfer.atomic.broker;
+
+import com.angrysurfer.atomic.broker.api.ServiceRequest;
+import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenPrincipalResolverTest {
+
+    @Mock
+    private Broker broker;
+
+    private SimpleMeterRegistry registry;
+
+    private TokenPrincipalResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        resolver = new TokenPrincipalResolver(broker, new ObjectMapper(), registry, 100, 60_000, 60_000);
+    }
+
+    private static ServiceResponse<?> registration(String id, String alias) {
+        return ServiceResponse.ok(Map.of("id", id, "alias", alias), "login");
+    }
+
+    @Test
+    void testRepeatedLookupsOfATokenHitTheCache() {
+        // Arrange
+        doReturn(registration("u-1", "alice")).when(broker).submit(any(ServiceRequest.class));
+
+        // Act
+        TokenPrincipal first = resolver.resolve("token-1");
+        TokenPrincipal second = resolver.resolve("token-1");
+
+        // Assert
+        assertEquals(new TokenPrincipal("u-1", "alice"), first);
+        assertEquals(first, second);
+        verify(broker, times(1)).submit(any(ServiceRequest.class));
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "broker.principals", "result", "hit")
+            .functionCounter().count());
+    }
+
+    @Test
+    void testRejectedTokensAreCachedNegatively() {
+        // Arrange
+        ServiceResponse<?> rejected = new ServiceResponse<>();
+        rejected.addError("token", "Token not found or expired");
+        doReturn(rejected).when(broker).submit(any(ServiceRequest.class));
+
+        // Act
+        TokenPrincipal first = resolver.resolve("expired");
+        TokenPrincipal second = resolver.resolve("expired");
+
+        // Assert
+        assertNull(first);
+        assertNull(second);
+        verify(broker, times(1)).submit(any(ServiceRequest.class));
+    }
+
+    @Test
+    void testFailedLookupsAreNotCached() {
+        // Arrange
+        doReturn(ServiceResponse.error(List.of(Map.of("code", "overloaded", "message", "loginService is overloaded")),
+            "login"), registration("u-1", "alice")).when(broker).submit(any(ServiceRequest.class));
+
+        // Act
+        TokenPrincipal first = resolver.resolve("token-1");
+        TokenPrincipal second = resolver.resolve("token-1");
+
+        // Assert
+        assertNull(first);
+        assertEquals("alice", second.alias());
+        verify(broker, times(2)).submit(any(ServiceRequest.class));
+    }
+
+    @Test
+    void testInvalidatedTokenIsLookedUpAgain() {
+        // Arrange
+        ServiceResponse<?> loggedOut = new ServiceResponse<>();
+        loggedOut.addError("token", "Token not found or expired");
+        doReturn(registration("u-1", "alice"), loggedOut).when(broker).submit(any(ServiceRequest.class));
+        resolver.resolve("token-1");
+
+        // Act
+        resolver.invalidate("token-1");
+        TokenPrincipal afterLogout = resolver.resolve("token-1");
+
+        // Assert
+        assertNull(afterLogout);
+        verify(broker, times(2)).submit(any(ServiceRequest.class));
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLookup() throws Exception {
+        // Arrange
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return registration("u-1", "alice");
+        }).when(broker).submit(any(ServiceRequest.class));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<TokenPrincipal> first = executor.submit(() -> resolver.resolve("token-1"));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<TokenPrincipal> second = executor.submit(() -> resolver.resolve("token-1"));
+            Thread.sleep(50);
+            release.countDown();
+
+            // Assert
+            assertEquals("alice", first.get(5, TimeUnit.SECONDS).alias());
+            assertEquals("alice", second.get(5, TimeUnit.SECONDS).alias());
+            verify(broker, times(1)).submit(any(ServiceRequest.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWaitingForAnotherLookupEndsAtTheCallersDeadline() throws Exception {
+        // Arrange
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return registration("u-1", "alice");
+        }).when(broker).submit(any(ServiceRequest.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<TokenPrincipal> first = executor.submit(() -> resolver.resolve("token-1"));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            // Act
+            long startedAt = System.nanoTime();
+            TokenPrincipal second = Deadlines.within(Deadlines.of(50L), () -> resolver.resolve("token-1"));
+            long waited = System.nanoTime() - startedAt;
+            release.countDown();
+
+            // Assert
+            assertNull(second);
+            assertTrue(waited < TimeUnit.SECONDS.toNanos(2));
+            assertEquals("alice", first.get(5, TimeUnit.SECONDS).alias());
+            verify(broker, times(1)).submit(any(ServiceRequest.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
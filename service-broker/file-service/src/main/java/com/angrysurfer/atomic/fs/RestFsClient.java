@@ -3,6 +3,7 @@ package com.angrysurfer.atomic.fs;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -22,7 +23,7 @@ public class RestFsClient {
     @Value("${restfs.api.url}")
     private String apiUrl;
 
-    public RestFsClient(RestTemplate restTemplate) {
+    public RestFsClient(@Qualifier("restFsRestTemplate") RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
     }
 
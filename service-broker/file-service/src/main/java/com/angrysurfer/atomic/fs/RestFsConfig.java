@@ -1,27 +1,33 @@
 package com.angrysurfer.atomic.fs;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.angrysurfer.atomic.broker.BrokerHttpTransport;
+
 @Configuration
 public class RestFsConfig {
 
     @Value("${restfs.api.url}")
     private String fsApiUrl;
 
-    @Bean
-    @ConditionalOnMissingBean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    /**
+     * Both clients share the broker's pooled transport, so blocking and
+     * reactive calls to the file service reuse the same connections.
+     */
+    @Bean("restFsRestTemplate")
+    public RestTemplate restFsRestTemplate(BrokerHttpTransport transport) {
+        return transport.restTemplate();
     }
 
     @Bean
-    public WebClient restFsWebClient() {
+    public WebClient restFsWebClient(BrokerHttpTransport transport) {
         return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(transport.httpClient()))
                 .baseUrl(fsApiUrl)
                 .build();
     }
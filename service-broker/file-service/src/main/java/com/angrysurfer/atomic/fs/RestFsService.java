@@ -10,13 +10,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import com.angrysurfer.atomic.broker.Broker;
-import com.angrysurfer.atomic.broker.api.ServiceRequest;
-import com.angrysurfer.atomic.broker.api.ServiceResponse;
+import com.angrysurfer.atomic.broker.TokenPrincipal;
+import com.angrysurfer.atomic.broker.TokenPrincipalResolver;
 import com.angrysurfer.atomic.broker.spi.BrokerOperation;
 import com.angrysurfer.atomic.broker.spi.BrokerParam;
 import com.angrysurfer.atomic.fs.api.FsListResponse;
-import com.angrysurfer.atomic.user.UserRegistrationDTO;
 
 @Service
 @Qualifier("restFsService")
@@ -26,7 +24,7 @@ public class RestFsService {
 
     private final RestFsClient restFsClient;
     private final ReactiveRestFsClient reactiveRestFsClient;
-    private final Broker broker;
+    private final TokenPrincipalResolver tokenPrincipalResolver;
 
     private List<String> getUserPath(String token, List<String> path) {
         var userPath = new ArrayList<String>();
@@ -52,46 +50,20 @@ public class RestFsService {
 
     public RestFsService(@Qualifier("restFsClient") RestFsClient restFsClient,
             @Qualifier("reactiveRestFsClient") ReactiveRestFsClient reactiveRestFsClient,
-            Broker broker) {
+            TokenPrincipalResolver tokenPrincipalResolver) {
         this.restFsClient = restFsClient;
         this.reactiveRestFsClient = reactiveRestFsClient;
-        this.broker = broker;
+        this.tokenPrincipalResolver = tokenPrincipalResolver;
         log.info("RestFsService initialized with broker integration");
     }
 
     private String getUserAliasFromToken(String token) {
-        try {
-            ServiceRequest request = new ServiceRequest(
-                "loginService",
-                "getUserRegistrationForToken",
-                Map.of("token", token),
-                "get-user-alias-" + System.currentTimeMillis()
-            );
-
-            ServiceResponse<?> response = (ServiceResponse<?>) broker.submit(request);
-
-            if (response.isOk() && response.getData() != null) {
-                // The response data might be a Map instead of UserRegistrationDTO due to serialization
-                Object data = response.getData();
-                if (data instanceof UserRegistrationDTO) {
-                    return ((UserRegistrationDTO) data).getAlias();
-                } else if (data instanceof Map) {
-                    // Extract alias from the map representation
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> dataMap = (Map<String, Object>) data;
-                    return (String) dataMap.get("alias");
-                } else {
-                    log.warn("Unexpected data type returned from user registration service: {}", data.getClass());
-                    return null;
-                }
-            } else {
-                log.warn("Failed to get user registration for token: {}", token);
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("Error getting user alias from token: ", e);
+        TokenPrincipal principal = tokenPrincipalResolver.resolve(token);
+        if (principal == null) {
+            log.warn("Failed to get user registration for token: {}", token);
             return null;
         }
+        return principal.alias();
     }
 
     @BrokerOperation("listFiles")
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.verify;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.angrysurfer.atomic.broker.Broker;
+import com.angrysurfer.atomic.broker.TokenPrincipalResolver;
 import com.angrysurfer.atomic.broker.api.ServiceRequest;
 import com.angrysurfer.atomic.broker.api.ServiceResponse;
 import com.angrysurfer.atomic.fs.api.FsListResponse;
@@ -44,7 +45,7 @@ class RestFsServiceTest {
 
     @BeforeEach
     void setUp() {
-        restFsService = new RestFsService(restFsClient, reactiveRestFsClient, broker);
+        restFsService = new RestFsService(restFsClient, reactiveRestFsClient, new TokenPrincipalResolver(broker));
     }
 
     @Test
@@ -1,10 +1,12 @@
 package com.angrysurfer.atomic.login;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.stereotype.Service;
@@ -25,6 +27,12 @@ public class LoginService {
 
     private static final Logger log = LoggerFactory.getLogger(LoginService.class);
 
+    /**
+     * Redis channel logged-out tokens are published on, so that brokers
+     * caching token lookups can drop them.
+     */
+    public static final String LOGOUT_CHANNEL = "login:logout";
+
     private final RedisTemplate<String, Object> redisTemplate;
     private final UserAccessClient userAccessClient;
 
@@ -102,6 +110,9 @@ public class LoginService {
             String key = "user:" + token;
             Object user = redisTemplate.opsForValue().get(key);
             boolean removed = user != null && redisTemplate.delete(key);
+            if (removed) {
+                publishLogout(token);
+            }
 
             serviceResponse.setData(removed);
             serviceResponse.setOk(true);
@@ -122,6 +133,17 @@ public class LoginService {
         }
     }
 
+    private void publishLogout(String token) {
+        try {
+            // Raw bytes rather than convertAndSend, whose value serializer is JDK serialization
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(
+                    LOGOUT_CHANNEL.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            // Cached lookups of the token still expire by TTL
+            log.warn("Could not publish logout for token {}: {}", token, e.getMessage());
+        }
+    }
+
     @BrokerOperation("isLoggedIn")
     public ServiceResponse<Boolean> isLoggedIn(@BrokerParam("token") String token) {
         log.debug("Checking login status for token {}", token);
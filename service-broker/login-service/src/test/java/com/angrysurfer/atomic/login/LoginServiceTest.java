@@ -9,6 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
@@ -122,6 +123,7 @@ class LoginServiceTest {
         assertTrue(result.isOk());
         assertTrue(result.getData());
         verify(redisTemplate).delete(key);
+        verify(redisTemplate).execute(any(RedisCallback.class));
     }
 
     @Test
@@ -1,53 +1,31 @@
 package com.angrysurfer.atomic.note;
 
-import com.angrysurfer.atomic.broker.Broker;
-import com.angrysurfer.atomic.broker.api.ServiceRequest;
-import com.angrysurfer.atomic.broker.api.ServiceResponse;
-import com.angrysurfer.atomic.user.UserRegistrationDTO;
+import com.angrysurfer.atomic.broker.TokenPrincipal;
+import com.angrysurfer.atomic.broker.TokenPrincipalResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-
 @Component
 public class NoteTokenService {
 
     private static final Logger log = LoggerFactory.getLogger(NoteTokenService.class);
 
-    private final Broker broker;
+    private final TokenPrincipalResolver tokenPrincipalResolver;
 
-    public NoteTokenService(Broker broker) {
-        this.broker = broker;
+    public NoteTokenService(TokenPrincipalResolver tokenPrincipalResolver) {
+        this.tokenPrincipalResolver = tokenPrincipalResolver;
         log.info("NoteTokenService initialized");
     }
 
     public String getUserIdFromToken(String token) {
-        try {
-            // Create a service request to the login service to get user registration by token
-            ServiceRequest request = new ServiceRequest(
-                "loginService", 
-                "getUserRegistrationForToken", 
-                Map.of("token", token), 
-                "get-user-registration-" + System.currentTimeMillis()
-            );
-
-            // Submit the request via the broker
-            @SuppressWarnings("unchecked")
-            ServiceResponse<UserRegistrationDTO> response = (ServiceResponse<UserRegistrationDTO>) broker.submit(request);
-
-            if (response.isOk() && response.getData() != null) {
-                UserRegistrationDTO userRegistration = response.getData();
-                log.debug("Retrieved user ID {} for token {}", userRegistration.getId(), token);
-                return userRegistration.getId();
-            } else {
-                log.warn("Failed to retrieve user registration for token {}: {}", token, 
-                    response.getErrors() != null ? response.getErrors() : "No data returned");
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("Error retrieving user ID from token: ", e);
+        // Resolved through loginService and cached by the shared resolver
+        TokenPrincipal principal = tokenPrincipalResolver.resolve(token);
+        if (principal == null) {
+            log.warn("Failed to retrieve user registration for token {}", token);
             return null;
         }
+        log.debug("Retrieved user ID {} for token {}", principal.userId(), token);
+        return principal.userId();
     }
-}
\ No newline at end of file
+}
@@ -40,7 +40,7 @@ public class GeminiSearchService {
         log.info("GeminiSearchService initialized with MongoDB cache");
     }
 
-    @BrokerOperation("generateContent")
+    @BrokerOperation(value = "generateContent", cacheKey = "prompt", coalesce = true)
     public SearchResult generateContent(@BrokerParam("token") String token, @BrokerParam("prompt") String prompt) {
         log.info("Gemini content generation request received: {}", prompt);
 
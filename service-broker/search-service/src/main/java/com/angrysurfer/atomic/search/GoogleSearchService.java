@@ -42,7 +42,7 @@ public class GoogleSearchService {
         log.info("GoogleSearchService initialized with MongoDB cache");
     }
 
-    @BrokerOperation("simpleSearch")
+    @BrokerOperation(value = "simpleSearch", cacheKey = "query", coalesce = true)
     public SearchResult simpleSearch(@BrokerParam("token") String token, @BrokerParam("query") String query) {
         log.info("Query Received: {}", query);
 
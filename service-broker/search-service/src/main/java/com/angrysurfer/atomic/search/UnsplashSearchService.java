@@ -40,7 +40,7 @@ public class UnsplashSearchService {
         log.info("UnsplashSearchService initialized with MongoDB cache");
     }
 
-    @BrokerOperation("searchImages")
+    @BrokerOperation(value = "searchImages", cacheKey = "query", coalesce = true)
     public SearchResult searchImages(@BrokerParam("token") String token, @BrokerParam("query") String query) {
         log.info("Unsplash image search query received: {}", query);
 
@@ -39,7 +39,7 @@ public class YouTubeSearchService {
         log.info("YouTubeSearchService initialized with MongoDB cache");
     }
 
-    @BrokerOperation("searchVideos")
+    @BrokerOperation(value = "searchVideos", cacheKey = "query", coalesce = true)
     public SearchResult searchVideos(@BrokerParam("token") String token, @BrokerParam("query") String query) {
         log.info("YouTube video search query received: {}", query);
 
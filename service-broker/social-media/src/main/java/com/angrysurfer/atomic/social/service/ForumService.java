@@ -36,7 +36,7 @@ public class ForumService {
         log.info("ForumService initialized");
     }
 
-    @BrokerOperation("delete")
+    @BrokerOperation(value = "delete", evicts = "forums")
     public ServiceResponse<String> delete(@BrokerParam("forumId") String forumId) {
         log.info("Delete forum id {}", forumId);
         try {
@@ -85,7 +85,7 @@ public class ForumService {
         }
     }
 
-    @BrokerOperation("save")
+    @BrokerOperation(value = "save", evicts = "forums")
     public ServiceResponse<ForumDTO> save(@BrokerParam("name") String name) {
         log.info("Save forum {}", name);
         try {
@@ -99,7 +99,7 @@ public class ForumService {
         }
     }
 
-    @BrokerOperation("saveForum")
+    @BrokerOperation(value = "saveForum", evicts = "forums")
     public ServiceResponse<ForumDTO> save(@BrokerParam("forum") Forum forum) {
         log.info("Save forum {}", forum.getName());
         try {
@@ -113,7 +113,7 @@ public class ForumService {
         }
     }
 
-    @BrokerOperation("findByName")
+    @BrokerOperation(value = "findByName", cacheTtlMs = 30_000, cacheGroup = "forums")
     public ServiceResponse<ForumDTO> findByName(@BrokerParam("name") String name) {
         log.info("Find forum by name {}", name);
         try {
@@ -132,7 +132,7 @@ public class ForumService {
         }
     }
 
-    @BrokerOperation("addMember")
+    @BrokerOperation(value = "addMember", evicts = "forums")
     public ServiceResponse<String> addMember(@BrokerParam("forumId") String forumId,
             @BrokerParam("userId") String userId) {
         log.info("Add member {} to forum {}", userId, forumId);
@@ -164,7 +164,7 @@ public class ForumService {
         }
     }
 
-    @BrokerOperation("removeMember")
+    @BrokerOperation(value = "removeMember", evicts = "forums")
     public ServiceResponse<String> removeMember(@BrokerParam("forumId") String forumId,
             @BrokerParam("userId") String userId) {
         log.info("Remove member {} from forum {}", userId, forumId);
@@ -27,7 +27,7 @@ public class ProfileService {
         log.info("ProfileService initialized");
     }
 
-    @BrokerOperation("findByUserId")
+    @BrokerOperation(value = "findByUserId", cacheTtlMs = 30_000, cacheGroup = "profiles", coalesce = true)
     public ServiceResponse<ProfileDTO> findByUserId(@BrokerParam("userId") String userId) {
         log.info("Find profile by user id {}", userId);
         try {
@@ -47,7 +47,7 @@ public class ProfileService {
     }
 
     
-    @BrokerOperation("deleteByUserId")
+    @BrokerOperation(value = "deleteByUserId", evicts = "profiles")
     public ServiceResponse<String> deleteByUserId(@BrokerParam("userId") String userId) {
         log.info("Delete profile by user id {}", userId);
         try {
@@ -61,7 +61,7 @@ public class ProfileService {
         }
     }
 
-    @BrokerOperation("save")
+    @BrokerOperation(value = "save", evicts = "profiles")
     public ServiceResponse<ProfileDTO> save(@BrokerParam("user") User user, @BrokerParam("firstName") String firstName,
             @BrokerParam("lastName") String lastName) {
         log.info("Save profile for user {}", user.getAlias());
@@ -87,7 +87,7 @@ public class ProfileService {
         return profileRepository.findAll(PageRequest.of(page, size)).map(Profile::toDTO);
     }
 
-    @BrokerOperation("updateProfile")
+    @BrokerOperation(value = "updateProfile", evicts = "profiles")
     public ServiceResponse<ProfileDTO> updateProfile(@BrokerParam("profileId") String profileId,
             @BrokerParam("profileData") ProfileDTO profileData) {
         log.info("Update profile id {}", profileId);
@@ -120,7 +120,7 @@ public class ProfileService {
         }
     }
 
-    @BrokerOperation("createProfile")
+    @BrokerOperation(value = "createProfile", evicts = "profiles")
     public ServiceResponse<ProfileDTO> createProfile(@BrokerParam("profileData") ProfileDTO profileData) {
         log.info("Create profile from ProfileDTO");
         try {
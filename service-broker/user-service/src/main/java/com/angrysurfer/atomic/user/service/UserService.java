@@ -70,7 +70,7 @@ public class UserService {
     // return user.toDTO();
     // }
 
-    @BrokerOperation("createUser")
+    @BrokerOperation(value = "createUser", evicts = "users")
     public UserDTO createUser(@BrokerParam("email") String email,
             @BrokerParam("alias") String alias,
             @BrokerParam("identifier") String password) {
@@ -84,7 +84,7 @@ public class UserService {
         return user.toDTO();
     }
 
-    @BrokerOperation("delete")
+    @BrokerOperation(value = "delete", evicts = "users")
     public void delete(@BrokerParam("userId") String userId) {
         log.info("Delete user id {}", userId);
         userRepository.deleteById(userId);
@@ -109,7 +109,7 @@ public class UserService {
         throw new ResourceNotFoundException("User ".concat(userId).concat(" not found."));
     }
 
-    @BrokerOperation("findByAlias")
+    @BrokerOperation(value = "findByAlias", cacheTtlMs = 30_000, cacheGroup = "users")
     public UserDTO findByAlias(@BrokerParam("alias") String alias) throws ResourceNotFoundException {
         log.info("Find user by alias {}", alias);
         UserDTO result;
@@ -140,7 +140,7 @@ public class UserService {
         throw new ResourceNotFoundException("User ".concat(email).concat(" not found."));
     }
 
-    @BrokerOperation("addUser")
+    @BrokerOperation(value = "addUser", evicts = "users")
     public UserDTO addUser(@BrokerParam("user") UserDTO newUser) {
         log.info("Adding user {}", newUser.getAlias());
         User user = new User(newUser.getAlias(), newUser.getEmail(), newUser.getAvatarUrl());
@@ -156,7 +156,7 @@ public class UserService {
         return userRepository.save(new User(alias, email, null)).toDTO();
     }
 
-    @BrokerOperation("save")
+    @BrokerOperation(value = "save", evicts = "users")
     public UserDTO save(UserDTO newUser) {
         log.info("Save user {}", newUser.getAlias());
         User user = new User(newUser.getAlias(), newUser.getEmail(), newUser.getAvatarUrl());
@@ -166,7 +166,7 @@ public class UserService {
         return userRepository.save(user).toDTO();
     }
 
-    @BrokerOperation("update")
+    @BrokerOperation(value = "update", evicts = "users")
     public UserDTO update(@BrokerParam("user") User user) {
         log.info("Update user {}", user.getAlias());
         return userRepository.save(user).toDTO();
@@ -191,12 +191,12 @@ public class UserService {
         return findById(id);
     }
 
-    @BrokerOperation("deleteUser")
+    @BrokerOperation(value = "deleteUser", evicts = "users")
     public void deleteUser(@BrokerParam("id") String id) {
         delete(id);
     }
 
-    @BrokerOperation("saveUser")
+    @BrokerOperation(value = "saveUser", evicts = "users")
     public UserDTO saveUser(@BrokerParam("user") UserDTO user) {
         return save(user);
     }
@@ -1,5 +1,6 @@
 package com.angrysurfer.atomic.service.registry.controller;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -7,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,8 +16,10 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.angrysurfer.atomic.service.registry.dto.ExternalServiceRegistration;
+import com.angrysurfer.atomic.service.registry.dto.ServiceStatus;
 import com.angrysurfer.atomic.service.registry.entity.Service;
 import com.angrysurfer.atomic.service.registry.repository.ServiceRepository;
 import com.angrysurfer.atomic.service.registry.service.ExternalServiceRegistrationService;
@@ -47,6 +51,10 @@ public class RegistryController {
         try {
             Service service = registrationService.registerExternalService(registration);
 
+            // Let gateways know their routing tables are out of date
+            cacheService.updateServiceStatus(
+                    ServiceStatus.createInitial(service.getId(), service.getName(), registration.getEndpoint()));
+
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Service registered successfully",
@@ -114,6 +122,23 @@ public class RegistryController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Details of every routable service, for broker-gateways to keep a local
+     * routing table of. The ETag is derived from the registry's version stamp
+     * before the table is built, so a gateway polling with If-None-Match gets
+     * a 304 without the table being loaded until something changes.
+     */
+    @GetMapping("/routes")
+    public ResponseEntity<List<Map<String, Object>>> getRoutingTable(WebRequest request) {
+        String version = registrationService.getRoutingTableVersion();
+        String etag = "\"" + DigestUtils.md5DigestAsHex(String.valueOf(version).getBytes(StandardCharsets.UTF_8))
+                + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(registrationService.getRoutingTable());
+    }
+
     /**
      * Find service by operation name (for broker-gateway routing)
      */
@@ -144,6 +169,7 @@ public class RegistryController {
         boolean removed = registrationService.deregisterService(serviceName);
 
         if (removed) {
+            cacheService.removeService(serviceName);
             return ResponseEntity.ok(Map.of(
                     "message", "Service deregistered successfully",
                     "serviceName", serviceName));
@@ -1,5 +1,6 @@
 package com.angrysurfer.atomic.service.registry.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -14,6 +15,7 @@ import com.angrysurfer.atomic.service.registry.entity.Service;
 public interface DeploymentRepository extends JpaRepository<Deployment, Long> {
     List<Deployment> findByService(Service service);
     List<Deployment> findByService_Id(Long serviceId);
+    List<Deployment> findByService_IdIn(Collection<Long> serviceIds);
     List<Deployment> findByServer(Host server);
     List<Deployment> findByServer_Id(Long serverId);
     List<Deployment> findByStatus(String status);
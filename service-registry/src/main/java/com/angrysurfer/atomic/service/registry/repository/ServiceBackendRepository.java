@@ -1,5 +1,6 @@
 package com.angrysurfer.atomic.service.registry.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -23,6 +24,11 @@ public interface ServiceBackendRepository extends JpaRepository<ServiceBackend,
      */
     List<ServiceBackend> findByBackendDeploymentId(Long backendDeploymentId);
 
+    /**
+     * Find all uses of any of the backends by ID
+     */
+    List<ServiceBackend> findByBackendDeploymentIdIn(Collection<Long> backendDeploymentIds);
+
     /**
      * Find backends by role
      * Example: Find all PRIMARY backends for a service
@@ -33,4 +33,18 @@ public interface ServiceRepository extends JpaRepository<Service, Long> {
     List<Service> findByParentService_Id(Long parentServiceId);
 
     List<Service> findByParentServiceIsNull();
+
+    /**
+     * Row count and latest update of every table the routing table is built
+     * from, as one string; see ExternalServiceRegistrationService#getRoutingTableVersion.
+     */
+    @Query(value = "SELECT CONCAT_WS('|', "
+            + "(SELECT COUNT(*) FROM services), (SELECT MAX(updated_at) FROM services), "
+            + "(SELECT COUNT(*) FROM service_configs), (SELECT MAX(updated_at) FROM service_configs), "
+            + "(SELECT COUNT(*) FROM deployments), (SELECT MAX(updated_at) FROM deployments), "
+            + "(SELECT COUNT(*) FROM service_backends), (SELECT MAX(updated_at) FROM service_backends), "
+            + "(SELECT COUNT(*) FROM servers), (SELECT MAX(updated_at) FROM servers), "
+            + "(SELECT COUNT(*) FROM frameworks), (SELECT MAX(updated_at) FROM frameworks))",
+            nativeQuery = true)
+    String routingTableVersion();
 }
@@ -1,6 +1,10 @@
 package com.angrysurfer.atomic.service.registry.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -12,10 +16,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.angrysurfer.atomic.service.registry.dto.ExternalServiceRegistration;
+import com.angrysurfer.atomic.service.registry.entity.Deployment;
 import com.angrysurfer.atomic.service.registry.entity.Framework;
+import com.angrysurfer.atomic.service.registry.entity.ServiceBackend;
 import com.angrysurfer.atomic.service.registry.entity.ServiceConfiguration;
 import com.angrysurfer.atomic.service.registry.entity.ServiceType;
+import com.angrysurfer.atomic.service.registry.repository.DeploymentRepository;
 import com.angrysurfer.atomic.service.registry.repository.FrameworkRepository;
+import com.angrysurfer.atomic.service.registry.repository.ServiceBackendRepository;
 import com.angrysurfer.atomic.service.registry.repository.ServiceConfigurationRepository;
 import com.angrysurfer.atomic.service.registry.repository.ServiceRepository;
 import com.angrysurfer.atomic.service.registry.repository.ServiceTypeRepository;
@@ -37,6 +45,12 @@ public class ExternalServiceRegistrationService {
     @Autowired
     private ServiceConfigurationRepository serviceConfigurationRepository;
 
+    @Autowired
+    private DeploymentRepository deploymentRepository;
+
+    @Autowired
+    private ServiceBackendRepository serviceBackendRepository;
+
     @Transactional
     public com.angrysurfer.atomic.service.registry.entity.Service registerExternalService(
             ExternalServiceRegistration registration) {
@@ -286,45 +300,174 @@ public class ExternalServiceRegistrationService {
                 .findByName(serviceName);
 
         if (serviceOpt.isPresent()) {
-            com.angrysurfer.atomic.service.registry.entity.Service service = serviceOpt.get();
+            Optional<String> operations = serviceConfigurationRepository
+                    .findByServiceAndConfigKey(serviceOpt.get(), "operations")
+                    .map(ServiceConfiguration::getConfigValue);
+            Map<String, Object> details = toDetails(serviceOpt.get(), operations.orElse(""));
+            log.debug("Returning details for service: {} with endpoint: {}", serviceName, details.get("endpoint"));
+            return Optional.of(details);
+        }
+
+        log.warn("Service not found for details: {}", serviceName);
+        return Optional.empty();
+    }
 
-            // Build the service URL
-            String baseUrl = service.getApiBasePath();
-            if (!baseUrl.startsWith("http")) {
-                baseUrl = "http://" + baseUrl;
+    /**
+     * A stamp that changes whenever anything the routing table is built from
+     * changes: the row count and latest update time of every table it reads.
+     * It is cheap to compute, so gateways polling for changes can be answered
+     * without building the table.
+     */
+    public String getRoutingTableVersion() {
+        return serviceRepository.routingTableVersion();
+    }
+
+    /**
+     * Details of every service that can be routed to (not deregistered and
+     * with operations), in name order, for gateways to keep a local routing
+     * table of. Each entry lists the service's running deployments as
+     * {@code instances}, for gateways to balance calls across. Operations,
+     * deployments and backends are loaded in one query each rather than per
+     * service; services that cannot be routed to (no base path) are left out.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getRoutingTable() {
+        List<com.angrysurfer.atomic.service.registry.entity.Service> services = new ArrayList<>();
+        for (com.angrysurfer.atomic.service.registry.entity.Service service : serviceRepository.findAll()) {
+            if ("ARCHIVED".equals(service.getStatus())) {
+                continue;
             }
-            if (service.getDefaultPort() != null && !baseUrl.contains(":")) {
-                baseUrl += ":" + service.getDefaultPort();
+            if (service.getApiBasePath() == null || service.getApiBasePath().isBlank()) {
+                log.warn("Leaving service {} out of the routing table: no API base path", service.getName());
+                continue;
             }
+            services.add(service);
+        }
 
-            // Get operations if available
-            Optional<String> operationsOpt = serviceConfigurationRepository
-                    .findByServiceAndConfigKey(service, "operations")
-                    .map(ServiceConfiguration::getConfigValue);
+        Map<Long, String> operations = new HashMap<>();
+        for (ServiceConfiguration config : serviceConfigurationRepository.findByConfigKey("operations")) {
+            if (config.getServiceId() != null && config.getConfigValue() != null) {
+                operations.putIfAbsent(config.getServiceId(), config.getConfigValue());
+            }
+        }
+        Map<Long, List<Deployment>> deployments = new HashMap<>();
+        Map<Long, List<ServiceBackend>> backends = new HashMap<>();
+        List<Long> serviceIds = services.stream()
+                .filter(service -> !operations.getOrDefault(service.getId(), "").isEmpty())
+                .map(com.angrysurfer.atomic.service.registry.entity.Service::getId)
+                .toList();
+        if (!serviceIds.isEmpty()) {
+            List<Long> deploymentIds = new ArrayList<>();
+            for (Deployment deployment : deploymentRepository.findByService_IdIn(serviceIds)) {
+                deployments.computeIfAbsent(deployment.getService().getId(), id -> new ArrayList<>()).add(deployment);
+                deploymentIds.add(deployment.getId());
+            }
+            if (!deploymentIds.isEmpty()) {
+                for (ServiceBackend backend : serviceBackendRepository.findByBackendDeploymentIdIn(deploymentIds)) {
+                    backends.computeIfAbsent(backend.getBackendDeploymentId(), id -> new ArrayList<>()).add(backend);
+                }
+            }
+        }
 
-            // Get framework details if available
-            String frameworkName = "unknown";
-            if (service.getFrameworkId() != null) {
-                Optional<Framework> frameworkOpt = frameworkRepository.findById(service.getFrameworkId());
-                if (frameworkOpt.isPresent()) {
-                    frameworkName = frameworkOpt.get().getName();
+        List<Map<String, Object>> routes = new ArrayList<>();
+        for (com.angrysurfer.atomic.service.registry.entity.Service service : services) {
+            String serviceOperations = operations.getOrDefault(service.getId(), "");
+            if (serviceOperations.isEmpty()) {
+                continue;
+            }
+            try {
+                Map<String, Object> details = toDetails(service, serviceOperations);
+                details.put("instances", getInstances(deployments.getOrDefault(service.getId(), List.of()), backends));
+                routes.add(details);
+            } catch (RuntimeException e) {
+                log.warn("Leaving service {} out of the routing table: {}", service.getName(), e.getMessage());
+            }
+        }
+        routes.sort(Comparator.comparing(details -> details.get("serviceName").toString()));
+        log.debug("Returning routing table with {} services", routes.size());
+        return routes;
+    }
+
+    /**
+     * Running deployments of a service, with the zone (host region) they run
+     * in and how they are ranked as backends: the best (lowest) priority and
+     * highest weight any active {@link ServiceBackend} gives them, and
+     * whether they are only ever used as a backup.
+     */
+    private List<Map<String, Object>> getInstances(List<Deployment> deployments,
+            Map<Long, List<ServiceBackend>> backendsByDeployment) {
+        List<Map<String, Object>> instances = new ArrayList<>();
+        for (Deployment deployment : deployments) {
+            if (Boolean.FALSE.equals(deployment.getActiveFlag()) || "STOPPED".equalsIgnoreCase(deployment.getStatus())
+                    || deployment.getServer() == null || deployment.getPort() == null) {
+                continue;
+            }
+            int priority = Integer.MAX_VALUE;
+            int weight = 0;
+            boolean backupOnly = false;
+            for (ServiceBackend backend : backendsByDeployment.getOrDefault(deployment.getId(), List.of())) {
+                if (!Boolean.TRUE.equals(backend.getIsActive())) {
+                    continue;
                 }
+                boolean backup = backend.getRole() == ServiceBackend.BackendRole.BACKUP;
+                if (priority == Integer.MAX_VALUE) {
+                    backupOnly = backup;
+                } else {
+                    backupOnly &= backup;
+                }
+                priority = Math.min(priority, backend.getPriority() != null ? backend.getPriority() : 1);
+                weight = Math.max(weight, backend.getWeight() != null ? backend.getWeight() : 100);
             }
 
-            Map<String, Object> details = Map.of(
-                    "serviceName", service.getName(),
-                    "endpoint", baseUrl,
-                    "healthCheck", service.getHealthCheckPath(),
-                    "framework", frameworkName,
-                    "status", service.getStatus(),
-                    "operations", operationsOpt.orElse(""));
+            String host = deployment.getServer().getHostname();
+            String contextPath = deployment.getContextPath() != null ? deployment.getContextPath() : "";
+            Map<String, Object> instance = new LinkedHashMap<>();
+            instance.put("id", deployment.getId());
+            instance.put("endpoint", "http://" + host + ":" + deployment.getPort() + contextPath);
+            instance.put("host", host);
+            instance.put("zone", deployment.getServer().getRegion());
+            instance.put("priority", priority == Integer.MAX_VALUE ? 1 : priority);
+            instance.put("weight", weight == 0 ? 100 : weight);
+            instance.put("backup", backupOnly);
+            instance.put("healthStatus", deployment.getHealthStatus());
+            instances.add(instance);
+        }
+        instances.sort(Comparator.comparing(instance -> (Long) instance.get("id")));
+        return instances;
+    }
 
-            log.debug("Returning details for service: {} with endpoint: {}", serviceName, baseUrl);
-            return Optional.of(details);
+    private Map<String, Object> toDetails(com.angrysurfer.atomic.service.registry.entity.Service service,
+            String operations) {
+        // Build the service URL
+        String baseUrl = service.getApiBasePath();
+        if (baseUrl != null && !baseUrl.startsWith("http")) {
+            baseUrl = "http://" + baseUrl;
+        }
+        if (baseUrl != null && service.getDefaultPort() != null && !baseUrl.contains(":")) {
+            baseUrl += ":" + service.getDefaultPort();
         }
 
-        log.warn("Service not found for details: {}", serviceName);
-        return Optional.empty();
+        // Ordered, so that the routing table renders the same way every time
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("serviceId", service.getId());
+        details.put("serviceName", service.getName());
+        details.put("endpoint", baseUrl);
+        details.put("healthCheck", service.getHealthCheckPath());
+        details.put("framework", frameworkName(service));
+        details.put("status", service.getStatus());
+        details.put("operations", operations);
+        return details;
+    }
+
+    private String frameworkName(com.angrysurfer.atomic.service.registry.entity.Service service) {
+        Framework framework = service.getFramework();
+        if (framework == null) {
+            return "unknown";
+        }
+        if (framework.getName() != null) {
+            return framework.getName();
+        }
+        return frameworkRepository.findById(framework.getId()).map(Framework::getName).orElse("unknown");
     }
 
     @Transactional
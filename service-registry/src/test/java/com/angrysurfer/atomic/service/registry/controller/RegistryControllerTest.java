@@ -0,0 +1,90 @@
+package com.angrysurfer.atomic.service.registry.controller;
+
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.angrysurfer.atomic.service.registry.repository.ServiceRepository;
+import com.angrysurfer.atomic.service.registry.service.ExternalServiceRegistrationService;
+import com.angrysurfer.atomic.service.registry.service.ServiceStatusCacheService;
+
+@ExtendWith(MockitoExtension.class)
+class RegistryControllerTest {
+
+    @Mock
+    private ExternalServiceRegistrationService registrationService;
+
+    @Mock
+    private ServiceStatusCacheService cacheService;
+
+    @Mock
+    private ServiceRepository serviceRepository;
+
+    @InjectMocks
+    private RegistryController controller;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void testRoutingTableIsServedWithAnETag() throws Exception {
+        // Arrange
+        when(registrationService.getRoutingTableVersion()).thenReturn("3|2026-10-18 08:00:00");
+        when(registrationService.getRoutingTable()).thenReturn(List.of(Map.of("name", "note-service")));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/registry/routes"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$[0].name").value("note-service"));
+    }
+
+    @Test
+    void testUnchangedRoutingTableIsNotBuilt() throws Exception {
+        // Arrange
+        when(registrationService.getRoutingTableVersion()).thenReturn("3|2026-10-18 08:00:00");
+        when(registrationService.getRoutingTable()).thenReturn(List.of(Map.of("name", "note-service")));
+        MvcResult first = mockMvc.perform(get("/api/registry/routes")).andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(get("/api/registry/routes").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(registrationService, times(2)).getRoutingTableVersion();
+        verify(registrationService, times(1)).getRoutingTable();
+    }
+
+    @Test
+    void testChangedRoutingTableIsServedAgain() throws Exception {
+        // Arrange
+        when(registrationService.getRoutingTableVersion()).thenReturn("3|2026-10-18 08:00:00",
+                "4|2026-10-18 08:05:00");
+        when(registrationService.getRoutingTable()).thenReturn(List.of(Map.of("name", "note-service")));
+        String etag = mockMvc.perform(get("/api/registry/routes")).andReturn().getResponse().getHeader("ETag");
+
+        // Act & Assert
+        mockMvc.perform(get("/api/registry/routes").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+        verify(registrationService, times(2)).getRoutingTable();
+    }
+}
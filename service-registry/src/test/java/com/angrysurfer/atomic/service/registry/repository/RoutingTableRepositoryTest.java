@@ -0,0 +1,187 @@
+package com.angrysurfer.atomic.service.registry.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.angrysurfer.atomic.service.registry.entity.Deployment;
+import com.angrysurfer.atomic.service.registry.entity.EnvironmentType;
+import com.angrysurfer.atomic.service.registry.entity.Framework;
+import com.angrysurfer.atomic.service.registry.entity.FrameworkCategory;
+import com.angrysurfer.atomic.service.registry.entity.FrameworkLanguage;
+import com.angrysurfer.atomic.service.registry.entity.Host;
+import com.angrysurfer.atomic.service.registry.entity.OperatingSystem;
+import com.angrysurfer.atomic.service.registry.entity.ServerType;
+import com.angrysurfer.atomic.service.registry.entity.Service;
+import com.angrysurfer.atomic.service.registry.entity.ServiceBackend;
+import com.angrysurfer.atomic.service.registry.entity.ServiceType;
+
+/**
+ * The queries the gateway routing table is built from, against an in-memory
+ * database.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.hbm2ddl.auto=create-drop" })
+class RoutingTableRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private DeploymentRepository deploymentRepository;
+
+    @Autowired
+    private ServiceBackendRepository serviceBackendRepository;
+
+    private Framework framework;
+    private ServiceType serviceType;
+    private EnvironmentType environment;
+    private Host server;
+
+    @BeforeEach
+    void setUp() {
+        FrameworkCategory category = new FrameworkCategory();
+        category.setName("Web");
+        FrameworkLanguage language = new FrameworkLanguage();
+        language.setName("Java");
+        framework = new Framework();
+        framework.setName("Spring Boot");
+        framework.setCategory(entityManager.persist(category));
+        framework.setLanguage(entityManager.persist(language));
+        entityManager.persist(framework);
+
+        serviceType = new ServiceType();
+        serviceType.setName("REST");
+        entityManager.persist(serviceType);
+
+        environment = new EnvironmentType();
+        environment.setName("dev");
+        entityManager.persist(environment);
+
+        ServerType serverType = new ServerType();
+        serverType.setName("VM");
+        OperatingSystem os = new OperatingSystem();
+        os.setName("Linux");
+        server = new Host();
+        server.setHostname("host-1");
+        server.setIpAddress("10.0.0.1");
+        server.setType(entityManager.persist(serverType));
+        server.setEnvironmentType(environment);
+        server.setOperatingSystem(entityManager.persist(os));
+        entityManager.persist(server);
+        entityManager.flush();
+    }
+
+    @Test
+    void testRoutingTableVersionChangesWhenADeploymentIsAdded() {
+        // Arrange
+        Service notes = service("note-service");
+        String before = serviceRepository.routingTableVersion();
+
+        // Act
+        deployment(notes, 8082);
+        String after = serviceRepository.routingTableVersion();
+
+        // Assert
+        assertNotNull(before);
+        assertNotEquals(before, after);
+        assertEquals(after, serviceRepository.routingTableVersion());
+    }
+
+    @Test
+    void testRoutingTableVersionChangesWhenAServiceIsUpdated() {
+        // Arrange
+        Service notes = service("note-service");
+        String before = serviceRepository.routingTableVersion();
+
+        // Act
+        notes.setUpdatedAt(notes.getUpdatedAt().plusSeconds(1));
+        entityManager.flush();
+
+        // Assert
+        assertNotEquals(before, serviceRepository.routingTableVersion());
+    }
+
+    @Test
+    void testFindDeploymentsOfSeveralServices() {
+        // Arrange
+        Service notes = service("note-service");
+        Service users = service("user-service");
+        Service files = service("file-service");
+        Deployment notes1 = deployment(notes, 8082);
+        Deployment notes2 = deployment(notes, 8092);
+        Deployment users1 = deployment(users, 8083);
+        deployment(files, 8084);
+
+        // Act
+        List<Deployment> deployments = deploymentRepository.findByService_IdIn(List.of(notes.getId(), users.getId()));
+
+        // Assert
+        assertEquals(List.of(notes1.getId(), notes2.getId(), users1.getId()),
+                deployments.stream().map(Deployment::getId).sorted().toList());
+    }
+
+    @Test
+    void testFindUsesOfSeveralBackends() {
+        // Arrange
+        Deployment notes = deployment(service("note-service"), 8082);
+        Deployment users = deployment(service("user-service"), 8083);
+        Deployment mongo = deployment(service("mongodb"), 27017);
+        Deployment redis = deployment(service("redis"), 6379);
+        Deployment mysql = deployment(service("mysql"), 3306);
+        ServiceBackend notesOnMongo = backend(notes, mongo);
+        ServiceBackend usersOnRedis = backend(users, redis);
+        backend(users, mysql);
+
+        // Act
+        List<ServiceBackend> backends = serviceBackendRepository
+                .findByBackendDeploymentIdIn(List.of(mongo.getId(), redis.getId()));
+
+        // Assert
+        assertEquals(List.of(notesOnMongo.getId(), usersOnRedis.getId()),
+                backends.stream().map(ServiceBackend::getId).sorted().toList());
+    }
+
+    private Service service(String name) {
+        Service service = new Service();
+        service.setName(name);
+        service.setFramework(framework);
+        service.setType(serviceType);
+        service.setApiBasePath("/api/" + name);
+        entityManager.persist(service);
+        entityManager.flush();
+        return service;
+    }
+
+    private Deployment deployment(Service service, int port) {
+        Deployment deployment = new Deployment();
+        deployment.setService(service);
+        deployment.setEnvironment(environment);
+        deployment.setServer(server);
+        deployment.setPort(port);
+        deployment.setStatus("RUNNING");
+        entityManager.persist(deployment);
+        entityManager.flush();
+        return deployment;
+    }
+
+    private ServiceBackend backend(Deployment service, Deployment backend) {
+        ServiceBackend serviceBackend = new ServiceBackend();
+        serviceBackend.setServiceDeploymentId(service.getId());
+        serviceBackend.setBackendDeploymentId(backend.getId());
+        entityManager.persist(serviceBackend);
+        entityManager.flush();
+        return serviceBackend;
+    }
+}